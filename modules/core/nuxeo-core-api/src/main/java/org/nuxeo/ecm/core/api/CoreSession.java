@@ -28,6 +28,7 @@ import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 import org.nuxeo.ecm.core.api.DocumentModel.DocumentModelRefresh;
 import org.nuxeo.ecm.core.api.event.DocumentEventTypes;
@@ -789,6 +790,16 @@ public interface CoreSession {
      */
     boolean isNegativeAclAllowed();
 
+    /**
+     * Checks whether the document ids of the repository are strings starting with lowercase hexadecimal digits, like
+     * random UUIDs stored as strings, so that queries can compare {@code ecm:uuid} to hexadecimal string bounds.
+     * <p>
+     * This is not the case for ids generated by a sequence, or stored as native UUIDs by the database.
+     *
+     * @since 11.2
+     */
+    boolean hasHexadecimalStringIds();
+
     /*
      * Support for lazy loading
      */
@@ -1138,6 +1149,25 @@ public interface CoreSession {
     PartialList<Map<String, Serializable>> queryProjection(String query, String queryType, boolean distinctDocuments,
             long limit, long offset, long countUpTo, Object... params);
 
+    /**
+     * Executes the given query and returns a stream of maps containing the requested properties, read lazily from the
+     * database cursor (which must be closed when done).
+     * <p>
+     * Unlike {@link #queryAndFetch}, the results are never held all at once in memory: they are fetched from the
+     * database {@code fetchSize} rows at a time while the stream is consumed. This is meant for exports or reports over
+     * large result sets, and must be consumed within the current transaction.
+     *
+     * @param query the query to execute
+     * @param queryType the query type, usually "NXQL"
+     * @param distinctDocuments if {@code true} then a maximum of one row per document will be returned
+     * @param fetchSize the number of rows to fetch at a time from the database
+     * @param params optional query-type-dependent parameters
+     * @return a {@link Stream}, which <b>must</b> be closed after use
+     * @since 11.2
+     */
+    Stream<Map<String, Serializable>> queryProjectionStream(String query, String queryType, boolean distinctDocuments,
+            int fetchSize, Object... params);
+
     /**
      * Executes the given query and returns the first batch of results containing id of documents, next batch must be
      * requested within the {@code keepAliveSeconds} delay.
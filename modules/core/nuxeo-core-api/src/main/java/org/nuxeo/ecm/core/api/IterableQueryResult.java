@@ -21,6 +21,8 @@ package org.nuxeo.ecm.core.api;
 import java.io.Closeable;
 import java.io.Serializable;
 import java.util.Map;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * An iterable query result based on a cursor.
@@ -82,4 +84,13 @@ public interface IterableQueryResult extends Iterable<Map<String, Serializable>>
      */
     void skipTo(long pos);
 
+    /**
+     * Gets a sequential stream over the remaining results, which closes this query result when closed.
+     *
+     * @since 11.2
+     */
+    default Stream<Map<String, Serializable>> stream() {
+        return StreamSupport.stream(spliterator(), false).onClose(this::close);
+    }
+
 }
@@ -248,6 +248,17 @@ public interface Session<T extends QueryFilter> {
 
     ACP getMergedACP(Document doc);
 
+    /**
+     * Gets the merged ACP of a document in order to check permissions on it.
+     * <p>
+     * The returned ACP may be shared with other callers and must not be modified.
+     *
+     * @since 11.2
+     */
+    default ACP getMergedACPForCheck(Document doc) {
+        return getMergedACP(doc);
+    }
+
     void setACP(Document doc, ACP acp, boolean overwrite);
 
     /**
@@ -0,0 +1,117 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.core.benchmarks;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.nuxeo.runtime.kv.KeyValueStoreProvider;
+import org.nuxeo.runtime.kv.MemKeyValueStore;
+import org.nuxeo.runtime.kv.StripedMemKeyValueStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the in-memory Key/Value stores under concurrent writes on many keys having a TTL, like transient stores
+ * and locks do.
+ * <p>
+ * Run with {@code -t} to change the number of threads.
+ *
+ * @since 11.2
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class KeyValueStoreBenchmark {
+
+    public static final String IMPL_MEM = "mem";
+
+    public static final String IMPL_STRIPED = "striped";
+
+    protected static final long TTL = 3600;
+
+    @Param({ IMPL_MEM, IMPL_STRIPED })
+    public String impl;
+
+    @Param({ "100000" })
+    public int keys;
+
+    protected KeyValueStoreProvider store;
+
+    protected String[] keyNames;
+
+    protected byte[] value = "some value".getBytes(UTF_8);
+
+    @Setup
+    public void setup() {
+        store = IMPL_STRIPED.equals(impl) ? new StripedMemKeyValueStore() : new MemKeyValueStore();
+        keyNames = new String[keys];
+        for (int i = 0; i < keys; i++) {
+            keyNames[i] = "key" + i;
+            store.put(keyNames[i], value, TTL);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        store.close();
+    }
+
+    protected String randomKey() {
+        return keyNames[ThreadLocalRandom.current().nextInt(keys)];
+    }
+
+    @Benchmark
+    public void putWithTTL() {
+        store.put(randomKey(), value, TTL);
+    }
+
+    @Benchmark
+    public byte[] get() {
+        return store.get(randomKey());
+    }
+
+    @Benchmark
+    public boolean compareAndSet() {
+        return store.compareAndSet(randomKey(), value, value, TTL);
+    }
+
+    @Benchmark
+    public long addAndGet() {
+        return store.addAndGet("counter" + ThreadLocalRandom.current().nextInt(64), 1);
+    }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.core.benchmarks;
+
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
+import static org.nuxeo.ecm.core.io.registry.reflect.Instantiations.SINGLETON;
+import static org.nuxeo.ecm.core.io.registry.reflect.Priorities.REFERENCE;
+
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.core.MediaType;
+
+import org.apache.commons.lang3.reflect.TypeUtils;
+import org.nuxeo.ecm.core.io.registry.MarshallerRegistryImpl;
+import org.nuxeo.ecm.core.io.registry.Writer;
+import org.nuxeo.ecm.core.io.registry.context.RenderingContext;
+import org.nuxeo.ecm.core.io.registry.reflect.MarshallerInspector;
+import org.nuxeo.ecm.core.io.registry.reflect.Setup;
+import org.nuxeo.ecm.core.io.registry.reflect.Supports;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the resolution of writers done when rendering a page of results, where each entry looks up its writer and
+ * the writers of its parts.
+ * <p>
+ * {@code uncached} uses the full search on all writers, {@code cached} uses the registry resolution cache.
+ *
+ * @since 11.2
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MarshallerRegistryBenchmark {
+
+    protected static final Class<?>[] WRITERS = { IntegerWriter.class, LongWriter.class, NumberWriter.class,
+            StringWriter.class, StringListWriter.class, ListWriter.class, MapWriter.class, ObjectWriter.class };
+
+    @Param({ "1000" })
+    public int entries;
+
+    protected MarshallerRegistryImpl registry;
+
+    protected Set<MarshallerInspector> inspectors;
+
+    protected RenderingContext ctx;
+
+    protected Type stringListType;
+
+    @Setup
+    public void setup() {
+        registry = new MarshallerRegistryImpl();
+        registry.clear();
+        inspectors = new ConcurrentSkipListSet<>();
+        for (Class<?> writer : WRITERS) {
+            registry.register(writer);
+            inspectors.add(new MarshallerInspector(writer));
+        }
+        ctx = RenderingContext.CtxBuilder.get();
+        stringListType = TypeUtils.parameterize(List.class, String.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        registry.clear();
+    }
+
+    @Benchmark
+    public void uncached(Blackhole bh) {
+        for (int i = 0; i < entries; i++) {
+            bh.consume(registry.getMarshaller(ctx, Integer.class, Integer.class, APPLICATION_JSON_TYPE, null,
+                    inspectors, false));
+            bh.consume(registry.getMarshaller(ctx, String.class, String.class, APPLICATION_JSON_TYPE, null,
+                    inspectors, false));
+            bh.consume(registry.getMarshaller(ctx, List.class, stringListType, APPLICATION_JSON_TYPE, null,
+                    inspectors, false));
+        }
+    }
+
+    @Benchmark
+    public void cached(Blackhole bh) {
+        for (int i = 0; i < entries; i++) {
+            bh.consume(registry.getWriter(ctx, Integer.class, Integer.class, APPLICATION_JSON_TYPE));
+            bh.consume(registry.getWriter(ctx, String.class, String.class, APPLICATION_JSON_TYPE));
+            bh.consume(registry.getWriter(ctx, List.class, stringListType, APPLICATION_JSON_TYPE));
+        }
+    }
+
+    public abstract static class AbstractWriter<T> implements Writer<T> {
+
+        @Override
+        public boolean accept(Class<?> clazz, Type genericType, MediaType mediatype) {
+            return true;
+        }
+
+        @Override
+        public void write(T entity, Class<?> clazz, Type genericType, MediaType mediatype, OutputStream out) {
+            // not used
+        }
+    }
+
+    @org.nuxeo.ecm.core.io.registry.reflect.Setup(mode = SINGLETON, priority = REFERENCE)
+    @Supports(APPLICATION_JSON)
+    public static class IntegerWriter extends AbstractWriter<Integer> {
+    }
+
+    @org.nuxeo.ecm.core.io.registry.reflect.Setup(mode = SINGLETON, priority = REFERENCE)
+    @Supports(APPLICATION_JSON)
+    public static class LongWriter extends AbstractWriter<Long> {
+    }
+
+    @org.nuxeo.ecm.core.io.registry.reflect.Setup(mode = SINGLETON, priority = REFERENCE)
+    @Supports(APPLICATION_JSON)
+    public static class NumberWriter extends AbstractWriter<Number> {
+    }
+
+    @org.nuxeo.ecm.core.io.registry.reflect.Setup(mode = SINGLETON, priority = REFERENCE)
+    @Supports(APPLICATION_JSON)
+    public static class StringWriter extends AbstractWriter<String> {
+    }
+
+    @org.nuxeo.ecm.core.io.registry.reflect.Setup(mode = SINGLETON, priority = REFERENCE)
+    @Supports(APPLICATION_JSON)
+    public static class StringListWriter extends AbstractWriter<List<String>> {
+    }
+
+    @org.nuxeo.ecm.core.io.registry.reflect.Setup(mode = SINGLETON, priority = REFERENCE)
+    @Supports(APPLICATION_JSON)
+    public static class ListWriter extends AbstractWriter<List<?>> {
+    }
+
+    @org.nuxeo.ecm.core.io.registry.reflect.Setup(mode = SINGLETON, priority = REFERENCE)
+    @Supports(APPLICATION_JSON)
+    public static class MapWriter extends AbstractWriter<Map<String, ?>> {
+    }
+
+    @org.nuxeo.ecm.core.io.registry.reflect.Setup(mode = SINGLETON, priority = REFERENCE)
+    @Supports(APPLICATION_JSON)
+    public static class ObjectWriter extends AbstractWriter<Object> {
+    }
+
+}
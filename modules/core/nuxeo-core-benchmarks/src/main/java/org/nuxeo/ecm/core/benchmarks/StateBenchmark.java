@@ -0,0 +1,108 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.core.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.nuxeo.ecm.core.storage.State;
+import org.nuxeo.ecm.core.storage.StateHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the regular and compact storage of {@link State} for the operations done on cached states: creating them,
+ * reading properties and copying them into a transaction.
+ * <p>
+ * Run with {@code -prof gc} to also compare allocations, the retained size is measured by {@link StateFootprint}.
+ *
+ * @since 11.2
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+public class StateBenchmark {
+
+    protected static final int DOCUMENTS = 1024;
+
+    @Param({ StateDocuments.LAYOUT_REGULAR, StateDocuments.LAYOUT_COMPACT })
+    public String layout;
+
+    protected State[] regular;
+
+    protected State[] states;
+
+    @Setup
+    public void setup() {
+        StateDocuments documents = new StateDocuments();
+        regular = new State[DOCUMENTS];
+        states = new State[DOCUMENTS];
+        for (int i = 0; i < DOCUMENTS; i++) {
+            regular[i] = documents.newDocument(i);
+            states[i] = StateDocuments.LAYOUT_COMPACT.equals(layout) ? StateHelper.compactCopy(regular[i])
+                    : regular[i];
+        }
+    }
+
+    @Benchmark
+    public void create(Blackhole bh) {
+        for (State state : regular) {
+            bh.consume(StateDocuments.LAYOUT_COMPACT.equals(layout) ? StateHelper.compactCopy(state)
+                    : StateHelper.deepCopy(state));
+        }
+    }
+
+    @Benchmark
+    public void get(Blackhole bh) {
+        for (State state : states) {
+            bh.consume(state.get("ecm:parentId"));
+            bh.consume(state.get("ecm:primaryType"));
+            bh.consume(state.get("ecm:isVersion"));
+            bh.consume(state.get("ecm:changeToken"));
+            bh.consume(state.get("dc:modified"));
+            bh.consume(state.get("dc:nosuchkey"));
+        }
+    }
+
+    @Benchmark
+    public void iterate(Blackhole bh) {
+        for (State state : states) {
+            state.entrySet().forEach(bh::consume);
+        }
+    }
+
+    @Benchmark
+    public void deepCopy(Blackhole bh) {
+        for (State state : states) {
+            bh.consume(StateHelper.deepCopy(state));
+        }
+    }
+
+}
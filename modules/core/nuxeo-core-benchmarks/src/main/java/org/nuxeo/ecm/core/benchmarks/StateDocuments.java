@@ -0,0 +1,133 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.core.benchmarks;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import org.nuxeo.ecm.core.storage.State;
+import org.nuxeo.ecm.core.storage.StateHelper;
+
+/**
+ * Generates DBS states shaped like the ones of a repository: system properties, Dublin Core, a blob, an ACL.
+ *
+ * @since 11.2
+ */
+public class StateDocuments {
+
+    public static final String LAYOUT_REGULAR = "regular";
+
+    public static final String LAYOUT_COMPACT = "compact";
+
+    protected static final String[] USERS = { "Administrator", "bob", "alice", "john", "jane" };
+
+    protected final Random random = new Random(42);
+
+    /**
+     * Creates a document state using the given layout.
+     */
+    public State newDocument(String layout, int index) {
+        State state = newDocument(index);
+        return LAYOUT_COMPACT.equals(layout) ? StateHelper.compactCopy(state) : state;
+    }
+
+    /**
+     * Creates a document state using regular storage.
+     */
+    public State newDocument(int index) {
+        String id = UUID.randomUUID().toString();
+        String parentId = UUID.randomUUID().toString();
+        State state = new State();
+        state.put("ecm:id", id);
+        state.put("ecm:parentId", parentId);
+        state.put("ecm:ancestorIds", new Object[] { UUID.randomUUID().toString(), parentId });
+        state.put("ecm:name", "file-" + index);
+        state.put("ecm:pos", Long.valueOf(index));
+        state.put("ecm:primaryType", "File");
+        state.put("ecm:mixinTypes", new Object[] { "Downloadable", "Versionable", "Publishable", "Commentable" });
+        state.put("ecm:isProxy", Boolean.FALSE);
+        state.put("ecm:isVersion", Boolean.FALSE);
+        state.put("ecm:isCheckedIn", Boolean.FALSE);
+        state.put("ecm:isTrashed", Boolean.FALSE);
+        state.put("ecm:lifeCyclePolicy", "default");
+        state.put("ecm:lifeCycleState", "project");
+        state.put("ecm:majorVersion", Long.valueOf(0));
+        state.put("ecm:minorVersion", Long.valueOf(1));
+        state.put("ecm:changeToken", Long.valueOf(random.nextInt(100)));
+        state.put("ecm:sysChangeToken", Long.valueOf(random.nextInt(100)));
+        state.put("ecm:racl", new Object[] { "Administrator", "members" });
+        state.put("ecm:acp", (Serializable) newAcp());
+        state.put("dc:title", "Document " + index);
+        state.put("dc:description", "Description of the document number " + index);
+        state.put("dc:created", newCalendar());
+        state.put("dc:modified", newCalendar());
+        state.put("dc:creator", user());
+        state.put("dc:lastContributor", user());
+        state.put("dc:contributors", new Object[] { user(), user() });
+        state.put("dc:subjects", new Object[] { "art/architecture", "sciences/astronomy" });
+        state.put("common:size", Long.valueOf(random.nextInt(1 << 20)));
+        state.put("file:content", newBlob(index));
+        state.put("uid:major_version", Long.valueOf(0));
+        state.put("uid:minor_version", Long.valueOf(1));
+        return state;
+    }
+
+    protected GregorianCalendar newCalendar() {
+        GregorianCalendar cal = new GregorianCalendar();
+        cal.setTimeInMillis(System.currentTimeMillis() - random.nextInt(Integer.MAX_VALUE));
+        return cal;
+    }
+
+    protected String user() {
+        return USERS[random.nextInt(USERS.length)];
+    }
+
+    protected State newBlob(int index) {
+        State blob = new State();
+        blob.put("name", "file-" + index + ".pdf");
+        blob.put("mime-type", "application/pdf");
+        blob.put("encoding", "UTF-8");
+        blob.put("digest", UUID.randomUUID().toString().replace("-", ""));
+        blob.put("length", Long.valueOf(random.nextInt(1 << 20)));
+        return blob;
+    }
+
+    protected List<State> newAcp() {
+        List<State> acl = new ArrayList<>();
+        for (String user : new String[] { "Administrator", "members" }) {
+            State ace = new State();
+            ace.put("user", user);
+            ace.put("perm", "Everything");
+            ace.put("grant", Boolean.TRUE);
+            ace.put("creator", "system");
+            acl.add(ace);
+        }
+        State local = new State();
+        local.put("name", "local");
+        local.put("acl", (Serializable) acl);
+        List<State> acp = new ArrayList<>();
+        acp.add(local);
+        return acp;
+    }
+
+}
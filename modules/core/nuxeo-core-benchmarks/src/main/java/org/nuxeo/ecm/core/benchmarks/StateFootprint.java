@@ -0,0 +1,77 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.core.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+import org.nuxeo.ecm.core.storage.State;
+
+/**
+ * Measures the heap retained by document states in the regular and compact storage of {@link State}.
+ * <p>
+ * Run with:
+ *
+ * <pre>
+ * java -Xmx2g -cp target/benchmarks.jar org.nuxeo.ecm.core.benchmarks.StateFootprint [documents]
+ * </pre>
+ *
+ * @since 11.2
+ */
+public class StateFootprint {
+
+    protected static final int DEFAULT_DOCUMENTS = 100_000;
+
+    protected static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    public static void main(String[] args) throws InterruptedException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_DOCUMENTS;
+        // warm up the key slots and the classes
+        measure(StateDocuments.LAYOUT_COMPACT, 1000);
+        for (String layout : new String[] { StateDocuments.LAYOUT_REGULAR, StateDocuments.LAYOUT_COMPACT }) {
+            long bytes = measure(layout, n);
+            System.out.println(String.format("%-8s %,d documents: %,d bytes, %,d bytes/document", layout, n, bytes,
+                    bytes / n));
+        }
+    }
+
+    protected static long measure(String layout, int n) throws InterruptedException {
+        StateDocuments documents = new StateDocuments();
+        long before = usedHeap();
+        State[] states = new State[n];
+        for (int i = 0; i < n; i++) {
+            states[i] = documents.newDocument(layout, i);
+        }
+        long after = usedHeap();
+        if (states[n - 1] == null) {
+            // keep the states reachable until after the measure
+            throw new IllegalStateException();
+        }
+        return after - before;
+    }
+
+    protected static long usedHeap() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+
+}
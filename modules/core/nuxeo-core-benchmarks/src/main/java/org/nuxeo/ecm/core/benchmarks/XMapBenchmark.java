@@ -0,0 +1,142 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.core.benchmarks;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.nuxeo.common.xmap.XMap;
+import org.nuxeo.common.xmap.annotation.XNode;
+import org.nuxeo.common.xmap.annotation.XNodeList;
+import org.nuxeo.common.xmap.annotation.XNodeMap;
+import org.nuxeo.common.xmap.annotation.XObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.w3c.dom.Element;
+
+/**
+ * Compares the binding of contributions by XMap using reflection or method handles, like done for each contribution
+ * at startup.
+ *
+ * @since 11.2
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class XMapBenchmark {
+
+    public static final String ACCESSOR_REFLECTION = "reflection";
+
+    public static final String ACCESSOR_METHOD_HANDLES = "methodHandles";
+
+    protected static final String CONTRIBUTION = "<extension>" //
+            + "<descriptor name=\"desc\" enabled=\"true\" order=\"10\">" //
+            + "<title>Some title</title>" //
+            + "<description>Some description</description>" //
+            + "<items><item>item1</item><item>item2</item><item>item3</item></items>" //
+            + "<property name=\"prop1\">value1</property>" //
+            + "<property name=\"prop2\">value2</property>" //
+            + "</descriptor>" //
+            + "</extension>";
+
+    @Param({ ACCESSOR_REFLECTION, ACCESSOR_METHOD_HANDLES })
+    public String accessor;
+
+    protected XMap xmap;
+
+    protected byte[] bytes;
+
+    protected Element element;
+
+    @XObject("descriptor")
+    public static class Descriptor {
+
+        @XNode("@name")
+        protected String name;
+
+        @XNode("@enabled")
+        protected boolean enabled;
+
+        @XNode("@order")
+        protected int order;
+
+        @XNode("title")
+        protected String title;
+
+        protected String description;
+
+        @XNodeList(value = "items/item", type = ArrayList.class, componentType = String.class)
+        protected List<String> items;
+
+        @XNodeMap(value = "property", key = "@name", type = HashMap.class, componentType = String.class)
+        protected Map<String, String> properties;
+
+        @XNode("description")
+        public void setDescription(String description) {
+            this.description = description;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        xmap = new XMap();
+        xmap.setUseMethodHandles(ACCESSOR_METHOD_HANDLES.equals(accessor));
+        xmap.register(Descriptor.class);
+        bytes = CONTRIBUTION.getBytes(UTF_8);
+        // contributions are bound from the DOM of their component file
+        element = XMap.getFactory()
+                      .newDocumentBuilder()
+                      .parse(new ByteArrayInputStream(bytes))
+                      .getDocumentElement();
+    }
+
+    @Benchmark
+    public Object[] bind() {
+        return xmap.loadAll(element);
+    }
+
+    @Benchmark
+    public Object[] parseAndBind() throws IOException {
+        return xmap.loadAll(new ByteArrayInputStream(bytes));
+    }
+
+}
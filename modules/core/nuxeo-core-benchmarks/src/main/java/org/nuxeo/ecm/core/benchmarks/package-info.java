@@ -0,0 +1,14 @@
+/**
+ * JMH benchmarks for Nuxeo Core.
+ * <p>
+ * Build with {@code mvn package} then run with {@code java -jar target/benchmarks.jar}, benchmarks and parameters can
+ * be selected using the usual JMH options, for instance:
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar StateBenchmark -p layout=regular,compact -prof gc
+ * java -jar target/benchmarks.jar KeyValueStoreBenchmark -p impl=mem,striped -t 16
+ * java -jar target/benchmarks.jar XMapBenchmark -p accessor=reflection,methodHandles
+ * java -jar target/benchmarks.jar MarshallerRegistryBenchmark
+ * </pre>
+ */
+package org.nuxeo.ecm.core.benchmarks;
@@ -34,6 +34,7 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.api.CoreInstance;
 import org.nuxeo.ecm.core.api.repository.RepositoryManager;
 import org.nuxeo.ecm.core.api.scroll.ScrollService;
 import org.nuxeo.ecm.core.bulk.message.BulkCommand;
@@ -132,9 +133,20 @@ public class BulkServiceImpl implements BulkService {
             }
         }
         checkIfScrollerExists(command);
+        if (command.isScrollPartitioned() && command.useGenericScroller()) {
+            throw new IllegalArgumentException("Scroll partitions are not supported by generic scroller: " + command);
+        }
+        if (command.isScrollPartitioned()
+                && !CoreInstance.getCoreSessionSystem(command.getRepository()).hasHexadecimalStringIds()) {
+            throw new IllegalArgumentException(
+                    "Scroll partitions require hexadecimal string document ids, unsupported by repository: " + command);
+        }
 
         // store the bulk command and status in the key/value store
         BulkStatus status = new BulkStatus(command.getId());
+        if (command.isScrollPartitioned()) {
+            status.setScrollPartitions(command.getScrollPartitions());
+        }
         status.setState(SCHEDULED);
         status.setAction(command.getAction());
         status.setUsername(command.getUsername());
@@ -152,6 +164,14 @@ public class BulkServiceImpl implements BulkService {
         }
         // send command to bulk processor
         log.debug("Submit action with command: {}", command);
+        if (command.isScrollPartitioned()) {
+            // one record per partition so they are scrolled concurrently
+            for (int i = 0; i < command.getScrollPartitions(); i++) {
+                byte[] partitionAsBytes = BulkCodecs.getCommandCodec().encode(command.forScrollPartition(i));
+                submit(shardKey + ":" + i, command.getId(), partitionAsBytes);
+            }
+            return command.getId();
+        }
         return submit(shardKey, command.getId(), commandAsBytes);
     }
 
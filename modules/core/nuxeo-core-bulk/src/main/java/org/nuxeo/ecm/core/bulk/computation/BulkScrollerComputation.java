@@ -95,7 +95,8 @@ public class BulkScrollerComputation extends AbstractComputation {
      * @param nbOutputStreams the number of registered bulk action streams
      * @param scrollBatchSize the batch size to scroll
      * @param scrollKeepAliveSeconds the scroll lifetime
-     * @param produceImmediate whether or not the record should be produced immedialitely while scrolling
+     * @param produceImmediate whether or not the record should be produced immedialitely while scrolling, records are
+     *            appended asynchronously and awaited on checkpoint
      */
     public BulkScrollerComputation(String name, int nbOutputStreams, int scrollBatchSize, int scrollKeepAliveSeconds,
             boolean produceImmediate) {
@@ -122,6 +123,8 @@ public class BulkScrollerComputation extends AbstractComputation {
 
             long documentCount = 0;
             long bucketNumber = 1;
+            String bucketPrefix = command.isScrollPartitioned() ? commandId + ":" + command.getScrollPartition()
+                    : commandId;
             try (Scroll scroll = buildScroll(command)) {
                 while (scroll.hasNext()) {
                     if (isAbortedCommand(commandId)) {
@@ -132,7 +135,7 @@ public class BulkScrollerComputation extends AbstractComputation {
                     List<String> docIds = scroll.next();
                     documentIds.addAll(docIds);
                     while (documentIds.size() >= bucketSize) {
-                        produceBucket(context, commandId, bucketSize, bucketNumber++);
+                        produceBucket(context, commandId, bucketPrefix, bucketSize, bucketNumber++);
                     }
                     documentCount += docIds.size();
                 }
@@ -140,16 +143,16 @@ public class BulkScrollerComputation extends AbstractComputation {
             // send remaining document ids
             // there's at most one record because we loop while scrolling
             if (!documentIds.isEmpty()) {
-                produceBucket(context, commandId, bucketSize, bucketNumber++);
+                produceBucket(context, commandId, bucketPrefix, bucketSize, bucketNumber++);
             }
-            updateStatusAfterScroll(context, commandId, documentCount);
+            updateStatusAfterScroll(context, command, documentCount, null);
         } catch (IllegalArgumentException | QueryParseException | DocumentNotFoundException e) {
             log.error("Invalid query results in an empty document set: {}", command, e);
-            updateStatusAfterScroll(context, commandId, "Invalid query");
+            updateStatusAfterScroll(context, command, 0, "Invalid query");
         } catch (NuxeoException e) {
             if (command != null) {
                 log.error("Invalid command produces an empty document set: {}", command, e);
-                updateStatusAfterScroll(context, command.getId(), "Invalid command");
+                updateStatusAfterScroll(context, command, 0, "Invalid command");
             } else {
                 log.error("Discard invalid record: {}", record, e);
             }
@@ -172,6 +175,7 @@ public class BulkScrollerComputation extends AbstractComputation {
                                            .size(scrollSize)
                                            .timeout(Duration.ofSeconds(scrollKeepAliveSeconds))
                                            .name(command.getScroller())
+                                           .partition(command.getScrollPartition(), command.getScrollPartitions())
                                            .build();
         }
         ScrollService service = Framework.getService(ScrollService.class);
@@ -217,6 +221,29 @@ public class BulkScrollerComputation extends AbstractComputation {
         updateStatusAfterScroll(context, commandId, documentCount, null);
     }
 
+    /**
+     * Updates the status at the end of the scroll, for a partitioned command the status aggregates the partitions.
+     *
+     * @since 11.2
+     */
+    protected void updateStatusAfterScroll(ComputationContext context, BulkCommand command, long documentCount,
+            String errorMessage) {
+        if (command == null || !command.isScrollPartitioned()) {
+            updateStatusAfterScroll(context, command == null ? null : command.getId(), documentCount, errorMessage);
+            return;
+        }
+        BulkStatus delta = BulkStatus.deltaOf(command.getId());
+        if (errorMessage != null) {
+            delta.inError(errorMessage);
+        }
+        delta.setScrollPartitions(command.getScrollPartitions());
+        delta.setScrolledPartitions(1);
+        delta.setScrollEndTime(Instant.now());
+        delta.setTotal(documentCount);
+        ((ComputationContextImpl) context).produceRecordImmediate(STATUS_STREAM, command.getId(),
+                BulkCodecs.getStatusCodec().encode(delta));
+    }
+
     protected void updateStatusAfterScroll(ComputationContext context, String commandId, long documentCount,
             String errorMessage) {
         BulkStatus delta = BulkStatus.deltaOf(commandId);
@@ -239,12 +266,23 @@ public class BulkScrollerComputation extends AbstractComputation {
      * Produces a bucket as a record to appropriate bulk action stream.
      */
     protected void produceBucket(ComputationContext context, String commandId, int bucketSize, long bucketNumber) {
+        produceBucket(context, commandId, commandId, bucketSize, bucketNumber);
+    }
+
+    /**
+     * Produces a bucket using a key prefix, partitioned commands use a distinct prefix per partition.
+     *
+     * @since 11.2
+     */
+    protected void produceBucket(ComputationContext context, String commandId, String keyPrefix, int bucketSize,
+            long bucketNumber) {
         List<String> ids = documentIds.subList(0, min(bucketSize, documentIds.size()));
         BulkBucket bucket = new BulkBucket(commandId, ids);
-        String key = commandId + ":" + Long.toString(bucketNumber);
+        String key = keyPrefix + ":" + Long.toString(bucketNumber);
         Record record = Record.of(key, BulkCodecs.getBucketCodec().encode(bucket));
         if (produceImmediate) {
-            ((ComputationContextImpl) context).produceRecordImmediate(actionStream, record);
+            // buckets are pipelined, they are acknowledged at the latest on checkpoint
+            ((ComputationContextImpl) context).produceRecordAsync(actionStream, record);
         } else {
             context.produceRecord(actionStream, record);
         }
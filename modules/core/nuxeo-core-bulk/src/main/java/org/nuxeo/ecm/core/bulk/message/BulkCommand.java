@@ -66,6 +66,14 @@ public class BulkCommand implements Serializable {
     @AvroEncode(using = MapAsJsonAsStringEncoding.class)
     protected Map<String, Serializable> params;
 
+    // @since 11.2
+    @Nullable
+    protected Integer scrollPartitions;
+
+    // @since 11.2
+    @Nullable
+    protected Integer scrollPartition;
+
     protected BulkCommand() {
         // Empty constructor for Avro decoder
     }
@@ -81,6 +89,33 @@ public class BulkCommand implements Serializable {
         this.params = builder.params;
         this.scroller = builder.scroller;
         this.genericScroller = builder.genericScroller;
+        this.scrollPartitions = builder.scrollPartitions > 1 ? builder.scrollPartitions : null;
+    }
+
+    /**
+     * Returns a copy of the command restricted to a scroll partition.
+     *
+     * @since 11.2
+     */
+    public BulkCommand forScrollPartition(int partition) {
+        if (partition < 0 || partition >= getScrollPartitions()) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid scroll partition: %d for command: %s", partition, this));
+        }
+        BulkCommand ret = new BulkCommand();
+        ret.id = id;
+        ret.username = username;
+        ret.repository = repository;
+        ret.query = query;
+        ret.action = action;
+        ret.bucketSize = bucketSize;
+        ret.batchSize = batchSize;
+        ret.params = params;
+        ret.scroller = scroller;
+        ret.genericScroller = genericScroller;
+        ret.scrollPartitions = scrollPartitions;
+        ret.scrollPartition = partition;
+        return ret;
     }
 
     public String getUsername() {
@@ -133,6 +168,31 @@ public class BulkCommand implements Serializable {
         return batchSize;
     }
 
+    /**
+     * Returns the number of partitions scrolled concurrently to materialize the document set.
+     *
+     * @since 11.2
+     */
+    public int getScrollPartitions() {
+        return scrollPartitions == null ? 1 : scrollPartitions;
+    }
+
+    /**
+     * Returns the scroll partition handled by this command, see {@link #forScrollPartition(int)}.
+     *
+     * @since 11.2
+     */
+    public int getScrollPartition() {
+        return scrollPartition == null ? 0 : scrollPartition;
+    }
+
+    /**
+     * @since 11.2
+     */
+    public boolean isScrollPartitioned() {
+        return getScrollPartitions() > 1;
+    }
+
     @Override
     public int hashCode() {
         return HashCodeBuilder.reflectionHashCode(this);
@@ -181,6 +241,8 @@ public class BulkCommand implements Serializable {
 
         protected boolean genericScroller;
 
+        protected int scrollPartitions;
+
         protected Map<String, Serializable> params = new HashMap<>();
 
         /**
@@ -327,6 +389,19 @@ public class BulkCommand implements Serializable {
             return this;
         }
 
+        /**
+         * Splits the document set into partitions that are scrolled concurrently, only for document scrollers.
+         *
+         * @since 11.2
+         */
+        public Builder scrollPartitions(int partitions) {
+            if (partitions <= 0) {
+                throw new IllegalArgumentException("Invalid scroll partitions must > 0");
+            }
+            this.scrollPartitions = partitions;
+            return this;
+        }
+
         public BulkCommand build() {
             return new BulkCommand(this);
         }
@@ -111,6 +111,14 @@ public class BulkStatus implements AsyncStatus<String> {
     @Nullable
     protected Long processingDurationMillis;
 
+    // @since 11.2
+    @Nullable
+    protected Integer scrollPartitions;
+
+    // @since 11.2
+    @Nullable
+    protected Integer scrolledPartitions;
+
     @Nullable
     @AvroEncode(using = MapAsJsonAsStringEncoding.class)
     protected Map<String, Serializable> result = new HashMap<>();
@@ -158,16 +166,23 @@ public class BulkStatus implements AsyncStatus<String> {
             throw new IllegalArgumentException(
                     String.format("Cannot merge different command: %s with %s", this, update));
         }
-        if (update.getState() != null && getState() != State.ABORTED) {
+        if (update.scrollPartitions != null && scrollPartitions == null) {
+            scrollPartitions = update.scrollPartitions;
+        }
+        if (update.scrolledPartitions != null) {
+            mergeScrolledPartition(update);
+        } else if (update.getState() != null && getState() != State.ABORTED) {
             setState(update.getState());
         }
         if (update.processed != null) {
             setProcessed(getProcessed() + update.getProcessed());
         }
-        if (update.scrollStartTime != null) {
+        if (update.scrollStartTime != null
+                && (scrollPartitions == null || scrollStartTime == null || update.scrollStartTime < scrollStartTime)) {
+            // with partitions we take the minimum
             scrollStartTime = update.scrollStartTime;
         }
-        if (update.scrollEndTime != null) {
+        if (update.scrollEndTime != null && update.scrolledPartitions == null) {
             scrollEndTime = update.scrollEndTime;
         }
         if (update.submitTime != null) {
@@ -190,7 +205,7 @@ public class BulkStatus implements AsyncStatus<String> {
         if (update.completedTime != null) {
             completedTime = update.completedTime;
         }
-        if (update.total != null) {
+        if (update.total != null && update.scrolledPartitions == null) {
             setTotal(update.getTotal());
         }
         if (update.getAction() != null && getAction() == null) {
@@ -211,8 +226,30 @@ public class BulkStatus implements AsyncStatus<String> {
         checkForCompletedState();
     }
 
+    /**
+     * Merges the end of scroll of a partition: totals are added and the scroll is completed once all partitions have
+     * been scrolled.
+     */
+    protected void mergeScrolledPartition(BulkStatus update) {
+        scrolledPartitions = getScrolledPartitions() + update.scrolledPartitions;
+        setTotal(getTotal() + update.getTotal());
+        if (update.scrollEndTime != null && (scrollEndTime == null || update.scrollEndTime > scrollEndTime)) {
+            // we take the maximum
+            scrollEndTime = update.scrollEndTime;
+        }
+        if (getState() == State.ABORTED || !isScrollCompleted()) {
+            return;
+        }
+        if (getTotal() == 0) {
+            setState(State.COMPLETED);
+            setCompletedTime(Instant.now());
+        } else {
+            setState(State.RUNNING);
+        }
+    }
+
     protected void checkForCompletedState() {
-        if (!isDelta() && getTotal() > 0 && getProcessed() >= getTotal()) {
+        if (!isDelta() && getTotal() > 0 && getProcessed() >= getTotal() && isScrollCompleted()) {
             if (getState() != State.COMPLETED && getState() != State.ABORTED) {
                 setState(State.COMPLETED);
                 setCompletedTime(Instant.now());
@@ -412,6 +449,47 @@ public class BulkStatus implements AsyncStatus<String> {
         this.processingDurationMillis = processingDurationMillis;
     }
 
+    /**
+     * Returns the number of partitions scrolled concurrently, {@code 1} when the scroll is not partitioned.
+     *
+     * @since 11.2
+     */
+    public int getScrollPartitions() {
+        return scrollPartitions == null ? 1 : scrollPartitions;
+    }
+
+    /**
+     * @since 11.2
+     */
+    public void setScrollPartitions(int scrollPartitions) {
+        this.scrollPartitions = scrollPartitions;
+    }
+
+    /**
+     * Returns the number of partitions whose scroll is completed.
+     *
+     * @since 11.2
+     */
+    public int getScrolledPartitions() {
+        return scrolledPartitions == null ? 0 : scrolledPartitions;
+    }
+
+    /**
+     * @since 11.2
+     */
+    public void setScrolledPartitions(int scrolledPartitions) {
+        this.scrolledPartitions = scrolledPartitions;
+    }
+
+    /**
+     * Returns {@code false} while some partitions of a partitioned scroll are still running.
+     *
+     * @since 11.2
+     */
+    public boolean isScrollCompleted() {
+        return scrollPartitions == null || getScrolledPartitions() >= scrollPartitions;
+    }
+
     public boolean hasError() {
         return errorCount > 0;
     }
@@ -48,6 +48,9 @@ public class DocumentScrollRequest implements ScrollRequest {
 
     protected final String username;
 
+    protected final int partition;
+
+    protected final int partitions;
 
     protected DocumentScrollRequest(Builder builder) {
         this.name = builder.getName();
@@ -56,6 +59,8 @@ public class DocumentScrollRequest implements ScrollRequest {
         this.size = builder.getSize();
         this.username = builder.getUsername();
         this.repository = builder.getRepository();
+        this.partition = builder.getPartition();
+        this.partitions = builder.getPartitions();
     }
 
     @Override
@@ -89,11 +94,36 @@ public class DocumentScrollRequest implements ScrollRequest {
         return repository;
     }
 
+    /**
+     * The partition to scroll, lower than {@link #getPartitions()}.
+     *
+     * @since 11.2
+     */
+    public int getPartition() {
+        return partition;
+    }
+
+    /**
+     * The number of partitions the result set is split into, {@code 1} when the request is not partitioned.
+     *
+     * @since 11.2
+     */
+    public int getPartitions() {
+        return partitions;
+    }
+
+    /**
+     * @since 11.2
+     */
+    public boolean isPartitioned() {
+        return partitions > 1;
+    }
+
     @Override
     public String toString() {
         return "DocumentScrollRequest{" + "name='" + name + '\'' + ", query='" + query + '\'' + ", repository='"
                 + repository + '\'' + ", timeout=" + timeout + ", size=" + size + ", username='" + username + '\''
-                + '}';
+                + ", partition=" + partition + "/" + partitions + '}';
     }
 
     /**
@@ -117,12 +147,19 @@ public class DocumentScrollRequest implements ScrollRequest {
 
         protected int size;
 
+        protected int partition;
+
+        protected int partitions;
+
         public static final String UNKNOWN = "unknown";
 
         public static final int DEFAULT_SCROLL_SIZE = 50;
 
         public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(120);
 
+        // @since 11.2
+        public static final int MAX_PARTITIONS = 1024;
+
         protected Builder(String nxqlQuery) {
             this.query = Objects.requireNonNull(nxqlQuery, "NXQL query cannot be null");
         }
@@ -170,6 +207,31 @@ public class DocumentScrollRequest implements ScrollRequest {
             return this;
         }
 
+        /**
+         * Restricts the scroll to a partition of the result set, partitions are disjoint and cover the whole result
+         * set so they can be scrolled concurrently. Documents are partitioned on ranges of their uuid.
+         * <p>
+         * This requires a repository storing its ids as hexadecimal strings, which is the default. Repositories using
+         * sequence or native UUID ids cannot be partitioned, their partitioned scroll requests are rejected, see
+         * {@link org.nuxeo.ecm.core.api.CoreSession#hasHexadecimalStringIds() CoreSession#hasHexadecimalStringIds}.
+         *
+         * @param partition the partition to scroll, lower than {@code partitions}
+         * @param partitions the total number of partitions
+         * @since 11.2
+         */
+        public Builder partition(int partition, int partitions) {
+            if (partitions <= 0 || partitions > MAX_PARTITIONS) {
+                throw new IllegalArgumentException("partitions must be > 0 and <= " + MAX_PARTITIONS);
+            }
+            if (partition < 0 || partition >= partitions) {
+                throw new IllegalArgumentException(
+                        String.format("Invalid partition: %d, must be >= 0 and < %d", partition, partitions));
+            }
+            this.partition = partition;
+            this.partitions = partitions;
+            return this;
+        }
+
         public String getName() {
             return name;
         }
@@ -186,6 +248,14 @@ public class DocumentScrollRequest implements ScrollRequest {
             return size == 0 ? DEFAULT_SCROLL_SIZE : size;
         }
 
+        public int getPartition() {
+            return partition;
+        }
+
+        public int getPartitions() {
+            return partitions == 0 ? 1 : partitions;
+        }
+
         public String getUsername() {
             return username == null ? UNKNOWN : username;
         }
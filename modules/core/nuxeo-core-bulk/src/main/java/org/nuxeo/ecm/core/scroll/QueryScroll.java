@@ -0,0 +1,84 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.core.scroll;
+
+import static org.nuxeo.ecm.core.query.sql.NXQL.ECM_UUID;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+import org.nuxeo.ecm.core.query.sql.NXQL;
+
+/**
+ * Scrolls document identifiers by streaming the results of the repository query from a database cursor.
+ * <p>
+ * Unlike {@link RepositoryScroll}, no scroll context is kept by the repository between batches, the cursor fetches
+ * documents by batches of the requested size, so the scroll must be consumed within a single transaction.
+ *
+ * @since 11.2
+ */
+public class QueryScroll extends RepositoryScroll {
+
+    protected Stream<Map<String, Serializable>> stream;
+
+    protected Iterator<Map<String, Serializable>> it;
+
+    @Override
+    public boolean hasNext() {
+        if (it == null) {
+            stream = session.queryProjectionStream(getQuery(), NXQL.NXQL, true, request.getSize());
+            it = stream.iterator();
+        }
+        return it.hasNext();
+    }
+
+    @Override
+    public List<String> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        int size = request.getSize();
+        List<String> ids = new ArrayList<>(size);
+        while (ids.size() < size && it.hasNext()) {
+            ids.add((String) it.next().get(ECM_UUID));
+        }
+        return ids;
+    }
+
+    @Override
+    public void close() {
+        if (stream != null) {
+            stream.close();
+            stream = null;
+            it = null;
+        }
+        super.close();
+    }
+
+    @Override
+    public String toString() {
+        return "QueryScroll{" + "request=" + request + '}';
+    }
+
+}
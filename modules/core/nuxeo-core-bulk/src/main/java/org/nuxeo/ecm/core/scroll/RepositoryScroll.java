@@ -19,7 +19,9 @@
 package org.nuxeo.ecm.core.scroll;
 
 import static org.nuxeo.ecm.core.api.security.SecurityConstants.SYSTEM_USERNAME;
+import static org.nuxeo.ecm.core.query.sql.NXQL.ECM_UUID;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -31,6 +33,14 @@ import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.ScrollResult;
 import org.nuxeo.ecm.core.api.scroll.Scroll;
 import org.nuxeo.ecm.core.api.scroll.ScrollRequest;
+import org.nuxeo.ecm.core.query.sql.NXQLQueryWriter;
+import org.nuxeo.ecm.core.query.sql.SQLQueryParser;
+import org.nuxeo.ecm.core.query.sql.model.MultiExpression;
+import org.nuxeo.ecm.core.query.sql.model.Operator;
+import org.nuxeo.ecm.core.query.sql.model.Predicate;
+import org.nuxeo.ecm.core.query.sql.model.Reference;
+import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
+import org.nuxeo.ecm.core.query.sql.model.StringLiteral;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.api.login.NuxeoLoginContext;
 
@@ -41,6 +51,9 @@ import org.nuxeo.runtime.api.login.NuxeoLoginContext;
  */
 public class RepositoryScroll implements Scroll {
 
+    // partitions are ranges on the first 4 hexadecimal digits of the document uuid
+    protected static final int PARTITION_RANGE = 0x10000;
+
     protected DocumentScrollRequest request;
 
     protected NuxeoLoginContext loginContext;
@@ -59,6 +72,12 @@ public class RepositoryScroll implements Scroll {
         this.request = (DocumentScrollRequest) request;
         login();
         openSession();
+        if (this.request.isPartitioned() && !session.hasHexadecimalStringIds()) {
+            close();
+            throw new IllegalArgumentException(
+                    "Scroll partitions require hexadecimal string document ids, unsupported by repository: "
+                            + this.request.getRepository());
+        }
         hasNextResult = null;
     }
 
@@ -85,7 +104,7 @@ public class RepositoryScroll implements Scroll {
 
     protected boolean fetch() {
         if (repoScroller == null) {
-            repoScroller = session.scroll(request.getQuery(), request.getSize(),
+            repoScroller = session.scroll(getQuery(), request.getSize(),
                     (int) request.getTimeout().toSeconds());
         } else {
             repoScroller = session.scroll(repoScroller.getScrollId());
@@ -93,6 +112,55 @@ public class RepositoryScroll implements Scroll {
         return repoScroller.hasResults();
     }
 
+    /**
+     * Returns the NXQL query to scroll, restricted to the requested partition if any.
+     *
+     * @since 11.2
+     */
+    protected String getQuery() {
+        if (!request.isPartitioned()) {
+            return request.getQuery();
+        }
+        return getPartitionQuery(request.getQuery(), request.getPartition(), request.getPartitions());
+    }
+
+    /**
+     * Restricts an NXQL query to a partition of documents.
+     * <p>
+     * Partitions are contiguous ranges of {@code ecm:uuid} values, the first partition has no lower bound and the last
+     * one has no upper bound, so each document belongs to exactly one partition. Partitions are balanced when ids are
+     * lowercase hexadecimal uuids, which is the default for all repositories.
+     * <p>
+     * The bounds are hexadecimal strings, so the repository must store its ids as such, see
+     * {@link CoreSession#hasHexadecimalStringIds()}. Ids generated by a sequence or stored as native UUIDs cannot be
+     * compared to them.
+     *
+     * @since 11.2
+     */
+    public static String getPartitionQuery(String query, int partition, int partitions) {
+        long lower = (long) partition * PARTITION_RANGE / partitions;
+        long upper = (long) (partition + 1) * PARTITION_RANGE / partitions;
+        List<Predicate> predicates = new ArrayList<>();
+        if (lower > 0) {
+            predicates.add(new Predicate(new Reference(ECM_UUID), Operator.GTEQ,
+                    new StringLiteral(String.format("%04x", lower))));
+        }
+        if (upper < PARTITION_RANGE) {
+            predicates.add(new Predicate(new Reference(ECM_UUID), Operator.LT,
+                    new StringLiteral(String.format("%04x", upper))));
+        }
+        if (predicates.isEmpty()) {
+            return query;
+        }
+        SQLQuery sqlQuery = SQLQueryParser.parse(query);
+        if (sqlQuery.where != null) {
+            predicates.add(0, sqlQuery.where.predicate);
+        }
+        Predicate predicate = predicates.size() == 1 ? predicates.get(0)
+                : new MultiExpression(Operator.AND, predicates);
+        return NXQLQueryWriter.write(sqlQuery.withPredicate(predicate));
+    }
+
     @Override
     public List<String> next() {
         if (hasNextResult == null) {
@@ -0,0 +1,130 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.core.bulk.message;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.nuxeo.ecm.core.bulk.message.BulkStatus.State.ABORTED;
+import static org.nuxeo.ecm.core.bulk.message.BulkStatus.State.COMPLETED;
+import static org.nuxeo.ecm.core.bulk.message.BulkStatus.State.RUNNING;
+import static org.nuxeo.ecm.core.bulk.message.BulkStatus.State.SCROLLING_RUNNING;
+
+import java.time.Instant;
+
+import org.junit.Test;
+
+/**
+ * @since 11.2
+ */
+public class TestBulkStatus {
+
+    protected static final String COMMAND_ID = "cmd";
+
+    protected BulkStatus newPartitionedStatus(int partitions) {
+        BulkStatus status = new BulkStatus(COMMAND_ID);
+        status.setScrollPartitions(partitions);
+        status.setState(SCROLLING_RUNNING);
+        return status;
+    }
+
+    protected BulkStatus scrolledPartition(long total, Instant endTime) {
+        BulkStatus delta = BulkStatus.deltaOf(COMMAND_ID);
+        delta.setScrolledPartitions(1);
+        delta.setScrollEndTime(endTime);
+        delta.setTotal(total);
+        return delta;
+    }
+
+    protected BulkStatus processed(long processed) {
+        BulkStatus delta = BulkStatus.deltaOf(COMMAND_ID);
+        delta.setProcessed(processed);
+        return delta;
+    }
+
+    @Test
+    public void testNotPartitioned() {
+        BulkStatus status = new BulkStatus(COMMAND_ID);
+        assertEquals(1, status.getScrollPartitions());
+        assertTrue(status.isScrollCompleted());
+    }
+
+    @Test
+    public void testMergeScrolledPartitions() {
+        Instant now = Instant.now();
+        BulkStatus status = newPartitionedStatus(3);
+        assertFalse(status.isScrollCompleted());
+
+        status.merge(scrolledPartition(5, now.plusSeconds(2)));
+        assertEquals(1, status.getScrolledPartitions());
+        assertEquals(5, status.getTotal());
+        assertFalse(status.isScrollCompleted());
+        assertEquals(SCROLLING_RUNNING, status.getState());
+
+        // all the documents scrolled so far are processed, but some partitions are still scrolling
+        status.merge(processed(5));
+        assertEquals(SCROLLING_RUNNING, status.getState());
+
+        status.merge(scrolledPartition(0, now.plusSeconds(3)));
+        status.merge(scrolledPartition(2, now.plusSeconds(1)));
+        assertTrue(status.isScrollCompleted());
+        assertEquals(3, status.getScrolledPartitions());
+        assertEquals(7, status.getTotal());
+        assertEquals(RUNNING, status.getState());
+        // the scroll ends with the last partition
+        assertEquals(now.plusSeconds(3), status.getScrollEndTime());
+
+        status.merge(processed(2));
+        assertEquals(COMPLETED, status.getState());
+        assertNotNull(status.getCompletedTime());
+    }
+
+    @Test
+    public void testMergeScrolledPartitionsAlreadyProcessed() {
+        BulkStatus status = newPartitionedStatus(2);
+        status.merge(scrolledPartition(3, Instant.now()));
+        status.merge(processed(3));
+        assertEquals(SCROLLING_RUNNING, status.getState());
+        // the last partition is empty, everything is already processed
+        status.merge(scrolledPartition(0, Instant.now()));
+        assertEquals(COMPLETED, status.getState());
+    }
+
+    @Test
+    public void testMergeEmptyPartitions() {
+        BulkStatus status = newPartitionedStatus(2);
+        status.merge(scrolledPartition(0, Instant.now()));
+        assertEquals(SCROLLING_RUNNING, status.getState());
+        status.merge(scrolledPartition(0, Instant.now()));
+        assertEquals(0, status.getTotal());
+        assertEquals(COMPLETED, status.getState());
+    }
+
+    @Test
+    public void testMergeScrolledPartitionsAborted() {
+        BulkStatus status = newPartitionedStatus(2);
+        status.setState(ABORTED);
+        status.merge(scrolledPartition(1, Instant.now()));
+        status.merge(scrolledPartition(1, Instant.now()));
+        assertTrue(status.isScrollCompleted());
+        assertEquals(ABORTED, status.getState());
+    }
+
+}
@@ -175,6 +175,36 @@ public class TestScrollService {
 
     }
 
+    @Test
+    public void testPartitionQuery() {
+        String query = "SELECT * FROM Document WHERE ecm:title = 'order by' ORDER BY dc:title";
+        assertEquals(query, RepositoryScroll.getPartitionQuery(query, 0, 1));
+        assertEquals(
+                "SELECT * FROM Document WHERE ((ecm:title = 'order by') AND (ecm:uuid < '4000')) ORDER BY dc:title",
+                RepositoryScroll.getPartitionQuery(query, 0, 4));
+        assertEquals("SELECT * FROM Document WHERE ((ecm:title = 'order by') AND (ecm:uuid >= '4000')"
+                + " AND (ecm:uuid < '8000')) ORDER BY dc:title", RepositoryScroll.getPartitionQuery(query, 1, 4));
+        assertEquals("SELECT * FROM Document WHERE (ecm:uuid >= 'c000')",
+                RepositoryScroll.getPartitionQuery("SELECT * FROM Document", 3, 4));
+        // the partition is added to the parsed query, whatever the query text looks like
+        assertEquals("SELECT * FROM Document WHERE (((ecm:title = 'it\\'s') OR (dc:title = 'x'))"
+                + " AND (ecm:uuid < '8000'))",
+                RepositoryScroll.getPartitionQuery(
+                        "SELECT * FROM Document WHERE(ecm:title = 'it\\'s' OR dc:title = \"x\")", 0, 2));
+
+        DocumentScrollRequest request = DocumentScrollRequest.builder(query).partition(2, 4).build();
+        assertTrue(request.isPartitioned());
+        assertEquals(2, request.getPartition());
+        assertEquals(4, request.getPartitions());
+        assertFalse(DocumentScrollRequest.builder(query).build().isPartitioned());
+        try {
+            DocumentScrollRequest.builder(query).partition(4, 4);
+            fail("Expecting an invalid partition");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
     protected String createFile(int numberOfLine) throws IOException {
         File tempFile = testFolder.newFile("file.txt");
         try (FileWriter fw = new FileWriter(tempFile, true); BufferedWriter bw = new BufferedWriter(fw)) {
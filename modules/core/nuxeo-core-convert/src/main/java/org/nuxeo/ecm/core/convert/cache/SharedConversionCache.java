@@ -0,0 +1,491 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.core.convert.cache;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.api.blobholder.BlobHolder;
+import org.nuxeo.ecm.core.api.blobholder.SimpleBlobHolder;
+import org.nuxeo.ecm.core.blob.BlobInfo;
+import org.nuxeo.ecm.core.blob.BlobManager;
+import org.nuxeo.ecm.core.blob.BlobManagerComponent;
+import org.nuxeo.ecm.core.blob.BlobProvider;
+import org.nuxeo.ecm.core.blob.binary.BinaryGarbageCollector;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.kv.KeyValueService;
+import org.nuxeo.runtime.kv.KeyValueStore;
+import org.nuxeo.runtime.kv.KeyValueStoreProvider;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.dropwizard.metrics5.Counter;
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+import io.dropwizard.metrics5.Timer;
+
+/**
+ * Conversion cache shared by all the nodes of a cluster.
+ * <p>
+ * The converted blobs are stored in a transient blob provider, and the entry metadata in a key/value store, both keyed
+ * by the {@link CacheKeyGenerator} key of the conversion. The storage format in the key/value store is the following:
+ *
+ * <pre>
+ *   __size__:     total size of the cached blobs of the stored entries
+ *   __evict__:    token of the node evicting entries, if any
+ *   key.entry:    {"size": size of the blobs, "blobs": [{"key": key in blob provider, "mimeType": ...}, ...]}
+ *   key.access:   last access time of the entry, in milliseconds
+ *   key.lock:     token of the node running the conversion, if any
+ * </pre>
+ * <p>
+ * The size is only updated by the node that atomically stores or removes an entry, so an entry whose blobs were
+ * garbage collected is removed and no longer counted.
+ * <p>
+ * Concurrent conversions of the same key are only run once: threads of the same node wait for the running conversion,
+ * and other nodes poll the entry until the node holding the key lock has stored it.
+ * <p>
+ * When the total size goes over the maximum size, the least recently accessed entries are evicted until the size is
+ * back under {@value #EVICTION_TARGET_PERCENT}% of the maximum size, and the blobs no longer referenced are garbage
+ * collected.
+ *
+ * @since 11.2
+ */
+public class SharedConversionCache {
+
+    private static final Logger log = LogManager.getLogger(SharedConversionCache.class);
+
+    public static final String NAME = "conversion";
+
+    public static final String BLOB_PROVIDER_ID = BlobManagerComponent.TRANSIENT_ID_PREFIX + "_" + NAME;
+
+    protected static final String SIZE = "__size__";
+
+    protected static final String EVICT_LOCK = "__evict__";
+
+    protected static final String DOT_ENTRY = ".entry";
+
+    protected static final String DOT_ACCESS = ".access";
+
+    protected static final String DOT_LOCK = ".lock";
+
+    // don't keep a lock longer than 10 minutes if its holder died
+    protected static final long LOCK_TTL = TimeUnit.MINUTES.toSeconds(10);
+
+    // don't write the access time on each hit
+    protected static final long ACCESS_RESOLUTION_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    protected static final long POLL_MAX_MILLIS = 1000;
+
+    protected static final int EVICTION_TARGET_PERCENT = 90;
+
+    protected final long maxSize;
+
+    protected final Map<String, CompletableFuture<BlobHolder>> inFlight = new ConcurrentHashMap<>();
+
+    protected final ObjectMapper mapper = new ObjectMapper();
+
+    protected final Counter hits;
+
+    protected final Counter misses;
+
+    protected final Counter deduplicated;
+
+    protected final Counter evictions;
+
+    protected final Timer lookups;
+
+    protected final Timer conversions;
+
+    /**
+     * @param maxSize the maximum size of the cached blobs, in bytes
+     */
+    public SharedConversionCache(long maxSize) {
+        this.maxSize = maxSize;
+        MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+        hits = registry.counter(MetricName.build("nuxeo", "conversion", "cache", "hit"));
+        misses = registry.counter(MetricName.build("nuxeo", "conversion", "cache", "miss"));
+        deduplicated = registry.counter(MetricName.build("nuxeo", "conversion", "cache", "deduplicated"));
+        evictions = registry.counter(MetricName.build("nuxeo", "conversion", "cache", "eviction"));
+        lookups = registry.timer(MetricName.build("nuxeo", "conversion", "cache", "lookup", "duration"));
+        conversions = registry.timer(MetricName.build("nuxeo", "conversion", "duration"));
+    }
+
+    protected KeyValueStore getKeyValueStore() {
+        return Framework.getService(KeyValueService.class).getKeyValueStore(NAME);
+    }
+
+    protected BlobProvider getBlobProvider() {
+        BlobProvider blobProvider = Framework.getService(BlobManager.class)
+                                             .getBlobProviderWithNamespace(BLOB_PROVIDER_ID, "default");
+        if (blobProvider == null) {
+            throw new NuxeoException("No blob provider with id: " + BLOB_PROVIDER_ID);
+        }
+        return blobProvider;
+    }
+
+    /**
+     * Gets the cached result of a conversion, or {@code null} if it's not in the cache.
+     */
+    public BlobHolder get(String key) {
+        try (Timer.Context ignored = lookups.time()) {
+            return read(key);
+        }
+    }
+
+    /**
+     * Gets the cached result of a conversion, or runs the conversion and caches its result.
+     * <p>
+     * If the same conversion is already running on this node or on another node, waits for its result instead.
+     */
+    public BlobHolder computeIfAbsent(String key, Supplier<BlobHolder> converter) {
+        BlobHolder result = get(key);
+        if (result != null) {
+            hits.inc();
+            return result;
+        }
+        CompletableFuture<BlobHolder> future = new CompletableFuture<>();
+        CompletableFuture<BlobHolder> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            deduplicated.inc();
+            BlobHolder runningResult = join(running);
+            // read from the cache to not share the blobs of the running conversion
+            result = get(key);
+            return result == null ? runningResult : result;
+        }
+        try {
+            result = computeWithLock(key, converter);
+            future.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    protected BlobHolder join(CompletableFuture<BlobHolder> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            // the same exception as the one thrown to the thread running the conversion
+            throw (RuntimeException) e.getCause();
+        } catch (CancellationException e) {
+            throw new NuxeoException(e);
+        }
+    }
+
+    protected BlobHolder computeWithLock(String key, Supplier<BlobHolder> converter) {
+        KeyValueStore kvs = getKeyValueStore();
+        String lockKey = key + DOT_LOCK;
+        // unique token, so that a lock expired and taken by another node is not released
+        String token = UUID.randomUUID().toString();
+        long sleep = 10;
+        while (!kvs.compareAndSet(lockKey, null, token, LOCK_TTL)) {
+            // another node is running the conversion
+            try {
+                Thread.sleep(sleep);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new NuxeoException(e);
+            }
+            sleep = Math.min(sleep * 2, POLL_MAX_MILLIS);
+            BlobHolder result = get(key);
+            if (result != null) {
+                deduplicated.inc();
+                return result;
+            }
+        }
+        try {
+            // the previous lock holder may have stored the entry just before releasing the lock
+            BlobHolder result = get(key);
+            if (result != null) {
+                deduplicated.inc();
+                return result;
+            }
+            misses.inc();
+            try (Timer.Context ignored = conversions.time()) {
+                result = converter.get();
+            }
+            put(key, result, kvs);
+            return result;
+        } finally {
+            kvs.compareAndSet(lockKey, token, null);
+        }
+    }
+
+    protected BlobHolder read(String key) {
+        KeyValueStore kvs = getKeyValueStore();
+        String json = kvs.getString(key + DOT_ENTRY);
+        Entry entry = readEntry(json);
+        if (entry == null) {
+            return null;
+        }
+        BlobProvider bp = getBlobProvider();
+        List<Blob> blobs = new ArrayList<>(entry.blobs.size());
+        for (BlobInfo blobInfo : entry.blobs) {
+            try {
+                Blob blob = bp.readBlob(blobInfo);
+                // reading a blob does not check that it still exists, opening it does (cheap for a local store)
+                try (InputStream in = blob.getStream()) {
+                    blobs.add(blob);
+                }
+            } catch (IOException e) {
+                // the blob was garbage collected, the entry is no longer usable
+                log.debug("Failed to read blob: {} for conversion: {}", blobInfo.key, key);
+                remove(kvs, key, json, entry);
+                return null;
+            }
+        }
+        long now = System.currentTimeMillis();
+        String access = kvs.getString(key + DOT_ACCESS);
+        if (access == null || Long.parseLong(access) + ACCESS_RESOLUTION_MILLIS < now) {
+            kvs.put(key + DOT_ACCESS, String.valueOf(now));
+        }
+        return new SimpleBlobHolder(blobs);
+    }
+
+    protected void put(String key, BlobHolder result, KeyValueStore kvs) {
+        List<Blob> blobs = result == null ? null : result.getBlobs();
+        if (blobs == null || blobs.isEmpty()) {
+            return;
+        }
+        BlobProvider bp = getBlobProvider();
+        Entry entry = new Entry();
+        for (Blob blob : blobs) {
+            BlobInfo blobInfo = new BlobInfo();
+            try {
+                blobInfo.key = bp.writeBlob(blob);
+            } catch (IOException e) {
+                log.warn("Cannot cache result of conversion: {}", key, e);
+                return;
+            }
+            blobInfo.mimeType = blob.getMimeType();
+            blobInfo.encoding = blob.getEncoding();
+            blobInfo.filename = blob.getFilename();
+            blobInfo.length = Long.valueOf(blob.getLength());
+            blobInfo.digest = blob.getDigest();
+            entry.blobs.add(blobInfo);
+            entry.size += Math.max(0, blob.getLength());
+        }
+        if (entry.size > maxSize) {
+            log.debug("Result of conversion: {} is too big to be cached: {}", key, entry.size);
+            return;
+        }
+        String json = toJson(entry);
+        String previousJson;
+        do {
+            previousJson = kvs.getString(key + DOT_ENTRY);
+        } while (!kvs.compareAndSet(key + DOT_ENTRY, previousJson, json));
+        Entry previous = readEntry(previousJson);
+        kvs.put(key + DOT_ACCESS, String.valueOf(System.currentTimeMillis()));
+        long size = kvs.addAndGet(SIZE, entry.size - (previous == null ? 0 : previous.size));
+        if (size > maxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * Removes an entry if it's still the given one, and no longer counts its size.
+     *
+     * @return {@code true} if the entry was removed by this call
+     */
+    protected boolean remove(KeyValueStore kvs, String key, String json, Entry entry) {
+        if (!kvs.compareAndSet(key + DOT_ENTRY, json, null)) {
+            // already removed or replaced, its size was updated by the node that did it
+            return false;
+        }
+        kvs.put(key + DOT_ACCESS, (String) null);
+        kvs.addAndGet(SIZE, -entry.size);
+        return true;
+    }
+
+    /**
+     * Evicts the least recently accessed entries until the cache size is back under the target size, then garbage
+     * collects the blobs no longer referenced.
+     * <p>
+     * Does nothing if another node is already evicting entries.
+     */
+    protected void evict() {
+        KeyValueStore kvs = getKeyValueStore();
+        String token = UUID.randomUUID().toString();
+        if (!kvs.compareAndSet(EVICT_LOCK, null, token, LOCK_TTL)) {
+            return;
+        }
+        try {
+            BinaryGarbageCollector gc = getBlobProvider().getBinaryGarbageCollector();
+            if (gc == null) {
+                evict(kvs, digest -> {
+                });
+                return;
+            }
+            boolean delete = false;
+            // start the GC before scanning the entries, the blobs written after the scan must not be collected
+            gc.start();
+            try {
+                evict(kvs, gc::mark);
+                delete = true;
+            } finally {
+                // don't delete if there's an exception, but still stop the GC
+                gc.stop(delete);
+            }
+        } finally {
+            kvs.compareAndSet(EVICT_LOCK, token, null);
+        }
+    }
+
+    /**
+     * Evicts the least recently accessed entries, and marks the blobs of the other entries.
+     */
+    protected void evict(KeyValueStore kvs, Consumer<String> marker) {
+        Set<String> keys = scanKeys(kvs);
+        List<EvictionCandidate> candidates = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            String json = kvs.getString(key + DOT_ENTRY);
+            Entry entry = readEntry(json);
+            if (entry != null) {
+                String access = kvs.getString(key + DOT_ACCESS);
+                candidates.add(new EvictionCandidate(key, json, entry, access == null ? 0 : Long.parseLong(access)));
+            }
+        }
+        candidates.sort(Comparator.comparingLong(c -> c.access));
+        long size = kvs.addAndGet(SIZE, 0);
+        long targetSize = maxSize / 100 * EVICTION_TARGET_PERCENT;
+        long evicted = 0;
+        int kept = 0;
+        for (EvictionCandidate candidate : candidates) {
+            if (size - evicted > targetSize && remove(kvs, candidate.key, candidate.json, candidate.entry)) {
+                evicted += candidate.entry.size;
+                evictions.inc();
+            } else {
+                markBlobs(kvs, candidate.key, marker);
+                kept++;
+            }
+        }
+        // mark the entries written since the scan
+        for (String key : scanKeys(kvs)) {
+            if (!keys.contains(key)) {
+                markBlobs(kvs, key, marker);
+            }
+        }
+        log.debug("Evicted: {} bytes of conversions, kept: {} entries", evicted, kept);
+    }
+
+    protected Set<String> scanKeys(KeyValueStore kvs) {
+        try (Stream<String> stream = ((KeyValueStoreProvider) kvs).keyStream()) {
+            return stream.filter(k -> k.endsWith(DOT_ENTRY))
+                         .map(k -> k.substring(0, k.length() - DOT_ENTRY.length()))
+                         .collect(Collectors.toCollection(HashSet::new));
+        }
+    }
+
+    /**
+     * Marks the blobs of the current entry of a key, it may have been replaced since the scan.
+     */
+    protected void markBlobs(KeyValueStore kvs, String key, Consumer<String> marker) {
+        Entry entry = readEntry(kvs.getString(key + DOT_ENTRY));
+        if (entry != null) {
+            entry.blobs.forEach(blobInfo -> marker.accept(blobInfo.key));
+        }
+    }
+
+    /**
+     * Removes all the entries from the cache.
+     */
+    public void clear() {
+        ((KeyValueStoreProvider) getKeyValueStore()).clear();
+        BinaryGarbageCollector gc = getBlobProvider().getBinaryGarbageCollector();
+        if (gc != null) {
+            // nothing is marked, all the blobs are deleted
+            gc.start();
+            gc.stop(true);
+        }
+    }
+
+    protected Entry readEntry(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return mapper.readValue(json, Entry.class);
+        } catch (IOException e) {
+            log.error("Invalid conversion cache entry: {}", json);
+            return null;
+        }
+    }
+
+    protected String toJson(Entry entry) {
+        try {
+            return mapper.writeValueAsString(entry);
+        } catch (IOException e) {
+            throw new NuxeoException(e);
+        }
+    }
+
+    /**
+     * The metadata of a cached conversion result.
+     */
+    public static class Entry {
+
+        public long size;
+
+        public List<BlobInfo> blobs = new ArrayList<>();
+    }
+
+    protected static class EvictionCandidate {
+
+        protected final String key;
+
+        protected final String json;
+
+        protected final Entry entry;
+
+        protected final long access;
+
+        protected EvictionCandidate(String key, String json, Entry entry, long access) {
+            this.key = key;
+            this.json = json;
+            this.entry = entry;
+            this.access = access;
+        }
+    }
+
+}
@@ -53,6 +53,7 @@ import org.nuxeo.ecm.core.convert.api.ConverterNotRegistered;
 import org.nuxeo.ecm.core.convert.cache.CacheKeyGenerator;
 import org.nuxeo.ecm.core.convert.cache.ConversionCacheHolder;
 import org.nuxeo.ecm.core.convert.cache.GCTask;
+import org.nuxeo.ecm.core.convert.cache.SharedConversionCache;
 import org.nuxeo.ecm.core.convert.extension.ChainedConverter;
 import org.nuxeo.ecm.core.convert.extension.Converter;
 import org.nuxeo.ecm.core.convert.extension.ConverterDescriptor;
@@ -86,6 +87,13 @@ public class ConversionServiceImpl extends DefaultComponent implements Conversio
      */
     public static final String ENFORCE_SOURCE_MIME_TYPE_CHECK = "nuxeo.convert.enforceSourceMimeTypeCheck";
 
+    /**
+     * Property to cache the conversion results in a cache shared by the cluster nodes instead of the local disk.
+     *
+     * @since 11.2
+     */
+    public static final String SHARED_CACHE_PROP = "nuxeo.convert.cache.shared";
+
     protected final Map<String, ConverterDescriptor> converterDescriptors = new HashMap<>();
 
     protected final MimeTypeTranslationHelper translationHelper = new MimeTypeTranslationHelper();
@@ -96,6 +104,9 @@ public class ConversionServiceImpl extends DefaultComponent implements Conversio
 
     protected GCTask gcTask;
 
+    /** @since 11.2 */
+    protected SharedConversionCache sharedCache;
+
     @Override
     public void activate(ComponentContext context) {
         converterDescriptors.clear();
@@ -332,18 +343,25 @@ public class ConversionServiceImpl extends DefaultComponent implements Conversio
 
         String cacheKey = CacheKeyGenerator.computeKey(converterName, blobHolder, parameters);
 
-        BlobHolder result = ConversionCacheHolder.getFromCache(cacheKey);
-
-        if (result == null) {
-            Converter converter = desc.getConverterInstance();
-            result = converter.convert(blobHolder, parameters);
+        BlobHolder result;
+        if (sharedCache != null) {
+            Map<String, Serializable> params = parameters;
+            result = sharedCache.computeIfAbsent(cacheKey,
+                    () -> desc.getConverterInstance().convert(blobHolder, params));
+        } else {
+            result = ConversionCacheHolder.getFromCache(cacheKey);
+            if (result == null) {
+                Converter converter = desc.getConverterInstance();
+                result = converter.convert(blobHolder, parameters);
 
-            if (config.isCacheEnabled()) {
-                ConversionCacheHolder.addToCache(cacheKey, result);
+                if (config.isCacheEnabled()) {
+                    ConversionCacheHolder.addToCache(cacheKey, result);
+                }
+            } else if (result.getBlobs() != null && result.getBlobs().size() == 1) {
+                // we need to reset the filename if result is a single file from the cache because the name is just a
+                // hash
+                result.getBlob().setFilename(null);
             }
-        } else if (result.getBlobs() != null && result.getBlobs().size() == 1) {
-            // we need to reset the filename if result is a single file from the cache because the name is just a hash
-            result.getBlob().setFilename(null);
         }
 
         if (result != null) {
@@ -545,12 +563,19 @@ public class ConversionServiceImpl extends DefaultComponent implements Conversio
 
     @Override
     public void start(ComponentContext context) {
-        startGC();
+        if (config.isCacheEnabled()
+                && Framework.getService(ConfigurationService.class).isBooleanTrue(SHARED_CACHE_PROP)) {
+            // the shared cache evicts entries by itself when it's full
+            sharedCache = new SharedConversionCache(config.getDiskCacheSize() * 1024L);
+        } else {
+            startGC();
+        }
     }
 
     @Override
     public void stop(ComponentContext context) {
         endGC();
+        sharedCache = null;
     }
 
     protected void startGC() {
@@ -0,0 +1,227 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.core.convert.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.Blobs;
+import org.nuxeo.ecm.core.api.blobholder.BlobHolder;
+import org.nuxeo.ecm.core.api.blobholder.SimpleBlobHolder;
+import org.nuxeo.ecm.core.convert.api.ConversionService;
+import org.nuxeo.ecm.core.convert.cache.CacheKeyGenerator;
+import org.nuxeo.ecm.core.convert.cache.SharedConversionCache;
+import org.nuxeo.runtime.kv.KeyValueStore;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+
+/**
+ * @since 11.2
+ */
+@RunWith(FeaturesRunner.class)
+@Features(ConvertFeature.class)
+@Deploy("org.nuxeo.runtime.kv")
+@Deploy("org.nuxeo.ecm.core.convert:OSGI-INF/convert-service-config-shared.xml")
+@Deploy("org.nuxeo.ecm.core.convert:OSGI-INF/converters-test-contrib3.xml")
+public class TestSharedConversionCache {
+
+    @Inject
+    protected ConversionService conversionService;
+
+    protected InspectableCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new InspectableCache(100);
+        cache.clear();
+    }
+
+    /**
+     * Gives access to the storage of the cache.
+     */
+    protected static class InspectableCache extends SharedConversionCache {
+
+        public InspectableCache(long maxSize) {
+            super(maxSize);
+        }
+
+        public long getSize() {
+            return getKeyValueStore().addAndGet(SIZE, 0);
+        }
+
+        public String getLock(String key) {
+            return getKeyValueStore().getString(key + DOT_LOCK);
+        }
+
+        public void setLock(String key, String value) {
+            getKeyValueStore().put(key + DOT_LOCK, value);
+        }
+
+        /** Makes the blobs of an entry point to missing blobs, as if they were garbage collected. */
+        public void loseBlobs(String key) {
+            KeyValueStore kvs = getKeyValueStore();
+            Entry entry = readEntry(kvs.getString(key + DOT_ENTRY));
+            entry.blobs.forEach(blobInfo -> blobInfo.key += "-missing");
+            kvs.put(key + DOT_ENTRY, toJson(entry));
+        }
+    }
+
+    protected static BlobHolder newBlobHolder(String content) {
+        Blob blob = Blobs.createBlob(content);
+        blob.setFilename("result.txt");
+        return new SimpleBlobHolder(blob);
+    }
+
+    @Test
+    public void testHit() throws IOException {
+        AtomicInteger conversions = new AtomicInteger();
+        BlobHolder result = cache.computeIfAbsent("key", () -> {
+            conversions.incrementAndGet();
+            return newBlobHolder("foo");
+        });
+        assertEquals("foo", result.getBlob().getString());
+
+        result = cache.computeIfAbsent("key", () -> {
+            conversions.incrementAndGet();
+            return newBlobHolder("bar");
+        });
+        assertEquals("foo", result.getBlob().getString());
+        assertEquals("result.txt", result.getBlob().getFilename());
+        assertEquals(1, conversions.get());
+    }
+
+    @Test
+    public void testConcurrentConversionsRunOnce() throws Exception {
+        int nbThreads = 5;
+        AtomicInteger conversions = new AtomicInteger();
+        CountDownLatch ready = new CountDownLatch(nbThreads);
+        Callable<String> task = () -> {
+            ready.countDown();
+            ready.await();
+            return cache.computeIfAbsent("key", () -> {
+                conversions.incrementAndGet();
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return newBlobHolder("foo");
+            }).getBlob().getString();
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < nbThreads; i++) {
+                futures.add(executor.submit(task));
+            }
+            for (Future<String> future : futures) {
+                assertEquals("foo", future.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, conversions.get());
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() throws Exception {
+        String content = "0123456789012345678901234567890123456789"; // 40 bytes
+        cache.computeIfAbsent("a", () -> newBlobHolder(content + "a"));
+        Thread.sleep(10);
+        cache.computeIfAbsent("b", () -> newBlobHolder(content + "b"));
+        Thread.sleep(10);
+        // over the max size, "a" is evicted
+        cache.computeIfAbsent("c", () -> newBlobHolder(content + "c"));
+        assertNull(cache.get("a"));
+        assertNotNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+    }
+
+    @Test
+    public void testLockOfOtherNodeNotReleased() {
+        BlobHolder result = cache.computeIfAbsent("key", () -> {
+            assertNotNull(cache.getLock("key"));
+            // the lock expired during the conversion and was taken by another node
+            cache.setLock("key", "other");
+            return newBlobHolder("foo");
+        });
+        assertNotNull(result);
+        assertEquals("other", cache.getLock("key"));
+
+        cache.setLock("key", null);
+        cache.computeIfAbsent("key2", () -> newBlobHolder("bar"));
+        assertNull(cache.getLock("key2"));
+    }
+
+    @Test
+    public void testSizeOfEntryWithMissingBlobs() throws IOException {
+        cache.computeIfAbsent("a", () -> newBlobHolder("foo"));
+        cache.computeIfAbsent("b", () -> newBlobHolder("barbaz"));
+        assertEquals(9, cache.getSize());
+
+        cache.loseBlobs("a");
+        assertNull(cache.get("a"));
+        // the entry is removed and no longer counted
+        assertEquals(6, cache.getSize());
+        assertNull(cache.get("a"));
+        assertEquals(6, cache.getSize());
+
+        BlobHolder result = cache.computeIfAbsent("a", () -> newBlobHolder("foo"));
+        assertEquals("foo", result.getBlob().getString());
+        assertEquals(9, cache.getSize());
+    }
+
+    @Test
+    public void testConversionServiceUsesSharedCache() throws IOException {
+        BlobHolder bh = newBlobHolder("foo");
+        String key = CacheKeyGenerator.computeKey("identity", bh, new HashMap<String, Serializable>());
+        assertNull(cache.get(key));
+
+        BlobHolder result = conversionService.convert("identity", bh, null);
+        assertEquals("foo", result.getBlob().getString());
+        BlobHolder cached = cache.get(key);
+        assertNotNull(cached);
+        assertEquals("foo", cached.getBlob().getString());
+
+        result = conversionService.convert("identity", bh, null);
+        assertEquals("foo", result.getBlob().getString());
+    }
+
+}
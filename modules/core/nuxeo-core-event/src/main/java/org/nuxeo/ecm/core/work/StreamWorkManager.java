@@ -31,6 +31,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 
@@ -50,6 +51,7 @@ import org.nuxeo.ecm.core.work.api.WorkQueueDescriptor;
 import org.nuxeo.ecm.core.work.api.WorkQueueMetrics;
 import org.nuxeo.ecm.core.work.api.WorkSchedulePath;
 import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.codec.SerializableCodec;
 import org.nuxeo.lib.stream.computation.ComputationPolicy;
 import org.nuxeo.lib.stream.computation.ComputationPolicyBuilder;
 import org.nuxeo.lib.stream.computation.Record;
@@ -75,6 +77,7 @@ import org.nuxeo.runtime.stream.StreamService;
 import org.nuxeo.runtime.transaction.TransactionHelper;
 
 import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.Timer;
 
 /**
  * WorkManager impl that appends works into a Log. Works are therefore immutable (no state update) and can not be listed
@@ -94,6 +97,25 @@ public class StreamWorkManager extends WorkManagerImpl {
 
     public static final String DEFAULT_WORK_CODEC = "legacy";
 
+    /**
+     * The codec used to serialize works into records, {@code work} is a compact encoding.
+     *
+     * @since 11.2
+     */
+    public static final String WORK_SERIALIZATION_CODEC_PROP = "nuxeo.stream.work.serialization.codec";
+
+    /**
+     * @since 11.2
+     */
+    public static final String DEFAULT_WORK_SERIALIZATION_CODEC = SerializableCodec.NAME;
+
+    /**
+     * Ratio of works also serialized with Java serialization to compare sizes with the configured codec.
+     *
+     * @since 11.2
+     */
+    protected static final double CODEC_COMPARISON_SAMPLING = 0.01;
+
     public static final String WORK_OVER_PROVISIONING_PROP = "nuxeo.stream.work.over.provisioning.factor";
 
     public static final String DEFAULT_WORK_OVER_PROVISIONING = "3";
@@ -166,6 +188,8 @@ public class StreamWorkManager extends WorkManagerImpl {
 
     protected long stateTTL;
 
+    protected Codec<Work> workCodec;
+
     protected int getOverProvisioningFactor() {
         // Enable over provisioning only if the log can be distributed
         if (getLogManager().supportSubscribe()) {
@@ -182,6 +206,56 @@ public class StreamWorkManager extends WorkManagerImpl {
         return Framework.getService(CodecService.class).getCodec(getCodecName(), Record.class);
     }
 
+    /**
+     * @since 11.2
+     */
+    protected String getWorkCodecName() {
+        return Framework.getProperty(WORK_SERIALIZATION_CODEC_PROP, DEFAULT_WORK_SERIALIZATION_CODEC);
+    }
+
+    /**
+     * Returns the codec used to serialize works, the Java serialization codec is wrapped so it can also decode the
+     * compact format.
+     *
+     * @since 11.2
+     */
+    protected Codec<Work> getWorkCodec() {
+        Codec<Work> codec = Framework.getService(CodecService.class).getCodec(getWorkCodecName(), Work.class);
+        if (SerializableCodec.NAME.equals(codec.getName())) {
+            return new JavaWorkCodec(codec);
+        }
+        return codec;
+    }
+
+    /**
+     * Encodes a work reporting size and encoding time per queue, a sample of works is also serialized with Java
+     * serialization to compare.
+     *
+     * @since 11.2
+     */
+    protected byte[] encodeWork(String queueId, Work work) {
+        byte[] ret;
+        MetricName encodeName = MetricName.build("nuxeo.works.queue.codec.encode")
+                                          .tagged("queue", queueId)
+                                          .tagged("codec", workCodec.getName());
+        try (Timer.Context ignored = registry.timer(encodeName).time()) {
+            ret = workCodec.encode(work);
+        }
+        updateSizeMetric(queueId, workCodec.getName(), ret.length);
+        if (!SerializableCodec.NAME.equals(workCodec.getName())
+                && ThreadLocalRandom.current().nextDouble() < CODEC_COMPARISON_SAMPLING) {
+            updateSizeMetric(queueId, SerializableCodec.NAME, WorkComputation.serialize(work).length);
+        }
+        return ret;
+    }
+
+    protected void updateSizeMetric(String queueId, String codecName, int size) {
+        registry.histogram(MetricName.build("nuxeo.works.queue.codec.size")
+                                     .tagged("queue", queueId)
+                                     .tagged("codec", codecName))
+                .update(size);
+    }
+
     @Override
     public void schedule(Work work, Scheduling scheduling, boolean afterCommit) {
         String queueId = getCategoryQueueId(work.getCategory());
@@ -212,7 +286,7 @@ public class StreamWorkManager extends WorkManagerImpl {
         String key = work.getPartitionKey();
         LogOffset offset;
         try {
-            offset = streamManager.append(NAMESPACE_PREFIX + queueId, Record.of(key, WorkComputation.serialize(work)));
+            offset = streamManager.append(NAMESPACE_PREFIX + queueId, Record.of(key, encodeWork(queueId, work)));
         } catch (IllegalArgumentException e) {
             log.error(String.format("Not scheduled work, unknown category: %s, mapped to %s", work.getCategory(),
                     NAMESPACE_PREFIX + queueId));
@@ -298,6 +372,7 @@ public class StreamWorkManager extends WorkManagerImpl {
             }
             getDescriptors(QUEUES_EP).forEach(d -> categoryToQueueId.put(d.getId(), d.getId()));
             index();
+            workCodec = getWorkCodec();
             initTopology();
             logManager = getLogManager();
             streamManager = getStreamManager();
@@ -365,14 +440,14 @@ public class StreamWorkManager extends WorkManagerImpl {
         // create the single topology with one root per work pool
         Topology.Builder builder = Topology.builder();
         descriptors.stream().filter(WorkQueueDescriptor::isProcessingEnabled).forEach(d -> builder.addComputation(
-                           () -> new WorkComputation(NAMESPACE_PREFIX + d.getId()),
+                           () -> new WorkComputation(NAMESPACE_PREFIX + d.getId(), workCodec),
                            Collections.singletonList(INPUT_1 + ":" + NAMESPACE_PREFIX + d.getId())));
         topology = builder.build();
         // create a topology for the disabled work pools in order to init their input streams
         Topology.Builder builderDisabled = Topology.builder();
         descriptors.stream()
                    .filter(Predicate.not(WorkQueueDescriptor::isProcessingEnabled))
-                   .forEach(d -> builderDisabled.addComputation(() -> new WorkComputation(d.getId()),
+                   .forEach(d -> builderDisabled.addComputation(() -> new WorkComputation(d.getId(), workCodec),
                            Collections.singletonList(INPUT_1 + ":" + NAMESPACE_PREFIX + d.getId())));
         topologyDisabled = builderDisabled.build();
         // The retry policy is handled at AbstractWork level, but we want to skip failure
@@ -391,6 +466,39 @@ public class StreamWorkManager extends WorkManagerImpl {
         return getOverProvisioningFactor() * maxThreads;
     }
 
+    /**
+     * Encodes with the Java serialization codec and decodes both Java serialization and the compact {@link WorkCodec}
+     * format.
+     *
+     * @since 11.2
+     */
+    protected static class JavaWorkCodec extends WorkCodec {
+
+        protected final Codec<Work> codec;
+
+        public JavaWorkCodec(Codec<Work> codec) {
+            this.codec = codec;
+        }
+
+        @Override
+        public String getName() {
+            return codec.getName();
+        }
+
+        @Override
+        public byte[] encode(Work work) {
+            return codec.encode(work);
+        }
+
+        @Override
+        public Work decode(byte[] data) {
+            if (data != null && data.length > 0 && data[0] == COMPACT_FORMAT) {
+                return super.decode(data);
+            }
+            return codec.decode(data);
+        }
+    }
+
     public class WorkScheduling implements Synchronization {
         public final Work work;
 
@@ -0,0 +1,186 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.core.work;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamField;
+import java.io.OutputStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.work.api.Work;
+import org.nuxeo.lib.stream.codec.Codec;
+
+/**
+ * A compact encoding for {@link Work} instances.
+ * <p>
+ * Java serialization writes the full class descriptor (field names, types, serialVersionUID) of the work class and of
+ * each of its super classes in every record. This codec only writes the class name, its serialVersionUID and a
+ * fingerprint of its serializable fields, and relies on the local class to provide the field layout. A record written
+ * by a node whose class differs, for instance during a rolling upgrade, is rejected instead of being misread.
+ * <p>
+ * Decoding also accepts the legacy Java serialization format, so records already in a stream are still readable after
+ * switching to this codec. Works that cannot be encoded in the compact format fall back to Java serialization.
+ *
+ * @since 11.2
+ */
+public class WorkCodec implements Codec<Work> {
+
+    private static final Logger log = LogManager.getLogger(WorkCodec.class);
+
+    public static final String NAME = "work";
+
+    // first byte of a compact record, a Java serialization stream always starts with 0xACED
+    protected static final byte COMPACT_FORMAT = 0x01;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public byte[] encode(Work work) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        bos.write(COMPACT_FORMAT);
+        try (ObjectOutputStream out = new CompactObjectOutputStream(bos)) {
+            out.writeObject(work);
+            out.flush();
+            return bos.toByteArray();
+        } catch (IOException e) {
+            log.debug("Fallback to Java serialization for work: {}", work.getId(), e);
+            return WorkComputation.serialize(work);
+        }
+    }
+
+    @Override
+    public Work decode(byte[] data) {
+        if (data == null || data.length == 0) {
+            throw new IllegalArgumentException("Cannot decode an empty work");
+        }
+        if (data[0] != COMPACT_FORMAT) {
+            return WorkComputation.deserializeJava(data);
+        }
+        try (ObjectInputStream in = new CompactObjectInputStream(
+                new ByteArrayInputStream(data, 1, data.length - 1))) {
+            return (Work) in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalArgumentException("Cannot decode work", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "WorkCodec";
+    }
+
+    /**
+     * Computes a fingerprint of the serializable fields of a class, names and types, which is stable across JVMs.
+     */
+    protected static int getFieldsFingerprint(ObjectStreamClass desc) {
+        StringBuilder sb = new StringBuilder();
+        for (ObjectStreamField field : desc.getFields()) {
+            sb.append(field.getName()).append(':').append(field.getTypeCode());
+            if (field.getTypeString() != null) {
+                sb.append(field.getTypeString());
+            }
+            sb.append(';');
+        }
+        return sb.toString().hashCode();
+    }
+
+    /**
+     * Writes class descriptors as class name, serialVersionUID and fields fingerprint, without stream header.
+     */
+    protected static class CompactObjectOutputStream extends ObjectOutputStream {
+
+        public CompactObjectOutputStream(OutputStream out) throws IOException {
+            super(out);
+        }
+
+        @Override
+        protected void writeStreamHeader() {
+            // no header, the format is given by the first byte of the record
+        }
+
+        @Override
+        protected void writeClassDescriptor(ObjectStreamClass desc) throws IOException {
+            writeUTF(desc.getName());
+            writeLong(desc.getSerialVersionUID());
+            writeInt(getFieldsFingerprint(desc));
+        }
+    }
+
+    /**
+     * Reads class descriptors written by {@link CompactObjectOutputStream} and resolves them from local classes,
+     * rejecting classes whose serialVersionUID or serializable fields differ from the written ones.
+     */
+    protected static class CompactObjectInputStream extends ObjectInputStream {
+
+        public CompactObjectInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected void readStreamHeader() {
+            // no header
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+            String className = readUTF();
+            long serialVersionUID = readLong();
+            int fingerprint = readInt();
+            ObjectStreamClass desc = ObjectStreamClass.lookup(loadClass(className));
+            if (desc == null) {
+                throw new InvalidClassException(className, "Class is not serializable");
+            }
+            if (desc.getSerialVersionUID() != serialVersionUID) {
+                throw new InvalidClassException(className,
+                        "Local class incompatible: stream serialVersionUID = " + serialVersionUID
+                                + ", local serialVersionUID = " + desc.getSerialVersionUID());
+            }
+            if (getFieldsFingerprint(desc) != fingerprint) {
+                throw new InvalidClassException(className, "Local class incompatible: serializable fields differ");
+            }
+            return desc;
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            // descriptors are local so the class is already resolved
+            Class<?> klass = desc.forClass();
+            return klass != null ? klass : super.resolveClass(desc);
+        }
+
+        protected Class<?> loadClass(String className) throws ClassNotFoundException {
+            ClassLoader loader = Thread.currentThread().getContextClassLoader();
+            if (loader == null) {
+                loader = WorkCodec.class.getClassLoader();
+            }
+            return Class.forName(className, false, loader);
+        }
+    }
+}
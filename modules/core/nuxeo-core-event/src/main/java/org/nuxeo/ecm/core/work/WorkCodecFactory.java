@@ -0,0 +1,47 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.core.work;
+
+import java.util.Map;
+
+import org.nuxeo.ecm.core.work.api.Work;
+import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.runtime.codec.CodecFactory;
+
+/**
+ * Factory for the compact {@link WorkCodec}, only {@link Work} classes are supported.
+ *
+ * @since 11.2
+ */
+public class WorkCodecFactory implements CodecFactory {
+
+    @Override
+    public void init(Map<String, String> options) {
+        // nothing to init
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> Codec<T> newCodec(Class<T> objectClass) {
+        if (!Work.class.isAssignableFrom(objectClass)) {
+            throw new IllegalArgumentException("Work codec cannot encode class: " + objectClass);
+        }
+        return (Codec<T>) new WorkCodec();
+    }
+}
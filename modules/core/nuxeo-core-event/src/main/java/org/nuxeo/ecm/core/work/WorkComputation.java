@@ -36,6 +36,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.nuxeo.common.utils.ExceptionUtils;
 import org.nuxeo.ecm.core.work.api.Work;
+import org.nuxeo.lib.stream.codec.Codec;
 import org.nuxeo.lib.stream.computation.AbstractComputation;
 import org.nuxeo.lib.stream.computation.ComputationContext;
 import org.nuxeo.lib.stream.computation.Record;
@@ -61,17 +62,34 @@ public class WorkComputation extends AbstractComputation {
 
     protected final CircularFifoBuffer workIds = new CircularFifoBuffer(IDS_SIZE);
 
+    protected static final Codec<Work> DEFAULT_CODEC = new WorkCodec();
+
     protected final Timer workTimer;
 
+    protected final Timer decodeTimer;
+
     protected final long stateTTL;
 
+    protected final Codec<Work> codec;
+
     protected Work work;
 
     public WorkComputation(String name) {
+        this(name, DEFAULT_CODEC);
+    }
+
+    /**
+     * @since 11.2
+     */
+    public WorkComputation(String name, Codec<Work> codec) {
         super(name, 1, 0);
+        this.codec = codec;
         MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
-        workTimer = registry.timer(
-                MetricName.build("nuxeo.works.queue.timer").tagged("queue", Name.ofUrn(name).getName()));
+        String queue = Name.ofUrn(name).getName();
+        workTimer = registry.timer(MetricName.build("nuxeo.works.queue.timer").tagged("queue", queue));
+        decodeTimer = registry.timer(
+                MetricName.build("nuxeo.works.queue.codec.decode").tagged("queue", queue).tagged("codec",
+                        codec.getName()));
         stateTTL = Framework.getService(ConfigurationService.class).getLong(STATETTL_KEY, STATETTL_DEFAULT_VALUE);
     }
 
@@ -84,7 +102,9 @@ public class WorkComputation extends AbstractComputation {
 
     @Override
     public void processRecord(ComputationContext context, String inputStreamName, Record record) {
-        work = deserialize(record.getData());
+        try (Timer.Context ignored = decodeTimer.time()) {
+            work = codec.decode(record.getData());
+        }
         try {
             if (work.isCoalescing() && WorkStateHelper.getLastOffset(work.getId()) > context.getLastOffset().offset()) {
                 log.debug("Skipping duplicate of coalescing work id: " + work.getId() + " " + work);
@@ -152,8 +172,18 @@ public class WorkComputation extends AbstractComputation {
         }
     }
 
-    @SuppressWarnings("squid:S2093")
+    /**
+     * Decodes a work serialized with Java serialization or with the compact {@link WorkCodec} format.
+     */
     public static Work deserialize(byte[] data) {
+        return DEFAULT_CODEC.decode(data);
+    }
+
+    /**
+     * @since 11.2
+     */
+    @SuppressWarnings("squid:S2093")
+    protected static Work deserializeJava(byte[] data) {
         // TODO: switch to commons-lang3 SerializationUtils
         ByteArrayInputStream bis = new ByteArrayInputStream(data);
         ObjectInput in = null;
@@ -30,6 +30,10 @@ import org.junit.Ignore;
 import org.junit.Test;
 import org.nuxeo.ecm.core.work.api.Work;
 import org.nuxeo.ecm.core.work.api.WorkQueueMetrics;
+import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.codec.SerializableCodec;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.codec.CodecService;
 import org.nuxeo.runtime.test.runner.Deploy;
 
 /**
@@ -84,6 +88,21 @@ public class StreamWorkManagerTest extends AbstractWorkManagerTest {
         super.testWorkManagerConfigDisableAllAfterStart();
     }
 
+    @Test
+    public void testWorkCodecs() {
+        SleepWork work = new SleepWork(getDurationMillis());
+        Codec<Work> compactCodec = Framework.getService(CodecService.class).getCodec(WorkCodec.NAME, Work.class);
+        assertEquals(WorkCodec.NAME, compactCodec.getName());
+        byte[] compact = compactCodec.encode(work);
+        assertEquals(work.getId(), compactCodec.decode(compact).getId());
+
+        // the default java codec is resolved through the codec service and still decodes the compact format
+        Codec<Work> javaCodec = ((StreamWorkManager) service).getWorkCodec();
+        assertEquals(SerializableCodec.NAME, javaCodec.getName());
+        assertEquals(work.getId(), javaCodec.decode(javaCodec.encode(work)).getId());
+        assertEquals(work.getId(), javaCodec.decode(compact).getId());
+    }
+
     @Test
     public void testWorkIdempotent() throws InterruptedException {
         long durationMs = 1_000;
@@ -0,0 +1,114 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.core.work;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.work.api.Work;
+import org.nuxeo.lib.stream.codec.Codec;
+
+/**
+ * @since 11.2
+ */
+public class TestWorkCodec {
+
+    @Test
+    public void testCompactEncoding() {
+        Codec<Work> codec = new WorkCodec();
+        SleepWork work = new SleepWork(123, "myCategory", "myId");
+
+        byte[] compact = codec.encode(work);
+        byte[] java = WorkComputation.serialize(work);
+        assertTrue("compact: " + compact.length + " java: " + java.length, compact.length < java.length);
+
+        Work decoded = codec.decode(compact);
+        assertWork(work, decoded);
+        // static helper supports both formats
+        assertWork(work, WorkComputation.deserialize(compact));
+    }
+
+    @Test
+    public void testDecodeJavaSerialization() {
+        Codec<Work> codec = new WorkCodec();
+        SleepWork work = new SleepWork(123, "myCategory", "myId");
+        assertWork(work, codec.decode(WorkComputation.serialize(work)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeInvalidData() {
+        new WorkCodec().decode(new byte[] { 0x01, 0x02, 0x03 });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeIncompatibleSerialVersionUID() throws IOException {
+        new WorkCodec().decode(encodeWithDescriptor(1, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeIncompatibleFields() throws IOException {
+        new WorkCodec().decode(encodeWithDescriptor(0, 1));
+    }
+
+    @Test
+    public void testFactory() {
+        Codec<Work> codec = new WorkCodecFactory().newCodec(Work.class);
+        assertEquals(WorkCodec.NAME, codec.getName());
+        SleepWork work = new SleepWork(123, "myCategory", "myId");
+        assertWork(work, codec.decode(codec.encode(work)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFactoryRejectsNonWorkClass() {
+        new WorkCodecFactory().newCodec(String.class);
+    }
+
+    /**
+     * Encodes a work as a node having different classes would do.
+     */
+    protected byte[] encodeWithDescriptor(long serialVersionUIDDelta, int fingerprintDelta) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        bos.write(WorkCodec.COMPACT_FORMAT);
+        try (ObjectOutputStream out = new WorkCodec.CompactObjectOutputStream(bos) {
+            @Override
+            protected void writeClassDescriptor(ObjectStreamClass desc) throws IOException {
+                writeUTF(desc.getName());
+                writeLong(desc.getSerialVersionUID() + serialVersionUIDDelta);
+                writeInt(WorkCodec.getFieldsFingerprint(desc) + fingerprintDelta);
+            }
+        }) {
+            out.writeObject(new SleepWork(123, "myCategory", "myId"));
+        }
+        return bos.toByteArray();
+    }
+
+    protected void assertWork(SleepWork expected, Work actual) {
+        assertEquals(SleepWork.class, actual.getClass());
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getCategory(), actual.getCategory());
+        assertEquals(expected.getPartitionKey(), actual.getPartitionKey());
+        assertEquals(expected.getTitle(), actual.getTitle());
+    }
+}
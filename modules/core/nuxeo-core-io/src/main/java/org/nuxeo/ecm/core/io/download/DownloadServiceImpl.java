@@ -28,6 +28,11 @@ import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Enumeration;
@@ -118,6 +123,21 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
     /** @since 11.1 */
     public static final String DOWNLOAD_URL_FOLLOW_REDIRECT = "org.nuxeo.download.url.follow.redirect";
 
+    /**
+     * Enables the servlet container sendfile for blobs backed by a local file, supported by Tomcat NIO connectors.
+     *
+     * @since 11.2
+     */
+    public static final String DOWNLOAD_SENDFILE_ENABLED = "org.nuxeo.download.sendfile.enabled";
+
+    protected static final String SENDFILE_SUPPORT_ATTR = "org.apache.tomcat.sendfile.support";
+
+    protected static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+
+    protected static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+
+    protected static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
     private static final String RUN_FUNCTION = "run";
 
     private static final Pattern FILENAME_SANITIZATION_REGEX = Pattern.compile(";\\w+=.*");
@@ -565,7 +585,7 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
         Consumer<ByteRange> blobTransferer = context.getBlobTransferer();
         if (blobTransferer == null) {
             Blob fblob = blob;
-            blobTransferer = byteRange -> transferBlobWithByteRange(fblob, byteRange, response);
+            blobTransferer = byteRange -> transferBlobWithByteRange(fblob, byteRange, request, response);
         }
         Calendar lastModified = context.getLastModified();
         if (lastModified == null && doc != null) {
@@ -782,6 +802,30 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
         }
     }
 
+    /**
+     * Transfers the blob, delegating the transfer of a file-backed blob to the servlet container when sendfile is
+     * enabled and supported.
+     *
+     * @since 11.2
+     */
+    protected void transferBlobWithByteRange(Blob blob, ByteRange byteRange, HttpServletRequest request,
+            HttpServletResponse response) {
+        if (Framework.isBooleanPropertyTrue(DOWNLOAD_SENDFILE_ENABLED)
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTR))) {
+            File file = getLocalFile(blob);
+            if (file != null) {
+                // the container sends the file after the request processing, nothing must be written
+                long start = byteRange == null ? 0 : byteRange.getStart();
+                long end = byteRange == null ? file.length() : byteRange.getEnd() + 1; // exclusive
+                request.setAttribute(SENDFILE_FILENAME_ATTR, file.getAbsolutePath());
+                request.setAttribute(SENDFILE_START_ATTR, Long.valueOf(start));
+                request.setAttribute(SENDFILE_END_ATTR, Long.valueOf(end));
+                return;
+            }
+        }
+        transferBlobWithByteRange(blob, byteRange, response);
+    }
+
     protected void transferBlobWithByteRange(Blob blob, ByteRange byteRange, HttpServletResponse response) {
         transferBlobWithByteRange(blob, byteRange, () -> {
             try {
@@ -799,6 +843,19 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
 
     @Override
     public void transferBlobWithByteRange(Blob blob, ByteRange byteRange, Supplier<OutputStream> outputStreamSupplier) {
+        File file = getLocalFile(blob);
+        if (file != null) {
+            @SuppressWarnings("resource")
+            OutputStream out = outputStreamSupplier.get(); // not ours to close
+            BufferingServletOutputStream.stopBuffering(out);
+            try {
+                transferFile(file.toPath(), byteRange, out);
+                out.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return;
+        }
         try (InputStream in = blob.getStream()) {
             @SuppressWarnings("resource")
             OutputStream out = outputStreamSupplier.get(); // not ours to close
@@ -818,6 +875,56 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
         }
     }
 
+    /**
+     * Gets the local file holding the data of a blob, if any.
+     * <p>
+     * The file of a managed blob is resolved through its {@link BlobProvider}, as managed blobs usually don't expose
+     * their file themselves.
+     *
+     * @return the file, or {@code null} if the blob has no local file
+     * @since 11.2
+     */
+    protected File getLocalFile(Blob blob) {
+        File file = null;
+        if (blob instanceof ManagedBlob) {
+            BlobProvider blobProvider = Framework.getService(BlobManager.class).getBlobProvider(blob);
+            if (blobProvider != null) {
+                file = blobProvider.getFile((ManagedBlob) blob);
+            }
+        }
+        if (file == null) {
+            file = blob.getFile();
+        }
+        return file != null && file.isFile() ? file : null;
+    }
+
+    /**
+     * Transfers a file using {@link FileChannel#transferTo}, the file is read at the byte range position instead of
+     * skipping through a stream.
+     * <p>
+     * The output stream is wrapped in a channel, so the JDK still copies the data through a small intermediate buffer:
+     * this is not a zero-copy transfer, only the container sendfile is.
+     *
+     * @since 11.2
+     */
+    protected void transferFile(Path path, ByteRange byteRange, OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long position = byteRange == null ? 0 : byteRange.getStart();
+            long count = byteRange == null ? channel.size() : byteRange.getLength();
+            @SuppressWarnings("resource") // closing the channel would close the output stream
+            WritableByteChannel target = Channels.newChannel(out);
+            while (count > 0) {
+                long n = channel.transferTo(position, count, target);
+                if (n <= 0) {
+                    // end of file reached
+                    break;
+                }
+                position += n;
+                count -= n;
+            }
+        }
+    }
+
     protected String fixXPath(String xpath) {
         // Hack for Flash Url wich doesn't support ':' char
         return xpath == null ? null : xpath.replace(';', ':');
@@ -123,14 +123,28 @@ public abstract class DefaultListJsonWriter<EntityType> extends AbstractJsonWrit
         writePaginationInfos(list, jg);
         Writer<EntityType> documentWriter = registry.getWriter(ctx, elClazz, elGenericType, APPLICATION_JSON_TYPE);
         jg.writeArrayFieldStart("entries");
-        for (EntityType entity : list) {
-            documentWriter.write(entity, elClazz, elClazz, APPLICATION_JSON_TYPE, new OutputStreamWithJsonWriter(jg));
-        }
+        writeEntries(list, documentWriter, jg);
         jg.writeEndArray();
         extend(list, jg);
         jg.writeEndObject();
     }
 
+    /**
+     * Writes the entries of the list, each entry is flushed once written.
+     *
+     * @param list The list to marshal.
+     * @param entryWriter The writer of the entries.
+     * @param jg The {@link JsonGenerator} which point inside the entries array.
+     * @since 11.2
+     */
+    protected void writeEntries(List<EntityType> list, Writer<EntityType> entryWriter, JsonGenerator jg)
+            throws IOException {
+        OutputStreamWithJsonWriter out = new OutputStreamWithJsonWriter(jg);
+        for (EntityType entity : list) {
+            entryWriter.write(entity, elClazz, elClazz, APPLICATION_JSON_TYPE, out);
+        }
+    }
+
     private void writePaginationInfos(List<EntityType> list, JsonGenerator jg) throws IOException {
         if (list instanceof Paginable) {
             Paginable<?> paginable = (Paginable<?>) list;
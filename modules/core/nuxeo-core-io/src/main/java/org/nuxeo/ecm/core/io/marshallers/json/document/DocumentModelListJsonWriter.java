@@ -29,8 +29,11 @@ import java.util.List;
 
 import org.nuxeo.ecm.automation.core.util.PaginableDocumentModelList;
 import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.io.marshallers.json.AbstractJsonWriter;
 import org.nuxeo.ecm.core.io.marshallers.json.DefaultListJsonWriter;
+import org.nuxeo.ecm.core.io.registry.Writer;
 import org.nuxeo.ecm.core.io.registry.reflect.Setup;
+import org.nuxeo.runtime.api.Framework;
 
 import com.fasterxml.jackson.core.JsonGenerator;
 
@@ -44,6 +47,22 @@ public class DocumentModelListJsonWriter extends DefaultListJsonWriter<DocumentM
 
     public static final String ENTITY_DOCUMENT_LIST = "documents";
 
+    /**
+     * Property defining after how many documents the written entries are flushed to the output. By default each
+     * document is flushed once written, a greater value streams the documents by batches and avoids a flush of the
+     * output for each document.
+     * <p>
+     * The entries are written while iterating over the list, so a list loading its documents during the iteration is
+     * streamed as its documents are fetched. The lists returned by queries and page providers are loaded before being
+     * written, for them only the output is streamed.
+     *
+     * @since 11.2
+     */
+    public static final String FLUSH_INTERVAL_PROP = "nuxeo.document.json.list.flush.interval";
+
+    /** @since 11.2 */
+    public static final int DEFAULT_FLUSH_INTERVAL = 1;
+
     public DocumentModelListJsonWriter() {
         super(ENTITY_DOCUMENT_LIST, DocumentModel.class);
     }
@@ -61,4 +80,32 @@ public class DocumentModelListJsonWriter extends DefaultListJsonWriter<DocumentM
         }
     }
 
+    @Override
+    protected void writeEntries(List<DocumentModel> docs, Writer<DocumentModel> entryWriter, JsonGenerator jg)
+            throws IOException {
+        int flushInterval = getFlushInterval();
+        if (flushInterval <= 1 || !(entryWriter instanceof AbstractJsonWriter)) {
+            super.writeEntries(docs, entryWriter, jg);
+            return;
+        }
+        // write directly in the generator, to not flush after each document
+        AbstractJsonWriter<DocumentModel> documentWriter = (AbstractJsonWriter<DocumentModel>) entryWriter;
+        int count = 0;
+        for (DocumentModel doc : docs) {
+            documentWriter.write(doc, jg);
+            if (++count % flushInterval == 0) {
+                jg.flush();
+            }
+        }
+    }
+
+    protected static int getFlushInterval() {
+        try {
+            return Integer.parseInt(
+                    Framework.getProperty(FLUSH_INTERVAL_PROP, String.valueOf(DEFAULT_FLUSH_INTERVAL)));
+        } catch (NumberFormatException e) {
+            return DEFAULT_FLUSH_INTERVAL;
+        }
+    }
+
 }
@@ -20,12 +20,19 @@
 package org.nuxeo.ecm.core.io.registry;
 
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import javax.ws.rs.core.MediaType;
 
@@ -81,6 +88,26 @@ public class MarshallerRegistryImpl extends DefaultComponent implements Marshall
      */
     private static final Map<Class<?>, MarshallerInspector> marshallersByType = new ConcurrentHashMap<>();
 
+    /**
+     * Maximum number of cached resolutions, the cache is cleared when reached.
+     *
+     * @since 11.2
+     */
+    protected static final int RESOLUTIONS_MAX_SIZE = 1000;
+
+    /**
+     * {@link MarshallerInspector} whose marshalled class and generic type are compatible with a request, in search
+     * order. The result of {@link Marshaller#accept} is not cached as it may depend on the {@link RenderingContext}.
+     *
+     * @since 11.2
+     */
+    private static final Map<ResolutionKey, List<MarshallerInspector>> resolutions = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented when marshallers change, to avoid caching a resolution computed from previous marshallers.
+     */
+    private static final AtomicInteger resolutionsVersion = new AtomicInteger();
+
     @Override
     public void deactivate(ComponentContext context) {
         clear();
@@ -155,6 +182,7 @@ public class MarshallerRegistryImpl extends DefaultComponent implements Marshall
                 inspectors.add(inspector);
             }
         }
+        invalidateResolutions();
     }
 
     @Override
@@ -188,29 +216,30 @@ public class MarshallerRegistryImpl extends DefaultComponent implements Marshall
                 }
             }
         }
+        invalidateResolutions();
     }
 
     @Override
     public <T> Writer<T> getWriter(RenderingContext ctx, Class<T> marshalledClazz, Type genericType,
             MediaType mediatype) {
-        Set<MarshallerInspector> candidates = writersByMediaType.get(mediatype);
-        return (Writer<T>) getMarshaller(ctx, marshalledClazz, genericType, mediatype, candidates, writers, false);
+        List<MarshallerInspector> candidates = getCandidates(true, marshalledClazz, genericType, mediatype);
+        return (Writer<T>) searchCandidate(ctx, marshalledClazz, genericType, mediatype, candidates, false);
     }
 
     @Override
     public <T> Writer<T> getUniqueWriter(RenderingContext ctx, Class<T> marshalledClazz, Type genericType,
             MediaType mediatype) {
-        Set<MarshallerInspector> candidates = writersByMediaType.get(mediatype);
-        return (Writer<T>) getMarshaller(ctx, marshalledClazz, genericType, mediatype, candidates, writers, true);
+        List<MarshallerInspector> candidates = getCandidates(true, marshalledClazz, genericType, mediatype);
+        return (Writer<T>) searchCandidate(ctx, marshalledClazz, genericType, mediatype, candidates, true);
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public <T> Collection<Writer<T>> getAllWriters(RenderingContext ctx, Class<T> marshalledClazz, Type genericType,
             MediaType mediatype) {
-        Set<MarshallerInspector> candidates = writersByMediaType.get(mediatype);
-        Collection<Marshaller<T>> founds = getAllMarshallers(ctx, marshalledClazz, genericType, mediatype, candidates,
-                writers);
+        List<MarshallerInspector> candidates = getCandidates(true, marshalledClazz, genericType, mediatype);
+        Collection<Marshaller<T>> founds = searchAllCandidates(ctx, marshalledClazz, genericType, mediatype,
+                candidates).values();
         return (Collection<Writer<T>>) (Collection<?>) founds;
     }
 
@@ -222,24 +251,24 @@ public class MarshallerRegistryImpl extends DefaultComponent implements Marshall
     @Override
     public <T> Reader<T> getReader(RenderingContext ctx, Class<T> marshalledClazz, Type genericType,
             MediaType mediatype) {
-        Set<MarshallerInspector> candidates = readersByMediaType.get(mediatype);
-        return (Reader<T>) getMarshaller(ctx, marshalledClazz, genericType, mediatype, candidates, readers, false);
+        List<MarshallerInspector> candidates = getCandidates(false, marshalledClazz, genericType, mediatype);
+        return (Reader<T>) searchCandidate(ctx, marshalledClazz, genericType, mediatype, candidates, false);
     }
 
     @Override
     public <T> Reader<T> getUniqueReader(RenderingContext ctx, Class<T> marshalledClazz, Type genericType,
             MediaType mediatype) {
-        Set<MarshallerInspector> candidates = readersByMediaType.get(mediatype);
-        return (Reader<T>) getMarshaller(ctx, marshalledClazz, genericType, mediatype, candidates, readers, true);
+        List<MarshallerInspector> candidates = getCandidates(false, marshalledClazz, genericType, mediatype);
+        return (Reader<T>) searchCandidate(ctx, marshalledClazz, genericType, mediatype, candidates, true);
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public <T> Collection<Reader<T>> getAllReaders(RenderingContext ctx, Class<T> marshalledClazz, Type genericType,
             MediaType mediatype) {
-        Set<MarshallerInspector> candidates = readersByMediaType.get(mediatype);
-        Collection<Marshaller<T>> founds = getAllMarshallers(ctx, marshalledClazz, genericType, mediatype, candidates,
-                readers);
+        List<MarshallerInspector> candidates = getCandidates(false, marshalledClazz, genericType, mediatype);
+        Collection<Marshaller<T>> founds = searchAllCandidates(ctx, marshalledClazz, genericType, mediatype,
+                candidates).values();
         return (Collection<Reader<T>>) (Collection<?>) founds;
     }
 
@@ -252,13 +281,14 @@ public class MarshallerRegistryImpl extends DefaultComponent implements Marshall
             MediaType mediatype, Set<MarshallerInspector> customs, Set<MarshallerInspector> wildcards,
             boolean forceInstantiation) {
         if (customs != null) {
-            Marshaller<T> found = searchCandidate(ctx, marshalledClazz, genericType, mediatype, customs,
-                    forceInstantiation);
+            Marshaller<T> found = searchCandidate(ctx, marshalledClazz, genericType, mediatype,
+                    filterCompatible(customs, marshalledClazz, genericType), forceInstantiation);
             if (found != null) {
                 return found;
             }
         }
-        return searchCandidate(ctx, marshalledClazz, genericType, mediatype, wildcards, forceInstantiation);
+        return searchCandidate(ctx, marshalledClazz, genericType, mediatype,
+                filterCompatible(wildcards, marshalledClazz, genericType), forceInstantiation);
     }
 
     public <T> Collection<Marshaller<T>> getAllMarshallers(RenderingContext ctx, Class<T> marshalledClazz,
@@ -266,52 +296,100 @@ public class MarshallerRegistryImpl extends DefaultComponent implements Marshall
             Set<MarshallerInspector> wildcards) {
         Map<MarshallerInspector, Marshaller<T>> result = new HashMap<>();
         if (customs != null) {
-            result.putAll(searchAllCandidates(ctx, marshalledClazz, genericType, mediatype, customs));
+            result.putAll(searchAllCandidates(ctx, marshalledClazz, genericType, mediatype,
+                    filterCompatible(customs, marshalledClazz, genericType)));
         }
-        result.putAll(searchAllCandidates(ctx, marshalledClazz, genericType, mediatype, wildcards));
+        result.putAll(searchAllCandidates(ctx, marshalledClazz, genericType, mediatype,
+                filterCompatible(wildcards, marshalledClazz, genericType)));
         return result.values();
     }
 
+    /**
+     * Gets the inspectors compatible with the given class, generic type and media type, in search order: the ones
+     * supporting the media type first, then all of them.
+     *
+     * @since 11.2
+     */
+    protected List<MarshallerInspector> getCandidates(boolean writer, Class<?> marshalledClazz, Type genericType,
+            MediaType mediatype) {
+        ResolutionKey key = new ResolutionKey(writer, marshalledClazz, genericType, mediatype);
+        List<MarshallerInspector> candidates = resolutions.get(key);
+        if (candidates == null) {
+            int version = resolutionsVersion.get();
+            Set<MarshallerInspector> customs = (writer ? writersByMediaType : readersByMediaType).get(mediatype);
+            Set<MarshallerInspector> wildcards = writer ? writers : readers;
+            Set<MarshallerInspector> compatibles = new LinkedHashSet<>();
+            if (customs != null) {
+                compatibles.addAll(filterCompatible(customs, marshalledClazz, genericType));
+            }
+            compatibles.addAll(filterCompatible(wildcards, marshalledClazz, genericType));
+            candidates = new ArrayList<>(compatibles);
+            if (resolutions.size() >= RESOLUTIONS_MAX_SIZE) {
+                resolutions.clear();
+            }
+            resolutions.put(key, candidates);
+            if (resolutionsVersion.get() != version) {
+                // marshallers changed during the resolution
+                resolutions.remove(key);
+            }
+        }
+        return candidates;
+    }
+
+    protected static void invalidateResolutions() {
+        resolutionsVersion.incrementAndGet();
+        resolutions.clear();
+    }
+
+    /**
+     * Checks the managed class and the generic type of the marshaller are compatible.
+     */
+    protected static boolean isCompatible(MarshallerInspector inspector, Class<?> marshalledClazz, Type genericType) {
+        return inspector.getMarshalledType().isAssignableFrom(marshalledClazz)
+                && (genericType == null || marshalledClazz.equals(inspector.getGenericType())
+                        || TypeUtils.isAssignable(genericType, inspector.getGenericType()));
+    }
+
+    protected static List<MarshallerInspector> filterCompatible(Collection<MarshallerInspector> inspectors,
+            Class<?> marshalledClazz, Type genericType) {
+        return inspectors.stream()
+                         .filter(inspector -> isCompatible(inspector, marshalledClazz, genericType))
+                         .collect(Collectors.toList());
+    }
+
+    /**
+     * Searches the first marshaller accepting the request among compatible inspectors.
+     */
     @SuppressWarnings("unchecked")
     private <T> Marshaller<T> searchCandidate(RenderingContext ctx, Class<T> marshalledClazz, Type genericType,
-            MediaType mediatype, Set<MarshallerInspector> candidates, boolean forceInstantiation) {
+            MediaType mediatype, Collection<MarshallerInspector> candidates, boolean forceInstantiation) {
         for (MarshallerInspector inspector : candidates) {
-            // checks the managed class is compatible
-            if (inspector.getMarshalledType().isAssignableFrom(marshalledClazz)) {
-                // checks the generic type is compatible
-                if (genericType == null || marshalledClazz.equals(inspector.getGenericType())
-                        || TypeUtils.isAssignable(genericType, inspector.getGenericType())) {
-                    Marshaller<T> marshaller = null;
-                    if (forceInstantiation) {
-                        marshaller = (Marshaller<T>) inspector.getNewInstance(ctx, false);
-                    } else {
-                        marshaller = inspector.getInstance(ctx);
-                    }
-                    // checks the marshaller accepts the request
-                    if (marshaller.accept(marshalledClazz, genericType, mediatype)) {
-                        return marshaller;
-                    }
-                }
+            Marshaller<T> marshaller = null;
+            if (forceInstantiation) {
+                marshaller = (Marshaller<T>) inspector.getNewInstance(ctx, false);
+            } else {
+                marshaller = inspector.getInstance(ctx);
+            }
+            // checks the marshaller accepts the request
+            if (marshaller.accept(marshalledClazz, genericType, mediatype)) {
+                return marshaller;
             }
         }
         return null;
     }
 
+    /**
+     * Searches all the marshallers accepting the request among compatible inspectors.
+     */
     private <T> Map<MarshallerInspector, Marshaller<T>> searchAllCandidates(RenderingContext ctx,
-            Class<T> marshalledClazz, Type genericType, MediaType mediatype, Set<MarshallerInspector> candidates) {
-        Map<MarshallerInspector, Marshaller<T>> result = new HashMap<>();
+            Class<T> marshalledClazz, Type genericType, MediaType mediatype,
+            Collection<MarshallerInspector> candidates) {
+        Map<MarshallerInspector, Marshaller<T>> result = new LinkedHashMap<>();
         for (MarshallerInspector inspector : candidates) {
-            // checks the managed class is compatible
-            if (inspector.getMarshalledType().isAssignableFrom(marshalledClazz)) {
-                // checks the generic type is compatible
-                if (genericType == null || marshalledClazz.equals(inspector.getGenericType())
-                        || TypeUtils.isAssignable(genericType, inspector.getGenericType())) {
-                    // checks the marshaller accepts the request
-                    Marshaller<T> marshaller = inspector.getInstance(ctx);
-                    if (marshaller.accept(marshalledClazz, genericType, mediatype)) {
-                        result.put(inspector, marshaller);
-                    }
-                }
+            // checks the marshaller accepts the request
+            Marshaller<T> marshaller = inspector.getInstance(ctx);
+            if (marshaller.accept(marshalledClazz, genericType, mediatype)) {
+                result.put(inspector, marshaller);
             }
         }
         return result;
@@ -344,6 +422,51 @@ public class MarshallerRegistryImpl extends DefaultComponent implements Marshall
         readersByMediaType.clear();
         writers.clear();
         readers.clear();
+        invalidateResolutions();
+    }
+
+    /**
+     * Key of the resolution cache.
+     *
+     * @since 11.2
+     */
+    protected static class ResolutionKey {
+
+        protected final boolean writer;
+
+        protected final Class<?> marshalledClazz;
+
+        protected final Type genericType;
+
+        protected final MediaType mediatype;
+
+        protected final int hashCode;
+
+        protected ResolutionKey(boolean writer, Class<?> marshalledClazz, Type genericType, MediaType mediatype) {
+            this.writer = writer;
+            this.marshalledClazz = marshalledClazz;
+            this.genericType = genericType;
+            this.mediatype = mediatype;
+            hashCode = Objects.hash(writer, marshalledClazz, genericType, mediatype);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof ResolutionKey)) {
+                return false;
+            }
+            ResolutionKey other = (ResolutionKey) obj;
+            return writer == other.writer && marshalledClazz.equals(other.marshalledClazz)
+                    && Objects.equals(genericType, other.genericType) && Objects.equals(mediatype, other.mediatype);
+        }
     }
 
 }
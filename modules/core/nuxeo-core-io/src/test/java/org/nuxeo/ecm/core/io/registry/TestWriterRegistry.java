@@ -167,6 +167,25 @@ public class TestWriterRegistry {
         assertEquals(DefaultNumberWriter.class, writer.getClass());
     }
 
+    @Test
+    public void resolutionCacheKeepsAcceptAndRegistrations() throws Exception {
+        registry.register(SingletonStateWriter.class);
+        registry.register(DefaultNumberWriter.class);
+        RenderingContext ctx2 = RenderingContext.CtxBuilder.param("doNotAccept", true).get();
+        Writer<?> writer = registry.getWriter(ctx2, Integer.class, null, APPLICATION_JSON_TYPE);
+        assertEquals(DefaultNumberWriter.class, writer.getClass());
+        // accept is still called with the new context
+        writer = registry.getWriter(ctx, Integer.class, null, APPLICATION_JSON_TYPE);
+        assertEquals(SingletonStateWriter.class, writer.getClass());
+        // resolutions are updated on registration changes
+        registry.deregister(SingletonStateWriter.class);
+        writer = registry.getWriter(ctx, Integer.class, null, APPLICATION_JSON_TYPE);
+        assertEquals(DefaultNumberWriter.class, writer.getClass());
+        registry.register(HigherPriorityWriter.class);
+        writer = registry.getWriter(ctx, Integer.class, null, APPLICATION_JSON_TYPE);
+        assertEquals(HigherPriorityWriter.class, writer.getClass());
+    }
+
     // keep those, we want to test reflection on private fields
     @SuppressWarnings("unused")
     private Map<String, List<Integer>> listIntegerMapProperty = null;
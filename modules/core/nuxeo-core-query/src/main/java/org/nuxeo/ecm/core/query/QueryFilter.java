@@ -59,6 +59,9 @@ public class QueryFilter implements org.nuxeo.ecm.core.api.query.QueryFilter<SQL
 
     protected final long offset;
 
+    /** @since 11.2 */
+    protected final int fetchSize;
+
     /**
      * Constructs a query filter.
      * <p>
@@ -66,6 +69,19 @@ public class QueryFilter implements org.nuxeo.ecm.core.api.query.QueryFilter<SQL
      */
     public QueryFilter(NuxeoPrincipal principal, String[] principals, String[] permissions, FacetFilter facetFilter,
             Collection<SQLQuery.Transformer> queryTransformers, long limit, long offset) {
+        this(principal, principals, permissions, facetFilter, queryTransformers, limit, offset, 0);
+    }
+
+    /**
+     * Constructs a query filter with a fetch size.
+     * <p>
+     * A positive fetch size asks for the results to be read lazily from the database cursor, fetching that many rows
+     * at a time, instead of being read at once. The query result may then not be able to give its size.
+     *
+     * @since 11.2
+     */
+    public QueryFilter(NuxeoPrincipal principal, String[] principals, String[] permissions, FacetFilter facetFilter,
+            Collection<SQLQuery.Transformer> queryTransformers, long limit, long offset, int fetchSize) {
         this.principal = principal;
         this.principals = principals;
         this.permissions = permissions;
@@ -73,6 +89,7 @@ public class QueryFilter implements org.nuxeo.ecm.core.api.query.QueryFilter<SQL
         this.queryTransformers = queryTransformers;
         this.limit = limit;
         this.offset = offset;
+        this.fetchSize = fetchSize;
     }
 
     public static QueryFilter withoutLimitOffset(QueryFilter other) {
@@ -82,7 +99,8 @@ public class QueryFilter implements org.nuxeo.ecm.core.api.query.QueryFilter<SQL
                 other.permissions, //
                 other.facetFilter, //
                 other.queryTransformers, //
-                0, 0);
+                0, 0, //
+                other.fetchSize);
     }
 
     @Override
@@ -120,6 +138,15 @@ public class QueryFilter implements org.nuxeo.ecm.core.api.query.QueryFilter<SQL
         return offset;
     }
 
+    /**
+     * Gets the number of rows to fetch at a time from the database cursor, or {@code 0} to read them at once.
+     *
+     * @since 11.2
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
     @Override
     public String toString() {
         return String.format("QueryFilter(principal=%s, limit=%d, offset=%d)", principal, limit, offset);
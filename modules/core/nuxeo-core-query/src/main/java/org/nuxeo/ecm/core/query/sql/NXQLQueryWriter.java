@@ -0,0 +1,289 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.core.query.sql;
+
+import java.util.Iterator;
+import java.util.Map.Entry;
+
+import org.nuxeo.ecm.core.query.sql.model.BooleanLiteral;
+import org.nuxeo.ecm.core.query.sql.model.DefaultQueryVisitor;
+import org.nuxeo.ecm.core.query.sql.model.Expression;
+import org.nuxeo.ecm.core.query.sql.model.FromClause;
+import org.nuxeo.ecm.core.query.sql.model.Function;
+import org.nuxeo.ecm.core.query.sql.model.GroupByClause;
+import org.nuxeo.ecm.core.query.sql.model.HavingClause;
+import org.nuxeo.ecm.core.query.sql.model.Literal;
+import org.nuxeo.ecm.core.query.sql.model.LiteralList;
+import org.nuxeo.ecm.core.query.sql.model.MultiExpression;
+import org.nuxeo.ecm.core.query.sql.model.Operand;
+import org.nuxeo.ecm.core.query.sql.model.Operator;
+import org.nuxeo.ecm.core.query.sql.model.OrderByClause;
+import org.nuxeo.ecm.core.query.sql.model.OrderByExpr;
+import org.nuxeo.ecm.core.query.sql.model.Predicate;
+import org.nuxeo.ecm.core.query.sql.model.Reference;
+import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
+import org.nuxeo.ecm.core.query.sql.model.SelectClause;
+import org.nuxeo.ecm.core.query.sql.model.StringLiteral;
+import org.nuxeo.ecm.core.query.sql.model.WhereClause;
+
+/**
+ * Writes a {@link SQLQuery} back to NXQL text that parses to the same query.
+ * <p>
+ * Unlike {@link SQLQuery#toString}, this works for queries that were built or transformed after parsing: all the
+ * boolean expressions are parenthesized and the string literals are escaped.
+ *
+ * @since 11.2
+ */
+public class NXQLQueryWriter extends DefaultQueryVisitor {
+
+    protected final StringBuilder sb = new StringBuilder();
+
+    /**
+     * Returns the NXQL text of a query.
+     */
+    public static String write(SQLQuery query) {
+        NXQLQueryWriter writer = new NXQLQueryWriter();
+        query.accept(writer);
+        return writer.sb.toString();
+    }
+
+    @Override
+    public void visitQuery(SQLQuery node) {
+        node.select.accept(this);
+        node.from.accept(this);
+        if (node.where != null) {
+            node.where.accept(this);
+        }
+        if (node.groupBy != null) {
+            node.groupBy.accept(this);
+        }
+        if (node.having != null) {
+            node.having.accept(this);
+        }
+        if (node.orderBy != null) {
+            node.orderBy.accept(this);
+        }
+        if (node.limit != 0) {
+            sb.append(" LIMIT ").append(node.limit);
+            if (node.offset != 0) {
+                sb.append(" OFFSET ").append(node.offset);
+            }
+        }
+    }
+
+    @Override
+    public void visitSelectClause(SelectClause node) {
+        sb.append("SELECT ");
+        if (node.distinct) {
+            sb.append("DISTINCT ");
+        }
+        if (node.elements.isEmpty()) {
+            sb.append('*');
+            return;
+        }
+        boolean first = true;
+        for (Entry<String, Operand> entry : node.elements.entrySet()) {
+            if (!first) {
+                sb.append(", ");
+            }
+            first = false;
+            Operand operand = entry.getValue();
+            operand.accept(this);
+            String alias = entry.getKey();
+            if (!alias.equals(operand.toString())) {
+                sb.append(" AS ").append(alias);
+            }
+        }
+    }
+
+    @Override
+    public void visitFromClause(FromClause node) {
+        sb.append(" FROM ");
+        if (node.type == FromClause.LOCATION) {
+            sb.append("LOCATION ");
+        }
+        boolean first = true;
+        for (Entry<String, String> entry : node.elements.entrySet()) {
+            if (!first) {
+                sb.append(", ");
+            }
+            first = false;
+            sb.append(entry.getValue());
+            if (!entry.getKey().equals(entry.getValue())) {
+                sb.append(" AS ").append(entry.getKey());
+            }
+        }
+    }
+
+    @Override
+    public void visitWhereClause(WhereClause node) {
+        sb.append(" WHERE ");
+        node.predicate.accept(this);
+    }
+
+    @Override
+    public void visitGroupByClause(GroupByClause node) {
+        if (node.elements.length > 0) {
+            sb.append(" GROUP BY ").append(String.join(", ", node.elements));
+        }
+    }
+
+    @Override
+    public void visitHavingClause(HavingClause node) {
+        if (node.predicate != null) {
+            sb.append(" HAVING ");
+            node.predicate.accept(this);
+        }
+    }
+
+    @Override
+    public void visitOrderByClause(OrderByClause node) {
+        if (node.elements.isEmpty()) {
+            return;
+        }
+        sb.append(" ORDER BY ");
+        for (Iterator<OrderByExpr> it = node.elements.iterator(); it.hasNext();) {
+            it.next().accept(this);
+            if (it.hasNext()) {
+                sb.append(", ");
+            }
+        }
+    }
+
+    @Override
+    public void visitOrderByExpr(OrderByExpr node) {
+        node.reference.accept(this);
+        if (node.isDescending) {
+            sb.append(" DESC");
+        }
+    }
+
+    @Override
+    public void visitExpression(Expression node) {
+        Operator op = node.operator;
+        if (isArithmetic(op)) {
+            // the grammar only allows an operand on the right, and parenthesized expressions on the left
+            if (node.lvalue instanceof Expression) {
+                sb.append('(');
+                node.lvalue.accept(this);
+                sb.append(')');
+            } else {
+                node.lvalue.accept(this);
+            }
+            sb.append(' ').append(op).append(' ');
+            node.rvalue.accept(this);
+            return;
+        }
+        sb.append('(');
+        if (node.rvalue == null) {
+            if (node.isSuffix()) {
+                node.lvalue.accept(this);
+                sb.append(' ').append(op);
+            } else {
+                sb.append(op).append(' ');
+                node.lvalue.accept(this);
+            }
+        } else if (op == Operator.BETWEEN || op == Operator.NOTBETWEEN) {
+            LiteralList range = (LiteralList) node.rvalue;
+            node.lvalue.accept(this);
+            sb.append(' ').append(op).append(' ');
+            range.get(0).accept(this);
+            sb.append(" AND ");
+            range.get(1).accept(this);
+        } else {
+            node.lvalue.accept(this);
+            sb.append(' ').append(op).append(' ');
+            node.rvalue.accept(this);
+        }
+        sb.append(')');
+    }
+
+    @Override
+    public void visitMultiExpression(MultiExpression node) {
+        if (node.predicates.isEmpty()) {
+            throw new IllegalArgumentException("Cannot write an empty " + node.operator + " expression");
+        }
+        sb.append('(');
+        for (Iterator<Predicate> it = node.predicates.iterator(); it.hasNext();) {
+            it.next().accept(this);
+            if (it.hasNext()) {
+                sb.append(' ').append(node.operator).append(' ');
+            }
+        }
+        sb.append(')');
+    }
+
+    protected static boolean isArithmetic(Operator op) {
+        return op == Operator.SUM || op == Operator.SUB || op == Operator.MUL || op == Operator.DIV;
+    }
+
+    @Override
+    public void visitReference(Reference node) {
+        if (node.cast != null) {
+            sb.append(node.cast).append('(').append(node.name).append(')');
+        } else if (node.esHint != null) {
+            sb.append(node.esHint).append(' ').append(node.name);
+        } else {
+            sb.append(node.name);
+        }
+    }
+
+    @Override
+    public void visitLiteral(Literal node) {
+        sb.append(node);
+    }
+
+    @Override
+    public void visitStringLiteral(StringLiteral node) {
+        sb.append(NXQL.escapeString(node.value).replace("\r", "\\r"));
+    }
+
+    @Override
+    public void visitBooleanLiteral(BooleanLiteral node) {
+        // NXQL has no boolean literal, booleans are stored as 0 or 1
+        sb.append(node.value ? '1' : '0');
+    }
+
+    @Override
+    public void visitLiteralList(LiteralList node) {
+        sb.append('(');
+        for (Iterator<Literal> it = node.iterator(); it.hasNext();) {
+            it.next().accept(this);
+            if (it.hasNext()) {
+                sb.append(", ");
+            }
+        }
+        sb.append(')');
+    }
+
+    @Override
+    public void visitFunction(Function node) {
+        sb.append(node.name).append('(');
+        if (node.args != null) {
+            for (Iterator<Operand> it = node.args.iterator(); it.hasNext();) {
+                it.next().accept(this);
+                if (it.hasNext()) {
+                    sb.append(", ");
+                }
+            }
+        }
+        sb.append(')');
+    }
+
+}
@@ -27,11 +27,28 @@ import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
 import org.nuxeo.ecm.core.query.sql.parser.Scanner;
 import org.nuxeo.ecm.core.query.sql.parser.parser;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
 /**
  * @author <a href="mailto:bs@nuxeo.com">Bogdan Stefanescu</a>
  */
 public final class SQLQueryParser {
 
+    /**
+     * Maximum number of query shapes kept parsed.
+     *
+     * @since 11.2
+     */
+    public static final int CACHE_MAX_SIZE = 1000;
+
+    // parsed shapes are never returned to callers, only copies of them
+    private static final Cache<String, SQLQuery> CACHE = CacheBuilder.newBuilder()
+                                                                     .maximumSize(CACHE_MAX_SIZE)
+                                                                     .recordStats()
+                                                                     .build();
+
     // Utility class
     private SQLQueryParser() {
     }
@@ -48,10 +65,60 @@ public final class SQLQueryParser {
         }
     }
 
+    /**
+     * Parses a query.
+     * <p>
+     * Since 11.2, queries differing only by their string literals are parsed once, see {@link SQLQueryShape}. The
+     * returned query is always a new instance that can be modified by the caller.
+     */
     public static SQLQuery parse(String string) throws QueryParseException {
-        SQLQuery query = parse(new StringReader(string));
+        SQLQuery query;
+        SQLQueryShape shape = SQLQueryShape.of(string);
+        if (shape == null) {
+            query = parse(new StringReader(string));
+        } else {
+            SQLQuery parsed = CACHE.getIfPresent(shape.text);
+            if (parsed == null) {
+                try {
+                    parsed = parse(new StringReader(shape.text));
+                } catch (QueryParseException e) {
+                    // reparse the original query to get an error message referring to it
+                    parse(new StringReader(string));
+                    throw e;
+                }
+                CACHE.put(shape.text, parsed);
+            }
+            query = shape.bind(parsed);
+        }
         query.setQueryString(string);
         return query;
     }
 
+    /**
+     * Gets the statistics of the cache of parsed query shapes.
+     *
+     * @since 11.2
+     */
+    public static CacheStats getCacheStats() {
+        return CACHE.stats();
+    }
+
+    /**
+     * Gets the number of parsed query shapes in cache.
+     *
+     * @since 11.2
+     */
+    public static long getCacheSize() {
+        return CACHE.size();
+    }
+
+    /**
+     * Clears the cache of parsed query shapes.
+     *
+     * @since 11.2
+     */
+    public static void clearCache() {
+        CACHE.invalidateAll();
+    }
+
 }
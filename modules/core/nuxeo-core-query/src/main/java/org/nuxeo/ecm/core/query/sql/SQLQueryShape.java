@@ -0,0 +1,175 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.core.query.sql;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.nuxeo.ecm.core.query.sql.model.FromClause;
+import org.nuxeo.ecm.core.query.sql.model.IdentityQueryTransformer;
+import org.nuxeo.ecm.core.query.sql.model.Literal;
+import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
+import org.nuxeo.ecm.core.query.sql.model.StringLiteral;
+import org.nuxeo.ecm.core.query.sql.model.WhereClause;
+
+/**
+ * The shape of a NXQL query: its text where string literals are replaced by positional markers, and the values of
+ * these literals.
+ * <p>
+ * Queries differing only by their string literals have the same shape, so the shape can be parsed once and then bound
+ * to the literal values of each query.
+ * <p>
+ * The literals of {@code DATE} and {@code TIMESTAMP} are kept in the shape text, as the parser interprets them.
+ *
+ * @since 11.2
+ */
+public class SQLQueryShape {
+
+    protected static final Set<String> DATE_KEYWORDS = Set.of("DATE", "Date", "date", "TIMESTAMP", "TimeStamp",
+            "Timestamp", "timestamp");
+
+    protected static final String ES_HINT_START = "/*+";
+
+    /** The query text, with string literals replaced by markers. */
+    public final String text;
+
+    /** The values of the string literals, in marker order. */
+    public final String[] values;
+
+    protected SQLQueryShape(String text, String[] values) {
+        this.text = text;
+        this.values = values;
+    }
+
+    /**
+     * Computes the shape of a query.
+     *
+     * @return the shape, or {@code null} if the query must be parsed as is
+     */
+    public static SQLQueryShape of(String query) {
+        if (query.contains(ES_HINT_START)) {
+            // hints have their own lexical rules
+            return null;
+        }
+        int len = query.length();
+        StringBuilder sb = new StringBuilder(len);
+        List<String> values = new ArrayList<>();
+        int i = 0;
+        while (i < len) {
+            char c = query.charAt(i);
+            if (c != '\'' && c != '"') {
+                sb.append(c);
+                i++;
+                continue;
+            }
+            // string literal, unescaped like the scanner does
+            int start = i++;
+            StringBuilder value = new StringBuilder();
+            boolean closed = false;
+            while (i < len) {
+                char d = query.charAt(i++);
+                if (d == c) {
+                    closed = true;
+                    break;
+                }
+                if (d == '\n' || d == '\r') {
+                    return null;
+                }
+                if (d == '\\' && i < len) {
+                    char e = query.charAt(i);
+                    if (e == 't') {
+                        d = '\t';
+                    } else if (e == 'n') {
+                        d = '\n';
+                    } else if (e == 'r') {
+                        d = '\r';
+                    } else if (e == '\\' || e == c) {
+                        d = e;
+                    } else {
+                        // lone backslash
+                        e = 0;
+                    }
+                    if (e != 0) {
+                        i++;
+                    }
+                }
+                value.append(d);
+            }
+            if (!closed) {
+                return null;
+            }
+            if (followsDateKeyword(sb)) {
+                sb.append(query, start, i);
+            } else {
+                sb.append('\'').append(values.size()).append('\'');
+                values.add(value.toString());
+            }
+        }
+        return new SQLQueryShape(sb.toString(), values.toArray(new String[0]));
+    }
+
+    protected static boolean followsDateKeyword(StringBuilder sb) {
+        int end = sb.length();
+        while (end > 0 && Character.isWhitespace(sb.charAt(end - 1))) {
+            end--;
+        }
+        int start = end;
+        while (start > 0 && isIdentifierPart(sb.charAt(start - 1))) {
+            start--;
+        }
+        return DATE_KEYWORDS.contains(sb.substring(start, end));
+    }
+
+    protected static boolean isIdentifierPart(char c) {
+        return Character.isJavaIdentifierPart(c) || c == ':' || c == '.' || c == '-';
+    }
+
+    /**
+     * Binds a query parsed from the shape text to the literal values of this shape.
+     * <p>
+     * The parsed shape is not modified, the returned query is a copy that can be freely modified by the caller.
+     */
+    public SQLQuery bind(SQLQuery parsed) {
+        return new Binder().transform(parsed);
+    }
+
+    /**
+     * Copies the parsed shape, replacing markers with their values.
+     */
+    protected class Binder extends IdentityQueryTransformer {
+
+        @Override
+        public FromClause transform(FromClause node) {
+            return new FromClause(node.type, transform(node.elements));
+        }
+
+        @Override
+        public WhereClause transform(WhereClause node) {
+            return node == null ? null : super.transform(node);
+        }
+
+        @Override
+        public Literal transform(StringLiteral node) {
+            // all string literals of the shape are markers
+            return new StringLiteral(values[Integer.parseInt(node.value)]);
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.core.query.sql;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.query.sql.model.MultiExpression;
+import org.nuxeo.ecm.core.query.sql.model.Operator;
+import org.nuxeo.ecm.core.query.sql.model.Predicate;
+import org.nuxeo.ecm.core.query.sql.model.Reference;
+import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
+import org.nuxeo.ecm.core.query.sql.model.StringLiteral;
+
+/**
+ * @since 11.2
+ */
+public class TestNXQLQueryWriter {
+
+    protected static void assertRoundTrip(String query) {
+        SQLQuery sqlQuery = SQLQueryParser.parse(query);
+        String written = NXQLQueryWriter.write(sqlQuery);
+        assertEquals(written, sqlQuery, SQLQueryParser.parse(written));
+    }
+
+    @Test
+    public void testRoundTrip() {
+        assertRoundTrip("SELECT * FROM Document");
+        assertRoundTrip("SELECT * FROM Document WHERE ecm:isProxy = 0 ORDER BY dc:title DESC, dc:created");
+        assertRoundTrip("SELECT DISTINCT ecm:uuid, dc:title AS t FROM File, Note AS n WHERE dc:title <> 'x'");
+        assertRoundTrip("SELECT * FROM Document WHERE(a = 1 OR b = 2) AND NOT c = 3");
+        assertRoundTrip("SELECT * FROM Document WHERE a = 1 OR b = 2 AND c = 3");
+        assertRoundTrip("SELECT * FROM Document WHERE dc:title = 'it\\'s a \\\\ \"test\"\\n' AND x LIKE 'a%'");
+        assertRoundTrip("SELECT * FROM Document WHERE ecm:uuid IN ('a', 'b') AND x NOT IN (1, -2)");
+        assertRoundTrip("SELECT * FROM Document WHERE x BETWEEN 1 AND 2.5 AND y NOT BETWEEN -1 AND 1");
+        assertRoundTrip("SELECT * FROM Document WHERE x IS NULL AND y IS NOT NULL AND z NOT ILIKE 'a'");
+        assertRoundTrip(
+                "SELECT * FROM Document WHERE ecm:path STARTSWITH '/a' AND DATE(dc:modified) > DATE '2020-01-01'");
+        assertRoundTrip("SELECT * FROM Document WHERE dc:created < TIMESTAMP '2020-01-01T10:00:00.000Z'");
+        assertRoundTrip(
+                "SELECT * FROM Document WHERE /*+ES: INDEX(dc:title.fulltext) OPERATOR(match) */ dc:title = 'a'");
+        assertRoundTrip("SELECT * FROM Document WHERE a + b < 10 AND f(a, 'b') = 1");
+        assertRoundTrip("SELECT * FROM Document WHERE a = 1 ORDER BY dc:title LIMIT 10 OFFSET 5");
+    }
+
+    @Test
+    public void testWriteBuiltPredicate() {
+        SQLQuery sqlQuery = SQLQueryParser.parse(
+                "SELECT * FROM Document WHERE(dc:title = 'order by') ORDER BY dc:title");
+        Predicate range = new Predicate(new Reference(NXQL.ECM_UUID), Operator.LT, new StringLiteral("4000"));
+        SQLQuery partition = sqlQuery.withPredicate(
+                new MultiExpression(Operator.AND, Arrays.asList(sqlQuery.where.predicate, range)));
+        String written = NXQLQueryWriter.write(partition);
+        assertEquals("SELECT * FROM Document WHERE ((dc:title = 'order by') AND (ecm:uuid < '4000')) ORDER BY dc:title",
+                written);
+        // the MultiExpression is parsed back as a binary AND
+        assertEquals(new Predicate(sqlQuery.where.predicate, Operator.AND, range),
+                SQLQueryParser.parse(written).where.predicate);
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.core.query.sql;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.query.sql.model.DateLiteral;
+import org.nuxeo.ecm.core.query.QueryParseException;
+import org.nuxeo.ecm.core.query.sql.model.FromClause;
+import org.nuxeo.ecm.core.query.sql.model.Predicate;
+import org.nuxeo.ecm.core.query.sql.model.Reference;
+import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
+import org.nuxeo.ecm.core.query.sql.model.StringLiteral;
+
+/**
+ * @since 11.2
+ */
+public class TestSQLQueryShape {
+
+    @Test
+    public void testShape() {
+        SQLQueryShape shape = SQLQueryShape.of(
+                "SELECT * FROM Document WHERE ecm:parentId = 'abc' AND dc:title LIKE \"it\\\"s\"");
+        assertEquals("SELECT * FROM Document WHERE ecm:parentId = '0' AND dc:title LIKE '1'", shape.text);
+        assertArrayEquals(new String[] { "abc", "it\"s" }, shape.values);
+
+        shape = SQLQueryShape.of("SELECT * FROM Document WHERE dc:title = 'a\\'b\\\\c\\d\\t'");
+        assertArrayEquals(new String[] { "a'b\\c\\d\t" }, shape.values);
+
+        // dates are kept
+        shape = SQLQueryShape.of("SELECT * FROM Document WHERE dc:created > DATE '2020-01-01' AND my:date = 'x'");
+        assertEquals("SELECT * FROM Document WHERE dc:created > DATE '2020-01-01' AND my:date = '0'", shape.text);
+
+        // not a shape
+        assertNull(SQLQueryShape.of("SELECT * FROM Document WHERE dc:title = 'foo"));
+        assertNull(SQLQueryShape.of("SELECT * FROM Document WHERE /*+ES: INDEX(dc:title) */ dc:title = 'foo'"));
+    }
+
+    @Test
+    public void testParseSameShape() {
+        String query1 = "SELECT * FROM Document WHERE ecm:parentId = 'abc' AND dc:created > DATE '2020-01-01'";
+        String query2 = "SELECT * FROM Document WHERE ecm:parentId = 'def' AND dc:created > DATE '2020-01-01'";
+        long hits = SQLQueryParser.getCacheStats().hitCount();
+        SQLQuery sqlQuery1 = SQLQueryParser.parse(query1);
+        SQLQuery sqlQuery2 = SQLQueryParser.parse(query2);
+        assertEquals(hits + 1, SQLQueryParser.getCacheStats().hitCount());
+
+        assertEquals(query1, sqlQuery1.toString());
+        assertEquals(query2, sqlQuery2.toString());
+        assertEquals(FromClause.DOCTYPE, sqlQuery2.from.type);
+        Predicate where1 = sqlQuery1.where.predicate;
+        Predicate where2 = sqlQuery2.where.predicate;
+        assertEquals(new StringLiteral("abc"), ((Predicate) where1.lvalue).rvalue);
+        assertEquals(new StringLiteral("def"), ((Predicate) where2.lvalue).rvalue);
+        assertTrue(((Predicate) where2.rvalue).rvalue instanceof DateLiteral);
+
+        // each parse returns a query that can be modified
+        assertNotSame(sqlQuery1.select, sqlQuery2.select);
+        int count = sqlQuery1.select.count();
+        sqlQuery1.select.add(new Reference("dc:title"));
+        assertEquals(count + 1, sqlQuery1.select.count());
+        assertEquals(count, SQLQueryParser.parse(query1).select.count());
+    }
+
+    @Test
+    public void testParseWithoutWhere() {
+        SQLQuery sqlQuery = SQLQueryParser.parse("SELECT * FROM Document ORDER BY dc:title");
+        assertNull(sqlQuery.where);
+        assertEquals(1, sqlQuery.orderBy.elements.size());
+    }
+
+    @Test(expected = QueryParseException.class)
+    public void testParseError() {
+        SQLQueryParser.parse("SELECT * FROM Document WHERE dc:title = 'foo' AND");
+    }
+
+}
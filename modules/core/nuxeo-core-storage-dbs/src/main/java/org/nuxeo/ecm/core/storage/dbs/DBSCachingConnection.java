@@ -18,6 +18,7 @@
  */
 package org.nuxeo.ecm.core.storage.dbs;
 
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ACP;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ID;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_NAME;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_PARENT_ID;
@@ -25,7 +26,9 @@ import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_PARENT_ID;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -36,13 +39,15 @@ import org.nuxeo.ecm.core.api.PartialList;
 import org.nuxeo.ecm.core.api.ScrollResult;
 import org.nuxeo.ecm.core.model.LockManager;
 import org.nuxeo.ecm.core.query.sql.model.OrderByClause;
+import org.nuxeo.ecm.core.security.MergedACPCache;
 import org.nuxeo.ecm.core.storage.State;
 import org.nuxeo.ecm.core.storage.State.StateDiff;
+import org.nuxeo.ecm.core.storage.StateHelper;
 import org.nuxeo.ecm.core.storage.dbs.DBSTransactionState.ChangeTokenUpdater;
 
 import com.google.common.cache.Cache;
-import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.Ordering;
+
+import io.dropwizard.metrics5.Histogram;
 
 /**
  * The DBS Cache layer used to cache some method call of real repository
@@ -57,6 +62,13 @@ public class DBSCachingConnection implements DBSConnection {
 
     private final Cache<String, String> childCache;
 
+    /** Whether cached states use compact storage. */
+    private final boolean compactStates;
+
+    private final Histogram readStatesSize;
+
+    private final Histogram readStatesMisses;
+
     /**
      * The local invalidations, due to writes to this connection, that should be propagated to other connections (and
      * other cluster nodes) at post-commit time.
@@ -86,6 +98,19 @@ public class DBSCachingConnection implements DBSConnection {
      */
     private final DBSInvalidationsPropagator invalidationsPropagator;
 
+    /**
+     * The repository-wide cache of merged ACPs.
+     * <p>
+     * {@code null} if merged ACPs are not cached.
+     */
+    private final MergedACPCache mergedACPCache;
+
+    /**
+     * The documents whose ACP or parent changed in the current transaction, to invalidate again in the merged ACP cache
+     * at commit time, as other connections may have cached them from the previously committed state.
+     */
+    private final Set<String> aclInvalidations = new HashSet<>();
+
     public DBSCachingConnection(DBSConnection connection, DBSCachingRepository repository) {
         this.connection = connection;
         // Init caches
@@ -98,6 +123,9 @@ public class DBSCachingConnection implements DBSConnection {
             cache = repository.getCache();
             childCache = repository.getChildCache();
         }
+        compactStates = repository.isCompactStates();
+        readStatesSize = repository.getReadStatesSize();
+        readStatesMisses = repository.getReadStatesMisses();
         // local invalidations
         invalidationsPropagator = repository.getInvalidationsPropagator();
         if (invalidationsPropagator == null) {
@@ -115,6 +143,7 @@ public class DBSCachingConnection implements DBSConnection {
         } else {
             invalidations = new DBSInvalidations();
         }
+        mergedACPCache = repository.getMergedACPCache();
     }
 
     @Override
@@ -143,6 +172,10 @@ public class DBSCachingConnection implements DBSConnection {
     @Override
     public void commit() {
         connection.commit();
+        if (!aclInvalidations.isEmpty()) {
+            mergedACPCache.invalidate(aclInvalidations);
+            aclInvalidations.clear();
+        }
         sendInvalidationsToOthers();
         processReceivedInvalidations();
     }
@@ -150,6 +183,7 @@ public class DBSCachingConnection implements DBSConnection {
     @Override
     public void rollback() {
         connection.rollback();
+        aclInvalidations.clear();
     }
 
     @Override
@@ -170,19 +204,41 @@ public class DBSCachingConnection implements DBSConnection {
         return connection.readPartialState(id, keys);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The states present in the cache are returned directly, the other ones are read from the repository in a single
+     * call. The returned states follow the order of the ids, without duplicates and without the states not found.
+     */
     @Override
     public List<State> readStates(List<String> ids) {
-        ImmutableMap<String, State> statesMap = cache.getAllPresent(ids);
-        List<String> idsToRetrieve = new ArrayList<>(ids);
-        idsToRetrieve.removeAll(statesMap.keySet());
-        // Read missing states from repository
-        List<State> states = connection.readStates(idsToRetrieve);
-        // Cache them
-        states.forEach(this::putInCache);
-        // Add previous cached one
-        states.addAll(statesMap.values());
-        // Sort them
-        states.sort(Comparator.comparing(state -> state.get(KEY_ID).toString(), Ordering.explicit(ids)));
+        Set<String> idSet = new LinkedHashSet<>(ids);
+        Map<String, State> statesMap = new HashMap<>(cache.getAllPresent(idSet));
+        List<String> idsToRetrieve = new ArrayList<>(idSet.size() - statesMap.size());
+        for (String id : idSet) {
+            if (!statesMap.containsKey(id)) {
+                idsToRetrieve.add(id);
+            }
+        }
+        readStatesSize.update(idSet.size());
+        readStatesMisses.update(idsToRetrieve.size());
+        if (!idsToRetrieve.isEmpty()) {
+            // Read missing states from repository and cache them
+            for (State state : connection.readStates(idsToRetrieve)) {
+                if (state != null) {
+                    putInCache(state);
+                    statesMap.put(state.get(KEY_ID).toString(), state);
+                }
+            }
+        }
+        // Return them in the order of the ids
+        List<State> states = new ArrayList<>(statesMap.size());
+        for (String id : idSet) {
+            State state = statesMap.get(id);
+            if (state != null) {
+                states.add(state);
+            }
+        }
         return states;
     }
 
@@ -202,12 +258,30 @@ public class DBSCachingConnection implements DBSConnection {
     public void updateState(String id, StateDiff diff, ChangeTokenUpdater changeTokenUpdater) {
         connection.updateState(id, diff, changeTokenUpdater);
         invalidate(id);
+        invalidateMergedACP(id, diff);
+    }
+
+    @Override
+    public void updateStates(List<DBSStateUpdate> updates) {
+        try {
+            connection.updateStates(updates);
+        } finally {
+            // some documents may have been updated even on failure
+            updates.forEach(update -> {
+                invalidate(update.id);
+                invalidateMergedACP(update.id, update.diff);
+            });
+        }
     }
 
     @Override
     public void deleteStates(Set<String> ids) {
         connection.deleteStates(ids);
         invalidate(ids);
+        if (mergedACPCache != null) {
+            mergedACPCache.invalidate(ids);
+            aclInvalidations.addAll(ids);
+        }
     }
 
     @Override
@@ -237,7 +311,7 @@ public class DBSCachingConnection implements DBSConnection {
     private void putInCache(State state) {
         if (state != null) {
             String stateId = state.get(KEY_ID).toString();
-            cache.put(stateId, state);
+            cache.put(stateId, compactStates ? StateHelper.compactCopy(state) : state);
             Object stateParentId = state.get(KEY_PARENT_ID);
             if (stateParentId != null) {
                 childCache.put(computeChildCacheKey(stateParentId.toString(), state.get(KEY_NAME).toString()), stateId);
@@ -260,6 +334,16 @@ public class DBSCachingConnection implements DBSConnection {
         }
     }
 
+    /**
+     * Invalidates the merged ACPs depending on a document if its ACP or its parent changed.
+     */
+    private void invalidateMergedACP(String id, StateDiff diff) {
+        if (mergedACPCache != null && (diff.containsKey(KEY_ACP) || diff.containsKey(KEY_PARENT_ID))) {
+            mergedACPCache.invalidate(List.of(id));
+            aclInvalidations.add(id);
+        }
+    }
+
     protected void sendInvalidationsToOthers() {
         if (invalidations != null && !invalidations.isEmpty()) {
             if (clusterInvalidator != null) {
@@ -279,9 +363,13 @@ public class DBSCachingConnection implements DBSConnection {
         // invalidations from other cluster nodes
         if (clusterInvalidator != null) {
             invals = clusterInvalidator.receiveInvalidations();
-            // send cluster invalidations to all other connections
-            if (invals != null && !invals.isEmpty() && invalidationsPropagator != null) {
-                invalidationsPropagator.propagateInvalidations(invals, invalidationsQueue);
+            if (invals != null && !invals.isEmpty()) {
+                // the merged ACP cache is repository-wide, apply cluster invalidations to it only once
+                invalidateMergedACPs(invals);
+                // send cluster invalidations to all other connections
+                if (invalidationsPropagator != null) {
+                    invalidationsPropagator.propagateInvalidations(invals, invalidationsQueue);
+                }
             }
         } else {
             invals = null;
@@ -306,6 +394,21 @@ public class DBSCachingConnection implements DBSConnection {
         }
     }
 
+    /**
+     * Invalidates the merged ACPs depending on documents changed by other cluster nodes. We don't know which changes
+     * were made, so all the changed documents are invalidated.
+     */
+    private void invalidateMergedACPs(DBSInvalidations invals) {
+        if (mergedACPCache == null) {
+            return;
+        }
+        if (invals.all) {
+            mergedACPCache.invalidateAll();
+        } else if (invals.ids != null) {
+            mergedACPCache.invalidate(invals.ids);
+        }
+    }
+
     @Override
     public String getRootId() {
         return connection.getRootId();
@@ -323,7 +426,14 @@ public class DBSCachingConnection implements DBSConnection {
 
     @Override
     public List<State> queryKeyValue(String key, Object value, Set<String> ignored) {
-        return connection.queryKeyValue(key, value, ignored);
+        // only query the ids, so that the states already in cache are not read again
+        List<String> ids = connection.queryKeyValueIds(key, value, ignored);
+        return readStates(ids);
+    }
+
+    @Override
+    public List<String> queryKeyValueIds(String key, Object value, Set<String> ignored) {
+        return connection.queryKeyValueIds(key, value, ignored);
     }
 
     @Override
@@ -352,6 +462,12 @@ public class DBSCachingConnection implements DBSConnection {
         return connection.queryAndFetch(evaluator, orderByClause, distinctDocuments, limit, offset, countUpTo);
     }
 
+    @Override
+    public Stream<Map<String, Serializable>> queryAndFetchStream(DBSExpressionEvaluator evaluator,
+            OrderByClause orderByClause, boolean distinctDocuments, int limit, int offset, int batchSize) {
+        return connection.queryAndFetchStream(evaluator, orderByClause, distinctDocuments, limit, offset, batchSize);
+    }
+
     @Override
     public ScrollResult<String> scroll(DBSExpressionEvaluator evaluator, int batchSize, int keepAliveSeconds) {
         return connection.scroll(evaluator, batchSize, keepAliveSeconds);
@@ -29,6 +29,7 @@ import org.nuxeo.ecm.core.api.repository.FulltextConfiguration;
 import org.nuxeo.ecm.core.blob.BlobManager;
 import org.nuxeo.ecm.core.model.LockManager;
 import org.nuxeo.ecm.core.model.Session;
+import org.nuxeo.ecm.core.security.MergedACPCache;
 import org.nuxeo.ecm.core.storage.State;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.cluster.ClusterService;
@@ -37,6 +38,7 @@ import org.nuxeo.runtime.metrics.MetricsService;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 
+import io.dropwizard.metrics5.Histogram;
 import io.dropwizard.metrics5.MetricName;
 import io.dropwizard.metrics5.MetricRegistry;
 import io.dropwizard.metrics5.SharedMetricRegistries;
@@ -54,6 +56,12 @@ public class DBSCachingRepository implements DBSRepository {
 
     protected static final String METRIC_CHILD_CACHE_NAME = "nuxeo.repositories.repository.childCache";
 
+    /** @since 11.2 */
+    protected static final String METRIC_READ_STATES_NAME = "nuxeo.repositories.repository.readStates";
+
+    /** @since 11.2 */
+    protected static final long DEFAULT_ACP_CACHE_MAX_SIZE = 10_000;
+
     private final DBSRepository repository;
 
     protected final Cache<String, State> cache;
@@ -66,8 +74,29 @@ public class DBSCachingRepository implements DBSRepository {
 
     protected final DBSClusterInvalidator clusterInvalidator;
 
+    /**
+     * The cache of merged ACPs, {@code null} if disabled.
+     *
+     * @since 11.2
+     */
+    protected final MergedACPCache mergedACPCache;
+
     protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
 
+    /**
+     * The number of distinct ids requested by each multi-document read.
+     *
+     * @since 11.2
+     */
+    protected final Histogram readStatesSize;
+
+    /**
+     * The number of ids of each multi-document read that were not in the cache and were fetched from the repository.
+     *
+     * @since 11.2
+     */
+    protected final Histogram readStatesMisses;
+
     public DBSCachingRepository(DBSRepository repository, DBSRepositoryDescriptor descriptor) {
         this.repository = repository;
         this.descriptor = descriptor;
@@ -81,11 +110,22 @@ public class DBSCachingRepository implements DBSRepository {
             cache = newCache(true);
             childCache = newChildCache(true);
         }
+        readStatesSize = registry.histogram(
+                MetricName.build(METRIC_READ_STATES_NAME, "size").tagged("repository", repository.getName()));
+        readStatesMisses = registry.histogram(
+                MetricName.build(METRIC_READ_STATES_NAME, "misses").tagged("repository", repository.getName()));
         if (log.isInfoEnabled()) {
             log.info(String.format("DBS cache activated on '%s' repository", getName()));
         }
         invalidationsPropagator = initInvalidationsPropagator();
         clusterInvalidator = initClusterInvalidator(descriptor);
+        if (descriptor.isCacheACP()) {
+            long maxSize = descriptor.cacheMaxSize == null ? DEFAULT_ACP_CACHE_MAX_SIZE
+                    : descriptor.cacheMaxSize.longValue();
+            mergedACPCache = new MergedACPCache(getName(), maxSize);
+        } else {
+            mergedACPCache = null;
+        }
     }
 
     protected Cache<String, State> getCache() {
@@ -96,6 +136,21 @@ public class DBSCachingRepository implements DBSRepository {
         return childCache;
     }
 
+    /** @since 11.2 */
+    protected Histogram getReadStatesSize() {
+        return readStatesSize;
+    }
+
+    /** @since 11.2 */
+    protected Histogram getReadStatesMisses() {
+        return readStatesMisses;
+    }
+
+    /** @since 11.2 */
+    protected boolean isCompactStates() {
+        return descriptor.isCacheCompactStates();
+    }
+
     protected DBSInvalidationsPropagator getInvalidationsPropagator() {
         return invalidationsPropagator;
     }
@@ -104,6 +159,12 @@ public class DBSCachingRepository implements DBSRepository {
         return clusterInvalidator;
     }
 
+    /** @since 11.2 */
+    @Override
+    public MergedACPCache getMergedACPCache() {
+        return mergedACPCache;
+    }
+
     protected Cache<String, State> newCache(boolean metrics) {
         Cache<String, State> c = newCache(descriptor);
         if (metrics) {
@@ -124,7 +185,9 @@ public class DBSCachingRepository implements DBSRepository {
 
     protected void removeCacheMetrics() {
         registry.removeMatching((name, metric) -> name.getKey().startsWith(METRIC_CACHE_NAME)
-                || name.getKey().startsWith(METRIC_CHILD_CACHE_NAME));
+                || name.getKey().startsWith(METRIC_CHILD_CACHE_NAME)
+                || name.getKey().startsWith(METRIC_READ_STATES_NAME)
+                || name.getKey().startsWith(MergedACPCache.METRIC_ACP_CACHE_NAME));
     }
 
     protected <T> Cache<String, T> newCache(DBSRepositoryDescriptor descriptor) {
@@ -184,6 +247,9 @@ public class DBSCachingRepository implements DBSRepository {
             cache.invalidateAll();
             childCache.invalidateAll();
         }
+        if (mergedACPCache != null) {
+            mergedACPCache.invalidateAll();
+        }
         removeCacheMetrics();
         if (log.isInfoEnabled()) {
             log.info(String.format("DBS cache deactivated on '%s' repository", getName()));
@@ -202,6 +268,11 @@ public class DBSCachingRepository implements DBSRepository {
         return repository.supportsTransactions();
     }
 
+    @Override
+    public DBSQueryPlanCache getQueryPlanCache() {
+        return repository.getQueryPlanCache();
+    }
+
     @Override
     public BlobManager getBlobManager() {
         return repository.getBlobManager();
@@ -212,6 +283,11 @@ public class DBSCachingRepository implements DBSRepository {
         return repository.getFulltextConfiguration();
     }
 
+    @Override
+    public boolean hasHexadecimalStringIds() {
+        return repository.hasHexadecimalStringIds();
+    }
+
     @Override
     public boolean isFulltextDisabled() {
         return repository.isFulltextDisabled();
@@ -18,13 +18,18 @@
  */
 package org.nuxeo.ecm.core.storage.dbs;
 
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ID;
+
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import org.nuxeo.ecm.core.api.ConcurrentUpdateException;
 import org.nuxeo.ecm.core.api.PartialList;
 import org.nuxeo.ecm.core.api.ScrollResult;
 import org.nuxeo.ecm.core.model.LockManager;
@@ -116,6 +121,30 @@ public interface DBSConnection extends AutoCloseable, LockManager {
      */
     void updateState(String id, StateDiff diff, ChangeTokenUpdater changeTokenUpdater);
 
+    /**
+     * Updates several documents.
+     * <p>
+     * All the updates are attempted, even if some of them fail. The documents that could not be updated because of a
+     * concurrent update are then reported by a single {@link ConcurrentUpdateException}, see
+     * {@link DBSStateUpdate#newConcurrentUpdateException}.
+     *
+     * @param updates the document updates
+     * @since 11.2
+     */
+    default void updateStates(List<DBSStateUpdate> updates) {
+        Map<String, ConcurrentUpdateException> failures = new LinkedHashMap<>();
+        for (DBSStateUpdate update : updates) {
+            try {
+                updateState(update.id, update.diff, update.changeTokenUpdater);
+            } catch (ConcurrentUpdateException e) {
+                failures.put(update.id, e);
+            }
+        }
+        if (!failures.isEmpty()) {
+            throw DBSStateUpdate.newConcurrentUpdateException(failures);
+        }
+    }
+
     /**
      * Deletes a set of document.
      *
@@ -153,6 +182,24 @@ public interface DBSConnection extends AutoCloseable, LockManager {
      */
     List<State> queryKeyValue(String key, Object value, Set<String> ignored);
 
+    /**
+     * Queries the repository for the ids of documents having key = value.
+     * <p>
+     * This allows a caller holding a cache of states to only read the missing states, see {@link #readStates}.
+     *
+     * @param key the key
+     * @param value the value
+     * @param ignored a set of document ids that should not be considered
+     * @return the ids of the documents matching the query
+     * @since 11.2
+     */
+    default List<String> queryKeyValueIds(String key, Object value, Set<String> ignored) {
+        // overrides should optimize to only return the ids
+        return queryKeyValue(key, value, ignored).stream()
+                                                 .map(state -> (String) state.get(KEY_ID))
+                                                 .collect(Collectors.toList());
+    }
+
     /**
      * Queries the repository for documents having key1 = value1 and key2 = value2.
      *
@@ -238,6 +285,27 @@ public interface DBSConnection extends AutoCloseable, LockManager {
     PartialList<Map<String, Serializable>> queryAndFetch(DBSExpressionEvaluator evaluator, OrderByClause orderByClause,
             boolean distinctDocuments, int limit, int offset, int countUpTo);
 
+    /**
+     * Queries the repository for documents matching a NXQL query, and returns a stream of the projections of the
+     * documents fetched by batches from a database cursor.
+     * <p>
+     * The stream must be closed to release the underlying cursor. The default implementation fetches all the
+     * projections before returning them.
+     *
+     * @param evaluator the map-based evaluator for the query
+     * @param orderByClause an ORDER BY clause
+     * @param distinctDocuments {@code true} if the projection should return a maximum of one row per document
+     * @param limit the limit on the number of documents to return
+     * @param offset the offset in the list of documents to return
+     * @param batchSize the number of documents to fetch from the database at a time
+     * @return a stream of maps containing the NXQL projections requested
+     * @since 11.2
+     */
+    default Stream<Map<String, Serializable>> queryAndFetchStream(DBSExpressionEvaluator evaluator,
+            OrderByClause orderByClause, boolean distinctDocuments, int limit, int offset, int batchSize) {
+        return queryAndFetch(evaluator, orderByClause, distinctDocuments, limit, offset, 0).stream();
+    }
+
     /**
      * Executes the given query and returns the first batch of results containing id of documents, next batch must be
      * requested within the {@code keepAliveSeconds} delay.
@@ -26,6 +26,7 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
 
+import org.nuxeo.runtime.pubsub.CompactEncoding;
 import org.nuxeo.runtime.pubsub.SerializableAccumulableInvalidations;
 
 /**
@@ -65,6 +66,11 @@ public class DBSInvalidations implements SerializableAccumulableInvalidations {
         return ids == null && !all;
     }
 
+    @Override
+    public int size() {
+        return ids == null ? 0 : ids.size();
+    }
+
     public void clear() {
         all = false;
         ids = null;
@@ -132,6 +138,9 @@ public class DBSInvalidations implements SerializableAccumulableInvalidations {
 
     private static final int ID_SEP = (byte) ',';
 
+    /** @since 11.2 */
+    private static final int COMPACT_IDS = (byte) 'C';
+
     @Override
     public void serialize(OutputStream out) throws IOException {
         if (all) {
@@ -144,6 +153,22 @@ public class DBSInvalidations implements SerializableAccumulableInvalidations {
         }
     }
 
+    /**
+     * Serializes the ids in a compact binary format, see {@link CompactEncoding}.
+     */
+    @Override
+    public void serializeCompact(OutputStream out) throws IOException {
+        if (all) {
+            out.write(ALL_IDS);
+        } else if (ids != null && !ids.isEmpty()) {
+            out.write(COMPACT_IDS);
+            CompactEncoding.writeVarInt(out, ids.size());
+            for (String id : ids) {
+                CompactEncoding.writeId(out, id);
+            }
+        }
+    }
+
     public static DBSInvalidations deserialize(InputStream in) throws IOException {
         int first = in.read();
         if (first == -1) {
@@ -153,6 +178,13 @@ public class DBSInvalidations implements SerializableAccumulableInvalidations {
         DBSInvalidations invalidations = new DBSInvalidations();
         if (first == ALL_IDS) {
             invalidations.setAll();
+        } else if (first == COMPACT_IDS) {
+            int size = CompactEncoding.readVarInt(in);
+            invalidations.ids = new HashSet<>();
+            for (int i = 0; i < size; i++) {
+                invalidations.ids.add(CompactEncoding.readId(in));
+            }
+            invalidations.checkMaxSize();
         } else if (first != ID_SEP) {
             // invalid message
             return null;
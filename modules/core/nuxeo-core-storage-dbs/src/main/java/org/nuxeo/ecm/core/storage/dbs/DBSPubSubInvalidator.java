@@ -35,6 +35,11 @@ public class DBSPubSubInvalidator extends AbstractPubSubInvalidationsAccumulator
         return new DBSInvalidations();
     }
 
+    @Override
+    public DBSInvalidations newAllInvalidations() {
+        return new DBSInvalidations(true);
+    }
+
     @Override
     public DBSInvalidations deserialize(InputStream in) throws IOException {
         return DBSInvalidations.deserialize(in);
@@ -0,0 +1,56 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.core.storage.dbs;
+
+import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
+
+/**
+ * The principal-independent part of a DBS query: the parsed and optimized query, and the information derived from its
+ * projection.
+ * <p>
+ * A plan is shared between sessions through the {@link DBSQueryPlanCache}, so none of its parts must be modified.
+ *
+ * @since 11.2
+ */
+public class DBSQueryPlan {
+
+    /** The optimized query. */
+    public final SQLQuery sqlQuery;
+
+    /** Whether the query is a {@code SELECT *}, which returns distinct documents. */
+    public final boolean selectStar;
+
+    /** The key of the first projection, used to get ids. */
+    public final String idKey;
+
+    /** The {@code ecm:tag} projection, or {@code null} if none. */
+    public final String ecmTag;
+
+    /** The internal key queried for the {@code ecm:tag} projection, or {@code null} if none. */
+    public final String keyTag;
+
+    public DBSQueryPlan(SQLQuery sqlQuery, boolean selectStar, String idKey, String ecmTag, String keyTag) {
+        this.sqlQuery = sqlQuery;
+        this.selectStar = selectStar;
+        this.idKey = idKey;
+        this.ecmTag = ecmTag;
+        this.keyTag = keyTag;
+    }
+
+}
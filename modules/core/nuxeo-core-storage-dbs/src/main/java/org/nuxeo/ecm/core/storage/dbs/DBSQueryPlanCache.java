@@ -0,0 +1,168 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.core.storage.dbs;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.nuxeo.ecm.core.api.impl.FacetFilter;
+import org.nuxeo.ecm.core.schema.SchemaManager;
+import org.nuxeo.ecm.core.schema.SchemaManagerImpl;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+
+/**
+ * Bounded cache of {@link DBSQueryPlan}s, keyed by query and facet filter.
+ * <p>
+ * Plans depend on the document types and facets, so the cache is cleared when the {@link SchemaManager} recomputes
+ * them.
+ *
+ * @since 11.2
+ */
+public class DBSQueryPlanCache {
+
+    public static final String CACHE_SIZE_PROP = "org.nuxeo.dbs.query.plan.cache.size";
+
+    public static final int DEFAULT_CACHE_SIZE = 1000;
+
+    public static final String METRIC_QUERY_PLAN_CACHE_NAME = "nuxeo.repositories.repository.queryPlan.cache";
+
+    protected final String repositoryName;
+
+    protected final Cache<Key, DBSQueryPlan> cache;
+
+    protected final Runnable recomputeCallback = this::invalidateAll;
+
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+    public DBSQueryPlanCache(String repositoryName) {
+        this(repositoryName, getDefaultSize());
+    }
+
+    public DBSQueryPlanCache(String repositoryName, int maxSize) {
+        this.repositoryName = repositoryName;
+        if (maxSize <= 0) {
+            cache = null;
+            return;
+        }
+        cache = CacheBuilder.newBuilder().maximumSize(maxSize).recordStats().build();
+        registry.registerAll(GuavaCacheMetric.of(cache,
+                MetricName.build(METRIC_QUERY_PLAN_CACHE_NAME).tagged("repository", repositoryName)));
+        SchemaManager schemaManager = Framework.getService(SchemaManager.class);
+        if (schemaManager instanceof SchemaManagerImpl) {
+            ((SchemaManagerImpl) schemaManager).registerRecomputeCallback(recomputeCallback);
+        }
+    }
+
+    protected static int getDefaultSize() {
+        return Integer.parseInt(Framework.getProperty(CACHE_SIZE_PROP, String.valueOf(DEFAULT_CACHE_SIZE)));
+    }
+
+    /**
+     * Gets the plan of a query from the cache, or computes it and stores it in the cache.
+     * <p>
+     * Exceptions thrown by the planner are not cached.
+     */
+    public DBSQueryPlan get(String query, FacetFilter facetFilter, Supplier<DBSQueryPlan> planner) {
+        if (cache == null) {
+            return planner.get();
+        }
+        Key key = new Key(query, facetFilter);
+        DBSQueryPlan plan = cache.getIfPresent(key);
+        if (plan == null) {
+            plan = planner.get();
+            cache.put(key, plan);
+        }
+        return plan;
+    }
+
+    public void invalidateAll() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    public void close() {
+        if (cache == null) {
+            return;
+        }
+        SchemaManager schemaManager = Framework.getService(SchemaManager.class);
+        if (schemaManager instanceof SchemaManagerImpl) {
+            ((SchemaManagerImpl) schemaManager).unregisterRecomputeCallback(recomputeCallback);
+        }
+        registry.removeMatching((name, metric) -> name.getKey().startsWith(METRIC_QUERY_PLAN_CACHE_NAME)
+                && repositoryName.equals(name.getTags().get("repository")));
+        cache.invalidateAll();
+    }
+
+    protected Cache<Key, DBSQueryPlan> getCache() {
+        return cache;
+    }
+
+    protected static class Key {
+
+        protected final String query;
+
+        protected final Set<String> required;
+
+        protected final Set<String> excluded;
+
+        protected final Boolean shortcut;
+
+        protected Key(String query, FacetFilter facetFilter) {
+            this.query = query;
+            if (facetFilter == null) {
+                required = null;
+                excluded = null;
+                shortcut = null;
+            } else {
+                required = facetFilter.required;
+                excluded = facetFilter.excluded;
+                shortcut = facetFilter.shortcut;
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(query, required, excluded, shortcut);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return query.equals(other.query) && Objects.equals(required, other.required)
+                    && Objects.equals(excluded, other.excluded) && Objects.equals(shortcut, other.shortcut);
+        }
+    }
+
+}
@@ -21,6 +21,7 @@ package org.nuxeo.ecm.core.storage.dbs;
 import org.nuxeo.ecm.core.blob.BlobManager;
 import org.nuxeo.ecm.core.model.LockManager;
 import org.nuxeo.ecm.core.model.Repository;
+import org.nuxeo.ecm.core.security.MergedACPCache;
 
 /**
  * Interface for a {@link Repository} for Document-Based Storage.
@@ -95,4 +96,22 @@ public interface DBSRepository extends Repository, LockManager {
      */
     boolean supportsTransactions();
 
+    /**
+     * Gets the cache of query plans shared by the sessions of this repository.
+     *
+     * @return the query plan cache
+     * @since 11.2
+     */
+    DBSQueryPlanCache getQueryPlanCache();
+
+    /**
+     * Gets the cache of merged ACPs shared by the sessions of this repository.
+     *
+     * @return the merged ACP cache, or {@code null} if merged ACPs are not cached
+     * @since 11.2
+     */
+    default MergedACPCache getMergedACPCache() {
+        return null;
+    }
+
 }
@@ -120,6 +120,9 @@ public abstract class DBSRepositoryBase implements DBSRepository {
 
     protected final boolean changeTokenEnabled;
 
+    /** @since 11.2 */
+    protected final DBSQueryPlanCache queryPlanCache;
+
     /**
      * @since 7.4 : used to know if the LockManager was provided by this repository or externally
      */
@@ -151,6 +154,7 @@ public abstract class DBSRepositoryBase implements DBSRepository {
         blobManager = Framework.getService(BlobManager.class);
         initBlobsPaths();
         initLockManager();
+        queryPlanCache = new DBSQueryPlanCache(repositoryName);
     }
 
     /** Gets the allowed id types for this DBS repository. The first one is the default. */
@@ -161,8 +165,18 @@ public abstract class DBSRepositoryBase implements DBSRepository {
         return idType;
     }
 
+    /** @since 11.2 */
+    @Override
+    public boolean hasHexadecimalStringIds() {
+        if (DEBUG_UUIDS) {
+            return false;
+        }
+        return idType == IdType.varchar || idType == IdType.sequenceHexRandomized;
+    }
+
     @Override
     public void shutdown() {
+        queryPlanCache.close();
         try {
             NuxeoContainer.disposeConnectionManager(cm);
         } catch (RuntimeException e) {
@@ -208,6 +222,11 @@ public abstract class DBSRepositoryBase implements DBSRepository {
         }
     }
 
+    @Override
+    public DBSQueryPlanCache getQueryPlanCache() {
+        return queryPlanCache;
+    }
+
     @Override
     public LockManager getLockManager() {
         return lockManager;
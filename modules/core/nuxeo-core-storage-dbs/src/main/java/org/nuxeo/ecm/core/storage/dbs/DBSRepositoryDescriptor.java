@@ -122,6 +122,43 @@ public class DBSRepositoryDescriptor implements Cloneable {
     @XNode("cache@concurrencyLevel")
     public Integer cacheConcurrencyLevel;
 
+    /**
+     * Whether cached states use the compact storage of {@link org.nuxeo.ecm.core.storage.State State}.
+     *
+     * @since 11.2
+     */
+    @XNode("cache@compactStates")
+    private Boolean cacheCompactStates;
+
+    /** @since 11.2 */
+    public boolean isCacheCompactStates() {
+        return defaultFalse(cacheCompactStates);
+    }
+
+    /** @since 11.2 */
+    protected void setCacheCompactStates(boolean compactStates) {
+        cacheCompactStates = Boolean.valueOf(compactStates);
+    }
+
+    /**
+     * Whether the merged ACPs used to check permissions are cached, see
+     * {@link org.nuxeo.ecm.core.security.MergedACPCache MergedACPCache}.
+     *
+     * @since 11.2
+     */
+    @XNode("cache@acp")
+    private Boolean cacheACP;
+
+    /** @since 11.2 */
+    public boolean isCacheACP() {
+        return defaultFalse(cacheACP);
+    }
+
+    /** @since 11.2 */
+    protected void setCacheACP(boolean acp) {
+        cacheACP = Boolean.valueOf(acp);
+    }
+
     /** @since 8.10 */
     @XNode("clustering/invalidatorClass")
     public Class<? extends DBSClusterInvalidator> clusterInvalidatorClass;
@@ -177,6 +214,12 @@ public class DBSRepositoryDescriptor implements Cloneable {
         if (other.cacheConcurrencyLevel != null) {
             cacheConcurrencyLevel = other.cacheConcurrencyLevel;
         }
+        if (other.cacheCompactStates != null) {
+            cacheCompactStates = other.cacheCompactStates;
+        }
+        if (other.cacheACP != null) {
+            cacheACP = other.cacheACP;
+        }
         if (other.clusterInvalidatorClass != null) {
             clusterInvalidatorClass = other.clusterInvalidatorClass;
         }
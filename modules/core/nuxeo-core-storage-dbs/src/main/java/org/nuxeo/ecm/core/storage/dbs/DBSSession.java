@@ -149,6 +149,7 @@ import org.nuxeo.ecm.core.schema.types.Type;
 import org.nuxeo.ecm.core.schema.types.primitives.BooleanType;
 import org.nuxeo.ecm.core.schema.types.primitives.DateType;
 import org.nuxeo.ecm.core.schema.types.primitives.StringType;
+import org.nuxeo.ecm.core.security.MergedACPCache;
 import org.nuxeo.ecm.core.storage.BaseDocument;
 import org.nuxeo.ecm.core.storage.ExpressionEvaluator;
 import org.nuxeo.ecm.core.storage.QueryOptimizer;
@@ -199,6 +200,29 @@ public class DBSSession implements Session<QueryFilter> {
 
     protected boolean isLatestVersionDisabled = false;
 
+    /**
+     * The cache of merged ACPs, {@code null} if merged ACPs are not cached.
+     *
+     * @since 11.2
+     */
+    protected final MergedACPCache mergedACPCache;
+
+    /**
+     * The generation of the merged ACP cache at the beginning of the transaction, since which the states read by this
+     * session may be stale.
+     *
+     * @since 11.2
+     */
+    protected long mergedACPGeneration = -1;
+
+    /**
+     * Whether ACLs were changed in this transaction, in which case the merged ACP cache is not used until the end of
+     * the transaction.
+     *
+     * @since 11.2
+     */
+    protected boolean aclsChanged;
+
     public DBSSession(DBSRepository repository) {
         this.repository = repository;
         transaction = new DBSTransactionState(repository, this);
@@ -206,6 +230,7 @@ public class DBSSession implements Session<QueryFilter> {
         fulltextStoredInBlob = fulltextConfiguration != null && fulltextConfiguration.fulltextStoredInBlob;
         fulltextSearchDisabled = fulltextConfiguration == null || fulltextConfiguration.fulltextSearchDisabled;
         changeTokenEnabled = repository.isChangeTokenEnabled();
+        mergedACPCache = repository.getMergedACPCache();
 
         saveTimer = registry.timer(MetricName.build("nuxeo", "repositories", "repository", "save")
                                              .tagged("repository", repository.getName()));
@@ -247,14 +272,21 @@ public class DBSSession implements Session<QueryFilter> {
 
     public void begin() {
         transaction.begin();
+        if (mergedACPCache != null) {
+            // invalidations received at the beginning of the transaction have been processed
+            mergedACPGeneration = mergedACPCache.getGeneration();
+        }
+        aclsChanged = false;
     }
 
     public void commit() {
         transaction.commit();
+        aclsChanged = false;
     }
 
     public void rollback() {
         transaction.rollback();
+        aclsChanged = false;
     }
 
     protected BlobManager getBlobManager() {
@@ -907,6 +939,7 @@ public class DBSSession implements Session<QueryFilter> {
         transaction.updateAncestors(sourceId, ndel, ancestorIds);
 
         // update read acls
+        aclsChanged = true;
         transaction.updateTreeReadAcls(sourceId);
 
         return source;
@@ -1365,6 +1398,21 @@ public class DBSSession implements Session<QueryFilter> {
         return acp;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Uses the merged ACP cache of the repository if enabled, unless ACLs were changed in this transaction.
+     *
+     * @since 11.2
+     */
+    @Override
+    public ACP getMergedACPForCheck(Document doc) {
+        if (mergedACPCache == null || aclsChanged) {
+            return getMergedACP(doc);
+        }
+        return mergedACPCache.getMergedACP(doc, this::getACP, mergedACPGeneration);
+    }
+
     protected ACL getInheritedACLs(Document doc) {
         doc = doc.getParent();
         ACL merged = null;
@@ -1404,6 +1452,7 @@ public class DBSSession implements Session<QueryFilter> {
         String id = doc.getUUID();
         DBSDocumentState docState = transaction.getStateForUpdate(id);
         docState.put(KEY_ACP, acpToMem(acp));
+        aclsChanged = true;
 
         // update read acls
         transaction.updateTreeReadAcls(id);
@@ -1658,17 +1707,26 @@ public class DBSSession implements Session<QueryFilter> {
         }
     }
 
-    protected PartialList<Map<String, Serializable>> doQueryAndFetch(String query, String queryType,
-            QueryFilter queryFilter, boolean distinctDocuments, int countUpTo, Mutable<String> idKeyHolder) {
-        if ("NXTAG".equals(queryType)) {
-            // for now don't try to implement tags
-            // and return an empty list
-            return new PartialList<>(Collections.<Map<String, Serializable>> emptyList(), 0);
-        }
-        if (!NXQL.NXQL.equals(queryType)) {
-            throw new NuxeoException("No QueryMaker accepts query type: " + queryType);
+    /**
+     * Gets the plan of a query, from the repository cache if it doesn't depend on the principal.
+     *
+     * @since 11.2
+     */
+    protected DBSQueryPlan getQueryPlan(String query, QueryFilter queryFilter) {
+        if (!queryFilter.getQueryTransformers().isEmpty()) {
+            // transformers depend on the principal
+            return makeQueryPlan(query, queryFilter);
         }
+        return repository.getQueryPlanCache()
+                         .get(query, queryFilter.getFacetFilter(), () -> makeQueryPlan(query, queryFilter));
+    }
 
+    /**
+     * Parses, transforms and optimizes a query.
+     *
+     * @since 11.2
+     */
+    protected DBSQueryPlan makeQueryPlan(String query, QueryFilter queryFilter) {
         // transform the query according to the transformers defined by the
         // security policies
         SQLQuery sqlQuery = SQLQueryParser.parse(query);
@@ -1682,16 +1740,11 @@ public class DBSSession implements Session<QueryFilter> {
             selectClause.add(new Reference(NXQL.ECM_UUID));
         }
         boolean selectStar = selectClause.count() == 1 && (selectClause.containsOperand(new Reference(NXQL.ECM_UUID)));
-        if (selectStar) {
-            distinctDocuments = true;
-        } else if (selectClause.isDistinct()) {
+        if (!selectStar && selectClause.isDistinct()) {
             throw new QueryParseException("SELECT DISTINCT not supported on DBS");
         }
-        if (idKeyHolder != null) {
-            Operand operand = selectClause.operands().iterator().next();
-            String idKey = operand instanceof Reference ? ((Reference) operand).name : NXQL.ECM_UUID;
-            idKeyHolder.setValue(idKey);
-        }
+        Operand operand = selectClause.operands().iterator().next();
+        String idKey = operand instanceof Reference ? ((Reference) operand).name : NXQL.ECM_UUID;
 
         // Replace select clause for tags
         String ecmTag = selectClause.elements.keySet()
@@ -1712,6 +1765,30 @@ public class DBSSession implements Session<QueryFilter> {
 
         QueryOptimizer optimizer = new DBSQueryOptimizer().withFacetFilter(queryFilter.getFacetFilter());
         sqlQuery = optimizer.optimize(sqlQuery);
+        return new DBSQueryPlan(sqlQuery, selectStar, idKey, ecmTag, keyTag);
+    }
+
+    protected PartialList<Map<String, Serializable>> doQueryAndFetch(String query, String queryType,
+            QueryFilter queryFilter, boolean distinctDocuments, int countUpTo, Mutable<String> idKeyHolder) {
+        if ("NXTAG".equals(queryType)) {
+            // for now don't try to implement tags
+            // and return an empty list
+            return new PartialList<>(Collections.<Map<String, Serializable>> emptyList(), 0);
+        }
+        if (!NXQL.NXQL.equals(queryType)) {
+            throw new NuxeoException("No QueryMaker accepts query type: " + queryType);
+        }
+
+        DBSQueryPlan plan = getQueryPlan(query, queryFilter);
+        SQLQuery sqlQuery = plan.sqlQuery;
+        if (plan.selectStar) {
+            distinctDocuments = true;
+        }
+        if (idKeyHolder != null) {
+            idKeyHolder.setValue(plan.idKey);
+        }
+        String ecmTag = plan.ecmTag;
+        String keyTag = plan.keyTag;
         DBSExpressionEvaluator evaluator = new DBSExpressionEvaluator(this, sqlQuery, queryFilter.getPrincipals(),
                 fulltextSearchDisabled);
 
@@ -1769,6 +1846,40 @@ public class DBSSession implements Session<QueryFilter> {
         return projections;
     }
 
+    /**
+     * Streams the projections from a database cursor, or returns {@code null} if the query cannot be streamed because
+     * it needs to be post-filtered in memory.
+     *
+     * @since 11.2
+     */
+    protected Stream<Map<String, Serializable>> doQueryAndFetchStream(String query, QueryFilter queryFilter,
+            boolean distinctDocuments) {
+        DBSQueryPlan plan = getQueryPlan(query, queryFilter);
+        SQLQuery sqlQuery = plan.sqlQuery;
+        if (isOrderByPath(sqlQuery.orderBy)) {
+            return null;
+        }
+        if (plan.selectStar) {
+            distinctDocuments = true;
+        }
+        String ecmTag = plan.ecmTag;
+        String keyTag = plan.keyTag;
+        DBSExpressionEvaluator evaluator = new DBSExpressionEvaluator(this, sqlQuery, queryFilter.getPrincipals(),
+                fulltextSearchDisabled);
+        int limit = Math.max((int) queryFilter.getLimit(), 0);
+        int offset = Math.max((int) queryFilter.getOffset(), 0);
+        Stream<Map<String, Serializable>> stream = transaction.queryAndFetchStream(evaluator, sqlQuery.orderBy,
+                distinctDocuments, limit, offset, queryFilter.getFetchSize());
+        if (keyTag == null) {
+            return stream;
+        }
+        return stream.peek(proj -> {
+            if (proj.containsKey(keyTag)) {
+                proj.put(ecmTag, proj.remove(keyTag));
+            }
+        });
+    }
+
     /** Does an ORDER BY clause include ecm:path */
     protected boolean isOrderByPath(OrderByClause orderByClause) {
         if (orderByClause == null) {
@@ -1869,6 +1980,13 @@ public class DBSSession implements Session<QueryFilter> {
             boolean distinctDocuments, Object[] params) {
         final Timer.Context timerContext = queryTimer.time();
         try {
+            if (queryFilter.getFetchSize() > 0 && NXQL.NXQL.equals(queryType)) {
+                Stream<Map<String, Serializable>> stream = doQueryAndFetchStream(query, queryFilter,
+                        distinctDocuments);
+                if (stream != null) {
+                    return new DBSStreamQueryResult(stream);
+                }
+            }
             PartialList<Map<String, Serializable>> pl = doQueryAndFetch(query, queryType, queryFilter,
                     distinctDocuments, -1, null);
             return new DBSQueryResult(pl);
@@ -2022,6 +2140,90 @@ public class DBSSession implements Session<QueryFilter> {
         }
     }
 
+    /**
+     * Query result iterating on a stream of projections backed by a database cursor, that cannot compute its size nor
+     * go back.
+     *
+     * @since 11.2
+     */
+    protected static class DBSStreamQueryResult implements IterableQueryResult, Iterator<Map<String, Serializable>> {
+
+        protected Stream<Map<String, Serializable>> stream;
+
+        protected Iterator<Map<String, Serializable>> it;
+
+        protected long pos;
+
+        protected DBSStreamQueryResult(Stream<Map<String, Serializable>> stream) {
+            this.stream = stream;
+            this.it = stream.iterator();
+        }
+
+        @Override
+        public Iterator<Map<String, Serializable>> iterator() {
+            return this; // NOSONAR this iterable does not support multiple traversals
+        }
+
+        @Override
+        public void close() {
+            if (stream != null) {
+                stream.close();
+                stream = null;
+            }
+            pos = -1;
+        }
+
+        @Override
+        public boolean isLife() {
+            return stream != null;
+        }
+
+        @Override
+        public boolean mustBeClosed() {
+            return stream != null;
+        }
+
+        @Override
+        public long size() {
+            return -1; // unknown
+        }
+
+        @Override
+        public long pos() {
+            return pos;
+        }
+
+        @Override
+        public void skipTo(long pos) {
+            if (pos < this.pos) {
+                throw new IllegalStateException("Cannot skip backward to: " + pos + " from: " + this.pos);
+            }
+            while (this.pos < pos && hasNext()) {
+                next();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return stream != null && it.hasNext();
+        }
+
+        @Override
+        public Map<String, Serializable> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Map<String, Serializable> map = it.next();
+            pos++;
+            return map;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
     public static String convToInternal(String name) {
         switch (name) {
         case NXQL.ECM_UUID:
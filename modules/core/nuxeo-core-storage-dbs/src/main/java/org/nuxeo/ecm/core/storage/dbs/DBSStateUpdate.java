@@ -0,0 +1,77 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.core.storage.dbs;
+
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.nuxeo.ecm.core.api.ConcurrentUpdateException;
+import org.nuxeo.ecm.core.storage.State.StateDiff;
+import org.nuxeo.ecm.core.storage.dbs.DBSTransactionState.ChangeTokenUpdater;
+
+/**
+ * The update of a document, as passed to {@link DBSConnection#updateStates}.
+ *
+ * @since 11.2
+ */
+public class DBSStateUpdate {
+
+    /** The document id. */
+    public final String id;
+
+    /** The diff to apply. */
+    public final StateDiff diff;
+
+    /** How to get and update the change token (may be {@code null}). */
+    public final ChangeTokenUpdater changeTokenUpdater;
+
+    public DBSStateUpdate(String id, StateDiff diff, ChangeTokenUpdater changeTokenUpdater) {
+        this.id = id;
+        this.diff = diff;
+        this.changeTokenUpdater = changeTokenUpdater;
+    }
+
+    /**
+     * Builds the exception reporting the documents of a batch that could not be updated.
+     * <p>
+     * A single failure is reported as is, several failures are reported by an exception having one info per document
+     * and the original exceptions as suppressed exceptions.
+     *
+     * @param failures the exception for each document id, in update order
+     */
+    public static ConcurrentUpdateException newConcurrentUpdateException(
+            Map<String, ConcurrentUpdateException> failures) {
+        if (failures.size() == 1) {
+            return failures.values().iterator().next();
+        }
+        ConcurrentUpdateException exception = new ConcurrentUpdateException(
+                "Concurrent update of " + failures.size() + " documents");
+        for (Entry<String, ConcurrentUpdateException> es : failures.entrySet()) {
+            exception.addInfo(es.getKey());
+            exception.addSuppressed(es.getValue());
+        }
+        return exception;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + id + ", " + diff + ")";
+    }
+
+}
@@ -236,8 +236,8 @@ public class DBSTransactionState implements LockManager, AutoCloseable {
      * modified).
      */
     public List<DBSDocumentState> getStatesForUpdate(Collection<String> ids) {
-        // check which ones we have to fetch from repository
-        List<String> idsToFetch = new LinkedList<>();
+        // check which ones we have to fetch from repository, in a single call
+        Set<String> idsToFetch = new LinkedHashSet<>();
         for (String id : ids) {
             // check transient state
             DBSDocumentState docState = transientStates.get(id);
@@ -248,7 +248,7 @@ public class DBSTransactionState implements LockManager, AutoCloseable {
             idsToFetch.add(id);
         }
         if (!idsToFetch.isEmpty()) {
-            List<State> states = connection.readStates(idsToFetch);
+            List<State> states = connection.readStates(new ArrayList<>(idsToFetch));
             for (State state : states) {
                 newTransientState(state);
             }
@@ -759,6 +759,12 @@ public class DBSTransactionState implements LockManager, AutoCloseable {
         return connection.queryAndFetch(evaluator, orderByClause, distinctDocuments, limit, offset, countUpTo);
     }
 
+    /** @since 11.2 */
+    public Stream<Map<String, Serializable>> queryAndFetchStream(DBSExpressionEvaluator evaluator,
+            OrderByClause orderByClause, boolean distinctDocuments, int limit, int offset, int batchSize) {
+        return connection.queryAndFetchStream(evaluator, orderByClause, distinctDocuments, limit, offset, batchSize);
+    }
+
     /** @since 11.1 */
     public ScrollResult<String> scroll(DBSExpressionEvaluator evaluator, int batchSize, int keepAliveSeconds) {
         return connection.scroll(evaluator, batchSize, keepAliveSeconds);
@@ -851,14 +857,17 @@ public class DBSTransactionState implements LockManager, AutoCloseable {
         if (!statesToCreate.isEmpty()) {
             connection.createStates(statesToCreate);
         }
-        for (DBSDocumentState docState : transientStates.values()) {
-            String id = docState.getId();
-            if (transientCreated.contains(id)) {
-                continue; // already done
-            }
-            StateDiff diff = docState.getStateChange();
-            if (diff != null) {
-                try {
+        List<DBSStateUpdate> updates = new ArrayList<>();
+        List<DBSDocumentState> updatedStates = new ArrayList<>();
+        try {
+            for (DBSDocumentState docState : transientStates.values()) {
+                String id = docState.getId();
+                if (transientCreated.contains(id)) {
+                    continue; // already done
+                }
+                StateDiff diff = docState.getStateChange();
+                if (diff != null) {
+                    updatedStates.add(docState);
                     if (undoLog != null) {
                         if (!undoLog.containsKey(id)) {
                             undoLog.put(id, StateHelper.deepCopy(docState.getOriginalState()));
@@ -880,11 +889,15 @@ public class DBSTransactionState implements LockManager, AutoCloseable {
                     } else {
                         changeTokenUpdater = null;
                     }
-                    connection.updateState(id, diff, changeTokenUpdater);
-                } finally {
-                    docState.setNotDirty();
+                    updates.add(new DBSStateUpdate(id, diff, changeTokenUpdater));
                 }
             }
+            if (!updates.isEmpty()) {
+                // a single call so that the connection can batch the updates
+                connection.updateStates(updates);
+            }
+        } finally {
+            updatedStates.forEach(DBSDocumentState::setNotDirty);
         }
         transientCreated.clear();
         userChangeIds.clear();
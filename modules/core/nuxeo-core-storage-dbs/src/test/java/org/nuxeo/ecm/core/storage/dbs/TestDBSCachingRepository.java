@@ -21,11 +21,13 @@ package org.nuxeo.ecm.core.storage.dbs;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anySetOf;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ACP;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ID;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_NAME;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_PARENT_ID;
@@ -40,6 +42,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.security.MergedACPCache;
 import org.nuxeo.ecm.core.storage.State;
 import org.nuxeo.ecm.core.storage.State.StateDiff;
 import org.nuxeo.runtime.cluster.ClusterFeature;
@@ -67,6 +70,8 @@ public class TestDBSCachingRepository {
                     state.setSingle(KEY_ID, id);
                     return state;
                 }).collect(Collectors.toList()));
+        when(subConnection.queryKeyValueIds(eq(KEY_PARENT_ID), any(), anySetOf(String.class))).thenReturn(
+                Arrays.asList("ID1", "ID2", "ID3"));
         when(subConnection.readChildState(any(), any(), any())).then(invocation -> {
             Object parentId = invocation.getArguments()[0];
             Object name = invocation.getArguments()[1];
@@ -123,6 +128,34 @@ public class TestDBSCachingRepository {
         assertEquals(states, cachedStates);
     }
 
+    @Test
+    public void testReadStatesFromCacheOnly() {
+        String id1 = "ID1";
+        String id2 = "ID2";
+        connection.readStates(Arrays.asList(id1, id2));
+        verify(subConnection, times(1)).readStates(anyListOf(String.class));
+
+        // All in cache - no call to sub repository, duplicates are removed and order is kept
+        List<State> cachedStates = connection.readStates(Arrays.asList(id2, id1, id2));
+        verify(subConnection, times(1)).readStates(anyListOf(String.class));
+        assertEquals(2, cachedStates.size());
+        assertEquals(id2, cachedStates.get(0).get(KEY_ID));
+        assertEquals(id1, cachedStates.get(1).get(KEY_ID));
+    }
+
+    @Test
+    public void testQueryKeyValue() {
+        // Put one child in cache
+        connection.readState("ID2");
+
+        // Query ids then fetch only the missing states
+        List<State> states = connection.queryKeyValue(KEY_PARENT_ID, "PARENT-ID", Collections.emptySet());
+        verify(subConnection, times(1)).queryKeyValueIds(eq(KEY_PARENT_ID), eq("PARENT-ID"), any());
+        verify(subConnection, times(1)).readStates(eq(Arrays.asList("ID1", "ID3")));
+        assertEquals(Arrays.asList("ID1", "ID2", "ID3"),
+                states.stream().map(state -> state.get(KEY_ID)).collect(Collectors.toList()));
+    }
+
     @Test
     public void testUpdateState() {
         String id = "ID";
@@ -180,6 +213,28 @@ public class TestDBSCachingRepository {
         assertEquals(dbState, cachedState);
     }
 
+    @Test
+    public void testUpdateStateInvalidatesMergedACP() {
+        MergedACPCache acpCache = repository.getMergedACPCache();
+        long gen = acpCache.getGeneration();
+
+        // changes unrelated to ACLs don't invalidate merged ACPs
+        StateDiff diff = new StateDiff();
+        diff.put("dc:title", "foo");
+        connection.updateState("ID", diff, null);
+        assertEquals(gen, acpCache.getGeneration());
+
+        // ACP change
+        diff = new StateDiff();
+        diff.put(KEY_ACP, new ArrayList<>());
+        connection.updateState("ID", diff, null);
+        assertEquals(gen + 1, acpCache.getGeneration());
+
+        // invalidated again at commit time
+        connection.commit();
+        assertEquals(gen + 2, acpCache.getGeneration());
+    }
+
     private State newState(String id) {
         State state = new State();
         state.setSingle(KEY_ID, id);
@@ -192,6 +247,7 @@ public class TestDBSCachingRepository {
         descriptor.cacheTTL = 10L;
         descriptor.cacheMaxSize = 1000L;
         descriptor.cacheConcurrencyLevel = 1000;
+        descriptor.setCacheACP(true);
         return descriptor;
     }
 
@@ -66,6 +66,35 @@ public class TestDBSInvalidations {
         assertEquals("A", ser);
     }
 
+    @Test
+    public void testCompactSerialization() throws IOException {
+        DBSInvalidations invals;
+        @SuppressWarnings("resource")
+        ByteArrayOutputStream baout = new ByteArrayOutputStream();
+
+        invals = new DBSInvalidations();
+        invals.serializeCompact(baout);
+        assertEquals(0, baout.size());
+
+        String uuid = "0b5b4bc8-6ea0-4a3b-9c4b-1d4b5bd5a7e3";
+        invals = new DBSInvalidations();
+        invals.add(uuid);
+        invals.add("foo");
+        baout.reset();
+        invals.serializeCompact(baout);
+        byte[] bytes = baout.toByteArray();
+        assertEquals('C', bytes[0]);
+        // marker, count, uuid as 16 bytes, string as length and chars
+        assertEquals(1 + 1 + 17 + 5, bytes.length);
+        assertEquals(invals.ids, DBSInvalidations.deserialize(new ByteArrayInputStream(bytes)).ids);
+
+        invals = new DBSInvalidations();
+        invals.setAll();
+        baout.reset();
+        invals.serializeCompact(baout);
+        assertEquals("A", new String(baout.toByteArray()));
+    }
+
     @Test
     public void testDeserialization() throws IOException {
         DBSInvalidations invals;
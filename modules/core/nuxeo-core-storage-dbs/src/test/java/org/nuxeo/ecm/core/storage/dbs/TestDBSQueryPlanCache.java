@@ -0,0 +1,95 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.core.storage.dbs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.api.impl.FacetFilter;
+import org.nuxeo.ecm.core.query.sql.SQLQueryParser;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.test.runner.RuntimeFeature;
+
+@RunWith(FeaturesRunner.class)
+@Features(RuntimeFeature.class)
+public class TestDBSQueryPlanCache {
+
+    protected static final String QUERY = "SELECT * FROM Document WHERE ecm:parentId = '123'";
+
+    protected DBSQueryPlanCache cache;
+
+    protected AtomicInteger planned;
+
+    @Before
+    public void before() {
+        cache = new DBSQueryPlanCache("test", 10);
+        planned = new AtomicInteger();
+    }
+
+    @After
+    public void after() {
+        // Used to remove metrics
+        cache.close();
+    }
+
+    protected Supplier<DBSQueryPlan> planner(String query) {
+        return () -> {
+            planned.incrementAndGet();
+            return new DBSQueryPlan(SQLQueryParser.parse(query), true, "ecm:uuid", null, null);
+        };
+    }
+
+    @Test
+    public void testCache() {
+        DBSQueryPlan plan = cache.get(QUERY, null, planner(QUERY));
+        assertSame(plan, cache.get(QUERY, null, planner(QUERY)));
+        assertEquals(1, planned.get());
+        assertEquals(1, cache.getCache().stats().hitCount());
+
+        // the facet filter is part of the key
+        FacetFilter facetFilter = new FacetFilter("Folderish", false);
+        DBSQueryPlan filteredPlan = cache.get(QUERY, facetFilter, planner(QUERY));
+        assertNotSame(plan, filteredPlan);
+        assertSame(filteredPlan, cache.get(QUERY, new FacetFilter("Folderish", false), planner(QUERY)));
+        assertEquals(2, planned.get());
+
+        cache.invalidateAll();
+        assertNotSame(plan, cache.get(QUERY, null, planner(QUERY)));
+        assertEquals(3, planned.get());
+    }
+
+    @Test
+    public void testDisabled() {
+        cache.close();
+        cache = new DBSQueryPlanCache("test", 0);
+        cache.get(QUERY, null, planner(QUERY));
+        cache.get(QUERY, null, planner(QUERY));
+        assertEquals(2, planned.get());
+    }
+
+}
@@ -0,0 +1,54 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.core.storage.dbs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.api.ConcurrentUpdateException;
+
+public class TestDBSStateUpdate {
+
+    @Test
+    public void testSingleFailure() {
+        ConcurrentUpdateException cue = new ConcurrentUpdateException("id1");
+        Map<String, ConcurrentUpdateException> failures = new LinkedHashMap<>();
+        failures.put("id1", cue);
+        assertSame(cue, DBSStateUpdate.newConcurrentUpdateException(failures));
+    }
+
+    @Test
+    public void testSeveralFailures() {
+        ConcurrentUpdateException cue1 = new ConcurrentUpdateException("id1");
+        ConcurrentUpdateException cue2 = new ConcurrentUpdateException("id2");
+        Map<String, ConcurrentUpdateException> failures = new LinkedHashMap<>();
+        failures.put("id1", cue1);
+        failures.put("id2", cue2);
+        ConcurrentUpdateException cue = DBSStateUpdate.newConcurrentUpdateException(failures);
+        assertEquals("Concurrent update of 2 documents", cue.getOriginalMessage());
+        assertEquals(Arrays.asList("id1", "id2"), cue.getInfos());
+        assertEquals(Arrays.asList(cue1, cue2), Arrays.asList(cue.getSuppressed()));
+    }
+
+}
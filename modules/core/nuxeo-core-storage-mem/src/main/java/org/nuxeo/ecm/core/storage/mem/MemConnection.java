@@ -245,6 +245,28 @@ public class MemConnection extends DBSConnectionBase {
         return list;
     }
 
+    @Override
+    public List<String> queryKeyValueIds(String key, Object value, Set<String> ignored) {
+        if (log.isTraceEnabled()) {
+            log.trace("Mem: QUERY IDS " + key + " = " + value);
+        }
+        List<String> list = new ArrayList<>();
+        for (State state : states.values()) {
+            String id = (String) state.get(KEY_ID);
+            if (ignored.contains(id)) {
+                continue;
+            }
+            if (!value.equals(state.get(key))) {
+                continue;
+            }
+            list.add(id);
+        }
+        if (log.isTraceEnabled() && !list.isEmpty()) {
+            log.trace("Mem:    -> " + list.size());
+        }
+        return list;
+    }
+
     @Override
     public List<State> queryKeyValue(String key1, Object value1, String key2, Object value2, Set<String> ignored) {
         if (log.isTraceEnabled()) {
@@ -26,6 +26,7 @@ import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ACE_USER;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ACL;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ACP;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ANCESTOR_IDS;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_CHANGE_TOKEN;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_FULLTEXT_BINARY;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_FULLTEXT_JOBID;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_FULLTEXT_SIMPLE;
@@ -58,6 +59,8 @@ import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -88,6 +91,7 @@ import org.nuxeo.ecm.core.storage.dbs.DBSConnectionBase;
 import org.nuxeo.ecm.core.storage.dbs.DBSExpressionEvaluator;
 import org.nuxeo.ecm.core.storage.dbs.DBSRepositoryBase;
 import org.nuxeo.ecm.core.storage.dbs.DBSRepositoryBase.IdType;
+import org.nuxeo.ecm.core.storage.dbs.DBSStateUpdate;
 import org.nuxeo.ecm.core.storage.dbs.DBSStateFlattener;
 import org.nuxeo.ecm.core.storage.dbs.DBSTransactionState.ChangeTokenUpdater;
 
@@ -97,11 +101,13 @@ import com.mongodb.MongoExecutionTimeoutException;
 import com.mongodb.MongoWriteException;
 import com.mongodb.QueryOperators;
 import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
 import com.mongodb.client.ClientSession;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoIterable;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.CountOptions;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.FindOneAndUpdateOptions;
@@ -109,7 +115,9 @@ import com.mongodb.client.model.IndexOptions;
 import com.mongodb.client.model.Indexes;
 import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
 import com.mongodb.client.result.DeleteResult;
 import com.mongodb.client.result.UpdateResult;
 
@@ -511,6 +519,147 @@ public class MongoDBConnection extends DBSConnectionBase {
         }
     }
 
+    /**
+     * Updates documents using bulk writes.
+     * <p>
+     * A document may need several successive updates, see {@link MongoDBConverter#diffToBson}. The n-th update of each
+     * document is done in the n-th bulk write, so the updates of a document are applied in order while each bulk write
+     * can be unordered.
+     *
+     * @since 11.2
+     */
+    @Override
+    public void updateStates(List<DBSStateUpdate> updates) {
+        List<List<BulkUpdate>> rounds = new ArrayList<>();
+        for (DBSStateUpdate update : updates) {
+            List<Document> docUpdates = converter.diffToBson(update.diff);
+            for (int i = 0; i < docUpdates.size(); i++) {
+                if (rounds.size() == i) {
+                    rounds.add(new ArrayList<>());
+                }
+                rounds.get(i).add(newBulkUpdate(update.id, docUpdates.get(i), update.changeTokenUpdater));
+            }
+        }
+        Map<String, ConcurrentUpdateException> failures = new LinkedHashMap<>();
+        for (List<BulkUpdate> round : rounds) {
+            // don't try further updates of a document that already failed
+            List<BulkUpdate> bulkUpdates = round.stream()
+                                                .filter(bu -> !failures.containsKey(bu.id))
+                                                .collect(Collectors.toList());
+            if (!bulkUpdates.isEmpty()) {
+                bulkUpdate(bulkUpdates, failures);
+            }
+        }
+        if (!failures.isEmpty()) {
+            throw DBSStateUpdate.newConcurrentUpdateException(failures);
+        }
+    }
+
+    protected BulkUpdate newBulkUpdate(String id, Document update, ChangeTokenUpdater changeTokenUpdater) {
+        Document filter = new Document();
+        converter.putToBson(filter, KEY_ID, id);
+        Long changeToken = null;
+        if (changeTokenUpdater != null) {
+            // same as in updateState
+            Map<String, Serializable> conditions = changeTokenUpdater.getConditions();
+            Map<String, Serializable> tokenUpdates = changeTokenUpdater.getUpdates();
+            if (update.containsKey(MONGODB_SET)) {
+                ((Document) update.get(MONGODB_SET)).putAll(tokenUpdates);
+            } else {
+                Document set = new Document();
+                set.putAll(tokenUpdates);
+                update.put(MONGODB_SET, set);
+            }
+            filter.putAll(conditions);
+            changeToken = (Long) tokenUpdates.get(KEY_CHANGE_TOKEN);
+        }
+        return new BulkUpdate(id, filter, update, changeToken);
+    }
+
+    protected void bulkUpdate(List<BulkUpdate> bulkUpdates, Map<String, ConcurrentUpdateException> failures) {
+        log.trace("MongoDB: BULK UPDATE {}", bulkUpdates);
+        List<UpdateOneModel<Document>> models = bulkUpdates.stream()
+                                                           .map(bu -> new UpdateOneModel<Document>(bu.filter,
+                                                                   bu.update))
+                                                           .collect(Collectors.toList());
+        BulkWriteResult result;
+        Set<String> errorIds = new HashSet<>();
+        try {
+            result = bulkWrite(models);
+        } catch (MongoBulkWriteException mbwe) {
+            for (BulkWriteError error : mbwe.getWriteErrors()) {
+                if (!DUPLICATE_KEY.equals(fromErrorCode(error.getCode()))) {
+                    // avoid hiding any other bulk errors
+                    throw mbwe;
+                }
+            }
+            for (BulkWriteError error : mbwe.getWriteErrors()) {
+                String id = bulkUpdates.get(error.getIndex()).id;
+                log.trace("MongoDB:    -> DUPLICATE KEY: {}", id);
+                failures.put(id, new ConcurrentUpdateException(error.getMessage()));
+                errorIds.add(id);
+            }
+            result = mbwe.getWriteResult();
+        }
+        if (result.getModifiedCount() + errorIds.size() < bulkUpdates.size()) {
+            // some filters didn't match, find which ones
+            List<BulkUpdate> applied = bulkUpdates.stream()
+                                                  .filter(bu -> !errorIds.contains(bu.id))
+                                                  .collect(Collectors.toList());
+            addUnmatchedUpdates(applied, failures);
+        }
+    }
+
+    /**
+     * Finds the updates whose filter didn't match, by checking the document exists and has the expected change token.
+     */
+    protected void addUnmatchedUpdates(List<BulkUpdate> bulkUpdates, Map<String, ConcurrentUpdateException> failures) {
+        List<String> ids = bulkUpdates.stream().map(bu -> bu.id).collect(Collectors.toList());
+        Document fields = new Document();
+        fields.put(idKey, ONE);
+        fields.put(converter.keyToBson(KEY_CHANGE_TOKEN), ONE);
+        Map<String, State> states;
+        try (Stream<State> stream = stream(converter.filterIn(KEY_ID, ids), fields)) {
+            states = stream.collect(Collectors.toMap(state -> (String) state.get(KEY_ID), state -> state));
+        }
+        for (BulkUpdate bu : bulkUpdates) {
+            State state = states.get(bu.id);
+            if (state == null || (bu.changeToken != null && !bu.changeToken.equals(state.get(KEY_CHANGE_TOKEN)))) {
+                log.trace("MongoDB:    -> CONCURRENT UPDATE: {}", bu.id);
+                failures.put(bu.id, new ConcurrentUpdateException(bu.id));
+            }
+        }
+    }
+
+    /**
+     * A single update of a bulk write.
+     *
+     * @since 11.2
+     */
+    protected static class BulkUpdate {
+
+        protected final String id;
+
+        protected final Document filter;
+
+        protected final Document update;
+
+        /** The change token written by the update, or {@code null} if not updated. */
+        protected final Long changeToken;
+
+        protected BulkUpdate(String id, Document filter, Document update, Long changeToken) {
+            this.id = id;
+            this.filter = filter;
+            this.update = update;
+            this.changeToken = changeToken;
+        }
+
+        @Override
+        public String toString() {
+            return "IF " + filter + " THEN " + update;
+        }
+    }
+
     @Override
     public void deleteStates(Set<String> ids) {
         Bson filter = converter.filterIn(KEY_ID, ids);
@@ -591,6 +740,23 @@ public class MongoDBConnection extends DBSConnectionBase {
         return findAll(filter);
     }
 
+    @Override
+    public List<String> queryKeyValueIds(String key, Object value, Set<String> ignored) {
+        Document filter = new Document();
+        converter.putToBson(filter, key, value);
+        addIgnoredIds(filter, ignored);
+        Document fields = new Document();
+        if (useCustomId) {
+            fields.put(MONGODB_ID, ZERO);
+        }
+        fields.put(idKey, ONE);
+        try (Stream<State> stream = stream(filter, fields)) {
+            return stream.map(state -> (String) state.get(KEY_ID)).collect(Collectors.toList());
+        } catch (MongoExecutionTimeoutException e) {
+            throw newQueryTimeout(e, filter);
+        }
+    }
+
     @Override
     public List<State> queryKeyValue(String key1, Object value1, String key2, Object value2, Set<String> ignored) {
         Document filter = new Document();
@@ -808,6 +974,98 @@ public class MongoDBConnection extends DBSConnectionBase {
         return new PartialList<>(projections, totalSize);
     }
 
+    @Override
+    public Stream<Map<String, Serializable>> queryAndFetchStream(DBSExpressionEvaluator evaluator,
+            OrderByClause orderByClause, boolean distinctDocuments, int limit, int offset, int batchSize) {
+        MongoDBRepositoryQueryBuilder builder = new MongoDBRepositoryQueryBuilder((MongoDBRepository) repository,
+                evaluator.getExpression(), evaluator.getSelectClause(), orderByClause, evaluator.pathResolver,
+                evaluator.fulltextSearchDisabled);
+        builder.walk();
+        if (builder.hasFulltext && repository.isFulltextSearchDisabled()) {
+            throw new QueryParseException("Fulltext search disabled by configuration");
+        }
+        Document filter = builder.getQuery();
+        addPrincipals(filter, evaluator.principals);
+        Bson orderBy = builder.getOrderBy();
+        Bson keys = builder.getProjection();
+        // same manual projection as in queryAndFetch
+        boolean manualProjection = !distinctDocuments && builder.hasProjectionWildcard();
+        if (manualProjection) {
+            keys = null;
+            evaluator.parse();
+        }
+
+        logQuery(filter, keys, orderBy, limit, offset);
+
+        MongoCursor<Document> cursor;
+        try {
+            cursor = find(filter).projection(keys)
+                                 .skip(offset)
+                                 .limit(limit)
+                                 .sort(orderBy)
+                                 .batchSize(batchSize)
+                                 .iterator();
+        } catch (MongoExecutionTimeoutException e) {
+            throw newQueryTimeout(e, filter);
+        }
+        boolean completedAbruptly = true;
+        try {
+            DBSStateFlattener flattener = new DBSStateFlattener(builder.propertyKeys);
+            Iterator<Document> documents = new QueryTimeoutIterator(cursor, filter);
+            Stream<State> states = StreamSupport.stream(Spliterators.spliteratorUnknownSize(documents, 0), false)
+                                                .onClose(cursor::close)
+                                                .map(converter::bsonToState);
+            Stream<Map<String, Serializable>> stream;
+            if (manualProjection) {
+                stream = states.flatMap(state -> evaluator.matches(state).stream());
+            } else {
+                stream = states.map(flattener::flatten);
+            }
+            // the stream takes responsibility for closing the cursor
+            completedAbruptly = false;
+            return stream;
+        } finally {
+            if (completedAbruptly) {
+                cursor.close();
+            }
+        }
+    }
+
+    /**
+     * Iterator on a cursor turning the timeouts of its lazy batch fetches into query timeouts.
+     *
+     * @since 11.2
+     */
+    protected class QueryTimeoutIterator implements Iterator<Document> {
+
+        protected final MongoCursor<Document> cursor;
+
+        protected final Bson filter;
+
+        protected QueryTimeoutIterator(MongoCursor<Document> cursor, Bson filter) {
+            this.cursor = cursor;
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                return cursor.hasNext();
+            } catch (MongoExecutionTimeoutException e) {
+                throw newQueryTimeout(e, filter);
+            }
+        }
+
+        @Override
+        public Document next() {
+            try {
+                return cursor.next();
+            } catch (MongoExecutionTimeoutException e) {
+                throw newQueryTimeout(e, filter);
+            }
+        }
+    }
+
     @SuppressWarnings("resource") // cursor is being registered, must not be closed
     @Override
     public ScrollResult<String> scroll(DBSExpressionEvaluator evaluator, int batchSize, int keepAliveSeconds) {
@@ -990,6 +1248,15 @@ public class MongoDBConnection extends DBSConnectionBase {
         }
     }
 
+    protected BulkWriteResult bulkWrite(List<? extends WriteModel<Document>> requests) {
+        BulkWriteOptions options = new BulkWriteOptions().ordered(false);
+        if (transactionStarted) {
+            return coll.bulkWrite(clientSession, requests, options);
+        } else {
+            return coll.bulkWrite(requests, options);
+        }
+    }
+
     protected DeleteResult deleteMany(Bson filter) {
         if (transactionStarted) {
             return coll.deleteMany(clientSession, filter);
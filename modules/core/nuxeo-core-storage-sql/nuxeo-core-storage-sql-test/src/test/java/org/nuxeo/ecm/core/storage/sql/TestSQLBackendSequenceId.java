@@ -18,9 +18,11 @@
  */
 package org.nuxeo.ecm.core.storage.sql;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assume.assumeTrue;
 
 import org.junit.BeforeClass;
+import org.junit.Test;
 
 /**
  * All the tests of TestSQLBackend with sequence-based ids.
@@ -42,4 +44,10 @@ public class TestSQLBackendSequenceId extends TestSQLBackend {
         return descriptor;
     }
 
+    @Test
+    public void testNoHexadecimalStringIds() {
+        // sequence ids cannot be compared to hexadecimal strings, for instance to partition a scroll
+        assertFalse(repository.hasHexadecimalStringIds());
+    }
+
 }
@@ -0,0 +1,549 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import javax.transaction.xa.XAException;
+import javax.transaction.xa.Xid;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.common.utils.SizeUtils;
+import org.nuxeo.ecm.core.storage.sql.ACLRow.ACLRowPositionComparator;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import io.dropwizard.metrics5.Counter;
+import io.dropwizard.metrics5.Gauge;
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+import io.dropwizard.metrics5.Timer;
+
+/**
+ * A {@link RowMapper} that uses an {@link OffHeapRowCache} shared by all the mappers of a repository.
+ * <p>
+ * The cache only holds {@link Row}s that are known to be identical to what's committed in the underlying
+ * {@link RowMapper}: rows written by a transaction are removed from the cache and are not cached again by this mapper
+ * until the transaction ends. The rows are invalidated again when the invalidations are sent post-commit, and when
+ * cluster invalidations are received.
+ * <p>
+ * The cache is configured with the {@code maxSize} (default {@value #DEFAULT_MAX_SIZE}) and {@code segments} (default
+ * 4 per processor) caching mapper properties.
+ *
+ * @since 11.2
+ */
+public class OffHeapCachingRowMapper implements RowMapper {
+
+    private static final Logger log = LogManager.getLogger(OffHeapCachingRowMapper.class);
+
+    private static final String ABSENT = "__ABSENT__\0\0\0";
+
+    private static final Row ABSENT_ROW = new Row(ABSENT, (Serializable) null);
+
+    public static final String MAX_SIZE_PROP = "maxSize";
+
+    public static final String SEGMENTS_PROP = "segments";
+
+    public static final String DEFAULT_MAX_SIZE = "128m";
+
+    /** One cache per repository instance, a new repository instance has a new propagator. */
+    private static final Map<VCSInvalidationsPropagator, OffHeapRowCache> CACHES = new WeakHashMap<>();
+
+    private OffHeapRowCache cache;
+
+    private Model model;
+
+    /**
+     * The {@link RowMapper} to which operations that cannot be processed from the cache are delegated.
+     */
+    private RowMapper rowMapper;
+
+    /**
+     * The local invalidations due to writes through this mapper that should be propagated to other sessions at
+     * post-commit time.
+     */
+    private final VCSInvalidations localInvalidations;
+
+    /**
+     * The rows written by the current transaction, they are not read from or written to the shared cache.
+     */
+    private final Set<RowId> dirtyRows;
+
+    /**
+     * The queue of invalidations received from other session or from the cluster invalidator, to process at
+     * pre-transaction time.
+     */
+    private final VCSInvalidationsQueue invalidationsQueue;
+
+    /**
+     * The propagator of invalidations to other mappers.
+     */
+    private VCSInvalidationsPropagator invalidationsPropagator;
+
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+    protected Counter cacheHitCount;
+
+    protected Timer cacheGetTimer;
+
+    // sor means system of record (database access)
+    protected Counter sorRows;
+
+    protected Timer sorGetTimer;
+
+    public OffHeapCachingRowMapper() {
+        localInvalidations = new VCSInvalidations();
+        dirtyRows = new HashSet<>();
+        invalidationsQueue = new VCSInvalidationsQueue("mapper-" + this);
+    }
+
+    public void initialize(String repositoryName, Model model, RowMapper rowMapper,
+            VCSInvalidationsPropagator invalidationsPropagator, Map<String, String> properties) {
+        this.model = model;
+        this.rowMapper = rowMapper;
+        this.invalidationsPropagator = invalidationsPropagator;
+        invalidationsPropagator.addQueue(invalidationsQueue);
+        synchronized (CACHES) {
+            cache = CACHES.get(invalidationsPropagator);
+            if (cache == null) {
+                cache = createCache(repositoryName, properties);
+                CACHES.put(invalidationsPropagator, cache);
+                registerGauges(repositoryName, cache);
+            }
+        }
+        setMetrics(repositoryName);
+    }
+
+    protected OffHeapRowCache createCache(String repositoryName, Map<String, String> properties) {
+        String maxSize = properties.get(MAX_SIZE_PROP);
+        long maxWeight = SizeUtils.parseSizeInBytes(isBlank(maxSize) ? DEFAULT_MAX_SIZE : maxSize);
+        String segments = properties.get(SEGMENTS_PROP);
+        int concurrency = isBlank(segments) ? 4 * Runtime.getRuntime().availableProcessors()
+                : Integer.parseInt(segments);
+        log.info("Creating off-heap row cache for repository: {}, maxSize: {}, segments: {}", repositoryName,
+                maxWeight, concurrency);
+        return new OffHeapRowCache(maxWeight, concurrency);
+    }
+
+    protected void setMetrics(String repositoryName) {
+        cacheHitCount = registry.counter(
+                MetricName.build("nuxeo", "repositories", "repository", "cache", "off-heap", "hit")
+                          .tagged("repository", repositoryName));
+        cacheGetTimer = registry.timer(
+                MetricName.build("nuxeo", "repositories", "repository", "cache", "off-heap", "timer")
+                          .tagged("repository", repositoryName));
+        sorRows = registry.counter(
+                MetricName.build("nuxeo", "repositories", "repository", "cache", "off-heap", "sor", "rows")
+                          .tagged("repository", repositoryName));
+        sorGetTimer = registry.timer(
+                MetricName.build("nuxeo", "repositories", "repository", "cache", "off-heap", "sor", "timer")
+                          .tagged("repository", repositoryName));
+    }
+
+    protected void registerGauges(String repositoryName, OffHeapRowCache rowCache) {
+        // replace the gauges of a previous repository instance
+        registerGauge(MetricName.build("nuxeo", "repositories", "repository", "cache", "off-heap", "size")
+                                .tagged("repository", repositoryName),
+                rowCache::size);
+        registerGauge(MetricName.build("nuxeo", "repositories", "repository", "cache", "off-heap", "bytes")
+                                .tagged("repository", repositoryName),
+                rowCache::getWeight);
+        registerGauge(MetricName.build("nuxeo", "repositories", "repository", "cache", "off-heap", "evictions")
+                                .tagged("repository", repositoryName),
+                rowCache::getEvictionCount);
+    }
+
+    protected void registerGauge(MetricName name, Gauge<Long> gauge) {
+        registry.remove(name);
+        registry.register(name, gauge);
+    }
+
+    public void close() {
+        clearLocalState();
+        invalidationsPropagator.removeQueue(invalidationsQueue);
+    }
+
+    @Override
+    public Serializable generateNewId() {
+        return rowMapper.generateNewId();
+    }
+
+    /*
+     * ----- Cache -----
+     */
+
+    protected static boolean isAbsent(Row row) {
+        return row.tableName == ABSENT; // == is ok
+    }
+
+    protected void cachePut(Row row, long stamp) {
+        if (dirtyRows.contains(row)) {
+            return;
+        }
+        // for ACL collections, make sure the order is correct
+        // (without the cache, the query to get a list of collection does an
+        // ORDER BY pos, so users of the cache must get the same behavior)
+        if (row.isCollection() && row.values.length > 0 && row.values[0] instanceof ACLRow) {
+            row = row.clone();
+            row.values = sortACLRows((ACLRow[]) row.values);
+        }
+        cache.put(row, stamp);
+    }
+
+    protected ACLRow[] sortACLRows(ACLRow[] acls) {
+        List<ACLRow> list = new ArrayList<>(Arrays.asList(acls));
+        Collections.sort(list, ACLRowPositionComparator.INSTANCE);
+        ACLRow[] res = new ACLRow[acls.length];
+        return list.toArray(res);
+    }
+
+    protected void cachePutAbsent(RowId rowId, long stamp) {
+        if (dirtyRows.contains(rowId)) {
+            return;
+        }
+        cache.putAbsent(rowId, stamp);
+    }
+
+    protected void cachePutAbsentIfNull(RowId rowId, Row row, long stamp) {
+        if (row != null) {
+            cachePut(row, stamp);
+        } else {
+            cachePutAbsent(rowId, stamp);
+        }
+    }
+
+    protected void cachePutAbsentIfRowId(RowId rowId, long stamp) {
+        if (rowId instanceof Row) {
+            cachePut((Row) rowId, stamp);
+        } else {
+            cachePutAbsent(rowId, stamp);
+        }
+    }
+
+    protected Row cacheGet(RowId rowId) {
+        if (dirtyRows.contains(rowId)) {
+            return null;
+        }
+        try (Timer.Context context = cacheGetTimer.time()) {
+            Row row = cache.get(rowId, ABSENT_ROW);
+            if (row != null) {
+                cacheHitCount.inc();
+            }
+            return row;
+        }
+    }
+
+    /**
+     * Removes a row written by the current transaction from the shared cache.
+     */
+    protected void cacheInvalidateDirty(RowId rowId) {
+        RowId key = new RowId(rowId);
+        dirtyRows.add(key);
+        cache.invalidate(key);
+    }
+
+    protected void clearLocalState() {
+        for (RowId rowId : dirtyRows) {
+            cache.invalidate(rowId);
+        }
+        dirtyRows.clear();
+        localInvalidations.clear();
+    }
+
+    /*
+     * ----- Invalidations / Cache Management -----
+     */
+
+    @Override
+    public VCSInvalidations receiveInvalidations() {
+        // invalidations from the underlying mapper (cluster)
+        // already propagated to our invalidations queue
+        VCSInvalidations remoteInvals = rowMapper.receiveInvalidations();
+
+        VCSInvalidations ret = invalidationsQueue.getInvalidations();
+
+        if (remoteInvals != null && !ret.all) {
+            // only handle remote invalidations, local ones are applied to the shared cache by the sender
+            if (remoteInvals.modified != null) {
+                for (RowId rowId : remoteInvals.modified) {
+                    cache.invalidate(rowId);
+                }
+            }
+            if (remoteInvals.deleted != null) {
+                for (RowId rowId : remoteInvals.deleted) {
+                    cache.invalidate(rowId);
+                }
+            }
+        }
+
+        if (ret.all) {
+            cache.clear();
+            clearLocalState();
+            rowMapper.clearCache();
+        }
+
+        return ret.isEmpty() ? null : ret;
+    }
+
+    // propagate invalidations
+    @Override
+    public void sendInvalidations(VCSInvalidations invalidations) {
+        // add local invalidations
+        if (!localInvalidations.isEmpty()) {
+            if (invalidations == null) {
+                invalidations = new VCSInvalidations();
+            }
+            invalidations.add(localInvalidations);
+            localInvalidations.clear();
+        }
+        // post-commit: discard values cached by other sessions before the commit
+        for (RowId rowId : dirtyRows) {
+            cache.invalidate(rowId);
+        }
+        dirtyRows.clear();
+
+        if (invalidations != null && !invalidations.isEmpty()) {
+            // send to underlying mapper
+            rowMapper.sendInvalidations(invalidations);
+
+            // queue to other mappers
+            invalidationsPropagator.propagateInvalidations(invalidations, invalidationsQueue);
+        }
+    }
+
+    @Override
+    public void clearCache() {
+        // the shared cache only holds committed rows, only the rows of this mapper are removed
+        clearLocalState();
+        rowMapper.clearCache();
+    }
+
+    @Override
+    public void rollback(Xid xid) throws XAException {
+        try {
+            rowMapper.rollback(xid);
+        } finally {
+            clearLocalState();
+        }
+    }
+
+    /*
+     * ----- Batch -----
+     */
+
+    /*
+     * Use those from the cache if available, read from the mapper for the rest.
+     */
+    @Override
+    public List<? extends RowId> read(Collection<RowId> rowIds, boolean cacheOnly) {
+        List<RowId> res = new ArrayList<>(rowIds.size());
+        // find which are in cache, and which not
+        List<RowId> todo = new ArrayList<>();
+        for (RowId rowId : rowIds) {
+            Row row = cacheGet(rowId);
+            if (row == null) {
+                if (cacheOnly) {
+                    res.add(new RowId(rowId));
+                } else {
+                    todo.add(rowId);
+                }
+            } else if (isAbsent(row)) {
+                res.add(new RowId(rowId));
+            } else {
+                res.add(row);
+            }
+        }
+        if (!todo.isEmpty()) {
+            long stamp = cache.getStamp();
+            try (Timer.Context context = sorGetTimer.time()) {
+                // ask missing ones to underlying row mapper
+                List<? extends RowId> fetched = rowMapper.read(todo, cacheOnly);
+                // add them to the cache
+                for (RowId rowId : fetched) {
+                    cachePutAbsentIfRowId(rowId, stamp);
+                }
+                // merge results
+                res.addAll(fetched);
+                sorRows.inc(fetched.size());
+            }
+        }
+        return res;
+    }
+
+    /*
+     * Invalidate in the cache then pass all the writes to the mapper.
+     */
+    @Override
+    public void write(RowBatch batch) {
+        // we avoid gathering invalidations for a write-only table: fulltext
+        for (Row row : batch.creates) {
+            cacheInvalidateDirty(row);
+            if (!Model.FULLTEXT_TABLE_NAME.equals(row.tableName)) {
+                // we need to send modified invalidations for created
+                // fragments because other session's ABSENT fragments have
+                // to be invalidated
+                localInvalidations.addModified(new RowId(row));
+            }
+        }
+        for (RowUpdate rowu : batch.updates) {
+            cacheInvalidateDirty(rowu.row);
+            if (!Model.FULLTEXT_TABLE_NAME.equals(rowu.row.tableName)) {
+                localInvalidations.addModified(new RowId(rowu.row));
+            }
+        }
+        for (RowId rowId : batch.deletes) {
+            if (rowId instanceof Row) {
+                throw new AssertionError();
+            }
+            cacheInvalidateDirty(rowId);
+            if (!Model.FULLTEXT_TABLE_NAME.equals(rowId.tableName)) {
+                localInvalidations.addDeleted(rowId);
+            }
+        }
+        for (RowId rowId : batch.deletesDependent) {
+            if (rowId instanceof Row) {
+                throw new AssertionError();
+            }
+            cacheInvalidateDirty(rowId);
+            if (!Model.FULLTEXT_TABLE_NAME.equals(rowId.tableName)) {
+                localInvalidations.addDeleted(rowId);
+            }
+        }
+
+        // propagate to underlying mapper
+        rowMapper.write(batch);
+    }
+
+    /*
+     * ----- Read -----
+     */
+
+    @Override
+    public Row readSimpleRow(RowId rowId) {
+        Row row = cacheGet(rowId);
+        if (row == null) {
+            long stamp = cache.getStamp();
+            row = rowMapper.readSimpleRow(rowId);
+            cachePutAbsentIfNull(rowId, row, stamp);
+            return row;
+        } else if (isAbsent(row)) {
+            return null;
+        } else {
+            return row;
+        }
+    }
+
+    @Override
+    public Map<String, String> getBinaryFulltext(RowId rowId) {
+        return rowMapper.getBinaryFulltext(rowId);
+    }
+
+    @Override
+    public Serializable[] readCollectionRowArray(RowId rowId) {
+        Row row = cacheGet(rowId);
+        if (row == null) {
+            long stamp = cache.getStamp();
+            Serializable[] array = rowMapper.readCollectionRowArray(rowId);
+            assert array != null;
+            row = new Row(rowId.tableName, rowId.id, array);
+            cachePut(row, stamp);
+            return row.values;
+        } else if (isAbsent(row)) {
+            return null;
+        } else {
+            return row.values;
+        }
+    }
+
+    @Override
+    public List<Row> readSelectionRows(SelectionType selType, Serializable selId, Serializable filter,
+            Serializable criterion, boolean limitToOne) {
+        long stamp = cache.getStamp();
+        List<Row> rows = rowMapper.readSelectionRows(selType, selId, filter, criterion, limitToOne);
+        for (Row row : rows) {
+            cachePut(row, stamp);
+        }
+        return rows;
+    }
+
+    @Override
+    public Set<Serializable> readSelectionsIds(SelectionType selType, List<Serializable> values) {
+        return rowMapper.readSelectionsIds(selType, values);
+    }
+
+    /*
+     * ----- Copy -----
+     */
+
+    @Override
+    public CopyResult copy(IdWithTypes source, Serializable destParentId, String destName, Row overwriteRow,
+            boolean excludeSpecialChildren) {
+        CopyResult result = rowMapper.copy(source, destParentId, destName, overwriteRow, excludeSpecialChildren);
+        VCSInvalidations invalidations = result.invalidations;
+        if (invalidations.modified != null) {
+            for (RowId rowId : invalidations.modified) {
+                cacheInvalidateDirty(rowId);
+                localInvalidations.addModified(new RowId(rowId));
+            }
+        }
+        if (invalidations.deleted != null) {
+            for (RowId rowId : invalidations.deleted) {
+                cacheInvalidateDirty(rowId);
+                localInvalidations.addDeleted(rowId);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public List<NodeInfo> getDescendantsInfo(Serializable rootId) {
+        return rowMapper.getDescendantsInfo(rootId);
+    }
+
+    @Override
+    public void remove(Serializable rootId, List<NodeInfo> nodeInfos) {
+        rowMapper.remove(rootId, nodeInfos);
+        for (NodeInfo info : nodeInfos) {
+            for (String fragmentName : model.getTypeFragments(new IdWithTypes(info))) {
+                RowId rowId = new RowId(fragmentName, info.id);
+                cacheInvalidateDirty(rowId);
+                localInvalidations.addDeleted(rowId);
+            }
+        }
+    }
+
+    @Override
+    public long getCacheSize() {
+        // the shared cache is reported by the cache size gauge
+        return 0;
+    }
+
+}
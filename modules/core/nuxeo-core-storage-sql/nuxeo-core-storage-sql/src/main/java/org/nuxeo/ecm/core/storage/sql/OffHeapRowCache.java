@@ -0,0 +1,485 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+import org.nuxeo.ecm.core.api.NuxeoException;
+
+/**
+ * A size-bounded cache of {@link Row}s stored serialized in direct (off-heap) memory.
+ * <p>
+ * The cache is split in segments selected by the {@link RowId} hash. Each segment owns an arena of direct memory
+ * slabs, allocated on demand up to the segment share of the maximum size and then reused: entries are stored in
+ * fixed-size chunks taken from a free list, and their chunks go back to the free list when they are removed. The
+ * direct memory used by the cache is therefore bounded by its maximum size, and doesn't depend on the garbage
+ * collection of buffers.
+ * <p>
+ * Reads are optimistic and lock-free, and fall back to the segment read lock if a write happened meanwhile. Writes
+ * and evictions lock the segment. Each segment is bounded by a weight in bytes, when it is exceeded entries are
+ * evicted in insertion order, giving a second chance to the entries read since they were inserted (CLOCK).
+ * <p>
+ * To avoid caching a row that was read from the database before a concurrent invalidation, writes take the stamp
+ * returned by {@link #getStamp()} before the database access, the write is discarded if the segment has been
+ * invalidated since then.
+ *
+ * @since 11.2
+ */
+public class OffHeapRowCache {
+
+    /** Estimated heap size of an entry and its key, counted in the weight. */
+    protected static final int ENTRY_OVERHEAD = 96;
+
+    /** Size of the chunks of direct memory in which the entries are stored. */
+    protected static final int CHUNK_SIZE = 128;
+
+    /** Maximum size of a slab of direct memory. */
+    protected static final int MAX_SLAB_SIZE = 1 << 20;
+
+    protected static final int MAX_SEGMENTS = 1 << 16;
+
+    protected final Segment[] segments;
+
+    protected final int segmentMask;
+
+    protected final long maxSegmentWeight;
+
+    /** Maximum number of chunks of a segment. */
+    protected final int maxSegmentChunks;
+
+    protected final int chunksPerSlab;
+
+    protected final AtomicLong stamps = new AtomicLong();
+
+    protected final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxWeight the maximum size in bytes of the cache
+     * @param concurrency the number of segments, rounded up to a power of two
+     */
+    public OffHeapRowCache(long maxWeight, int concurrency) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("Invalid max weight: " + maxWeight);
+        }
+        int size = 1;
+        while (size < concurrency && size < MAX_SEGMENTS) {
+            size <<= 1;
+        }
+        maxSegmentWeight = Math.max(1, maxWeight / size);
+        maxSegmentChunks = (int) Math.min(Integer.MAX_VALUE, maxSegmentWeight / CHUNK_SIZE);
+        chunksPerSlab = Math.max(1, Math.min(maxSegmentChunks, MAX_SLAB_SIZE / CHUNK_SIZE));
+        segments = new Segment[size];
+        for (int i = 0; i < size; i++) {
+            segments[i] = new Segment();
+        }
+        segmentMask = size - 1;
+    }
+
+    protected Segment segmentFor(RowId rowId) {
+        int h = rowId.hashCode();
+        h ^= h >>> 16;
+        return segments[h & segmentMask];
+    }
+
+    /**
+     * Gets the current stamp, to pass to {@link #put} or {@link #putAbsent} for a value read after this call.
+     */
+    public long getStamp() {
+        return stamps.get();
+    }
+
+    /**
+     * Gets a copy of a cached row.
+     *
+     * @return the row, or {@code absent} if the row is known to be absent, or {@code null} if it is not in the cache
+     */
+    public Row get(RowId rowId, Row absent) {
+        return segmentFor(rowId).get(rowId, absent);
+    }
+
+    /**
+     * Caches a row, unless the row has been invalidated after the stamp was taken.
+     * <p>
+     * A row too large to fit in a segment is not cached.
+     */
+    public void put(Row row, long stamp) {
+        segmentFor(row).put(new RowId(row), encode(row), stamp);
+    }
+
+    /**
+     * Caches the fact that a row is absent, unless the row has been invalidated after the stamp was taken.
+     */
+    public void putAbsent(RowId rowId, long stamp) {
+        segmentFor(rowId).put(new RowId(rowId), null, stamp);
+    }
+
+    /**
+     * Removes a row from the cache, concurrent writes of a value read before this call are discarded.
+     */
+    public void invalidate(RowId rowId) {
+        segmentFor(rowId).invalidate(rowId, stamps.incrementAndGet());
+    }
+
+    public void clear() {
+        long stamp = stamps.incrementAndGet();
+        for (Segment segment : segments) {
+            segment.clear(stamp);
+        }
+    }
+
+    /**
+     * Gets the number of cached rows.
+     */
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.map.size();
+        }
+        return size;
+    }
+
+    /**
+     * Gets the estimated size of the cache in bytes.
+     */
+    public long getWeight() {
+        long weight = 0;
+        for (Segment segment : segments) {
+            weight += segment.weight;
+        }
+        return weight;
+    }
+
+    /**
+     * Gets the size in bytes of the direct memory allocated by the cache, it never exceeds the maximum size.
+     */
+    public long getCapacity() {
+        long capacity = 0;
+        for (Segment segment : segments) {
+            capacity += segment.capacity;
+        }
+        return capacity;
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /*
+     * ----- Serialization -----
+     */
+
+    protected static byte[] encode(Row row) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(bos)) {
+            out.writeUTF(row.tableName);
+            out.writeObject(row.id);
+            boolean collection = row.isCollection();
+            out.writeBoolean(collection);
+            if (collection) {
+                out.writeObject(row.values);
+            } else {
+                out.writeInt(row.size);
+                for (int i = 0; i < row.size; i++) {
+                    out.writeUTF(row.keys[i]);
+                    out.writeObject(row.values[i]);
+                }
+            }
+        } catch (IOException e) {
+            throw new NuxeoException("Cannot serialize row: " + row, e);
+        }
+        return bos.toByteArray();
+    }
+
+    protected static Row decode(byte[] bytes) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            // the Row constructors intern table names and keys
+            String tableName = in.readUTF();
+            Serializable id = (Serializable) in.readObject();
+            if (in.readBoolean()) {
+                return new Row(tableName, id, (Serializable[]) in.readObject());
+            }
+            Row row = new Row(tableName, id);
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                String key = in.readUTF();
+                row.putNew(key, (Serializable) in.readObject());
+            }
+            return row;
+        } catch (IOException | ClassNotFoundException e) {
+            throw new NuxeoException("Cannot deserialize row", e);
+        }
+    }
+
+    protected static int chunksFor(int length) {
+        return (length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    }
+
+    protected static class Entry {
+
+        protected final RowId key;
+
+        /** Chunks of the serialized row, {@code null} for an absent row. */
+        protected final int[] chunks;
+
+        /** Length of the serialized row. */
+        protected final int length;
+
+        protected final int weight;
+
+        protected volatile boolean referenced;
+
+        // guarded by the segment lock
+        protected boolean removed;
+
+        protected Entry(RowId key, int[] chunks, int length) {
+            this.key = key;
+            this.chunks = chunks;
+            this.length = length;
+            weight = ENTRY_OVERHEAD + (chunks == null ? 0 : chunks.length * CHUNK_SIZE);
+        }
+    }
+
+    protected class Segment {
+
+        protected final Map<RowId, Entry> map = new ConcurrentHashMap<>();
+
+        protected final StampedLock lock = new StampedLock();
+
+        // guarded by lock, insertion order of entries, may contain removed entries
+        protected final ArrayDeque<Entry> queue = new ArrayDeque<>();
+
+        // guarded by lock for writes
+        protected volatile long weight;
+
+        // guarded by lock for writes
+        protected volatile long capacity;
+
+        // guarded by lock
+        protected long invalidationStamp;
+
+        /** Slabs of direct memory, allocated on demand. */
+        protected final ByteBuffer[] slabs = new ByteBuffer[(maxSegmentChunks + chunksPerSlab - 1) / chunksPerSlab];
+
+        // guarded by lock, number of chunks taken from the slabs so far
+        protected int usedChunks;
+
+        // guarded by lock, chunks taken from the slabs then released
+        protected int[] freeChunks = new int[16];
+
+        // guarded by lock
+        protected int freeCount;
+
+        protected Row get(RowId rowId, Row absent) {
+            long stamp = lock.tryOptimisticRead();
+            Entry entry = map.get(rowId);
+            if (entry == null) {
+                return null;
+            }
+            if (!entry.referenced) {
+                entry.referenced = true;
+            }
+            if (entry.chunks == null) {
+                return absent;
+            }
+            byte[] bytes = read(entry);
+            if (!lock.validate(stamp)) {
+                // the chunks may have been reused by a concurrent write, read again under the lock
+                stamp = lock.readLock();
+                try {
+                    entry = map.get(rowId);
+                    if (entry == null) {
+                        return null;
+                    }
+                    if (entry.chunks == null) {
+                        return absent;
+                    }
+                    bytes = read(entry);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return decode(bytes);
+        }
+
+        protected byte[] read(Entry entry) {
+            byte[] bytes = new byte[entry.length];
+            int pos = 0;
+            for (int chunk : entry.chunks) {
+                // duplicate to have a position independent of concurrent readers
+                ByteBuffer buffer = slabs[chunk / chunksPerSlab].duplicate();
+                buffer.position((chunk % chunksPerSlab) * CHUNK_SIZE);
+                int length = Math.min(CHUNK_SIZE, bytes.length - pos);
+                buffer.get(bytes, pos, length);
+                pos += length;
+            }
+            return bytes;
+        }
+
+        protected void put(RowId key, byte[] bytes, long stamp) {
+            long lockStamp = lock.writeLock();
+            try {
+                if (stamp < invalidationStamp) {
+                    // the value was read before an invalidation
+                    return;
+                }
+                Entry old = map.remove(key);
+                if (old != null) {
+                    release(old);
+                    weight -= old.weight;
+                }
+                int[] chunks = null;
+                if (bytes != null) {
+                    int count = chunksFor(bytes.length);
+                    if (ENTRY_OVERHEAD + (long) count * CHUNK_SIZE > maxSegmentWeight) {
+                        // too large to be cached
+                        return;
+                    }
+                    chunks = new int[count];
+                }
+                Entry entry = new Entry(key, chunks, bytes == null ? 0 : bytes.length);
+                // free enough chunks, the weight bounds the number of chunks used
+                weight = evict(weight + entry.weight);
+                if (bytes != null) {
+                    write(bytes, chunks);
+                }
+                map.put(key, entry);
+                queue.addLast(entry);
+                if (queue.size() > 2 * map.size() + 16) {
+                    queue.removeIf(e -> e.removed);
+                }
+            } finally {
+                lock.unlockWrite(lockStamp);
+            }
+        }
+
+        // called with lock held
+        protected void write(byte[] bytes, int[] chunks) {
+            int pos = 0;
+            for (int i = 0; i < chunks.length; i++) {
+                int chunk = allocateChunk();
+                chunks[i] = chunk;
+                // the slab position is only used by writers, readers work on duplicates
+                ByteBuffer slab = slabs[chunk / chunksPerSlab];
+                slab.position((chunk % chunksPerSlab) * CHUNK_SIZE);
+                int length = Math.min(CHUNK_SIZE, bytes.length - pos);
+                slab.put(bytes, pos, length);
+                pos += length;
+            }
+        }
+
+        // called with lock held
+        protected int allocateChunk() {
+            if (freeCount > 0) {
+                return freeChunks[--freeCount];
+            }
+            if (usedChunks >= maxSegmentChunks) {
+                // cannot happen as long as the weight is bounded
+                throw new IllegalStateException("No more chunks");
+            }
+            int chunk = usedChunks++;
+            int slab = chunk / chunksPerSlab;
+            if (slabs[slab] == null) {
+                int chunks = Math.min(chunksPerSlab, maxSegmentChunks - slab * chunksPerSlab);
+                slabs[slab] = ByteBuffer.allocateDirect(chunks * CHUNK_SIZE);
+                capacity += chunks * CHUNK_SIZE;
+            }
+            return chunk;
+        }
+
+        // called with lock held, returns the chunks of a removed entry to the free list
+        protected void release(Entry entry) {
+            entry.removed = true;
+            if (entry.chunks == null) {
+                return;
+            }
+            if (freeCount + entry.chunks.length > freeChunks.length) {
+                freeChunks = Arrays.copyOf(freeChunks,
+                        Math.max(freeCount + entry.chunks.length, Math.min(2 * freeChunks.length, usedChunks)));
+            }
+            for (int chunk : entry.chunks) {
+                freeChunks[freeCount++] = chunk;
+            }
+        }
+
+        // called with lock held
+        protected long evict(long w) {
+            while (w > maxSegmentWeight) {
+                Entry entry = queue.pollFirst();
+                if (entry == null) {
+                    break;
+                }
+                if (entry.removed) {
+                    continue;
+                }
+                if (entry.referenced) {
+                    // second chance
+                    entry.referenced = false;
+                    queue.addLast(entry);
+                    continue;
+                }
+                map.remove(entry.key);
+                release(entry);
+                w -= entry.weight;
+                evictions.incrementAndGet();
+            }
+            return w;
+        }
+
+        protected void invalidate(RowId rowId, long stamp) {
+            long lockStamp = lock.writeLock();
+            try {
+                invalidationStamp = stamp;
+                Entry old = map.remove(rowId);
+                if (old != null) {
+                    release(old);
+                    weight -= old.weight;
+                }
+            } finally {
+                lock.unlockWrite(lockStamp);
+            }
+        }
+
+        protected void clear(long stamp) {
+            long lockStamp = lock.writeLock();
+            try {
+                invalidationStamp = stamp;
+                map.clear();
+                queue.clear();
+                weight = 0;
+                // the slabs are kept and their chunks reused from the start
+                usedChunks = 0;
+                freeCount = 0;
+            } finally {
+                lock.unlockWrite(lockStamp);
+            }
+        }
+    }
+}
@@ -39,6 +39,7 @@ import org.nuxeo.ecm.core.storage.lock.LockManagerService;
 import org.nuxeo.ecm.core.storage.sql.Session.PathResolver;
 import org.nuxeo.ecm.core.storage.sql.jdbc.JDBCBackend;
 import org.nuxeo.ecm.core.storage.sql.jdbc.JDBCClusterInvalidator;
+import org.nuxeo.ecm.core.storage.sql.jdbc.dialect.Dialect;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.cluster.ClusterService;
 import org.nuxeo.runtime.metrics.MetricsService;
@@ -186,6 +187,20 @@ public class RepositoryImpl implements Repository {
         return repositoryDescriptor;
     }
 
+    /**
+     * Checks whether the document ids are random UUIDs stored as strings, which is the case unless another id type is
+     * configured.
+     *
+     * @since 11.2
+     */
+    public boolean hasHexadecimalStringIds() {
+        if (Dialect.DEBUG_UUIDS) {
+            return false;
+        }
+        String idType = repositoryDescriptor.idType;
+        return idType == null || idType.isEmpty() || "varchar".equalsIgnoreCase(idType);
+    }
+
     public LockManager getLockManager() {
         return lockManager;
     }
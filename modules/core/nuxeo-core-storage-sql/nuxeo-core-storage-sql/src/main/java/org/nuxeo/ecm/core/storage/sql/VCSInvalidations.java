@@ -23,10 +23,16 @@ import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
+import java.io.PushbackInputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
+import org.nuxeo.runtime.pubsub.CompactEncoding;
 import org.nuxeo.runtime.pubsub.SerializableAccumulableInvalidations;
 
 /**
@@ -80,6 +86,11 @@ public class VCSInvalidations implements SerializableAccumulableInvalidations {
         return modified == null && deleted == null && !all;
     }
 
+    @Override
+    public int size() {
+        return (modified == null ? 0 : modified.size()) + (deleted == null ? 0 : deleted.size());
+    }
+
     public void clear() {
         all = false;
         modified = null;
@@ -177,7 +188,16 @@ public class VCSInvalidations implements SerializableAccumulableInvalidations {
         checkMaxSize();
     }
 
-    // TODO do a more fine-grained serialization than using ObjectOutputStream
+    /**
+     * First byte of the compact format, a Java serialization stream always starts with 0xACED.
+     *
+     * @since 11.2
+     */
+    protected static final int COMPACT_FORMAT = 'C';
+
+    protected static final int STRING_ID = 'S';
+
+    protected static final int LONG_ID = 'L';
 
     @Override
     public void serialize(OutputStream out) throws IOException {
@@ -186,14 +206,129 @@ public class VCSInvalidations implements SerializableAccumulableInvalidations {
         }
     }
 
+    /**
+     * Serializes the invalidations in a compact binary format, where table names are written once and ids are
+     * encoded with {@link CompactEncoding}. Invalidations with ids that are neither strings nor longs use Java
+     * serialization.
+     */
+    @Override
+    public void serializeCompact(OutputStream out) throws IOException {
+        if (!isCompactable(modified) || !isCompactable(deleted)) {
+            serialize(out);
+            return;
+        }
+        out.write(COMPACT_FORMAT);
+        out.write(all ? 1 : 0);
+        if (all) {
+            return;
+        }
+        Map<String, Integer> tableIndexes = new HashMap<>();
+        writeRowIds(out, modified, tableIndexes);
+        writeRowIds(out, deleted, tableIndexes);
+    }
+
+    protected static boolean isCompactable(Set<RowId> rowIds) {
+        if (rowIds == null) {
+            return true;
+        }
+        for (RowId rowId : rowIds) {
+            if (rowId.tableName == null || !(rowId.id instanceof String || rowId.id instanceof Long)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected static void writeRowIds(OutputStream out, Set<RowId> rowIds, Map<String, Integer> tableIndexes)
+            throws IOException {
+        if (rowIds == null) {
+            CompactEncoding.writeVarInt(out, 0);
+            return;
+        }
+        CompactEncoding.writeVarInt(out, rowIds.size());
+        for (RowId rowId : rowIds) {
+            // a table name is written the first time only, then referenced by its index + 1
+            Integer index = tableIndexes.get(rowId.tableName);
+            if (index == null) {
+                tableIndexes.put(rowId.tableName, tableIndexes.size());
+                CompactEncoding.writeVarInt(out, 0);
+                CompactEncoding.writeString(out, rowId.tableName);
+            } else {
+                CompactEncoding.writeVarInt(out, index + 1);
+            }
+            if (rowId.id instanceof Long) {
+                out.write(LONG_ID);
+                CompactEncoding.writeLong(out, (Long) rowId.id);
+            } else {
+                out.write(STRING_ID);
+                CompactEncoding.writeId(out, (String) rowId.id);
+            }
+        }
+    }
+
     public static VCSInvalidations deserialize(InputStream in) throws IOException {
-        try (ObjectInputStream oin = new ObjectInputStream(in)) {
+        PushbackInputStream pin = new PushbackInputStream(in, 1);
+        int first = pin.read();
+        if (first == COMPACT_FORMAT) {
+            return deserializeCompact(pin);
+        }
+        if (first != -1) {
+            pin.unread(first);
+        }
+        try (ObjectInputStream oin = new ObjectInputStream(pin)) {
             return (VCSInvalidations) oin.readObject();
         } catch (ClassNotFoundException | ClassCastException e) {
             throw new IOException(e);
         }
     }
 
+    protected static VCSInvalidations deserializeCompact(InputStream in) throws IOException {
+        int all = in.read();
+        if (all == -1) {
+            throw new IOException("Truncated invalidations");
+        }
+        VCSInvalidations invalidations = new VCSInvalidations(all == 1);
+        if (invalidations.all) {
+            return invalidations;
+        }
+        List<String> tableNames = new ArrayList<>();
+        invalidations.modified = readRowIds(in, tableNames);
+        invalidations.deleted = readRowIds(in, tableNames);
+        invalidations.checkMaxSize();
+        return invalidations;
+    }
+
+    protected static Set<RowId> readRowIds(InputStream in, List<String> tableNames) throws IOException {
+        int size = CompactEncoding.readVarInt(in);
+        if (size == 0) {
+            return null;
+        }
+        Set<RowId> rowIds = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            int ref = CompactEncoding.readVarInt(in);
+            String tableName;
+            if (ref == 0) {
+                tableName = CompactEncoding.readString(in);
+                tableNames.add(tableName);
+            } else if (ref <= tableNames.size()) {
+                tableName = tableNames.get(ref - 1);
+            } else {
+                throw new IOException("Invalid table reference: " + ref);
+            }
+            int type = in.read();
+            Serializable id;
+            if (type == LONG_ID) {
+                id = Long.valueOf(CompactEncoding.readLong(in));
+            } else if (type == STRING_ID) {
+                id = CompactEncoding.readId(in);
+            } else {
+                throw new IOException("Invalid id type: " + type);
+            }
+            rowIds.add(new RowId(tableName, id));
+        }
+        return rowIds;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder(this.getClass().getSimpleName() + '(');
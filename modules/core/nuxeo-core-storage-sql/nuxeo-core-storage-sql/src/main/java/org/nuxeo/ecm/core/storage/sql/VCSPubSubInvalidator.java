@@ -35,6 +35,11 @@ public class VCSPubSubInvalidator extends AbstractPubSubInvalidationsAccumulator
         return new VCSInvalidations();
     }
 
+    @Override
+    public VCSInvalidations newAllInvalidations() {
+        return new VCSInvalidations(true);
+    }
+
     @Override
     public void initialize(String nodeId, RepositoryImpl repository) {
         initialize("vcs:" + repository.getName(), nodeId);
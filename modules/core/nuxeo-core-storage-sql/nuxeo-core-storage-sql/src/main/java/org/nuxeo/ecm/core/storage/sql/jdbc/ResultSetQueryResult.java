@@ -49,6 +49,9 @@ public class ResultSetQueryResult implements IterableQueryResult, Iterator<Map<S
 
     private long size = -1;
 
+    /** A forward-only cursor fetching rows by batches, that cannot compute its size nor go back. */
+    private boolean forwardOnly;
+
     private final JDBCLogger logger;
 
     public ResultSetQueryResult(QueryMaker queryMaker, String query, QueryFilter queryFilter, PathResolver pathResolver,
@@ -68,8 +71,16 @@ public class ResultSetQueryResult implements IterableQueryResult, Iterator<Map<S
         if (logger.isLogEnabled()) {
             logger.logSQL(q.selectInfo.sql, q.selectParams);
         }
-        ps = mapper.connection.prepareStatement(q.selectInfo.sql, ResultSet.TYPE_SCROLL_INSENSITIVE,
-                ResultSet.CONCUR_READ_ONLY);
+        int fetchSize = queryFilter.getFetchSize();
+        forwardOnly = fetchSize > 0;
+        if (forwardOnly) {
+            ps = mapper.connection.prepareStatement(q.selectInfo.sql, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+        } else {
+            ps = mapper.connection.prepareStatement(q.selectInfo.sql, ResultSet.TYPE_SCROLL_INSENSITIVE,
+                    ResultSet.CONCUR_READ_ONLY);
+        }
         int i = 1;
         for (Serializable object : q.selectParams) {
             mapper.setToPreparedStatement(ps, i++, object);
@@ -136,7 +147,7 @@ public class ResultSetQueryResult implements IterableQueryResult, Iterator<Map<S
 
     @Override
     public long size() {
-        if (size != -1) {
+        if (size != -1 || forwardOnly) {
             return size;
         }
         checkNotClosed();
@@ -169,6 +180,10 @@ public class ResultSetQueryResult implements IterableQueryResult, Iterator<Map<S
     @Override
     public void skipTo(long pos) {
         checkNotClosed();
+        if (forwardOnly) {
+            skipForwardTo(pos);
+            return;
+        }
         try {
             boolean available = rs.absolute((int) pos + 1);
             if (available) {
@@ -186,6 +201,23 @@ public class ResultSetQueryResult implements IterableQueryResult, Iterator<Map<S
         }
     }
 
+    /**
+     * Skips forward to the given position. If the result has fewer rows, the position is left at the end of the
+     * result, and the size of the result is then known.
+     */
+    protected void skipForwardTo(long pos) {
+        if (pos < this.pos) {
+            throw new IllegalStateException("Cannot skip backward to: " + pos + " from: " + this.pos);
+        }
+        while (this.pos < pos && hasNext()) {
+            next();
+        }
+        if (this.pos < pos) {
+            // end of the result
+            size = this.pos;
+        }
+    }
+
     @Override
     public Iterator<Map<String, Serializable>> iterator() {
         checkNotClosed();
@@ -172,6 +172,12 @@ public class ConnectionFactoryImpl implements Repository, org.nuxeo.ecm.core.mod
         return managedConnectionFactory.getFulltextConfiguration();
     }
 
+    /** @since 11.2 */
+    @Override
+    public boolean hasHexadecimalStringIds() {
+        return managedConnectionFactory.hasHexadecimalStringIds();
+    }
+
     /*
      * ----- org.nuxeo.ecm.core.model.RepositoryManagement -----
      */
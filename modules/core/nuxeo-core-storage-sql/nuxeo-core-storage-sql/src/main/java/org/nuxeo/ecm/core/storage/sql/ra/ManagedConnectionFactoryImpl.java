@@ -233,6 +233,11 @@ public class ManagedConnectionFactoryImpl implements ManagedConnectionFactory, R
         return repository.getFulltextConfiguration();
     }
 
+    /** @since 11.2 */
+    public boolean hasHexadecimalStringIds() {
+        return repository != null && repository.hasHexadecimalStringIds();
+    }
+
     /*
      * ----- -----
      */
@@ -0,0 +1,195 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.Serializable;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.nuxeo.ecm.core.storage.sql.RowMapper.RowBatch;
+import org.nuxeo.ecm.core.storage.sql.RowMapper.RowUpdate;
+
+/**
+ * Tests the transactional behavior of the {@link OffHeapCachingRowMapper}: rows written by a transaction are not
+ * shared until it ends, and are invalidated on commit and rollback.
+ */
+public class TestOffHeapCachingRowMapper {
+
+    /** The database, it doesn't isolate transactions. */
+    protected Map<RowId, Row> database;
+
+    protected int databaseReads;
+
+    protected VCSInvalidationsPropagator propagator;
+
+    protected OffHeapCachingRowMapper mapper1;
+
+    protected OffHeapCachingRowMapper mapper2;
+
+    @Before
+    public void setUp() {
+        database = new HashMap<>();
+        databaseReads = 0;
+        propagator = new VCSInvalidationsPropagator();
+        mapper1 = newMapper();
+        mapper2 = newMapper();
+    }
+
+    @After
+    public void tearDown() {
+        mapper1.close();
+        mapper2.close();
+    }
+
+    protected OffHeapCachingRowMapper newMapper() {
+        OffHeapCachingRowMapper mapper = new OffHeapCachingRowMapper();
+        mapper.initialize("test", null, newDatabaseMapper(), propagator, new HashMap<>());
+        return mapper;
+    }
+
+    /**
+     * A {@link RowMapper} reading and writing simple rows in the database.
+     */
+    protected RowMapper newDatabaseMapper() {
+        return (RowMapper) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { RowMapper.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                    case "readSimpleRow":
+                        databaseReads++;
+                        Row row = database.get(new RowId((RowId) args[0]));
+                        return row == null ? null : row.clone();
+                    case "write":
+                        RowBatch batch = (RowBatch) args[0];
+                        batch.creates.forEach(r -> database.put(new RowId(r), r.clone()));
+                        batch.updates.forEach(u -> database.put(new RowId(u.row), u.row.clone()));
+                        batch.deletes.forEach(database::remove);
+                        return null;
+                    case "receiveInvalidations":
+                        return null;
+                    case "sendInvalidations":
+                    case "clearCache":
+                    case "rollback":
+                        return null;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    protected static Row newRow(String id, String title) {
+        Row row = new Row("dublincore", id);
+        row.putNew("title", title);
+        return row;
+    }
+
+    protected static RowId rowId(String id) {
+        return new RowId("dublincore", id);
+    }
+
+    protected static String readTitle(OffHeapCachingRowMapper mapper, String id) {
+        Row row = mapper.readSimpleRow(rowId(id));
+        return row == null ? null : (String) row.get("title");
+    }
+
+    protected static void update(OffHeapCachingRowMapper mapper, String id, String title) {
+        RowBatch batch = new RowBatch();
+        batch.updates.add(new RowUpdate(newRow(id, title)));
+        mapper.write(batch);
+    }
+
+    @Test
+    public void testSharedCache() {
+        database.put(rowId("id1"), newRow("id1", "foo"));
+        assertEquals("foo", readTitle(mapper1, "id1"));
+        assertEquals(1, databaseReads);
+        // the second mapper reads from the shared cache
+        assertEquals("foo", readTitle(mapper2, "id1"));
+        assertEquals(1, databaseReads);
+
+        // absent rows are cached too
+        assertNull(readTitle(mapper1, "id2"));
+        assertNull(readTitle(mapper2, "id2"));
+        assertEquals(2, databaseReads);
+    }
+
+    @Test
+    public void testDirtyRowsOnCommit() {
+        database.put(rowId("id1"), newRow("id1", "foo"));
+        assertEquals("foo", readTitle(mapper2, "id1"));
+        assertEquals(1, databaseReads);
+
+        // the writing transaction reads its dirty row from the database, without caching it
+        update(mapper1, "id1", "bar");
+        assertEquals("bar", readTitle(mapper1, "id1"));
+        assertEquals("bar", readTitle(mapper1, "id1"));
+        assertEquals(3, databaseReads);
+
+        // another session reads an uncommitted value and caches it
+        assertEquals("bar", readTitle(mapper2, "id1"));
+        assertEquals(4, databaseReads);
+        database.put(rowId("id1"), newRow("id1", "committed"));
+
+        // on commit the rows cached before the commit are discarded
+        mapper1.sendInvalidations(null);
+        assertEquals("committed", readTitle(mapper2, "id1"));
+        assertEquals(5, databaseReads);
+        // and the rows are not dirty anymore for the writer
+        assertEquals("committed", readTitle(mapper1, "id1"));
+        assertEquals(5, databaseReads);
+    }
+
+    @Test
+    public void testDirtyRowsOnRollback() throws Exception {
+        database.put(rowId("id1"), newRow("id1", "foo"));
+        assertEquals("foo", readTitle(mapper1, "id1"));
+
+        update(mapper1, "id1", "bar");
+        // another session reads an uncommitted value and caches it
+        assertEquals("bar", readTitle(mapper2, "id1"));
+        int reads = databaseReads;
+
+        // the database rolls back, then the mapper
+        database.put(rowId("id1"), newRow("id1", "foo"));
+        mapper1.rollback(null);
+        assertEquals("foo", readTitle(mapper2, "id1"));
+        assertEquals(reads + 1, databaseReads);
+        assertEquals("foo", readTitle(mapper1, "id1"));
+        assertEquals(reads + 1, databaseReads);
+    }
+
+    @Test
+    public void testCreateInvalidatesAbsent() {
+        assertNull(readTitle(mapper2, "id1"));
+
+        RowBatch batch = new RowBatch();
+        batch.creates.add(newRow("id1", "foo"));
+        mapper1.write(batch);
+        mapper1.sendInvalidations(null);
+
+        assertEquals("foo", readTitle(mapper2, "id1"));
+    }
+
+}
@@ -0,0 +1,208 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+public class TestOffHeapRowCache {
+
+    protected static final Row ABSENT = new Row("absent", (Serializable) null);
+
+    protected static Row newRow(String id, String title) {
+        Row row = new Row("dublincore", id);
+        row.putNew("title", title);
+        row.putNew("count", Long.valueOf(42));
+        return row;
+    }
+
+    @Test
+    public void testPutGet() {
+        OffHeapRowCache cache = new OffHeapRowCache(1024 * 1024, 4);
+        RowId rowId = new RowId("dublincore", "id1");
+        assertNull(cache.get(rowId, ABSENT));
+
+        Row row = newRow("id1", "foo");
+        cache.put(row, cache.getStamp());
+        Row cached = cache.get(rowId, ABSENT);
+        assertNotSame(row, cached);
+        assertEquals("dublincore", cached.tableName);
+        assertSame("table name is interned", "dublincore", cached.tableName);
+        assertEquals("id1", cached.id);
+        assertEquals("foo", cached.get("title"));
+        assertEquals(Long.valueOf(42), cached.get("count"));
+        assertEquals(1, cache.size());
+
+        // collection
+        Row collection = new Row("subjects", "id1", new Serializable[] { "a", "b" });
+        cache.put(collection, cache.getStamp());
+        cached = cache.get(new RowId("subjects", "id1"), ABSENT);
+        assertTrue(cached.isCollection());
+        assertArrayEquals(new Serializable[] { "a", "b" }, cached.values);
+
+        // absent
+        RowId absentId = new RowId("dublincore", "id2");
+        cache.putAbsent(absentId, cache.getStamp());
+        assertSame(ABSENT, cache.get(absentId, ABSENT));
+        assertEquals(3, cache.size());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getWeight());
+    }
+
+    @Test
+    public void testInvalidation() {
+        OffHeapRowCache cache = new OffHeapRowCache(1024 * 1024, 4);
+        RowId rowId = new RowId("dublincore", "id1");
+        cache.put(newRow("id1", "foo"), cache.getStamp());
+
+        // a value read before an invalidation is not cached
+        long stamp = cache.getStamp();
+        cache.invalidate(rowId);
+        assertNull(cache.get(rowId, ABSENT));
+        cache.put(newRow("id1", "stale"), stamp);
+        assertNull(cache.get(rowId, ABSENT));
+
+        // a value read after the invalidation is cached
+        cache.put(newRow("id1", "bar"), cache.getStamp());
+        assertEquals("bar", cache.get(rowId, ABSENT).get("title"));
+    }
+
+    @Test
+    public void testEviction() {
+        int maxWeight = 64 * 1024;
+        OffHeapRowCache cache = new OffHeapRowCache(maxWeight, 1);
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(newRow("id" + i, "title" + i), cache.getStamp());
+            // keep the first row referenced
+            assertEquals("title0", cache.get(new RowId("dublincore", "id0"), ABSENT).get("title"));
+        }
+        assertTrue(cache.getWeight() <= maxWeight);
+        assertTrue(cache.getEvictionCount() > 0);
+        assertEquals(10_000, cache.size() + cache.getEvictionCount());
+        assertNull(cache.get(new RowId("dublincore", "id1"), ABSENT));
+    }
+
+    @Test
+    public void testDirectMemoryIsBounded() {
+        int maxWeight = 256 * 1024;
+        OffHeapRowCache cache = new OffHeapRowCache(maxWeight, 4);
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(newRow("id" + i, StringUtils.repeat('x', i % 500)), cache.getStamp());
+        }
+        long capacity = cache.getCapacity();
+        assertTrue(capacity > 0);
+        assertTrue(capacity <= maxWeight);
+        assertTrue(cache.getWeight() <= maxWeight);
+        assertTrue(cache.getEvictionCount() > 0);
+
+        // chunks of evicted, replaced and invalidated rows are reused
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(newRow("id" + i, StringUtils.repeat('y', 500 - i % 500)), cache.getStamp());
+            cache.invalidate(new RowId("dublincore", "id" + (i / 2)));
+        }
+        assertEquals(capacity, cache.getCapacity());
+        assertTrue(cache.getWeight() <= maxWeight);
+
+        // the cached rows are intact
+        for (int i = 0; i < 10_000; i++) {
+            Row row = cache.get(new RowId("dublincore", "id" + i), ABSENT);
+            if (row != null) {
+                assertEquals(StringUtils.repeat('y', 500 - i % 500), row.get("title"));
+            }
+        }
+
+        cache.clear();
+        assertEquals(0, cache.getWeight());
+        assertEquals(capacity, cache.getCapacity());
+        cache.put(newRow("id1", "foo"), cache.getStamp());
+        assertEquals("foo", cache.get(new RowId("dublincore", "id1"), ABSENT).get("title"));
+    }
+
+    @Test
+    public void testTooLarge() {
+        OffHeapRowCache cache = new OffHeapRowCache(4096, 1);
+        RowId rowId = new RowId("dublincore", "id1");
+        cache.put(newRow("id1", "foo"), cache.getStamp());
+        assertEquals("foo", cache.get(rowId, ABSENT).get("title"));
+
+        // a row larger than the segment is not cached and replaces the previous value
+        cache.put(newRow("id1", StringUtils.repeat('x', 8192)), cache.getStamp());
+        assertNull(cache.get(rowId, ABSENT));
+        assertEquals(0, cache.getWeight());
+    }
+
+    @Test
+    public void testConcurrentReadWrite() throws Exception {
+        // small cache so that chunks are constantly reused while reading
+        OffHeapRowCache cache = new OffHeapRowCache(64 * 1024, 1);
+        int nbRows = 1000;
+        AtomicBoolean stop = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            futures.add(executor.submit(() -> {
+                for (int n = 0; !stop.get(); n++) {
+                    String id = "id" + n % nbRows;
+                    // the title is derived from the id so that readers can check consistency
+                    cache.put(newRow(id, StringUtils.repeat(id, 1 + n % 20)), cache.getStamp());
+                }
+            }));
+            for (int t = 0; t < 3; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int n = 0; !stop.get(); n++) {
+                        String id = "id" + n % nbRows;
+                        Row row = cache.get(new RowId("dublincore", id), ABSENT);
+                        if (row != null) {
+                            assertEquals(id, row.id);
+                            String title = (String) row.get("title");
+                            assertEquals(title, StringUtils.repeat(id, title.length() / id.length()));
+                        }
+                    }
+                }));
+            }
+            Thread.sleep(1000);
+            stop.set(true);
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            stop.set(true);
+            executor.shutdownNow();
+        }
+        assertTrue(cache.getCapacity() <= 64 * 1024);
+    }
+}
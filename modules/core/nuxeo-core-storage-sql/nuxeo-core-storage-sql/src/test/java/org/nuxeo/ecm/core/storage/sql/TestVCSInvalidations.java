@@ -0,0 +1,85 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.core.storage.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectStreamConstants;
+
+import org.junit.Test;
+
+public class TestVCSInvalidations {
+
+    protected static VCSInvalidations roundTrip(VCSInvalidations invals) throws IOException {
+        ByteArrayOutputStream baout = new ByteArrayOutputStream();
+        invals.serializeCompact(baout);
+        return VCSInvalidations.deserialize(new ByteArrayInputStream(baout.toByteArray()));
+    }
+
+    @Test
+    public void testCompactSerialization() throws IOException {
+        VCSInvalidations invals = new VCSInvalidations();
+        invals.addModified(new RowId("hierarchy", "0b5b4bc8-6ea0-4a3b-9c4b-1d4b5bd5a7e3"));
+        invals.addModified(new RowId("dublincore", "0b5b4bc8-6ea0-4a3b-9c4b-1d4b5bd5a7e3"));
+        invals.addModified(new RowId("hierarchy", "foo"));
+        invals.addDeleted(new RowId("hierarchy", Long.valueOf(123)));
+
+        ByteArrayOutputStream baout = new ByteArrayOutputStream();
+        invals.serializeCompact(baout);
+        assertEquals('C', baout.toByteArray()[0]);
+
+        VCSInvalidations result = roundTrip(invals);
+        assertEquals(invals.modified, result.modified);
+        assertEquals(invals.deleted, result.deleted);
+        assertEquals(4, result.size());
+
+        result = roundTrip(new VCSInvalidations());
+        assertTrue(result.isEmpty());
+
+        result = roundTrip(new VCSInvalidations(true));
+        assertTrue(result.all);
+        assertNull(result.modified);
+    }
+
+    @Test
+    public void testJavaSerialization() throws IOException {
+        VCSInvalidations invals = new VCSInvalidations();
+        invals.addModified(new RowId("hierarchy", "foo"));
+
+        // default format
+        ByteArrayOutputStream baout = new ByteArrayOutputStream();
+        invals.serialize(baout);
+        byte[] bytes = baout.toByteArray();
+        assertEquals((byte) (ObjectStreamConstants.STREAM_MAGIC >> 8), bytes[0]);
+        VCSInvalidations result = VCSInvalidations.deserialize(new ByteArrayInputStream(bytes));
+        assertEquals(invals.modified, result.modified);
+
+        // ids that cannot be written in the compact format
+        invals = new VCSInvalidations();
+        invals.addModified(new RowId("hierarchy", Integer.valueOf(1)));
+        result = roundTrip(invals);
+        assertEquals(invals.modified, result.modified);
+    }
+
+}
@@ -18,12 +18,14 @@
  */
 package org.nuxeo.ecm.core.storage;
 
+import java.io.ObjectStreamException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
@@ -42,6 +44,9 @@ import com.google.common.collect.ImmutableSet;
  * Abstraction for a Map<String, Serializable> that is Serializable.
  * <p>
  * Internal storage is optimized to avoid a full {@link HashMap} when there is a small number of keys.
+ * <p>
+ * A compact storage is also available for states that are kept in memory for a long time, see {@link #newCompact}.
+ * It uses the key slots of {@link StateKeySlots} and primitive arrays for longs, booleans, doubles and calendars.
  *
  * @since 5.9.5
  */
@@ -66,6 +71,19 @@ public class State implements StateAccessor, Serializable {
 
     private static final String[] EMPTY_STRING_ARRAY = new String[0];
 
+    // kinds of values in compact storage
+    private static final byte KIND_OBJECT = 0;
+
+    private static final byte KIND_LONG = 1;
+
+    private static final byte KIND_TRUE = 2;
+
+    private static final byte KIND_FALSE = 3;
+
+    private static final byte KIND_DOUBLE = 4;
+
+    private static final byte KIND_CALENDAR = 5;
+
     /** Initial key order for the {@link #toString} method. */
     private static final Set<String> TO_STRING_KEY_ORDER = new LinkedHashSet<>(Arrays.asList(
             new String[] { "ecm:id", "ecm:primaryType", "ecm:name", "ecm:parentId", "ecm:isVersion", "ecm:isProxy" }));
@@ -156,6 +174,18 @@ public class State implements StateAccessor, Serializable {
 
     protected List<Serializable> values;
 
+    // else use compact storage: sorted key slots and values by kind
+    protected transient int[] slots;
+
+    protected transient byte[] kinds;
+
+    // allocated on first primitive value
+    protected transient long[] prims;
+
+    protected transient Serializable[] objs;
+
+    protected transient int count;
+
     /**
      * Private constructor with explicit map.
      */
@@ -204,6 +234,32 @@ public class State implements StateAccessor, Serializable {
         }
     }
 
+    /**
+     * Creates an empty state using compact storage.
+     * <p>
+     * Compact storage uses less memory for states having many keys or many primitive values, at the expense of
+     * boxing on reads. It is meant for states kept in memory, like cached states.
+     *
+     * @param size the expected number of keys
+     * @since 11.2
+     */
+    public static State newCompact(int size) {
+        State state = new State((Map<String, Serializable>) null);
+        state.slots = new int[size];
+        state.kinds = new byte[size];
+        state.objs = new Serializable[size];
+        return state;
+    }
+
+    /**
+     * Checks if this state uses compact storage.
+     *
+     * @since 11.2
+     */
+    public boolean isCompact() {
+        return slots != null;
+    }
+
     protected static int initialCapacity(int size) {
         return Math.max((int) (size / HASHMAP_DEFAULT_LOAD_FACTOR) + 1, HASHMAP_DEFAULT_INITIAL_CAPACITY);
     }
@@ -214,6 +270,8 @@ public class State implements StateAccessor, Serializable {
     public int size() {
         if (map != null) {
             return map.size();
+        } else if (slots != null) {
+            return count;
         } else {
             return keys.size();
         }
@@ -225,6 +283,8 @@ public class State implements StateAccessor, Serializable {
     public boolean isEmpty() {
         if (map != null) {
             return map.isEmpty();
+        } else if (slots != null) {
+            return count == 0;
         } else {
             return keys.isEmpty();
         }
@@ -236,6 +296,9 @@ public class State implements StateAccessor, Serializable {
     public Serializable get(Object key) {
         if (map != null) {
             return map.get(key);
+        } else if (slots != null) {
+            int i = compactIndexOf(key);
+            return i >= 0 ? compactValue(i) : null;
         } else {
             int i = keys.indexOf(key);
             return i >= 0 ? values.get(i) : null;
@@ -252,6 +315,11 @@ public class State implements StateAccessor, Serializable {
             // this is ok given our semantics of null vs absent key
             if (map != null) {
                 map.remove(key);
+            } else if (slots != null) {
+                int i = compactIndexOf(key);
+                if (i >= 0) {
+                    compactRemove(i);
+                }
             } else {
                 int i = keys.indexOf(key);
                 if (i >= 0) {
@@ -268,6 +336,20 @@ public class State implements StateAccessor, Serializable {
     protected void putEvenIfNull(String key, Serializable value) {
         if (map != null) {
             map.put(key, value);
+        } else if (slots != null) {
+            int slot = StateKeySlots.getSlot(key);
+            if (slot < 0) {
+                // no more slots, switch to a full HashMap
+                uncompact();
+                map.put(key, value);
+                return;
+            }
+            int i = Arrays.binarySearch(slots, 0, count, slot);
+            if (i < 0) {
+                i = -i - 1;
+                compactInsert(i, slot);
+            }
+            compactSet(i, value);
         } else {
             int i = keys.indexOf(key);
             if (i >= 0) {
@@ -300,6 +382,15 @@ public class State implements StateAccessor, Serializable {
     public Serializable remove(Object key) {
         if (map != null) {
             return map.remove(key);
+        } else if (slots != null) {
+            int i = compactIndexOf(key);
+            if (i >= 0) {
+                Serializable value = compactValue(i);
+                compactRemove(i);
+                return value;
+            } else {
+                return null;
+            }
         } else {
             int i = keys.indexOf(key);
             if (i >= 0) {
@@ -317,6 +408,8 @@ public class State implements StateAccessor, Serializable {
     public Set<String> keySet() {
         if (map != null) {
             return map.keySet();
+        } else if (slots != null) {
+            return ImmutableSet.copyOf(keyArray());
         } else {
             return ImmutableSet.copyOf(keys);
         }
@@ -328,6 +421,12 @@ public class State implements StateAccessor, Serializable {
     public String[] keyArray() {
         if (map != null) {
             return map.keySet().toArray(EMPTY_STRING_ARRAY);
+        } else if (slots != null) {
+            String[] array = new String[count];
+            for (int i = 0; i < count; i++) {
+                array[i] = StateKeySlots.getKey(slots[i]);
+            }
+            return array;
         } else {
             return keys.toArray(EMPTY_STRING_ARRAY);
         }
@@ -339,6 +438,8 @@ public class State implements StateAccessor, Serializable {
     public boolean containsKey(Object key) {
         if (map != null) {
             return map.containsKey(key);
+        } else if (slots != null) {
+            return compactIndexOf(key) >= 0;
         } else {
             return keys.contains(key);
         }
@@ -355,17 +456,152 @@ public class State implements StateAccessor, Serializable {
         }
     }
 
+    protected String keyAt(int index) {
+        return keys != null ? keys.get(index) : StateKeySlots.getKey(slots[index]);
+    }
+
+    protected Serializable valueAt(int index) {
+        return keys != null ? values.get(index) : compactValue(index);
+    }
+
+    protected int compactIndexOf(Object key) {
+        int slot = StateKeySlots.peekSlot(key);
+        if (slot < 0) {
+            return -1;
+        }
+        int i = Arrays.binarySearch(slots, 0, count, slot);
+        return i >= 0 ? i : -1;
+    }
+
+    protected Serializable compactValue(int i) {
+        switch (kinds[i]) {
+        case KIND_LONG:
+            return Long.valueOf(prims[i]);
+        case KIND_TRUE:
+            return Boolean.TRUE;
+        case KIND_FALSE:
+            return Boolean.FALSE;
+        case KIND_DOUBLE:
+            return Double.valueOf(Double.longBitsToDouble(prims[i]));
+        case KIND_CALENDAR:
+            return newCalendar(prims[i]);
+        default:
+            return objs[i];
+        }
+    }
+
+    protected void compactSet(int i, Serializable value) {
+        objs[i] = null;
+        if (value instanceof Long) {
+            setPrim(i, KIND_LONG, ((Long) value).longValue());
+        } else if (value instanceof Boolean) {
+            kinds[i] = ((Boolean) value).booleanValue() ? KIND_TRUE : KIND_FALSE;
+        } else if (value instanceof Double) {
+            setPrim(i, KIND_DOUBLE, Double.doubleToRawLongBits(((Double) value).doubleValue()));
+        } else if (value instanceof GregorianCalendar && isDefaultCalendar((GregorianCalendar) value)) {
+            setPrim(i, KIND_CALENDAR, ((GregorianCalendar) value).getTimeInMillis());
+        } else {
+            kinds[i] = KIND_OBJECT;
+            objs[i] = value;
+        }
+    }
+
+    protected void setPrim(int i, byte kind, long value) {
+        if (prims == null) {
+            prims = new long[slots.length];
+        }
+        kinds[i] = kind;
+        prims[i] = value;
+    }
+
+    protected void compactInsert(int i, int slot) {
+        if (count == slots.length) {
+            int capacity = Math.max(4, count + (count >> 1));
+            slots = Arrays.copyOf(slots, capacity);
+            kinds = Arrays.copyOf(kinds, capacity);
+            objs = Arrays.copyOf(objs, capacity);
+            if (prims != null) {
+                prims = Arrays.copyOf(prims, capacity);
+            }
+        }
+        int n = count - i;
+        System.arraycopy(slots, i, slots, i + 1, n);
+        System.arraycopy(kinds, i, kinds, i + 1, n);
+        System.arraycopy(objs, i, objs, i + 1, n);
+        if (prims != null) {
+            System.arraycopy(prims, i, prims, i + 1, n);
+        }
+        slots[i] = slot;
+        count++;
+    }
+
+    protected void compactRemove(int i) {
+        int n = count - i - 1;
+        System.arraycopy(slots, i + 1, slots, i, n);
+        System.arraycopy(kinds, i + 1, kinds, i, n);
+        System.arraycopy(objs, i + 1, objs, i, n);
+        if (prims != null) {
+            System.arraycopy(prims, i + 1, prims, i, n);
+        }
+        count--;
+        objs[count] = null;
+    }
+
+    /**
+     * Switches from compact storage to a full HashMap.
+     */
+    protected void uncompact() {
+        map = new HashMap<>(initialCapacity(count + 1));
+        for (int i = 0; i < count; i++) {
+            map.put(keyAt(i), compactValue(i));
+        }
+        slots = null;
+        kinds = null;
+        prims = null;
+        objs = null;
+        count = 0;
+    }
+
+    protected static GregorianCalendar newCalendar(long millis) {
+        GregorianCalendar cal = new GregorianCalendar();
+        cal.setTimeInMillis(millis);
+        return cal;
+    }
+
+    /**
+     * Checks if a calendar can be rebuilt identically from its time only.
+     */
+    protected static boolean isDefaultCalendar(GregorianCalendar cal) {
+        return cal.getClass() == GregorianCalendar.class && cal.equals(newCalendar(cal.getTimeInMillis()));
+    }
+
+    /**
+     * Compact states are serialized as regular states, as key slots are local to the JVM.
+     *
+     * @since 11.2
+     */
+    protected Object writeReplace() throws ObjectStreamException {
+        if (slots == null) {
+            return this;
+        }
+        State state = new State(count);
+        for (int i = 0; i < count; i++) {
+            state.putEvenIfNull(keyAt(i), compactValue(i));
+        }
+        return state;
+    }
+
     /** EntrySet optimized to just return a simple Iterator on the entries. */
     protected class ArraysEntrySet implements Set<Entry<String, Serializable>> {
 
         @Override
         public int size() {
-            return keys.size();
+            return State.this.size();
         }
 
         @Override
         public boolean isEmpty() {
-            return keys.isEmpty();
+            return State.this.isEmpty();
         }
 
         @Override
@@ -430,7 +666,7 @@ public class State implements StateAccessor, Serializable {
 
         @Override
         public boolean hasNext() {
-            return index < keys.size();
+            return index < size();
         }
 
         @Override
@@ -449,12 +685,12 @@ public class State implements StateAccessor, Serializable {
 
         @Override
         public String getKey() {
-            return keys.get(index);
+            return keyAt(index);
         }
 
         @Override
         public Serializable getValue() {
-            return values.get(index);
+            return valueAt(index);
         }
 
         @Override
@@ -337,6 +337,41 @@ public class StateHelper {
         return copy;
     }
 
+    /**
+     * Makes a deep copy of a value, using compact storage for {@link State}s.
+     *
+     * @since 11.2
+     * @see State#newCompact
+     */
+    public static Serializable compactCopy(Object value) {
+        if (value instanceof State) {
+            return compactCopy((State) value);
+        } else if (value instanceof List) {
+            @SuppressWarnings("unchecked")
+            List<Serializable> list = (List<Serializable>) value;
+            List<Serializable> copy = new ArrayList<>(list.size());
+            for (Serializable v : list) {
+                copy.add(compactCopy(v));
+            }
+            return (Serializable) copy;
+        }
+        return deepCopy(value);
+    }
+
+    /**
+     * Makes a deep copy of a {@link State} map, using compact storage.
+     *
+     * @since 11.2
+     * @see State#newCompact
+     */
+    public static State compactCopy(State state) {
+        State copy = State.newCompact(state.size());
+        for (Entry<String, Serializable> en : state.entrySet()) {
+            copy.put(en.getKey(), compactCopy(en.getValue()));
+        }
+        return copy;
+    }
+
     /**
      * Does a diff of two values.
      *
@@ -0,0 +1,105 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.core.storage;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JVM-wide registry of the keys used by compact {@link State}s.
+ * <p>
+ * Each key (a schema-derived property name like {@code dc:title} or {@code ecm:parentId}) is interned once and gets a
+ * small integer slot, so that compact states only store slots instead of key strings. The slots are local to the JVM
+ * and are never serialized.
+ *
+ * @since 11.2
+ */
+public final class StateKeySlots {
+
+    /** Maximum number of slots, after which new keys are not interned and states stay in regular storage. */
+    public static final int MAX_SLOTS = 1 << 16;
+
+    private static final Map<String, Integer> SLOTS = new ConcurrentHashMap<>();
+
+    private static volatile String[] keys = new String[256];
+
+    private static int count;
+
+    private StateKeySlots() {
+        // utility class
+    }
+
+    /**
+     * Gets the slot for a key, interning the key if needed.
+     *
+     * @return the slot, or {@code -1} if the maximum number of slots is reached
+     */
+    public static int getSlot(String key) {
+        Integer slot = SLOTS.get(key);
+        if (slot != null) {
+            return slot.intValue();
+        }
+        return addSlot(key);
+    }
+
+    /**
+     * Gets the slot for a key, without interning it.
+     *
+     * @return the slot, or {@code -1} if the key has no slot
+     */
+    public static int peekSlot(Object key) {
+        Integer slot = SLOTS.get(key);
+        return slot == null ? -1 : slot.intValue();
+    }
+
+    /**
+     * Gets the key for a slot.
+     */
+    public static String getKey(int slot) {
+        return keys[slot];
+    }
+
+    /**
+     * Gets the number of interned keys.
+     */
+    public static int size() {
+        return SLOTS.size();
+    }
+
+    private static synchronized int addSlot(String key) {
+        Integer slot = SLOTS.get(key);
+        if (slot != null) {
+            return slot.intValue();
+        }
+        if (count >= MAX_SLOTS) {
+            return -1;
+        }
+        String[] k = keys;
+        if (count == k.length) {
+            k = Arrays.copyOf(k, Math.min(k.length * 2, MAX_SLOTS));
+        }
+        k[count] = key;
+        // publish the array before the slot, readers go through the map first
+        keys = k;
+        SLOTS.put(key, Integer.valueOf(count));
+        return count++;
+    }
+
+}
@@ -21,11 +21,19 @@ package org.nuxeo.ecm.core.storage;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TimeZone;
+
+import org.apache.commons.lang3.SerializationUtils;
 
 import org.junit.Test;
 
@@ -83,6 +91,78 @@ public class TestState {
         check(s, 6);
     }
 
+    @Test
+    public void testCompactState() {
+        State s = State.newCompact(0);
+        assertTrue(s.isCompact());
+        check(s, 0);
+
+        s.put("555", null);
+        check(s, 0);
+        for (int i = 1; i <= 7; i++) {
+            s.put(String.valueOf(i), String.valueOf(i));
+            check(s, i);
+        }
+        s.put("1", "111");
+        assertEquals("111", s.get("1"));
+        s.put("1", "1");
+        check(s, 7);
+        s.put("7", null);
+        check(s, 6);
+        s.remove("6");
+        check(s, 5);
+        assertTrue(s.isCompact());
+    }
+
+    @Test
+    public void testCompactStateValues() {
+        Calendar created = new GregorianCalendar();
+        Calendar tokyo = new GregorianCalendar(TimeZone.getTimeZone("Asia/Tokyo"));
+        State child = new State();
+        child.put("name", "child");
+        child.put("size", Long.valueOf(123));
+        List<Serializable> list = new ArrayList<>();
+        list.add(child);
+
+        State s = new State();
+        s.put("ecm:id", "id1");
+        s.put("ecm:isVersion", Boolean.TRUE);
+        s.put("ecm:isProxy", Boolean.FALSE);
+        s.put("dc:created", created);
+        s.put("my:tokyo", tokyo);
+        s.put("my:long", Long.valueOf(Long.MAX_VALUE));
+        s.put("my:double", Double.valueOf(1.5));
+        s.put("my:array", new String[] { "a", "b" });
+        s.put("my:complex", child);
+        s.put("my:list", (Serializable) list);
+
+        State compact = StateHelper.compactCopy(s);
+        assertTrue(compact.isCompact());
+        assertTrue(((State) compact.get("my:complex")).isCompact());
+        assertEquals(s, compact);
+        assertEquals(compact, s);
+        assertEquals(Long.valueOf(Long.MAX_VALUE), compact.get("my:long"));
+        assertEquals(Double.valueOf(1.5), compact.get("my:double"));
+        assertEquals(Boolean.FALSE, compact.getSingle("ecm:isProxy"));
+        assertEquals(created, compact.get("dc:created"));
+        // non-default calendars are kept as is
+        assertSame(tokyo, compact.get("my:tokyo"));
+
+        // changing the kind of a value
+        compact.put("my:long", "foo");
+        assertEquals("foo", compact.get("my:long"));
+        compact.put("my:long", Long.valueOf(5));
+        assertEquals(Long.valueOf(5), compact.get("my:long"));
+
+        // deep copies and serialization use regular storage
+        State copy = StateHelper.deepCopy(compact);
+        assertFalse(copy.isCompact());
+        assertEquals(compact, copy);
+        State deserialized = SerializationUtils.roundtrip(compact);
+        assertFalse(deserialized.isCompact());
+        assertEquals(compact, deserialized);
+    }
+
     protected static void check(State s, int n) {
         Set<String> set = s.keySet();
         Set<Entry<String, Serializable>> es = s.entrySet();
@@ -5378,6 +5378,88 @@ public class TestSQLRepositoryAPI {
         }
     }
 
+    @Test
+    public void testOptimisticLockingWithParallelChangeOfSeveralDocuments() throws Exception {
+        List<DocumentRef> docRefs = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            DocumentModel doc = session.createDocumentModel("/", "doc" + i, "File");
+            doc.setPropertyValue("dc:title", "foo");
+            maybeCreateChangeToken(doc);
+            docRefs.add(session.createDocument(doc).getRef());
+        }
+        session.save();
+
+        // re-start a new transaction that hasn't done any writes
+        nextTransaction();
+        waitForAsyncCompletion();
+        reopenSession();
+
+        List<DocumentModel> docs = docRefs.stream().map(session::getDocument).collect(Collectors.toList());
+        List<DocumentRef> staleRefs = Arrays.asList(docRefs.get(1), docRefs.get(2));
+
+        // in other thread, update some of the docs as a user change
+        MutableObject<RuntimeException> me = new MutableObject<>();
+        Thread thread = new Thread(() -> {
+            TransactionHelper.runInTransaction(() -> {
+                try {
+                    CoreSession session2 = CoreInstance.getCoreSession(coreFeature.getRepositoryName());
+                    for (DocumentRef docRef : staleRefs) {
+                        DocumentModel doc2 = session2.getDocument(docRef);
+                        doc2.setPropertyValue("dc:title", "bar parallel");
+                        doc2.putContextData(CoreSession.USER_CHANGE, Boolean.TRUE);
+                        maybeUpdateChangeToken(doc2);
+                        session2.saveDocument(doc2);
+                    }
+                    session2.save(); // save succeeds
+                } catch (RuntimeException e) {
+                    me.setValue(e);
+                }
+            });
+        });
+        thread.start();
+        thread.join();
+        if (me.getValue() != null) {
+            throw me.getValue();
+        }
+
+        // now try to save all the docs as a user change in a single save
+        for (DocumentModel doc : docs) {
+            doc.setPropertyValue("dc:title", "bar");
+            doc.putContextData(CoreSession.USER_CHANGE, Boolean.TRUE);
+            maybeUpdateChangeToken(doc);
+            session.saveDocument(doc);
+        }
+        try {
+            session.save();
+            if (isChangeTokenEnabled()) { // not failing for manual change tokens
+                fail("save should fail because of concurrent update in other transaction");
+            }
+        } catch (ConcurrentUpdateException e) {
+            if (!isChangeTokenEnabled()) {
+                // no exception expected for manual change token
+                throw e;
+            }
+            if (isDBS()) {
+                // the documents are updated together, all the stale ones are reported
+                Set<String> staleIds = staleRefs.stream().map(Object::toString).collect(Collectors.toSet());
+                assertEquals("Concurrent update of 2 documents", e.getOriginalMessage());
+                assertEquals(staleIds, new HashSet<>(e.getInfos()));
+            }
+            TransactionHelper.setTransactionRollbackOnly();
+        }
+        if (!isChangeTokenEnabled()) {
+            return;
+        }
+
+        // the whole save is rolled back, the parallel changes are kept
+        nextTransaction();
+        reopenSession();
+        for (DocumentRef docRef : docRefs) {
+            String expected = staleRefs.contains(docRef) ? "bar parallel" : "foo";
+            assertEquals(expected, session.getDocument(docRef).getPropertyValue("dc:title"));
+        }
+    }
+
     protected static class SavingJob implements Runnable {
 
         protected final List<DocumentRef> docRefs;
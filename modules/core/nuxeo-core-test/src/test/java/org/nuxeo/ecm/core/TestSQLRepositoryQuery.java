@@ -55,6 +55,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.inject.Inject;
 
@@ -2452,6 +2453,22 @@ public class TestSQLRepositoryQuery {
         assertEquals(1, res.size());
     }
 
+    @Test
+    public void testQueryProjectionStream() {
+        createDocs();
+
+        String query = "SELECT ecm:uuid, dc:title FROM File ORDER BY dc:title";
+        List<Map<String, Serializable>> expected = new ArrayList<>();
+        try (IterableQueryResult res = session.queryAndFetch(query, "NXQL")) {
+            res.forEach(expected::add);
+        }
+        assertEquals(3, expected.size());
+        // fetch size lower than the number of results
+        try (Stream<Map<String, Serializable>> stream = session.queryProjectionStream(query, "NXQL", false, 2)) {
+            assertEquals(expected, stream.collect(Collectors.toList()));
+        }
+    }
+
     @Test
     public void testSelectColumnsDistinct() {
         assumeTrue("DBS does not support DISTINCT in queries", supportsDistinct());
@@ -293,6 +293,40 @@ public class TestBulkProcessor {
         }
     }
 
+    @Test
+    public void testScrollPartitions() throws InterruptedException {
+        final int nbDocs = 50;
+        for (int i = 0; i < nbDocs; i++) {
+            DocumentModel doc = session.createDocumentModel("/", "doc" + i, "File");
+            session.createDocument(doc);
+        }
+        TransactionHelper.commitOrRollbackTransaction();
+        TransactionHelper.startTransaction();
+
+        String nxql = "SELECT * FROM File WHERE(ecm:isTrashed = 0 OR dc:title = 'order by')";
+        String commandId = service.submit(new BulkCommand.Builder(SetPropertiesAction.ACTION_NAME, nxql,
+                session.getPrincipal().getName()).repository(session.getRepositoryName())
+                                                 .param("dc:description", "partitioned")
+                                                 .scrollPartitions(4)
+                                                 .bucket(5)
+                                                 .batch(5)
+                                                 .build());
+        assertTrue("Bulk action didn't finish", service.await(Duration.ofSeconds(60)));
+
+        BulkStatus status = service.getStatus(commandId);
+        assertEquals(COMPLETED, status.getState());
+        assertEquals(4, status.getScrollPartitions());
+        assertEquals(4, status.getScrolledPartitions());
+        assertEquals(nbDocs, status.getTotal());
+        assertEquals(nbDocs, status.getProcessed());
+        assertFalse(status.hasError());
+
+        // each document is processed exactly once
+        TransactionHelper.commitOrRollbackTransaction();
+        TransactionHelper.startTransaction();
+        assertEquals(nbDocs, session.query("SELECT * FROM File WHERE dc:description = 'partitioned'").size());
+    }
+
     protected boolean overlapCommands(List<BulkStatus> results, boolean logOverlap) {
         // Check for overlap on scrolling
         results.sort(Comparator.comparing(BulkStatus::getScrollStartTime));
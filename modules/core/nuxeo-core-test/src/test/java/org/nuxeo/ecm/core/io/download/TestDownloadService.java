@@ -21,6 +21,7 @@ package org.nuxeo.ecm.core.io.download;
 
 import static java.lang.Boolean.FALSE;
 import static java.lang.Boolean.TRUE;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -76,6 +77,7 @@ import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.api.NuxeoPrincipal;
 import org.nuxeo.ecm.core.api.impl.UserPrincipal;
 import org.nuxeo.ecm.core.api.impl.blob.FileBlob;
+import org.nuxeo.ecm.core.blob.ByteRange;
 import org.nuxeo.ecm.core.blob.binary.Binary;
 import org.nuxeo.ecm.core.blob.binary.BinaryBlob;
 import org.nuxeo.ecm.core.blob.binary.DefaultBinaryManager;
@@ -917,4 +919,56 @@ public class TestDownloadService {
         }
     }
 
+    @Test
+    public void testTransferFileBlobWithByteRange() throws IOException {
+        Blob blob = new FileBlob(new ByteArrayInputStream("Hello World".getBytes(UTF_8)));
+        assertTrue(blob.getFile().isFile());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        downloadService.transferBlobWithByteRange(blob, null, () -> out);
+        assertEquals("Hello World", out.toString("UTF-8"));
+
+        out.reset();
+        downloadService.transferBlobWithByteRange(blob, ByteRange.inclusive(6, 10), () -> out);
+        assertEquals("World", out.toString("UTF-8"));
+
+        // range larger than the file
+        out.reset();
+        downloadService.transferBlobWithByteRange(blob, ByteRange.inclusive(6, 100), () -> out);
+        assertEquals("World", out.toString("UTF-8"));
+    }
+
+    @Test
+    public void testDownloadWithSendfile() throws IOException {
+        Framework.getProperties().put(DownloadServiceImpl.DOWNLOAD_SENDFILE_ENABLED, "true");
+        try {
+            Blob blob = new FileBlob(new ByteArrayInputStream("Hello World".getBytes(UTF_8)));
+            blob.setFilename("hello.txt");
+
+            HttpServletRequest req = mock(HttpServletRequest.class);
+            when(req.getMethod()).thenReturn("GET");
+            when(req.getHeader("Range")).thenReturn("bytes=6-10");
+            when(req.getAttribute("org.apache.tomcat.sendfile.support")).thenReturn(TRUE);
+            HttpServletResponse resp = mock(HttpServletResponse.class);
+            ServletOutputStream sos = new DummyServletOutputStream() {
+                @Override
+                public void write(int b) {
+                    throw new NuxeoException("Not supposed to write to response");
+                }
+            };
+            when(resp.getOutputStream()).thenReturn(sos);
+
+            DownloadContext context = DownloadContext.builder(req, resp).blob(blob).reason("test").build();
+            downloadService.downloadBlob(context);
+
+            verify(resp).setContentLengthLong(eq(5L));
+            verify(req).setAttribute(eq("org.apache.tomcat.sendfile.filename"),
+                    eq(blob.getFile().getAbsolutePath()));
+            verify(req).setAttribute(eq("org.apache.tomcat.sendfile.start"), eq(6L));
+            verify(req).setAttribute(eq("org.apache.tomcat.sendfile.end"), eq(11L));
+        } finally {
+            Framework.getProperties().remove(DownloadServiceImpl.DOWNLOAD_SENDFILE_ENABLED);
+        }
+    }
+
 }
@@ -19,6 +19,14 @@
 
 package org.nuxeo.ecm.core.io.marshallers.json.document;
 
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.nuxeo.ecm.core.io.marshallers.json.document.DocumentModelListJsonWriter.FLUSH_INTERVAL_PROP;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
 import java.util.Arrays;
 import java.util.List;
 
@@ -31,6 +39,7 @@ import org.nuxeo.ecm.core.api.DocumentModel;
 import org.nuxeo.ecm.core.io.marshallers.json.AbstractJsonWriterTest;
 import org.nuxeo.ecm.core.io.marshallers.json.JsonAssert;
 import org.nuxeo.ecm.core.test.CoreFeature;
+import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.test.runner.Deploy;
 import org.nuxeo.runtime.test.runner.Features;
 
@@ -68,4 +77,36 @@ public class DocumentModelListJsonWriterTest extends
         json.childrenContains("title", "myDoc1", "myDoc2", "myDoc3");
     }
 
+    @Test
+    public void testFlushInterval() throws Exception {
+        List<DocumentModel> elements = getElements();
+        Type listType = TypeUtils.parameterize(List.class, DocumentModel.class);
+        FlushCountingOutputStream out = new FlushCountingOutputStream();
+        getInstance().write(elements, List.class, listType, APPLICATION_JSON_TYPE, out);
+        String expected = out.toString();
+        int flushes = out.flushes;
+
+        Framework.getProperties().setProperty(FLUSH_INTERVAL_PROP, "2");
+        try {
+            out = new FlushCountingOutputStream();
+            getInstance().write(elements, List.class, listType, APPLICATION_JSON_TYPE, out);
+        } finally {
+            Framework.getProperties().remove(FLUSH_INTERVAL_PROP);
+        }
+        // same entries, flushed by batches of 2 documents
+        assertEquals(expected, out.toString());
+        assertTrue("flushes: " + out.flushes + ", by document: " + flushes, out.flushes < flushes);
+    }
+
+    protected static class FlushCountingOutputStream extends ByteArrayOutputStream {
+
+        protected int flushes;
+
+        @Override
+        public void flush() throws IOException {
+            flushes++;
+            super.flush();
+        }
+    }
+
 }
@@ -0,0 +1,88 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.core.scroll;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.scroll.Scroll;
+import org.nuxeo.ecm.core.api.scroll.ScrollRequest;
+import org.nuxeo.ecm.core.api.security.ACE;
+import org.nuxeo.ecm.core.api.security.ACP;
+import org.nuxeo.ecm.core.api.security.impl.ACPImpl;
+
+/**
+ * Runs the repository scroll tests on the scroll streaming from a database cursor.
+ *
+ * @since 11.2
+ */
+public class TestQueryScroll extends TestRepositoryScroll {
+
+    @Override
+    public String getScrollName() {
+        return "query";
+    }
+
+    @Test
+    public void testMoreDocumentsThanScrollSize() {
+        DocumentModel folder = session.createDocumentModel("/", "myFolder", "Folder");
+        folder = session.createDocument(folder);
+        ACP acp = new ACPImpl();
+        acp.getOrCreateACL().add(new ACE(USERNAME, "Read", true));
+        folder.setACP(acp, false);
+        Set<String> expected = new HashSet<>();
+        expected.add(folder.getId());
+        for (int i = 0; i < 9; i++) {
+            DocumentModel doc = session.createDocumentModel("/myFolder", "doc" + i, "File");
+            expected.add(session.createDocument(doc).getId());
+        }
+        session.save();
+        txFeature.nextTransaction();
+
+        String nxql = "SELECT * FROM Document";
+        ScrollRequest request = DocumentScrollRequest.builder(nxql)
+                                                     .name(getScrollName())
+                                                     .username(USERNAME)
+                                                     .size(3)
+                                                     .build();
+        List<Integer> batchSizes = new ArrayList<>();
+        Set<String> ids = new HashSet<>();
+        try (Scroll scroll = service.scroll(request)) {
+            while (scroll.hasNext()) {
+                List<String> batch = scroll.next();
+                batchSizes.add(batch.size());
+                for (String id : batch) {
+                    assertTrue("Duplicate: " + id, ids.add(id));
+                }
+            }
+            assertFalse(scroll.hasNext());
+        }
+        assertEquals(List.of(3, 3, 3, 1), batchSizes);
+        assertEquals(expected, ids);
+    }
+
+}
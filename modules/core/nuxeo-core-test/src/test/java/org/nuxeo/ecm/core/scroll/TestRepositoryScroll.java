@@ -25,7 +25,10 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Set;
 
 import javax.inject.Inject;
 
@@ -123,6 +126,54 @@ public class TestRepositoryScroll {
         }
     }
 
+    @Test
+    public void testPartitions() throws Exception {
+        Set<String> expected = new HashSet<>();
+        expected.add(createADocument());
+        for (int i = 0; i < 20; i++) {
+            DocumentModel doc = session.createDocumentModel("/myFolder", "doc" + i, "File");
+            expected.add(session.createDocument(doc).getId());
+        }
+        session.save();
+        txFeature.nextTransaction();
+
+        String nxql = "SELECT * FROM Document";
+        int partitions = 4;
+        if (!session.hasHexadecimalStringIds()) {
+            // ids generated by a sequence or stored as native uuids cannot be compared to the partition bounds
+            ScrollRequest request = DocumentScrollRequest.builder(nxql)
+                                                         .name(getScrollName())
+                                                         .username(USERNAME)
+                                                         .partition(0, partitions)
+                                                         .build();
+            try (Scroll scroll = service.scroll(request)) {
+                fail("Expecting partitions to be rejected");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+            return;
+        }
+        // each document is scrolled by exactly one partition
+        Set<String> ids = new HashSet<>();
+        int count = 0;
+        for (int partition = 0; partition < partitions; partition++) {
+            ScrollRequest request = DocumentScrollRequest.builder(nxql)
+                                                         .name(getScrollName())
+                                                         .username(USERNAME)
+                                                         .partition(partition, partitions)
+                                                         .build();
+            try (Scroll scroll = service.scroll(request)) {
+                while (scroll.hasNext()) {
+                    List<String> batch = scroll.next();
+                    ids.addAll(batch);
+                    count += batch.size();
+                }
+            }
+        }
+        assertEquals(expected, ids);
+        assertEquals(expected.size(), count);
+    }
+
     protected String createADocument() throws Exception {
         DocumentModel doc = session.createDocumentModel("/", "myFolder", "Folder");
         doc = session.createDocument(doc);
@@ -61,6 +61,7 @@ import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
@@ -93,11 +94,13 @@ import org.nuxeo.ecm.core.filter.CharacterFilteringService;
 import org.nuxeo.ecm.core.lifecycle.LifeCycleService;
 import org.nuxeo.ecm.core.model.Document;
 import org.nuxeo.ecm.core.model.PathComparator;
+import org.nuxeo.ecm.core.model.Repository;
 import org.nuxeo.ecm.core.model.Session;
 import org.nuxeo.ecm.core.query.QueryFilter;
 import org.nuxeo.ecm.core.query.QueryParseException;
 import org.nuxeo.ecm.core.query.sql.NXQL;
 import org.nuxeo.ecm.core.query.sql.model.SQLQuery.Transformer;
+import org.nuxeo.ecm.core.repository.RepositoryService;
 import org.nuxeo.ecm.core.schema.DocumentType;
 import org.nuxeo.ecm.core.schema.FacetNames;
 import org.nuxeo.ecm.core.schema.SchemaManager;
@@ -647,6 +650,12 @@ public abstract class AbstractSession implements CoreSession, Serializable {
         return getSession().isNegativeAclAllowed();
     }
 
+    @Override
+    public boolean hasHexadecimalStringIds() {
+        Repository repository = Framework.getService(RepositoryService.class).getRepository(getRepositoryName());
+        return repository != null && repository.hasHexadecimalStringIds();
+    }
+
     @Override
     public void cancel() {
         // nothing
@@ -1343,6 +1352,27 @@ public abstract class AbstractSession implements CoreSession, Serializable {
         return getSession().queryProjection(query, queryType, queryFilter, distinctDocuments, countUpTo, params);
     }
 
+    @Override
+    public Stream<Map<String, Serializable>> queryProjectionStream(String query, String queryType,
+            boolean distinctDocuments, int fetchSize, Object... params) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("Fetch size must be positive: " + fetchSize);
+        }
+        NuxeoPrincipal principal = getPrincipal();
+        String[] principals = getPrincipalsToCheck();
+        String[] permissions = getPermissionsToCheck(BROWSE);
+        Collection<Transformer> transformers = getPoliciesQueryTransformers(queryType);
+
+        QueryFilter queryFilter = new QueryFilter(principal, principals, permissions, null, transformers, 0, 0,
+                fetchSize);
+        try {
+            return getSession().queryAndFetch(query, queryType, queryFilter, distinctDocuments, params).stream();
+        } catch (QueryParseException e) {
+            e.addInfo("Failed to execute query: " + queryType + ": " + query);
+            throw e;
+        }
+    }
+
     protected String[] getPrincipalsToCheck() {
         NuxeoPrincipal principal = getPrincipal();
         String[] principals;
@@ -50,4 +50,14 @@ public interface Repository {
      */
     FulltextConfiguration getFulltextConfiguration();
 
+    /**
+     * Checks whether the document ids of this repository are strings starting with lowercase hexadecimal digits.
+     *
+     * @see org.nuxeo.ecm.core.api.CoreSession#hasHexadecimalStringIds()
+     * @since 11.2
+     */
+    default boolean hasHexadecimalStringIds() {
+        return false;
+    }
+
 }
@@ -30,8 +30,11 @@ import org.nuxeo.common.utils.DurationUtils;
 import org.nuxeo.ecm.core.api.UnrestrictedSessionRunner;
 import org.nuxeo.ecm.core.api.repository.RepositoryManager;
 import org.nuxeo.ecm.core.model.Repository;
+import org.nuxeo.ecm.core.query.sql.SQLQueryParser;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.cluster.ClusterService;
+import org.nuxeo.runtime.metrics.MetricsService;
+import org.nuxeo.runtime.metrics.NuxeoMetricSet;
 import org.nuxeo.runtime.model.ComponentContext;
 import org.nuxeo.runtime.model.ComponentManager;
 import org.nuxeo.runtime.model.ComponentName;
@@ -39,6 +42,10 @@ import org.nuxeo.runtime.model.ComponentStartOrders;
 import org.nuxeo.runtime.model.DefaultComponent;
 import org.nuxeo.runtime.transaction.TransactionHelper;
 
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+
 /**
  * Component and service managing low-level repository instances.
  */
@@ -56,6 +63,11 @@ public class RepositoryService extends DefaultComponent {
 
     public static final String XP_REPOSITORY = "repository";
 
+    /** @since 11.2 */
+    public static final String METRIC_QUERY_PARSE_CACHE_NAME = "nuxeo.repositories.query.parse.cache";
+
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
     private final Map<String, Repository> repositories = new ConcurrentHashMap<>();
 
     public void shutdown() {
@@ -71,6 +83,7 @@ public class RepositoryService extends DefaultComponent {
 
     @Override
     public void start(ComponentContext context) {
+        registerQueryParseCacheMetrics();
         TransactionHelper.runInTransaction(this::doCreateRepositories);
         Framework.getRuntime().getComponentManager().addListener(new ComponentManager.Listener() {
             @Override
@@ -88,6 +101,27 @@ public class RepositoryService extends DefaultComponent {
     @Override
     public void stop(ComponentContext context) {
         TransactionHelper.runInTransaction(this::shutdown);
+        removeQueryParseCacheMetrics();
+    }
+
+    /**
+     * Exposes the statistics of the NXQL parse cache, shared by all repositories.
+     *
+     * @since 11.2
+     */
+    protected void registerQueryParseCacheMetrics() {
+        removeQueryParseCacheMetrics();
+        NuxeoMetricSet metrics = new NuxeoMetricSet(MetricName.build(METRIC_QUERY_PARSE_CACHE_NAME));
+        metrics.putGauge(SQLQueryParser::getCacheSize, "size");
+        metrics.putGauge(() -> SQLQueryParser.getCacheStats().evictionCount(), "eviction", "count");
+        metrics.putGauge(() -> SQLQueryParser.getCacheStats().hitCount(), "hit", "count");
+        metrics.putGauge(() -> SQLQueryParser.getCacheStats().hitRate(), "hit", "ratio");
+        metrics.putGauge(() -> SQLQueryParser.getCacheStats().missCount(), "miss", "count");
+        registry.registerAll(metrics);
+    }
+
+    protected void removeQueryParseCacheMetrics() {
+        registry.removeMatching((name, metric) -> name.getKey().startsWith(METRIC_QUERY_PARSE_CACHE_NAME));
     }
 
     /**
@@ -0,0 +1,347 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.core.security;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.nuxeo.ecm.core.api.security.ACE;
+import org.nuxeo.ecm.core.api.security.ACL;
+import org.nuxeo.ecm.core.api.security.ACP;
+import org.nuxeo.ecm.core.api.security.Access;
+import org.nuxeo.ecm.core.api.security.SecurityConstants;
+import org.nuxeo.ecm.core.api.security.impl.ACLImpl;
+import org.nuxeo.ecm.core.api.security.impl.ACPImpl;
+import org.nuxeo.ecm.core.model.Document;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+
+import io.dropwizard.metrics5.Counter;
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+
+/**
+ * Cache of the merged ACPs of a repository, used to check permissions without walking up the ACLs of all the ancestors
+ * of a document for each check.
+ * <p>
+ * For each folder, the cache holds the ACL inherited by its children. A folder without ACP shares the inherited ACL
+ * of its parent, so that all the documents below the same nearest ACL-bearing ancestor share the same
+ * {@link MergedACP} instance. This instance also memoizes the access decisions computed on it, by principals and
+ * permissions.
+ * <p>
+ * When the ACP or the parent of a folder changes, the folder must be {@linkplain #invalidate invalidated}, which also
+ * invalidates the entries of its descendants. An entry removed from the cache for any other reason, like its eviction
+ * or replacement, invalidates the entries of its descendants too, as they would otherwise miss a later invalidation.
+ * <p>
+ * The merged ACPs returned by this cache are shared and must not be modified.
+ *
+ * @since 11.2
+ */
+public class MergedACPCache {
+
+    public static final String METRIC_ACP_CACHE_NAME = "nuxeo.repositories.repository.acpCache";
+
+    /** Maximum number of access decisions memoized for a merged ACP. */
+    public static final int MAX_DECISIONS = 1000;
+
+    /** Folder id to the ACL inherited by its children. */
+    protected final Cache<String, Node> nodes;
+
+    /** Incremented on each invalidation, to avoid caching entries computed from stale data. */
+    protected final AtomicLong generation = new AtomicLong();
+
+    protected final Counter hits;
+
+    protected final Counter misses;
+
+    protected final Counter decisionHits;
+
+    protected final Counter decisionMisses;
+
+    protected final Counter invalidations;
+
+    public MergedACPCache(String repositoryName, long maxSize) {
+        nodes = CacheBuilder.newBuilder()
+                            .maximumSize(maxSize)
+                            .removalListener((RemovalListener<String, Node>) notification -> {
+                                // whatever the cause, the descendants can't be invalidated through this node anymore
+                                notification.getValue().valid = false;
+                            })
+                            .build();
+        MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+        hits = registry.counter(metricName(repositoryName, "hit"));
+        misses = registry.counter(metricName(repositoryName, "miss"));
+        decisionHits = registry.counter(metricName(repositoryName, "decision", "hit"));
+        decisionMisses = registry.counter(metricName(repositoryName, "decision", "miss"));
+        invalidations = registry.counter(metricName(repositoryName, "invalidation"));
+    }
+
+    protected static MetricName metricName(String repositoryName, String... names) {
+        return MetricName.build(METRIC_ACP_CACHE_NAME, String.join(".", names)).tagged("repository", repositoryName);
+    }
+
+    /**
+     * Gets the current generation, to be passed to {@link #getMergedACP} by callers that may have read stale data
+     * since then.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Gets the merged ACP of a document, with the same result as the merged ACP computed by the storage session.
+     * <p>
+     * The entries computed by this call are cached only if no invalidation happened since the given generation.
+     *
+     * @param doc the document
+     * @param acpReader the function reading the own ACP of a document
+     * @param gen the generation since which the data read through the given document may be stale
+     * @return the merged ACP, or {@code null} if none
+     */
+    public ACP getMergedACP(Document doc, Function<Document, ACP> acpReader, long gen) {
+        Document base = doc.isVersion() ? doc.getSourceDocument() : doc;
+        if (base == null) {
+            return null;
+        }
+        ACP acp = acpReader.apply(base);
+        Document parent = doc.getParent();
+        if (parent == null) {
+            return acp;
+        }
+        // get inherited ACLs only if no blocking inheritance ACE exists in the top level ACP
+        if (acp != null && isBlockingInheritance(acp)) {
+            return acp;
+        }
+        Node node = getValidNode(parent.getUUID());
+        if (node == null) {
+            misses.inc();
+            node = computeNode(parent, acpReader, gen);
+        } else {
+            hits.inc();
+        }
+        MergedACP inherited = node.acp;
+        if (acp == null) {
+            return inherited;
+        }
+        if (inherited != null) {
+            // copy so that the shared ACL cannot be changed through the returned ACP
+            ACL acl = new ACLImpl(ACL.INHERITED_ACL, true);
+            acl.addAll(inherited.acl);
+            acp.addACL(acl);
+        }
+        return acp;
+    }
+
+    protected static boolean isBlockingInheritance(ACP acp) {
+        return acp.getAccess(SecurityConstants.EVERYONE, SecurityConstants.EVERYTHING) == Access.DENY;
+    }
+
+    protected Node getValidNode(String id) {
+        Node node = nodes.getIfPresent(id);
+        return node == null || !node.isValid() ? null : node;
+    }
+
+    protected Node computeNode(Document folder, Function<Document, ACP> acpReader, long gen) {
+        ACP acp = acpReader.apply(folder);
+        boolean blocking = acp != null && isBlockingInheritance(acp);
+        Node parentNode = null;
+        if (!blocking) {
+            Document parent = folder.getParent();
+            if (parent != null) {
+                parentNode = getValidNode(parent.getUUID());
+                if (parentNode == null) {
+                    parentNode = computeNode(parent, acpReader, gen);
+                }
+            }
+        }
+        MergedACP inherited;
+        if (acp == null) {
+            inherited = parentNode == null ? null : parentNode.acp;
+        } else {
+            ACL acl = acp.getMergedACLs(ACL.INHERITED_ACL);
+            if (parentNode != null && parentNode.acp != null) {
+                acl.addAll(parentNode.acp.acl);
+            }
+            inherited = new MergedACP(acl);
+        }
+        Node node = new Node(parentNode, inherited);
+        putIfCurrent(folder.getUUID(), node, gen);
+        return node;
+    }
+
+    /**
+     * Caches a node unless an invalidation happened since the given generation, in which case the node may have been
+     * computed from stale data and the next call will compute it again.
+     */
+    protected void putIfCurrent(String id, Node node, long gen) {
+        if (generation.get() != gen) {
+            return;
+        }
+        nodes.put(id, node);
+        if (generation.get() != gen) {
+            // an invalidation may have run between the check and the put
+            nodes.asMap().remove(id, node);
+        }
+    }
+
+    /**
+     * Invalidates the entries of the given documents and of their descendants.
+     */
+    public void invalidate(Collection<String> ids) {
+        generation.incrementAndGet();
+        invalidations.inc();
+        nodes.invalidateAll(ids);
+    }
+
+    /**
+     * Invalidates all the entries.
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        invalidations.inc();
+        nodes.invalidateAll();
+    }
+
+    /**
+     * The ACL inherited by the children of a folder. The node is valid as long as the nodes of the folder and of its
+     * ancestors up to the nearest blocking one are not invalidated.
+     */
+    protected static class Node {
+
+        protected final Node parent;
+
+        protected final MergedACP acp;
+
+        protected volatile boolean valid = true;
+
+        protected Node(Node parent, MergedACP acp) {
+            this.parent = parent;
+            this.acp = acp;
+        }
+
+        protected boolean isValid() {
+            for (Node node = this; node != null; node = node.parent) {
+                if (!node.valid) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A shared merged ACP holding only an inherited ACL, memoizing the access decisions computed on it.
+     * <p>
+     * Decisions are not memoized if an ACE of the ACL has a begin or end date, as they depend on the current time.
+     */
+    protected class MergedACP extends ACPImpl {
+
+        private static final long serialVersionUID = 1L;
+
+        protected final ACL acl;
+
+        protected final boolean timeDependent;
+
+        protected final transient Map<DecisionKey, Access> decisions = new ConcurrentHashMap<>();
+
+        protected MergedACP(ACL acl) {
+            this.acl = acl;
+            super.addACL(acl);
+            timeDependent = acl.stream().anyMatch(ace -> ace.getBegin() != null || ace.getEnd() != null);
+        }
+
+        @Override
+        public Access getAccess(String principal, String permission) {
+            // not using the cache of ACPImpl, which is not thread-safe
+            String[] principals = new String[] { principal };
+            String[] permissions = new String[] { permission };
+            for (ACE ace : acl) {
+                Access access = getAccess(ace, principals, permissions);
+                if (access != Access.UNKNOWN) {
+                    return access;
+                }
+            }
+            return Access.UNKNOWN;
+        }
+
+        @Override
+        public Access getAccess(String[] principals, String[] permissions) {
+            if (timeDependent) {
+                return super.getAccess(principals, permissions);
+            }
+            DecisionKey key = new DecisionKey(principals, permissions);
+            Access access = decisions.get(key);
+            if (access == null) {
+                decisionMisses.inc();
+                access = super.getAccess(principals, permissions);
+                if (decisions.size() < MAX_DECISIONS) {
+                    decisions.put(key, access);
+                }
+            } else {
+                decisionHits.inc();
+            }
+            return access;
+        }
+    }
+
+    /**
+     * The principals and permissions of an access decision.
+     */
+    protected static class DecisionKey {
+
+        protected final String[] principals;
+
+        protected final String[] permissions;
+
+        protected final int hash;
+
+        protected DecisionKey(String[] principals, String[] permissions) {
+            this.principals = principals;
+            this.permissions = permissions;
+            hash = 31 * Arrays.hashCode(principals) + Arrays.hashCode(permissions);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof DecisionKey)) {
+                return false;
+            }
+            DecisionKey other = (DecisionKey) obj;
+            return hash == other.hash && Arrays.equals(principals, other.principals)
+                    && Arrays.equals(permissions, other.permissions);
+        }
+    }
+
+}
@@ -35,11 +35,16 @@ import org.nuxeo.ecm.core.api.security.PermissionProvider;
 import org.nuxeo.ecm.core.api.security.SecurityConstants;
 import org.nuxeo.ecm.core.model.Document;
 import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
+import org.nuxeo.runtime.metrics.MetricsService;
 import org.nuxeo.runtime.model.ComponentContext;
 import org.nuxeo.runtime.model.ComponentInstance;
 import org.nuxeo.runtime.model.ComponentName;
 import org.nuxeo.runtime.model.DefaultComponent;
 
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+import io.dropwizard.metrics5.Timer;
+
 /**
  * @author Bogdan Stefanescu
  * @author Olivier Grisel
@@ -64,6 +69,10 @@ public class SecurityService extends DefaultComponent {
 
     private SecurityPolicyService securityPolicyService;
 
+    /** @since 11.2 */
+    protected final Timer checkTimer = SharedMetricRegistries.getOrCreate(MetricsService.class.getName())
+                                                             .timer(MetricName.build("nuxeo", "security", "check"));
+
     // private SecurityManager securityManager;
 
     @Override
@@ -124,12 +133,19 @@ public class SecurityService extends DefaultComponent {
         if (principal.isAdministrator()) {
             return true;
         }
+        try (Timer.Context context = checkTimer.time()) {
+            return doCheckPermission(doc, principal, permission);
+        }
+    }
+
+    /** @since 11.2 */
+    protected boolean doCheckPermission(Document doc, NuxeoPrincipal principal, String permission) {
         // fully check each ACE in turn
         String[] resolvedPermissions = getPermissionsToCheck(permission);
         String[] additionalPrincipals = getPrincipalsToCheck(principal);
 
         // get the ordered list of ACE
-        ACP acp = doc.getSession().getMergedACP(doc);
+        ACP acp = doc.getSession().getMergedACPForCheck(doc);
 
         // check pluggable policies
         Access access = securityPolicyService.checkPermission(doc, acp, principal, permission, resolvedPermissions,
@@ -158,7 +174,7 @@ public class SecurityService extends DefaultComponent {
         }
 
         String[] additionalPrincipals = getPrincipalsToCheck(principal);
-        ACP acp = doc.getSession().getMergedACP(doc);
+        ACP acp = doc.getSession().getMergedACPForCheck(doc);
 
         List<String> result = new ArrayList<>();
         for(String permission : permissions) {
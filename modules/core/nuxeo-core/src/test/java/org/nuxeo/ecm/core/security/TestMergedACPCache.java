@@ -0,0 +1,212 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.core.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.nuxeo.ecm.core.api.security.SecurityConstants.EVERYONE;
+import static org.nuxeo.ecm.core.api.security.SecurityConstants.EVERYTHING;
+import static org.nuxeo.ecm.core.api.security.SecurityConstants.READ;
+import static org.nuxeo.ecm.core.api.security.SecurityConstants.WRITE;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.nuxeo.ecm.core.api.security.ACE;
+import org.nuxeo.ecm.core.api.security.ACL;
+import org.nuxeo.ecm.core.api.security.ACP;
+import org.nuxeo.ecm.core.api.security.Access;
+import org.nuxeo.ecm.core.api.security.impl.ACLImpl;
+import org.nuxeo.ecm.core.api.security.impl.ACPImpl;
+import org.nuxeo.ecm.core.model.Document;
+
+public class TestMergedACPCache {
+
+    protected MergedACPCache cache;
+
+    protected Map<String, ACP> acps;
+
+    protected AtomicInteger reads;
+
+    protected Function<Document, ACP> acpReader;
+
+    protected Document root;
+
+    protected Document folder;
+
+    protected Document subfolder;
+
+    protected Document file;
+
+    @Before
+    public void setUp() {
+        cache = new MergedACPCache("test", 100);
+        acps = new HashMap<>();
+        reads = new AtomicInteger();
+        acpReader = doc -> {
+            reads.incrementAndGet();
+            ACP acp = acps.get(doc.getUUID());
+            // like the storage, return a new instance for each read
+            return acp == null ? null : acp.clone();
+        };
+        root = newDocument("root", null);
+        folder = newDocument("folder", root);
+        subfolder = newDocument("subfolder", folder);
+        file = newDocument("file", subfolder);
+        acps.put("root", newACP(new ACE("members", READ)));
+        acps.put("folder", newACP(new ACE("bob", WRITE)));
+    }
+
+    protected static Document newDocument(String id, Document parent) {
+        Document doc = mock(Document.class, id);
+        when(doc.getUUID()).thenReturn(id);
+        when(doc.getParent()).thenReturn(parent);
+        return doc;
+    }
+
+    protected static ACP newACP(ACE... aces) {
+        ACL acl = new ACLImpl(ACL.LOCAL_ACL);
+        acl.addAll(List.of(aces));
+        ACP acp = new ACPImpl();
+        acp.addACL(acl);
+        return acp;
+    }
+
+    protected ACP getMergedACP(Document doc) {
+        return cache.getMergedACP(doc, acpReader, cache.getGeneration());
+    }
+
+    @Test
+    public void testMergedACP() {
+        ACP acp = getMergedACP(file);
+        assertEquals(Access.GRANT, acp.getAccess(new String[] { "bob" }, new String[] { WRITE }));
+        assertEquals(Access.GRANT, acp.getAccess(new String[] { "members" }, new String[] { READ }));
+        assertEquals(Access.UNKNOWN, acp.getAccess(new String[] { "members" }, new String[] { WRITE }));
+        // file, subfolder, folder, root
+        assertEquals(4, reads.get());
+
+        // documents below the same ACL-bearing ancestor share the same merged ACP
+        Document file2 = newDocument("file2", subfolder);
+        assertSame(acp, getMergedACP(file2));
+        assertEquals(5, reads.get());
+
+        // a document with its own ACP gets its own merged ACP
+        acps.put("file2", newACP(new ACE("john", READ)));
+        ACP acp2 = getMergedACP(file2);
+        assertNotSame(acp, acp2);
+        assertEquals(Access.GRANT, acp2.getAccess(new String[] { "john" }, new String[] { READ }));
+        assertEquals(Access.GRANT, acp2.getAccess(new String[] { "bob" }, new String[] { WRITE }));
+        assertEquals(6, reads.get());
+
+        // the root has no inherited ACL
+        assertEquals(Access.UNKNOWN, getMergedACP(root).getAccess(new String[] { "bob" }, new String[] { WRITE }));
+    }
+
+    @Test
+    public void testBlockInheritance() {
+        acps.put("subfolder", newACP(new ACE("john", READ), new ACE(EVERYONE, EVERYTHING, false)));
+        ACP acp = getMergedACP(file);
+        assertEquals(Access.GRANT, acp.getAccess(new String[] { "john" }, new String[] { READ }));
+        assertEquals(Access.DENY, acp.getAccess(new String[] { "bob" }, new String[] { WRITE }));
+        // ancestors above the blocking folder are not read
+        assertEquals(2, reads.get());
+
+        // blocking on the document itself
+        acps.put("file", newACP(new ACE(EVERYONE, EVERYTHING, false)));
+        assertNull(getMergedACP(file).getACL(ACL.INHERITED_ACL));
+    }
+
+    @Test
+    public void testInvalidateAncestor() {
+        ACP acp = getMergedACP(file);
+        assertEquals(Access.GRANT, acp.getAccess(new String[] { "bob" }, new String[] { WRITE }));
+
+        acps.put("folder", newACP(new ACE("bob", WRITE, false)));
+        cache.invalidate(List.of("folder"));
+
+        ACP acp2 = getMergedACP(file);
+        assertNotSame(acp, acp2);
+        assertEquals(Access.DENY, acp2.getAccess(new String[] { "bob" }, new String[] { WRITE }));
+    }
+
+    @Test
+    public void testEvictedAncestor() {
+        assertEquals(Access.GRANT, getMergedACP(file).getAccess(new String[] { "bob" }, new String[] { WRITE }));
+
+        // evicted, the later invalidation of the folder doesn't find it anymore
+        cache.nodes.invalidate("folder");
+        acps.put("folder", newACP(new ACE("bob", WRITE, false)));
+        cache.invalidate(List.of("folder"));
+
+        assertEquals(Access.DENY, getMergedACP(file).getAccess(new String[] { "bob" }, new String[] { WRITE }));
+    }
+
+    @Test
+    public void testRecomputedAncestor() {
+        assertEquals(Access.GRANT, getMergedACP(file).getAccess(new String[] { "bob" }, new String[] { WRITE }));
+
+        // evicted then recomputed for another document, the subfolder still references the evicted entry
+        cache.nodes.invalidate("folder");
+        Document file2 = newDocument("file2", folder);
+        assertEquals(Access.GRANT, getMergedACP(file2).getAccess(new String[] { "bob" }, new String[] { WRITE }));
+        acps.put("folder", newACP(new ACE("bob", WRITE, false)));
+        cache.invalidate(List.of("folder"));
+
+        assertEquals(Access.DENY, getMergedACP(file).getAccess(new String[] { "bob" }, new String[] { WRITE }));
+        assertEquals(Access.DENY, getMergedACP(file2).getAccess(new String[] { "bob" }, new String[] { WRITE }));
+    }
+
+    @Test
+    public void testNoPopulateWhenStale() {
+        long gen = cache.getGeneration();
+        cache.invalidate(List.of("unrelated"));
+        ACP acp = cache.getMergedACP(file, acpReader, gen);
+        assertEquals(4, reads.get());
+        // nothing was cached
+        assertNotSame(acp, cache.getMergedACP(file, acpReader, gen));
+        assertEquals(8, reads.get());
+        // cached with the current generation
+        acp = getMergedACP(file);
+        assertSame(acp, getMergedACP(file));
+    }
+
+    @Test
+    public void testDecisions() {
+        ACP acp = getMergedACP(file);
+        String[] principals = new String[] { "bob", "members", EVERYONE };
+        String[] permissions = new String[] { WRITE, EVERYTHING };
+        assertEquals(Access.GRANT, acp.getAccess(principals, permissions));
+        // same decision with equal arrays
+        assertEquals(Access.GRANT,
+                acp.getAccess(new String[] { "bob", "members", EVERYONE }, new String[] { WRITE, EVERYTHING }));
+        assertEquals(1, ((MergedACPCache.MergedACP) acp).decisions.size());
+        assertEquals(Access.UNKNOWN, acp.getAccess(new String[] { "john", EVERYONE }, permissions));
+        assertEquals(2, ((MergedACPCache.MergedACP) acp).decisions.size());
+    }
+
+}
@@ -80,6 +80,12 @@ public class CommandLineDescriptor implements Serializable {
     @XNode("installationDirective")
     protected String installationDirective;
 
+    /**
+     * @since 11.2
+     */
+    @XNode("maxConcurrency")
+    protected int maxConcurrency;
+
     protected String installErrorMessage;
 
     public String getInstallErrorMessage() {
@@ -145,6 +151,15 @@ public class CommandLineDescriptor implements Serializable {
         return testParameterString;
     }
 
+    /**
+     * Gets the maximum number of processes running concurrently for this command line, {@code 0} if not defined.
+     *
+     * @since 11.2
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
     public String getExecutor() {
         return CommandLineExecutorComponent.DEFAULT_EXECUTOR;
     }
@@ -31,6 +31,7 @@ import org.apache.commons.logging.LogFactory;
 import org.nuxeo.common.Environment;
 import org.nuxeo.ecm.platform.commandline.executor.api.CmdParameters;
 import org.nuxeo.ecm.platform.commandline.executor.api.CommandAvailability;
+import org.nuxeo.ecm.platform.commandline.executor.api.CommandException;
 import org.nuxeo.ecm.platform.commandline.executor.api.CommandLineExecutorService;
 import org.nuxeo.ecm.platform.commandline.executor.api.CommandNotAvailable;
 import org.nuxeo.ecm.platform.commandline.executor.api.ExecResult;
@@ -69,6 +70,9 @@ public class CommandLineExecutorComponent extends DefaultComponent implements Co
 
     protected static Map<String, Executor> executors = new HashMap<>();
 
+    /** @since 11.2 */
+    protected static CommandScheduler scheduler = new CommandScheduler();
+
     private static final Log log = LogFactory.getLog(CommandLineExecutorComponent.class);
 
     @Override
@@ -78,6 +82,7 @@ public class CommandLineExecutorComponent extends DefaultComponent implements Co
         testers = new HashMap<>();
         executors = new HashMap<>();
         executors.put(DEFAULT_EXECUTOR, new ShellExecutor());
+        scheduler = new CommandScheduler();
     }
 
     @Override
@@ -86,6 +91,7 @@ public class CommandLineExecutorComponent extends DefaultComponent implements Co
         env = null;
         testers = null;
         executors = null;
+        scheduler = null;
     }
 
     @Override
@@ -112,6 +118,7 @@ public class CommandLineExecutorComponent extends DefaultComponent implements Co
 
             if (!desc.isEnabled()) {
                 commandDescriptors.remove(name);
+                scheduler.unregister(name);
                 log.info("Command configured to not be enabled: " + name);
                 return;
             }
@@ -140,6 +147,7 @@ public class CommandLineExecutorComponent extends DefaultComponent implements Co
             }
             desc.setAvailable(cmdAvailable);
             commandDescriptors.put(name, desc);
+            scheduler.register(desc);
         } else if (EP_CMDTESTER.equals(extensionPoint)) {
             CommandTesterDescriptor desc = (CommandTesterDescriptor) contribution;
             CommandTester tester;
@@ -170,7 +178,14 @@ public class CommandLineExecutorComponent extends DefaultComponent implements Co
         Executor executor = executors.get(cmdDesc.getExecutor());
         EnvironmentDescriptor environment = new EnvironmentDescriptor().merge(env).merge(
                 envDescriptors.getOrDefault(commandName, envDescriptors.get(cmdDesc.getCommand())));
-        return executor.exec(cmdDesc, params, environment);
+        try {
+            return scheduler.execute(cmdDesc, () -> executor.exec(cmdDesc, params, environment));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new ExecResult(cmdDesc.getCommand(), e);
+        } catch (CommandException e) {
+            return new ExecResult(cmdDesc.getCommand(), e);
+        }
     }
 
     @Override
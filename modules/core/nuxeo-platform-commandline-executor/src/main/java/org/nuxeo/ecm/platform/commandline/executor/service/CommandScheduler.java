@@ -0,0 +1,169 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.platform.commandline.executor.service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.platform.commandline.executor.api.CommandException;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.metrics.MetricsService;
+import org.nuxeo.runtime.services.config.ConfigurationService;
+
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+import io.dropwizard.metrics5.Timer;
+
+/**
+ * Limits the number of processes running concurrently for each command line.
+ * <p>
+ * The limit is opt-in. Commands sharing the same command line (for instance all the ImageMagick {@code convert}
+ * commands) share the same limit, which is the lowest positive {@code maxConcurrency} of their descriptors, or the
+ * {@value #MAX_CONCURRENCY_PROP} configuration property if none is defined. Without any of them, or if the property is
+ * lower or equal to {@code 0}, the command line is not limited.
+ * <p>
+ * Callers over the limit wait in arrival order, at most for the {@value #MAX_CONCURRENCY_TIMEOUT_PROP} configuration
+ * property. The wait time and the execution time are recorded for each command.
+ *
+ * @since 11.2
+ */
+public class CommandScheduler {
+
+    private static final Logger log = LogManager.getLogger(CommandScheduler.class);
+
+    public static final String MAX_CONCURRENCY_PROP = "nuxeo.commandline.maxConcurrency";
+
+    public static final String MAX_CONCURRENCY_TIMEOUT_PROP = "nuxeo.commandline.maxConcurrency.timeout";
+
+    public static final Duration DEFAULT_MAX_CONCURRENCY_TIMEOUT = Duration.ofMinutes(10);
+
+    protected static final Semaphore UNLIMITED = new Semaphore(Integer.MAX_VALUE);
+
+    /** Registered descriptors, by command name. */
+    protected final Map<String, CommandLineDescriptor> descriptors = new ConcurrentHashMap<>();
+
+    /** Semaphores by command line, created on first use. */
+    protected final Map<String, Semaphore> semaphores = new ConcurrentHashMap<>();
+
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+    /**
+     * Registers the given command descriptor, replacing the previous descriptor of the same command.
+     */
+    public void register(CommandLineDescriptor desc) {
+        CommandLineDescriptor previous = descriptors.put(desc.getName(), desc);
+        // recompute the limits of the command lines on next use
+        if (previous != null) {
+            semaphores.remove(previous.getCommand());
+        }
+        semaphores.remove(desc.getCommand());
+    }
+
+    /**
+     * Unregisters the descriptor of the given command.
+     */
+    public void unregister(String name) {
+        CommandLineDescriptor previous = descriptors.remove(name);
+        if (previous != null) {
+            semaphores.remove(previous.getCommand());
+        }
+    }
+
+    /**
+     * Runs the given command execution when the limit of its command line allows it.
+     *
+     * @throws InterruptedException if the thread is interrupted while waiting
+     * @throws CommandException if the limit doesn't allow the execution before the timeout
+     */
+    public <T> T execute(CommandLineDescriptor desc, Supplier<T> execution)
+            throws InterruptedException, CommandException {
+        String command = desc.getCommand();
+        Semaphore semaphore = semaphores.computeIfAbsent(command, this::newSemaphore);
+        String name = desc.getName();
+        Timer.Context waitContext = timer("wait", name).time();
+        Duration timeout = getTimeout();
+        if (!semaphore.tryAcquire(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            waitContext.stop();
+            throw new CommandException(String.format(
+                    "Timeout after %s waiting to run command: %s, too many processes of command line: %s are running",
+                    timeout, name, command));
+        }
+        try {
+            long waited = waitContext.stop();
+            log.trace("Waited {} ms to run command: {}", () -> TimeUnit.NANOSECONDS.toMillis(waited), () -> name);
+            try (Timer.Context execContext = timer("exec", name).time()) {
+                return execution.get();
+            }
+        } finally {
+            semaphore.release();
+        }
+    }
+
+    protected Semaphore newSemaphore(String command) {
+        int limit = getLimit(command);
+        if (limit <= 0) {
+            return UNLIMITED;
+        }
+        log.debug("Limiting command line: {} to {} concurrent processes", command, limit);
+        // fair, so that a burst of executions is served in order
+        return new Semaphore(limit, true);
+    }
+
+    /**
+     * Gets the limit of the given command line from the current descriptors, or from the configuration property.
+     */
+    protected int getLimit(String command) {
+        OptionalInt limit = descriptors.values()
+                                       .stream()
+                                       .filter(desc -> command.equals(desc.getCommand()))
+                                       .mapToInt(CommandLineDescriptor::getMaxConcurrency)
+                                       .filter(maxConcurrency -> maxConcurrency > 0)
+                                       .min();
+        return limit.isPresent() ? limit.getAsInt() : getDefaultLimit();
+    }
+
+    protected int getDefaultLimit() {
+        ConfigurationService configurationService = Framework.getService(ConfigurationService.class);
+        if (configurationService == null) {
+            return 0;
+        }
+        return configurationService.getInteger(MAX_CONCURRENCY_PROP, 0);
+    }
+
+    protected Duration getTimeout() {
+        ConfigurationService configurationService = Framework.getService(ConfigurationService.class);
+        if (configurationService == null) {
+            return DEFAULT_MAX_CONCURRENCY_TIMEOUT;
+        }
+        return configurationService.getDuration(MAX_CONCURRENCY_TIMEOUT_PROP, DEFAULT_MAX_CONCURRENCY_TIMEOUT);
+    }
+
+    protected Timer timer(String type, String name) {
+        return registry.timer(MetricName.build("nuxeo", "commandline", type).tagged("command", name));
+    }
+
+}
@@ -0,0 +1,222 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.platform.commandline.executor.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.nuxeo.ecm.platform.commandline.executor.api.CommandException;
+import org.nuxeo.ecm.platform.commandline.executor.service.CommandLineDescriptor;
+import org.nuxeo.ecm.platform.commandline.executor.service.CommandScheduler;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+
+/**
+ * @since 11.2
+ */
+public class TestCommandScheduler {
+
+    protected static class TestCommandLineDescriptor extends CommandLineDescriptor {
+
+        private static final long serialVersionUID = 1L;
+
+        protected TestCommandLineDescriptor(String name, String command, int maxConcurrency) {
+            this.name = name;
+            this.command = command;
+            this.maxConcurrency = maxConcurrency;
+        }
+    }
+
+    /**
+     * Scheduler with the configuration of the test instead of the configuration service.
+     */
+    protected static class ConfiguredScheduler extends CommandScheduler {
+
+        protected final int defaultLimit;
+
+        protected final Duration timeout;
+
+        protected ConfiguredScheduler(int defaultLimit, Duration timeout) {
+            this.defaultLimit = defaultLimit;
+            this.timeout = timeout;
+        }
+
+        @Override
+        protected int getDefaultLimit() {
+            return defaultLimit;
+        }
+
+        @Override
+        protected Duration getTimeout() {
+            return timeout;
+        }
+
+        public int limit(String command) {
+            return getLimit(command);
+        }
+    }
+
+    protected static CommandScheduler newScheduler() {
+        return new ConfiguredScheduler(0, Duration.ofSeconds(10));
+    }
+
+    @Test
+    public void testMaxConcurrency() throws Exception {
+        CommandScheduler scheduler = newScheduler();
+        CommandLineDescriptor resize = new TestCommandLineDescriptor("testResize", "testconvert", 3);
+        CommandLineDescriptor crop = new TestCommandLineDescriptor("testCrop", "testconvert", 2);
+        scheduler.register(resize);
+        scheduler.register(crop);
+
+        int nbExecutions = 20;
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < nbExecutions; i++) {
+            CommandLineDescriptor desc = i % 2 == 0 ? resize : crop;
+            futures.add(executor.submit(() -> scheduler.execute(desc, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                running.decrementAndGet();
+                return 0;
+            })));
+        }
+        for (Future<Integer> future : futures) {
+            assertEquals(0, future.get(10, TimeUnit.SECONDS).intValue());
+        }
+        executor.shutdown();
+
+        // the commands share the lowest limit of their command line
+        assertTrue(String.valueOf(maxRunning.get()), maxRunning.get() <= 2);
+        MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+        MetricName waitName = MetricName.build("nuxeo", "commandline", "wait").tagged("command", "testResize");
+        MetricName execName = MetricName.build("nuxeo", "commandline", "exec").tagged("command", "testCrop");
+        assertEquals(nbExecutions / 2, registry.timer(waitName).getCount());
+        assertEquals(nbExecutions / 2, registry.timer(execName).getCount());
+    }
+
+    @Test
+    public void testNoLimitByDefault() throws Exception {
+        CommandScheduler scheduler = newScheduler();
+        CommandLineDescriptor resize = new TestCommandLineDescriptor("testResize", "testconvert", 0);
+        scheduler.register(resize);
+
+        // all the executions run at the same time
+        int nbExecutions = 8;
+        CountDownLatch started = new CountDownLatch(nbExecutions);
+        ExecutorService executor = Executors.newFixedThreadPool(nbExecutions);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < nbExecutions; i++) {
+            futures.add(executor.submit(() -> scheduler.execute(resize, () -> {
+                started.countDown();
+                try {
+                    return started.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            })));
+        }
+        for (Future<Boolean> future : futures) {
+            assertTrue(future.get(20, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void testLimitFromConfiguration() {
+        ConfiguredScheduler scheduler = new ConfiguredScheduler(4, Duration.ofSeconds(10));
+        scheduler.register(new TestCommandLineDescriptor("testResize", "testconvert", 0));
+        assertEquals(4, scheduler.limit("testconvert"));
+        scheduler.register(new TestCommandLineDescriptor("testCrop", "testconvert", 2));
+        assertEquals(2, scheduler.limit("testconvert"));
+    }
+
+    @Test
+    public void testLimitRecomputedOnRegister() {
+        ConfiguredScheduler scheduler = new ConfiguredScheduler(0, Duration.ofSeconds(10));
+        scheduler.register(new TestCommandLineDescriptor("testResize", "testconvert", 3));
+        scheduler.register(new TestCommandLineDescriptor("testCrop", "testconvert", 2));
+        assertEquals(2, scheduler.limit("testconvert"));
+
+        // an override of a descriptor replaces its limit
+        scheduler.register(new TestCommandLineDescriptor("testCrop", "testconvert", 5));
+        assertEquals(3, scheduler.limit("testconvert"));
+        scheduler.register(new TestCommandLineDescriptor("testResize", "testconvert", 0));
+        assertEquals(5, scheduler.limit("testconvert"));
+
+        scheduler.unregister("testCrop");
+        assertEquals(0, scheduler.limit("testconvert"));
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        CommandScheduler scheduler = new ConfiguredScheduler(0, Duration.ofMillis(100));
+        CommandLineDescriptor resize = new TestCommandLineDescriptor("testResize", "testconvert", 1);
+        scheduler.register(resize);
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Integer> future = executor.submit(() -> scheduler.execute(resize, () -> {
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 0;
+        }));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        try {
+            scheduler.execute(resize, () -> 1);
+            fail("The execution should time out");
+        } catch (CommandException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("testResize"));
+        } finally {
+            release.countDown();
+        }
+        assertEquals(0, future.get(10, TimeUnit.SECONDS).intValue());
+        executor.shutdown();
+
+        // the limit is released
+        assertEquals(1, scheduler.execute(resize, () -> 1).intValue());
+    }
+
+}
@@ -0,0 +1,392 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.drive.service.impl;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.drive.service.NuxeoDriveEvents;
+import org.nuxeo.drive.service.TooManyChangesException;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.platform.audit.api.ExtendedInfo;
+import org.nuxeo.ecm.platform.audit.api.LogEntry;
+import org.nuxeo.ecm.platform.audit.impl.ExtendedInfoImpl;
+import org.nuxeo.ecm.platform.audit.impl.LogEntryImpl;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.kv.KeyValueService;
+import org.nuxeo.runtime.kv.KeyValueStore;
+import org.nuxeo.runtime.kv.KeyValueStoreProvider;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Index of the document changes relevant to Nuxeo Drive, stored in a {@link KeyValueStore}.
+ * <p>
+ * Each change gets a sequence number, used as the cursor of the {@link StreamChangeFinder}, so that looking up the
+ * changes between two cursors only reads the changes in that range. The index is compacted: a document change that is
+ * not a {@link NuxeoDriveEvents#EVENT_CATEGORY} event replaces the previous such change of the same document, since
+ * the file system item is computed from the current document anyway. Only the last {@code maxChanges} sequence numbers
+ * are kept.
+ * <p>
+ * The storage format is the following:
+ *
+ * <pre>
+ *   seq:                  sequence number of the last reserved change
+ *   last:                 sequence number of the last published change
+ *   low:                  changes with a sequence number lower or equal have been purged
+ *   change:seq:           {"eventId": ..., "category": ..., "docUUID": ..., "docPath": ..., ...}
+ *   doc:repository:docId: sequence number of the last compactable change of the document
+ * </pre>
+ * <p>
+ * It is written by the {@link StreamChangeIndexer}.
+ *
+ * @since 11.2
+ */
+public class KeyValueChangeIndex {
+
+    private static final Logger log = LogManager.getLogger(KeyValueChangeIndex.class);
+
+    public static final String STORE_NAME = "nuxeodrive-changes";
+
+    public static final int DEFAULT_MAX_CHANGES = 100_000;
+
+    protected static final String SEQ = "seq";
+
+    protected static final String LAST = "last";
+
+    protected static final String LOW = "low";
+
+    protected static final String CHANGE_PREFIX = "change:";
+
+    protected static final String DOC_PREFIX = "doc:";
+
+    // a compaction pointer is useless once its change has been purged, don't keep it forever
+    protected static final long DOC_TTL = TimeUnit.DAYS.toSeconds(7);
+
+    protected static final int READ_BATCH_SIZE = 100;
+
+    protected static final long PUBLISH_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+    protected static final String FILE_SYSTEM_ITEM_ID = "fileSystemItemId";
+
+    protected static final TypeReference<Map<String, String>> MAP_STRING_STRING = new TypeReference<>() {
+    };
+
+    protected final int maxChanges;
+
+    protected final ObjectMapper mapper = new ObjectMapper();
+
+    public KeyValueChangeIndex() {
+        this(DEFAULT_MAX_CHANGES);
+    }
+
+    public KeyValueChangeIndex(int maxChanges) {
+        this.maxChanges = maxChanges;
+    }
+
+    protected KeyValueStore getKeyValueStore() {
+        return Framework.getService(KeyValueService.class).getKeyValueStore(STORE_NAME);
+    }
+
+    /**
+     * Returns the sequence number of the last change, or {@code -1} if there is no change.
+     */
+    public long getLastSequence() {
+        Long seq = getKeyValueStore().getLong(LAST);
+        return seq == null ? -1 : seq.longValue();
+    }
+
+    /**
+     * Returns the sequence number of the last change logged before the given date, or the lowest available sequence
+     * number if there is none, or {@code -1} if there is no change.
+     */
+    public long getLastSequenceBefore(long date) {
+        KeyValueStore kvs = getKeyValueStore();
+        Long seq = kvs.getLong(LAST);
+        if (seq == null) {
+            return -1;
+        }
+        long low = getLow(kvs);
+        for (long end = seq.longValue(); end > low; end -= READ_BATCH_SIZE) {
+            long start = Math.max(low, end - READ_BATCH_SIZE);
+            List<LogEntry> entries = read(kvs, start, end);
+            for (int i = entries.size() - 1; i >= 0; i--) {
+                LogEntry entry = entries.get(i);
+                if (entry.getLogDate() != null && entry.getLogDate().getTime() < date) {
+                    return entry.getId();
+                }
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Appends changes to the index.
+     * <p>
+     * The sequence numbers of the changes are reserved before writing them, so that a sequence number is never reused
+     * even if a previous append failed or another writer is running. The changes are visible to the readers once they
+     * and the changes of the previous ranges are written.
+     */
+    public void append(List<LogEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        KeyValueStore kvs = getKeyValueStore();
+        long end = kvs.addAndGet(SEQ, entries.size());
+        long seq = end - entries.size();
+        for (LogEntry entry : entries) {
+            seq++;
+            String json = toJson(entry);
+            kvs.put(CHANGE_PREFIX + seq, json);
+            if (isCompactable(entry)) {
+                compact(kvs, entry, seq, json);
+            }
+        }
+        publish(kvs, end - entries.size(), end);
+        purge(kvs, end);
+    }
+
+    /**
+     * Makes the change with the given sequence number the last compactable change of its document, and removes the
+     * previous one.
+     */
+    protected void compact(KeyValueStore kvs, LogEntry entry, long seq, String json) {
+        String docKey = DOC_PREFIX + entry.getRepositoryId() + ':' + entry.getDocUUID();
+        for (;;) {
+            String previous = kvs.getString(docKey);
+            if (previous != null && Long.parseLong(previous) > seq) {
+                // a more recent change of the document has been appended concurrently, remove ours
+                removeChange(kvs, seq, entry);
+                return;
+            }
+            if (kvs.compareAndSet(docKey, previous, String.valueOf(seq), DOC_TTL)) {
+                if (previous != null) {
+                    removeChange(kvs, Long.parseLong(previous), entry);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes the change with the given sequence number if it is still a change of the same document.
+     */
+    protected void removeChange(KeyValueStore kvs, long seq, LogEntry entry) {
+        String key = CHANGE_PREFIX + seq;
+        String json = kvs.getString(key);
+        if (json == null) {
+            return;
+        }
+        LogEntry change = fromJson(seq, json);
+        if (!Objects.equals(change.getRepositoryId(), entry.getRepositoryId())
+                || !Objects.equals(change.getDocUUID(), entry.getDocUUID()) || !isCompactable(change)) {
+            log.debug("Not removing change: {} of another document", seq);
+            return;
+        }
+        kvs.compareAndSet(key, json, null);
+    }
+
+    /**
+     * Publishes the changes with a sequence number greater than {@code start} and lower or equal to {@code end}, once
+     * the previous ranges are published.
+     */
+    protected void publish(KeyValueStore kvs, long start, long end) {
+        String expected = start == 0 ? null : String.valueOf(start);
+        long deadline = System.currentTimeMillis() + PUBLISH_TIMEOUT;
+        while (!kvs.compareAndSet(LAST, expected, String.valueOf(end))) {
+            Long last = kvs.getLong(LAST);
+            if (last != null && last.longValue() >= end) {
+                return;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                // the writer of a previous range is gone, don't wait for it forever
+                log.warn("Timeout waiting for the changes up to: {} to be published, publishing up to: {}", start, end);
+                kvs.put(LAST, Long.valueOf(end));
+                return;
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new NuxeoException(e);
+            }
+        }
+    }
+
+    protected boolean isCompactable(LogEntry entry) {
+        return !NuxeoDriveEvents.EVENT_CATEGORY.equals(entry.getCategory())
+                && entry.getExtendedInfos().get(FILE_SYSTEM_ITEM_ID) == null;
+    }
+
+    protected void purge(KeyValueStore kvs, long seq) {
+        long low = getLow(kvs);
+        long newLow = seq - maxChanges;
+        if (newLow <= low) {
+            return;
+        }
+        for (long s = low + 1; s <= newLow; s++) {
+            kvs.put(CHANGE_PREFIX + s, (String) null);
+        }
+        kvs.put(LOW, Long.valueOf(newLow));
+        log.debug("Purged changes up to: {}", newLow);
+    }
+
+    protected long getLow(KeyValueStore kvs) {
+        Long low = kvs.getLong(LOW);
+        return low == null ? 0 : low.longValue();
+    }
+
+    /**
+     * Gets the changes with a sequence number greater than {@code lowerBound} and lower or equal to {@code upperBound}
+     * matching the given filter, most recent first. At most {@code limit} changes are returned.
+     *
+     * @throws TooManyChangesException if some changes in the range have been purged
+     */
+    public List<LogEntry> getChanges(long lowerBound, long upperBound, Predicate<LogEntry> filter, int limit) {
+        KeyValueStore kvs = getKeyValueStore();
+        if (lowerBound < getLow(kvs)) {
+            throw new TooManyChangesException("Changes have been purged from the change index.");
+        }
+        List<LogEntry> changes = new ArrayList<>();
+        for (long start = lowerBound; start < upperBound && changes.size() < limit; start += READ_BATCH_SIZE) {
+            for (LogEntry entry : read(kvs, start, Math.min(start + READ_BATCH_SIZE, upperBound))) {
+                if (filter.test(entry)) {
+                    log.debug("Change detected: {}", entry);
+                    changes.add(entry);
+                    if (changes.size() >= limit) {
+                        break;
+                    }
+                }
+            }
+        }
+        changes.sort(Comparator.comparing(LogEntry::getEventDate, Comparator.nullsFirst(Comparator.naturalOrder()))
+                               .reversed());
+        return changes;
+    }
+
+    /**
+     * Reads the changes with a sequence number greater than {@code start} and lower or equal to {@code end}, ordered by
+     * sequence number.
+     */
+    protected List<LogEntry> read(KeyValueStore kvs, long start, long end) {
+        List<String> keys = new ArrayList<>();
+        for (long s = start + 1; s <= end; s++) {
+            keys.add(CHANGE_PREFIX + s);
+        }
+        Map<String, String> values = kvs.getStrings(keys);
+        List<LogEntry> entries = new ArrayList<>(values.size());
+        for (long s = start + 1; s <= end; s++) {
+            String json = values.get(CHANGE_PREFIX + s);
+            if (json != null) {
+                // otherwise compacted or purged
+                entries.add(fromJson(s, json));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Removes all the changes from the index.
+     */
+    public void clear() {
+        ((KeyValueStoreProvider) getKeyValueStore()).clear();
+    }
+
+    protected String toJson(LogEntry entry) {
+        Map<String, String> map = new HashMap<>();
+        map.put("eventId", entry.getEventId());
+        map.put("category", entry.getCategory());
+        map.put("eventDate", toString(entry.getEventDate()));
+        map.put("logDate", toString(entry.getLogDate()));
+        map.put("principalName", entry.getPrincipalName());
+        map.put("repositoryId", entry.getRepositoryId());
+        map.put("docUUID", entry.getDocUUID());
+        map.put("docPath", entry.getDocPath());
+        map.put("docType", entry.getDocType());
+        map.put("docLifeCycle", entry.getDocLifeCycle());
+        map.put(FILE_SYSTEM_ITEM_ID, getExtendedInfo(entry, FILE_SYSTEM_ITEM_ID));
+        map.put(NuxeoDriveEvents.IMPACTED_USERNAME_PROPERTY,
+                getExtendedInfo(entry, NuxeoDriveEvents.IMPACTED_USERNAME_PROPERTY));
+        try {
+            return mapper.writeValueAsString(map);
+        } catch (IOException e) {
+            throw new NuxeoException(e);
+        }
+    }
+
+    protected LogEntry fromJson(long seq, String json) {
+        Map<String, String> map;
+        try {
+            map = mapper.readValue(json, MAP_STRING_STRING);
+        } catch (IOException e) {
+            throw new NuxeoException("Invalid change: " + json, e);
+        }
+        LogEntryImpl entry = new LogEntryImpl();
+        entry.setId(seq);
+        entry.setEventId(map.get("eventId"));
+        entry.setCategory(map.get("category"));
+        entry.setEventDate(toDate(map.get("eventDate")));
+        entry.setLogDate(toDate(map.get("logDate")));
+        entry.setPrincipalName(map.get("principalName"));
+        entry.setRepositoryId(map.get("repositoryId"));
+        entry.setDocUUID(map.get("docUUID"));
+        entry.setDocPath(map.get("docPath"));
+        entry.setDocType(map.get("docType"));
+        entry.setDocLifeCycle(map.get("docLifeCycle"));
+        Map<String, ExtendedInfo> extendedInfos = new HashMap<>();
+        putExtendedInfo(extendedInfos, FILE_SYSTEM_ITEM_ID, map);
+        putExtendedInfo(extendedInfos, NuxeoDriveEvents.IMPACTED_USERNAME_PROPERTY, map);
+        entry.setExtendedInfos(extendedInfos);
+        return entry;
+    }
+
+    protected static String getExtendedInfo(LogEntry entry, String name) {
+        ExtendedInfo info = entry.getExtendedInfos().get(name);
+        return info == null ? null : info.getValue(String.class);
+    }
+
+    protected static void putExtendedInfo(Map<String, ExtendedInfo> extendedInfos, String name,
+            Map<String, String> map) {
+        Serializable value = map.get(name);
+        if (value != null) {
+            extendedInfos.put(name, ExtendedInfoImpl.createExtendedInfo(value));
+        }
+    }
+
+    protected static String toString(Date date) {
+        return date == null ? null : String.valueOf(date.getTime());
+    }
+
+    protected static Date toDate(String value) {
+        return value == null ? null : new Date(Long.parseLong(value));
+    }
+
+}
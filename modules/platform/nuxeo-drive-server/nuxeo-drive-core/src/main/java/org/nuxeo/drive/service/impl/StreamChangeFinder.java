@@ -0,0 +1,107 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.drive.service.impl;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.drive.service.FileSystemChangeFinder;
+import org.nuxeo.drive.service.NuxeoDriveEvents;
+import org.nuxeo.drive.service.SynchronizationRoots;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.platform.audit.api.ExtendedInfo;
+import org.nuxeo.ecm.platform.audit.api.LogEntry;
+
+/**
+ * Implementation of {@link FileSystemChangeFinder} reading the {@link KeyValueChangeIndex} filled by the
+ * {@link StreamChangeIndexer}, instead of querying the audit for each client.
+ * <p>
+ * The bounds are sequence numbers of the index, so that looking up the changes of a client only reads the changes
+ * since its last synchronization. The changes are then handled the same way as the {@link AuditChangeFinder}.
+ * <p>
+ * The {@code driveChangeIndexer} stream processor must be enabled to use this change finder.
+ *
+ * @since 11.2
+ */
+public class StreamChangeFinder extends AuditChangeFinder {
+
+    private static final Logger log = LogManager.getLogger(StreamChangeFinder.class);
+
+    protected final KeyValueChangeIndex index = new KeyValueChangeIndex();
+
+    @Override
+    public long getUpperBound() {
+        return index.getLastSequence();
+    }
+
+    /**
+     * Returns the sequence number of the last change logged before the last clustering invalidation date if clustering
+     * is enabled for at least one of the given repositories.
+     */
+    @Override
+    public long getUpperBound(Set<String> repositoryNames) {
+        long clusteringDelay = getClusteringDelay(repositoryNames);
+        if (clusteringDelay > -1) {
+            // Double the delay in case of overlapping, see https://jira.nuxeo.com/browse/NXP-14826
+            return index.getLastSequenceBefore(System.currentTimeMillis() - 2 * clusteringDelay);
+        }
+        return index.getLastSequence();
+    }
+
+    @Override
+    protected List<LogEntry> queryAuditEntries(CoreSession session, SynchronizationRoots activeRoots,
+            Set<String> collectionSyncRootMemberIds, long lowerBound, long upperBound, int limit) {
+        log.debug("Reading change index for changes between {} and {}", lowerBound, upperBound);
+        return index.getChanges(lowerBound, upperBound,
+                getChangeFilter(session, activeRoots, collectionSyncRootMemberIds), limit);
+    }
+
+    /**
+     * Returns the filter equivalent to the audit query of the {@link AuditChangeFinder}.
+     */
+    protected Predicate<LogEntry> getChangeFilter(CoreSession session, SynchronizationRoots activeRoots,
+            Set<String> collectionSyncRootMemberIds) {
+        String repositoryName = session.getRepositoryName();
+        String principalName = session.getPrincipal().getName();
+        Set<String> rootPaths = activeRoots.getPaths();
+        return entry -> {
+            if (!repositoryName.equals(entry.getRepositoryId())) {
+                return false;
+            }
+            if (NuxeoDriveEvents.EVENT_CATEGORY.equals(entry.getCategory())) {
+                // ignore event that only impact other users
+                ExtendedInfo impactedUserInfo = entry.getExtendedInfos()
+                                                     .get(NuxeoDriveEvents.IMPACTED_USERNAME_PROPERTY);
+                return impactedUserInfo == null || principalName.equals(impactedUserInfo.getValue(String.class));
+            }
+            if (rootPaths.isEmpty()) {
+                return false;
+            }
+            String docPath = entry.getDocPath();
+            if (docPath != null && rootPaths.stream().anyMatch(docPath::startsWith)) {
+                return true;
+            }
+            return collectionSyncRootMemberIds != null && collectionSyncRootMemberIds.contains(entry.getDocUUID());
+        };
+    }
+
+}
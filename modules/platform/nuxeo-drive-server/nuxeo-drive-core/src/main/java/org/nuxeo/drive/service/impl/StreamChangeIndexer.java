@@ -0,0 +1,130 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.drive.service.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.nuxeo.ecm.platform.audit.listener.StreamAuditEventListener.STREAM_NAME;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.drive.service.NuxeoDriveEvents;
+import org.nuxeo.ecm.platform.audit.api.LogEntry;
+import org.nuxeo.ecm.platform.audit.impl.LogEntryImpl;
+import org.nuxeo.lib.stream.computation.AbstractBatchComputation;
+import org.nuxeo.lib.stream.computation.ComputationContext;
+import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.lib.stream.computation.Topology;
+import org.nuxeo.runtime.stream.StreamProcessorTopology;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Computation that consumes the audit stream once for all the Nuxeo Drive clients, and appends the changes relevant to
+ * Nuxeo Drive to the {@link KeyValueChangeIndex} read by the {@link StreamChangeFinder}.
+ * <p>
+ * The relevant changes are the ones matched by the audit query of the {@link AuditChangeFinder}, except for the
+ * synchronization root filtering which depends on the user and is done when reading the index.
+ * <p>
+ * The index has a single writer, so this computation must run with a concurrency of 1.
+ *
+ * @since 11.2
+ */
+public class StreamChangeIndexer implements StreamProcessorTopology {
+
+    private static final Logger log = LogManager.getLogger(StreamChangeIndexer.class);
+
+    public static final String COMPUTATION_NAME = "drive/changeIndexer";
+
+    /** Option for the number of changes kept in the index. */
+    public static final String MAX_CHANGES_OPT = "maxChanges";
+
+    protected static final Set<String> DOCUMENT_EVENTS = Set.of("documentCreated", "documentModified",
+            "documentMoved", "documentCreatedByCopy", "documentRestored", "addedToCollection",
+            "documentProxyPublished", "documentLocked", "documentUnlocked", "documentUntrashed");
+
+    @Override
+    public Topology getTopology(Map<String, String> options) {
+        int maxChanges = Integer.parseInt(
+                options.getOrDefault(MAX_CHANGES_OPT, String.valueOf(KeyValueChangeIndex.DEFAULT_MAX_CHANGES)));
+        return Topology.builder()
+                       .addComputation(() -> new ChangeIndexerComputation(COMPUTATION_NAME, maxChanges),
+                               Collections.singletonList("i1:" + STREAM_NAME))
+                       .build();
+    }
+
+    /**
+     * Returns {@code true} if the log entry may be a change for a Nuxeo Drive client.
+     */
+    public static boolean isDriveChange(LogEntry entry) {
+        String category = entry.getCategory();
+        String eventId = entry.getEventId();
+        if ("eventDocumentCategory".equals(category)) {
+            return DOCUMENT_EVENTS.contains(eventId);
+        }
+        if ("eventLifeCycleCategory".equals(category)) {
+            return "lifecycle_transition_event".equals(eventId) && !"deleted".equals(entry.getDocLifeCycle());
+        }
+        // root unregistration is covered by a "deleted" virtual event
+        return NuxeoDriveEvents.EVENT_CATEGORY.equals(category)
+                && !NuxeoDriveEvents.ROOT_UNREGISTERED.equals(eventId);
+    }
+
+    public static class ChangeIndexerComputation extends AbstractBatchComputation {
+
+        protected final KeyValueChangeIndex index;
+
+        protected final ObjectMapper mapper = new ObjectMapper();
+
+        public ChangeIndexerComputation(String name, int maxChanges) {
+            super(name, 1, 0);
+            index = new KeyValueChangeIndex(maxChanges);
+        }
+
+        @Override
+        protected void batchProcess(ComputationContext context, String inputStreamName, List<Record> records) {
+            List<LogEntry> entries = new ArrayList<>();
+            for (Record record : records) {
+                LogEntry entry;
+                try {
+                    entry = mapper.readValue(new String(record.getData(), UTF_8), LogEntryImpl.class);
+                } catch (IOException e) {
+                    log.error("Discard invalid record: {}", record, e);
+                    continue;
+                }
+                if (isDriveChange(entry)) {
+                    entries.add(entry);
+                }
+            }
+            index.append(entries);
+        }
+
+        @Override
+        public void batchFailure(ComputationContext context, String inputStreamName, List<Record> records) {
+            // error log already done by abstract
+        }
+    }
+
+}
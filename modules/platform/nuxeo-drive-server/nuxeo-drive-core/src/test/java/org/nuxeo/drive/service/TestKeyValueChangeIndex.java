@@ -0,0 +1,173 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.drive.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.drive.service.impl.KeyValueChangeIndex;
+import org.nuxeo.drive.service.impl.StreamChangeIndexer;
+import org.nuxeo.ecm.platform.audit.api.LogEntry;
+import org.nuxeo.ecm.platform.audit.impl.ExtendedInfoImpl;
+import org.nuxeo.ecm.platform.audit.impl.LogEntryImpl;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.kv.KeyValueService;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.test.runner.RuntimeFeature;
+
+/**
+ * Tests the {@link KeyValueChangeIndex} used by the {@link org.nuxeo.drive.service.impl.StreamChangeFinder}.
+ *
+ * @since 11.2
+ */
+@RunWith(FeaturesRunner.class)
+@Features(RuntimeFeature.class)
+@Deploy("org.nuxeo.runtime.kv")
+public class TestKeyValueChangeIndex {
+
+    protected KeyValueChangeIndex index;
+
+    @Before
+    public void setUp() {
+        index = new KeyValueChangeIndex(5);
+        index.clear();
+    }
+
+    protected static LogEntry newEntry(String category, String eventId, String docId, long date) {
+        LogEntryImpl entry = new LogEntryImpl();
+        entry.setCategory(category);
+        entry.setEventId(eventId);
+        entry.setRepositoryId("test");
+        entry.setDocUUID(docId);
+        entry.setDocPath("/folder/" + docId);
+        entry.setEventDate(new Date(date));
+        entry.setLogDate(new Date(date));
+        return entry;
+    }
+
+    protected static LogEntry newDocumentEntry(String eventId, String docId, long date) {
+        return newEntry("eventDocumentCategory", eventId, docId, date);
+    }
+
+    protected List<String> getChanges(long lowerBound, long upperBound) {
+        return index.getChanges(lowerBound, upperBound, entry -> true, 100)
+                    .stream()
+                    .map(entry -> entry.getEventId() + ":" + entry.getDocUUID())
+                    .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testGetChangesByCursor() {
+        assertEquals(-1, index.getLastSequence());
+        index.append(Arrays.asList(newDocumentEntry("documentCreated", "doc1", 1000),
+                newDocumentEntry("documentCreated", "doc2", 2000)));
+        long cursor = index.getLastSequence();
+        assertEquals(2, cursor);
+        assertEquals(Arrays.asList("documentCreated:doc2", "documentCreated:doc1"), getChanges(0, cursor));
+
+        index.append(Arrays.asList(newDocumentEntry("documentCreated", "doc3", 3000)));
+        assertEquals(Arrays.asList("documentCreated:doc3"), getChanges(cursor, index.getLastSequence()));
+        assertEquals(Arrays.asList(), getChanges(index.getLastSequence(), index.getLastSequence()));
+    }
+
+    @Test
+    public void testCompaction() {
+        LogEntry deleted = newEntry(NuxeoDriveEvents.EVENT_CATEGORY, NuxeoDriveEvents.DELETED_EVENT, "doc1", 3000);
+        deleted.getExtendedInfos().put("fileSystemItemId", ExtendedInfoImpl.createExtendedInfo("test#doc1"));
+        index.append(Arrays.asList(newDocumentEntry("documentCreated", "doc1", 1000),
+                newDocumentEntry("documentModified", "doc1", 2000), deleted));
+        // the last document change replaces the previous one, the Nuxeo Drive event is kept
+        List<LogEntry> changes = index.getChanges(0, index.getLastSequence(), entry -> true, 100);
+        assertEquals(2, changes.size());
+        assertEquals(NuxeoDriveEvents.DELETED_EVENT, changes.get(0).getEventId());
+        assertEquals("test#doc1", changes.get(0).getExtendedInfos().get("fileSystemItemId").getValue(String.class));
+        assertEquals(3, changes.get(0).getId());
+        assertEquals("documentModified", changes.get(1).getEventId());
+    }
+
+    @Test
+    public void testCompactionKeepsChangeOfOtherDocument() {
+        index.append(Arrays.asList(newDocumentEntry("documentCreated", "doc2", 1000)));
+        // stale compaction pointer of doc1 to the change of doc2
+        Framework.getService(KeyValueService.class)
+                 .getKeyValueStore(KeyValueChangeIndex.STORE_NAME)
+                 .put("doc:test:doc1", Long.valueOf(index.getLastSequence()));
+        index.append(Arrays.asList(newDocumentEntry("documentModified", "doc1", 2000)));
+        assertEquals(Arrays.asList("documentModified:doc1", "documentCreated:doc2"),
+                getChanges(0, index.getLastSequence()));
+    }
+
+    @Test
+    public void testSequenceNotReused() {
+        index.append(Arrays.asList(newDocumentEntry("documentCreated", "doc1", 1000)));
+        // another index appends concurrently
+        new KeyValueChangeIndex(5).append(Arrays.asList(newDocumentEntry("documentCreated", "doc2", 2000)));
+        index.append(Arrays.asList(newDocumentEntry("documentCreated", "doc3", 3000)));
+        assertEquals(3, index.getLastSequence());
+        assertEquals(Arrays.asList("documentCreated:doc3", "documentCreated:doc2", "documentCreated:doc1"),
+                getChanges(0, index.getLastSequence()));
+    }
+
+    @Test
+    public void testPurge() {
+        for (int i = 0; i < 7; i++) {
+            index.append(Arrays.asList(newDocumentEntry("documentCreated", "doc" + i, i)));
+        }
+        assertEquals(7, index.getLastSequence());
+        assertEquals(5, getChanges(2, 7).size());
+        try {
+            getChanges(1, 7);
+            fail("Purged changes should not be silently skipped");
+        } catch (TooManyChangesException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testLastSequenceBefore() {
+        index.append(Arrays.asList(newDocumentEntry("documentCreated", "doc1", 1000),
+                newDocumentEntry("documentCreated", "doc2", 2000),
+                newDocumentEntry("documentCreated", "doc3", 3000)));
+        assertEquals(2, index.getLastSequenceBefore(2500));
+        assertEquals(0, index.getLastSequenceBefore(500));
+    }
+
+    @Test
+    public void testDriveChanges() {
+        assertTrue(StreamChangeIndexer.isDriveChange(newDocumentEntry("documentModified", "doc1", 0)));
+        assertFalse(StreamChangeIndexer.isDriveChange(newDocumentEntry("documentCheckedIn", "doc1", 0)));
+        assertTrue(StreamChangeIndexer.isDriveChange(
+                newEntry(NuxeoDriveEvents.EVENT_CATEGORY, NuxeoDriveEvents.ROOT_REGISTERED, "doc1", 0)));
+        assertFalse(StreamChangeIndexer.isDriveChange(
+                newEntry(NuxeoDriveEvents.EVENT_CATEGORY, NuxeoDriveEvents.ROOT_UNREGISTERED, "doc1", 0)));
+    }
+
+}
@@ -0,0 +1,149 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.drive.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.nuxeo.drive.service.NuxeoDriveEvents.ROOT_REGISTERED;
+import static org.nuxeo.ecm.core.api.event.DocumentEventTypes.DOCUMENT_CREATED;
+import static org.nuxeo.ecm.core.api.event.DocumentEventTypes.DOCUMENT_UPDATED;
+import static org.nuxeo.ecm.platform.audit.listener.StreamAuditEventListener.STREAM_NAME;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.junit.Test;
+import org.nuxeo.drive.fixtures.AbstractChangeFinderTestCase;
+import org.nuxeo.drive.fixtures.SimpleFileSystemItemChange;
+import org.nuxeo.drive.service.impl.StreamChangeFinder;
+import org.nuxeo.drive.service.impl.StreamChangeIndexer;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.impl.blob.StringBlob;
+import org.nuxeo.lib.stream.log.LogManager;
+import org.nuxeo.lib.stream.log.Name;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.stream.StreamService;
+import org.nuxeo.runtime.test.runner.Deploy;
+
+/**
+ * Tests the {@link StreamChangeFinder} reading the changes indexed from the audit stream.
+ *
+ * @since 11.2
+ */
+@Deploy("org.nuxeo.drive.core:OSGI-INF/test-nuxeodrive-stream-change-finder-contrib.xml")
+public class TestStreamChangeFinder extends AbstractChangeFinderTestCase {
+
+    protected static final long INDEXER_TIMEOUT = 20_000;
+
+    /**
+     * Also waits for the audit entries to be indexed.
+     */
+    @SuppressWarnings("resource") // LogManager not ours to close
+    @Override
+    protected void commitAndWaitForAsyncCompletion() {
+        super.commitAndWaitForAsyncCompletion();
+        LogManager logManager = Framework.getService(StreamService.class).getLogManager();
+        long deadline = System.currentTimeMillis() + INDEXER_TIMEOUT;
+        while (logManager.getLag(Name.ofUrn(STREAM_NAME), Name.ofUrn(StreamChangeIndexer.COMPUTATION_NAME))
+                         .lag() > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Timeout waiting for the change indexer");
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    @Test
+    public void testFindChanges() {
+        List<FileSystemItemChange> changes;
+        DocumentModel doc1;
+        DocumentModel doc2;
+
+        commitAndWaitForAsyncCompletion();
+        try {
+            // No sync roots
+            changes = getChanges();
+            assertTrue(changes.isEmpty());
+
+            nuxeoDriveManager.registerSynchronizationRoot(session.getPrincipal(), folder1, session);
+        } finally {
+            commitAndWaitForAsyncCompletion();
+        }
+
+        try {
+            // Root registration event
+            changes = getChanges();
+            assertEquals(1, changes.size());
+            assertEquals(new SimpleFileSystemItemChange(folder1.getId(), ROOT_REGISTERED, TEST_REPOSITORY,
+                    DEFAULT_SYNC_ROOT_FOLDER_ITEM_FACTORY_PREFIX + folder1.getId()),
+                    toSimpleFileSystemItemChange(changes.get(0)));
+
+            // Create 2 documents, only 1 in a sync root
+            doc1 = session.createDocumentModel(FOLDER_1_PATH, "doc1", FILE_TYPE);
+            doc1.setPropertyValue(FILE_CONTENT, new StringBlob("The content of file 1."));
+            doc1 = session.createDocument(doc1);
+            doc2 = session.createDocumentModel("/folder3", "doc2", FILE_TYPE);
+            doc2.setPropertyValue(FILE_CONTENT, new StringBlob("The content of file 2."));
+            doc2 = session.createDocument(doc2);
+        } finally {
+            commitAndWaitForAsyncCompletion();
+        }
+
+        try {
+            changes = getChanges();
+            assertEquals(1, changes.size());
+            assertEquals(new SimpleFileSystemItemChange(doc1.getId(), DOCUMENT_CREATED, TEST_REPOSITORY),
+                    toSimpleFileSystemItemChange(changes.get(0)));
+
+            // No changes since last successful sync
+            changes = getChanges();
+            assertTrue(changes.isEmpty());
+
+            doc1.setPropertyValue(FILE_CONTENT, new StringBlob("The content of file 1, updated."));
+            doc1 = session.saveDocument(doc1);
+            doc2.setPropertyValue(FILE_CONTENT, new StringBlob("The content of file 2, updated."));
+            doc2 = session.saveDocument(doc2);
+        } finally {
+            commitAndWaitForAsyncCompletion();
+        }
+
+        try {
+            // Update the document again in another transaction
+            doc1.setPropertyValue(FILE_CONTENT, new StringBlob("The content of file 1, updated again."));
+            doc1 = session.saveDocument(doc1);
+        } finally {
+            commitAndWaitForAsyncCompletion();
+        }
+
+        // The last update replaces the previous one in the index
+        changes = getChanges();
+        assertEquals(1, changes.size());
+        Set<SimpleFileSystemItemChange> expectedChanges = new HashSet<>();
+        expectedChanges.add(new SimpleFileSystemItemChange(doc1.getId(), DOCUMENT_UPDATED, TEST_REPOSITORY));
+        assertTrue(CollectionUtils.isEqualCollection(expectedChanges, toSimpleFileSystemItemChanges(changes)));
+    }
+
+}
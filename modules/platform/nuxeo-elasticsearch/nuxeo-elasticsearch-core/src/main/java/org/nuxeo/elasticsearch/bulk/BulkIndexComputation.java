@@ -20,7 +20,11 @@ package org.nuxeo.elasticsearch.bulk;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang3.mutable.MutableBoolean;
 import org.apache.commons.logging.Log;
@@ -47,6 +51,7 @@ import org.nuxeo.elasticsearch.api.ESClient;
 import org.nuxeo.elasticsearch.api.ElasticSearchAdmin;
 import org.nuxeo.lib.stream.codec.Codec;
 import org.nuxeo.lib.stream.computation.AbstractComputation;
+import org.nuxeo.lib.stream.computation.BatchComputation;
 import org.nuxeo.lib.stream.computation.ComputationContext;
 import org.nuxeo.lib.stream.computation.Record;
 import org.nuxeo.runtime.api.Framework;
@@ -58,7 +63,7 @@ import org.nuxeo.runtime.api.Framework;
  *
  * @since 10.3
  */
-public class BulkIndexComputation extends AbstractComputation implements BulkProcessor.Listener {
+public class BulkIndexComputation extends AbstractComputation implements BatchComputation, BulkProcessor.Listener {
     private static final Log log = LogFactory.getLog(BulkIndexComputation.class);
 
     public static final String NAME = "bulk/bulkIndex";
@@ -137,6 +142,39 @@ public class BulkIndexComputation extends AbstractComputation implements BulkPro
         updates = true;
     }
 
+    /**
+     * Adds the requests of all the records to the bulk processor and updates the status of each command once.
+     *
+     * @since 11.2
+     */
+    @Override
+    public void processRecords(ComputationContext context, String inputStream, List<Record> records) {
+        if (abort) {
+            return;
+        }
+        // decode everything first so that a retry does not add the same requests twice
+        List<BulkRequest> bulkRequests = new ArrayList<>(records.size());
+        Map<String, Long> processed = new LinkedHashMap<>();
+        for (Record record : records) {
+            DataBucket in = codec.decode(record.getData());
+            if (in.getCount() > 0) {
+                bulkRequests.add(decodeRequest(in));
+                processed.merge(in.getCommandId(), in.getCount(), Long::sum);
+            }
+        }
+        for (BulkRequest bulkRequest : bulkRequests) {
+            for (DocWriteRequest<?> request : bulkRequest.requests()) {
+                bulkProcessor.add(request);
+            }
+        }
+        processed.forEach((commandId, count) -> {
+            BulkStatus delta = BulkStatus.deltaOf(commandId);
+            delta.setProcessed(count);
+            AbstractBulkComputation.updateStatus(context, delta);
+        });
+        updates = true;
+    }
+
     @Override
     public void destroy() {
         if (bulkProcessor != null) {
@@ -49,7 +49,7 @@ public class ElasticSearchScroll extends RepositoryScroll {
     protected boolean fetch() {
         ElasticSearchService ess = Framework.getService(ElasticSearchService.class);
         if (esScroll == null) {
-            esScroll = ess.scroll(new NxQueryBuilder(session).nxql(request.getQuery())
+            esScroll = ess.scroll(new NxQueryBuilder(session).nxql(getQuery())
                                                              .limit(request.getSize())
                                                              .onlyElasticsearchResponse(),
                     request.getTimeout().toSeconds());
@@ -23,10 +23,18 @@ import static org.nuxeo.ecm.platform.audit.listener.StreamAuditEventListener.STR
 
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -52,19 +60,119 @@ public class StreamAuditWriter implements StreamProcessorTopology {
 
     public static final String COMPUTATION_NAME = "audit/writer";
 
+    /**
+     * Option to enable the adaptive batching, where the batch capacity and threshold of the policy are only initial
+     * values adapted to the latency of the audit backend, and batches are written asynchronously.
+     *
+     * @since 11.2
+     */
+    public static final String ADAPTIVE_BATCHING_OPT = "adaptiveBatching";
+
+    /** @since 11.2 */
+    public static final String MAX_BATCH_SIZE_OPT = "maxBatchSize";
+
+    /** @since 11.2 */
+    public static final String MAX_BATCH_THRESHOLD_OPT = "maxBatchThresholdMs";
+
+    /** @since 11.2 */
+    public static final String TARGET_LATENCY_OPT = "targetLatencyMs";
+
+    /** @since 11.2 */
+    public static final String MAX_IN_FLIGHT_OPT = "maxInFlight";
+
+    protected static final String DEFAULT_MAX_BATCH_SIZE = "1000";
+
+    protected static final String DEFAULT_MAX_BATCH_THRESHOLD = "2000";
+
+    protected static final String DEFAULT_TARGET_LATENCY = "500";
+
+    protected static final String DEFAULT_MAX_IN_FLIGHT = "2";
+
     @Override
     public Topology getTopology(Map<String, String> options) {
         return Topology.builder()
                        .addComputation(
-                               () -> new AuditLogWriterComputation(COMPUTATION_NAME),
+                               () -> new AuditLogWriterComputation(COMPUTATION_NAME, options),
                                Collections.singletonList("i1:" + STREAM_NAME))
                        .build();
     }
 
     public static class AuditLogWriterComputation extends AbstractBatchComputation {
 
+        protected final boolean adaptive;
+
+        protected final int maxBatchSize;
+
+        protected final long maxBatchThresholdMillis;
+
+        protected final long targetLatencyMillis;
+
+        protected final int maxInFlight;
+
+        protected AdaptiveBatching batching;
+
+        protected ExecutorService writers;
+
+        // batches written asynchronously, oldest first
+        protected final Deque<AsyncWrite> inFlight = new ArrayDeque<>();
+
+        // entries of failed asynchronous writes, written again synchronously to apply the retry policy
+        protected final List<LogEntry> failedEntries = new ArrayList<>();
+
+        protected boolean checkpointPending;
+
+        protected long lastCheckpoint;
+
         public AuditLogWriterComputation(String name) {
+            this(name, Collections.emptyMap());
+        }
+
+        /**
+         * @since 11.2
+         */
+        public AuditLogWriterComputation(String name, Map<String, String> options) {
             super(name, 1, 0);
+            adaptive = Boolean.parseBoolean(options.get(ADAPTIVE_BATCHING_OPT));
+            maxBatchSize = Integer.parseInt(options.getOrDefault(MAX_BATCH_SIZE_OPT, DEFAULT_MAX_BATCH_SIZE));
+            maxBatchThresholdMillis = Long.parseLong(
+                    options.getOrDefault(MAX_BATCH_THRESHOLD_OPT, DEFAULT_MAX_BATCH_THRESHOLD));
+            targetLatencyMillis = Long.parseLong(options.getOrDefault(TARGET_LATENCY_OPT, DEFAULT_TARGET_LATENCY));
+            maxInFlight = Integer.parseInt(options.getOrDefault(MAX_IN_FLIGHT_OPT, DEFAULT_MAX_IN_FLIGHT));
+        }
+
+        @Override
+        public void init(ComputationContext context) {
+            super.init(context);
+            if (adaptive) {
+                batching = new AdaptiveBatching(context.getPolicy().getBatchCapacity(),
+                        Math.max(maxBatchSize, context.getPolicy().getBatchCapacity()), thresholdMillis,
+                        Math.max(maxBatchThresholdMillis, thresholdMillis), targetLatencyMillis);
+                AtomicInteger count = new AtomicInteger();
+                writers = Executors.newFixedThreadPool(maxInFlight, r -> {
+                    Thread thread = new Thread(r, metadata.name() + "-async-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                lastCheckpoint = System.currentTimeMillis();
+            }
+        }
+
+        @Override
+        public void destroy() {
+            if (writers != null) {
+                // records of unfinished writes are not checkpointed and will be processed again
+                writers.shutdown();
+                try {
+                    writers.awaitTermination(maxBatchThresholdMillis, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        protected int getBatchCapacity(ComputationContext context) {
+            return adaptive ? batching.getCapacity() : super.getBatchCapacity(context);
         }
 
         @Override
@@ -77,7 +185,12 @@ public class StreamAuditWriter implements StreamProcessorTopology {
                     log.error("Discard invalid record: " + record, e);
                 }
             }
-            writeEntriesToAudit(logEntries);
+            if (adaptive) {
+                writeFailedEntries();
+                writeEntriesToAuditAsync(logEntries);
+            } else {
+                writeEntriesToAudit(logEntries);
+            }
         }
 
         @Override
@@ -85,6 +198,110 @@ public class StreamAuditWriter implements StreamProcessorTopology {
             // error log already done by abstract
         }
 
+        @Override
+        public void processTimer(ComputationContext context, String key, long timestamp) {
+            if (adaptive && TIMER_BATCH.equals(key)) {
+                writeFailedEntries();
+            }
+            super.processTimer(context, key, timestamp);
+            if (adaptive) {
+                checkpointIfWritten(context);
+            }
+        }
+
+        @Override
+        public void processFailure(ComputationContext context, Throwable failure) {
+            super.processFailure(context, failure);
+            if (!failedEntries.isEmpty()) {
+                log.error(String.format("Discard %d log entries after retries", failedEntries.size()));
+                failedEntries.clear();
+            }
+        }
+
+        /**
+         * In adaptive mode, the checkpoint is done once all the batches submitted before are written.
+         */
+        @Override
+        protected void checkpointBatch(ComputationContext context) {
+            if (!adaptive) {
+                super.checkpointBatch(context);
+                return;
+            }
+            batchRecords.clear();
+            newBatch = true;
+            checkpointPending = true;
+            checkpointIfWritten(context);
+        }
+
+        protected void checkpointIfWritten(ComputationContext context) {
+            if (!checkpointPending) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            if (now - lastCheckpoint > maxBatchThresholdMillis) {
+                // don't let the checkpoint lag behind under a continuous load
+                completeWrites(inFlight.size());
+            } else {
+                completeWrites(0);
+            }
+            if (inFlight.isEmpty() && failedEntries.isEmpty()) {
+                context.askForCheckpoint();
+                checkpointPending = false;
+                lastCheckpoint = now;
+            }
+        }
+
+        protected void writeEntriesToAuditAsync(List<LogEntry> logEntries) {
+            if (logEntries.isEmpty()) {
+                return;
+            }
+            // bounded window, wait for the oldest writes
+            completeWrites(inFlight.size() - maxInFlight + 1);
+            AsyncWrite write = new AsyncWrite(logEntries);
+            write.future = writers.submit(() -> {
+                long start = System.currentTimeMillis();
+                writeEntriesToAudit(logEntries);
+                write.durationMillis = System.currentTimeMillis() - start;
+            });
+            inFlight.addLast(write);
+        }
+
+        /**
+         * Completes the writes that are done, waiting for the {@code wait} oldest ones.
+         */
+        protected void completeWrites(int wait) {
+            while (!inFlight.isEmpty()) {
+                AsyncWrite write = inFlight.peekFirst();
+                if (wait <= 0 && !write.future.isDone()) {
+                    return;
+                }
+                inFlight.removeFirst();
+                wait--;
+                try {
+                    write.future.get();
+                    batching.onWrite(write.entries.size(), write.durationMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failedEntries.addAll(write.entries);
+                } catch (ExecutionException e) {
+                    log.warn(String.format("Fail to write %d log entries to audit backend, will retry",
+                            write.entries.size()), e.getCause());
+                    batching.onFailure();
+                    failedEntries.addAll(write.entries);
+                }
+                thresholdMillis = batching.getThresholdMillis();
+            }
+        }
+
+        protected void writeFailedEntries() {
+            if (failedEntries.isEmpty()) {
+                return;
+            }
+            // an exception here applies the retry policy of the computation
+            writeEntriesToAudit(failedEntries);
+            failedEntries.clear();
+        }
+
         protected void writeEntriesToAudit(List<LogEntry> logEntries) {
             if (logEntries.isEmpty()) {
                 return;
@@ -108,4 +325,88 @@ public class StreamAuditWriter implements StreamProcessorTopology {
         }
     }
 
+    /**
+     * An asynchronous write of a batch of log entries.
+     *
+     * @since 11.2
+     */
+    protected static class AsyncWrite {
+
+        protected final List<LogEntry> entries;
+
+        protected Future<?> future;
+
+        protected volatile long durationMillis;
+
+        protected AsyncWrite(List<LogEntry> entries) {
+            this.entries = entries;
+        }
+    }
+
+    /**
+     * Adapts the batch capacity and threshold to the latency of the audit backend.
+     * <p>
+     * The capacity is doubled when full batches are written well under the target latency, and halved when a write
+     * exceeds it or fails. The threshold follows the average write latency, so that batches are not flushed faster
+     * than the backend can absorb them, while staying at its minimum when the backend is fast.
+     *
+     * @since 11.2
+     */
+    public static class AdaptiveBatching {
+
+        protected static final double LATENCY_WEIGHT = 0.2;
+
+        protected final int maxCapacity;
+
+        protected final long minThresholdMillis;
+
+        protected final long maxThresholdMillis;
+
+        protected final long targetLatencyMillis;
+
+        protected int capacity;
+
+        protected long thresholdMillis;
+
+        protected double latencyMillis = -1;
+
+        public AdaptiveBatching(int capacity, int maxCapacity, long minThresholdMillis, long maxThresholdMillis,
+                long targetLatencyMillis) {
+            this.capacity = capacity;
+            this.maxCapacity = maxCapacity;
+            this.minThresholdMillis = minThresholdMillis;
+            this.maxThresholdMillis = maxThresholdMillis;
+            this.targetLatencyMillis = targetLatencyMillis;
+            thresholdMillis = minThresholdMillis;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public long getThresholdMillis() {
+            return thresholdMillis;
+        }
+
+        public void onWrite(int size, long durationMillis) {
+            latencyMillis = latencyMillis < 0 ? durationMillis
+                    : latencyMillis * (1 - LATENCY_WEIGHT) + durationMillis * LATENCY_WEIGHT;
+            int previous = capacity;
+            if (durationMillis > targetLatencyMillis) {
+                capacity = Math.max(1, capacity / 2);
+            } else if (size >= capacity && durationMillis < targetLatencyMillis / 2) {
+                capacity = Math.min(maxCapacity, capacity * 2);
+            }
+            thresholdMillis = Math.min(maxThresholdMillis, Math.max(minThresholdMillis, (long) latencyMillis));
+            if (capacity != previous && log.isDebugEnabled()) {
+                log.debug(String.format("Audit batch capacity: %d -> %d, threshold: %dms, write latency: %dms",
+                        previous, capacity, thresholdMillis, durationMillis));
+            }
+        }
+
+        public void onFailure() {
+            capacity = Math.max(1, capacity / 2);
+        }
+    }
+
 }
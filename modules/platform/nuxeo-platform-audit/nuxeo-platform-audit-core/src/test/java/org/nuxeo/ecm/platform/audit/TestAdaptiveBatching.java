@@ -0,0 +1,66 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.platform.audit;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.nuxeo.ecm.platform.audit.impl.StreamAuditWriter.AdaptiveBatching;
+
+/**
+ * @since 11.2
+ */
+public class TestAdaptiveBatching {
+
+    @Test
+    public void testCapacityFollowsLatency() {
+        AdaptiveBatching batching = new AdaptiveBatching(10, 100, 50, 1000, 200);
+        assertEquals(10, batching.getCapacity());
+        assertEquals(50, batching.getThresholdMillis());
+
+        // fast writes of full batches grow the capacity up to the max
+        batching.onWrite(10, 5);
+        assertEquals(20, batching.getCapacity());
+        batching.onWrite(20, 5);
+        batching.onWrite(40, 5);
+        batching.onWrite(80, 5);
+        assertEquals(100, batching.getCapacity());
+        // the threshold stays at its minimum when the backend is fast
+        assertEquals(50, batching.getThresholdMillis());
+
+        // partial batches don't change the capacity
+        batching.onWrite(3, 5);
+        assertEquals(100, batching.getCapacity());
+
+        // slow writes shrink the capacity and raise the threshold
+        batching.onWrite(100, 800);
+        assertEquals(50, batching.getCapacity());
+        assertEquals(164, batching.getThresholdMillis());
+        batching.onWrite(50, 5000);
+        assertEquals(25, batching.getCapacity());
+        assertEquals(1000, batching.getThresholdMillis());
+
+        // failures shrink the capacity down to 1
+        for (int i = 0; i < 10; i++) {
+            batching.onFailure();
+        }
+        assertEquals(1, batching.getCapacity());
+    }
+
+}
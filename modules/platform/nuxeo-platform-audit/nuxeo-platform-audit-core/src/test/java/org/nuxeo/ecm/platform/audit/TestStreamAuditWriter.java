@@ -0,0 +1,143 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.platform.audit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.nuxeo.ecm.platform.audit.impl.StreamAuditWriter.ADAPTIVE_BATCHING_OPT;
+import static org.nuxeo.ecm.platform.audit.impl.StreamAuditWriter.MAX_BATCH_THRESHOLD_OPT;
+import static org.nuxeo.lib.stream.computation.AbstractBatchComputation.TIMER_BATCH;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.nuxeo.ecm.platform.audit.api.LogEntry;
+import org.nuxeo.ecm.platform.audit.impl.LogEntryImpl;
+import org.nuxeo.ecm.platform.audit.impl.StreamAuditWriter.AuditLogWriterComputation;
+import org.nuxeo.lib.stream.computation.ComputationMetadataMapping;
+import org.nuxeo.lib.stream.computation.ComputationPolicyBuilder;
+import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.lib.stream.computation.internals.ComputationContextImpl;
+
+/**
+ * Tests the checkpoint of the adaptive audit writer: it must not be taken before the asynchronous writes complete.
+ *
+ * @since 11.2
+ */
+public class TestStreamAuditWriter {
+
+    protected static final String INPUT = "i1";
+
+    protected BlockingAuditWriter computation;
+
+    protected ComputationContextImpl context;
+
+    @Before
+    public void setUp() {
+        Map<String, String> options = new HashMap<>();
+        options.put(ADAPTIVE_BATCHING_OPT, "true");
+        // never wait for the writes to complete because the checkpoint is lagging
+        options.put(MAX_BATCH_THRESHOLD_OPT, "3600000");
+        computation = new BlockingAuditWriter(options);
+        context = new ComputationContextImpl(null,
+                new ComputationMetadataMapping(computation.metadata(), Collections.emptyMap()),
+                new ComputationPolicyBuilder().batchPolicy(2, Duration.ofSeconds(1)).build());
+        computation.init(context);
+    }
+
+    @After
+    public void tearDown() {
+        computation.release.countDown();
+        computation.destroy();
+    }
+
+    @Test
+    public void testCheckpointAfterAsyncWrite() {
+        // a full batch is submitted to the asynchronous writers
+        computation.processRecords(context, INPUT, Arrays.asList(Record.of("a", null), Record.of("b", null)));
+        assertTrue(computation.isCheckpointPending());
+        assertFalse("checkpoint before the write completes", context.requireCheckpoint());
+
+        // the timer doesn't checkpoint either while the write is blocked
+        computation.processTimer(context, TIMER_BATCH, System.currentTimeMillis());
+        assertTrue(computation.isCheckpointPending());
+        assertFalse("checkpoint before the write completes", context.requireCheckpoint());
+        assertEquals(0, computation.written.get());
+
+        // once the write is done, the checkpoint is taken
+        computation.release.countDown();
+        computation.awaitWrites();
+        assertEquals(2, computation.written.get());
+        computation.processTimer(context, TIMER_BATCH, System.currentTimeMillis());
+        assertFalse(computation.isCheckpointPending());
+        assertTrue("no checkpoint after the write completes", context.requireCheckpoint());
+    }
+
+    /**
+     * An audit writer whose asynchronous writes are blocked until released.
+     */
+    protected static class BlockingAuditWriter extends AuditLogWriterComputation {
+
+        protected final CountDownLatch release = new CountDownLatch(1);
+
+        protected final AtomicInteger written = new AtomicInteger();
+
+        public BlockingAuditWriter(Map<String, String> options) {
+            super("audit/writer", options);
+        }
+
+        public boolean isCheckpointPending() {
+            return checkpointPending;
+        }
+
+        public void awaitWrites() {
+            completeWrites(inFlight.size());
+        }
+
+        @Override
+        protected LogEntry getLogEntryFromJson(byte[] data) {
+            return new LogEntryImpl();
+        }
+
+        @Override
+        protected void writeEntriesToAudit(List<LogEntry> logEntries) {
+            try {
+                if (!release.await(10, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("Write not released");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            written.addAndGet(logEntries.size());
+        }
+    }
+
+}
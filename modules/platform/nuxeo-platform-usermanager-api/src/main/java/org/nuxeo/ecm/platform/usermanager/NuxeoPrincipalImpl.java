@@ -35,6 +35,7 @@ import java.io.Serializable;
 import java.security.Principal;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
@@ -44,7 +45,6 @@ import org.apache.commons.logging.LogFactory;
 import org.nuxeo.ecm.core.api.DataModel;
 import org.nuxeo.ecm.core.api.DocumentModel;
 import org.nuxeo.ecm.core.api.NuxeoException;
-import org.nuxeo.ecm.core.api.NuxeoGroup;
 import org.nuxeo.ecm.core.api.NuxeoPrincipal;
 import org.nuxeo.ecm.core.api.PropertyException;
 import org.nuxeo.ecm.core.api.impl.SimpleDocumentModel;
@@ -314,49 +314,46 @@ public class NuxeoPrincipalImpl implements NuxeoPrincipal {
     public void updateAllGroups() {
         UserManager userManager = Framework.getService(UserManager.class);
         Set<String> checkedGroups = new HashSet<>();
-        List<String> groupsToProcess = new ArrayList<>();
-        List<String> resultingGroups = new ArrayList<>();
-        groupsToProcess.addAll(getGroups());
-
-        while (!groupsToProcess.isEmpty()) {
-            String groupName = groupsToProcess.remove(0);
-            if (!checkedGroups.contains(groupName)) {
-                checkedGroups.add(groupName);
-                NuxeoGroup nxGroup = null;
-                if (userManager != null) {
-                    try {
-                        nxGroup = userManager.getGroup(groupName);
-                    } catch (DirectoryException de) {
-                        if (virtualGroups.contains(groupName)) {
-                            // do not fail while retrieving a virtual group
-                            log.warn("Failed to get group '" + groupName + "' due to '" + de.getMessage()
-                                    + "': permission resolution involving groups may not be correct");
-                            nxGroup = null;
-                        } else {
-                            throw de;
-                        }
-                    }
-                }
-                if (nxGroup == null) {
+        Set<String> resultingGroups = new LinkedHashSet<>();
+
+        for (String groupName : getGroups()) {
+            if (!checkedGroups.add(groupName)) {
+                continue;
+            }
+            // the group followed by its ancestors, resolved in one call so that the user manager can cache it
+            List<String> groupClosure = null;
+            if (userManager != null) {
+                try {
+                    groupClosure = userManager.getGroupClosure(groupName);
+                } catch (DirectoryException de) {
                     if (virtualGroups.contains(groupName)) {
-                        // just add the virtual group as is
-                        resultingGroups.add(groupName);
-                    } else if (userManager != null) {
-                        // XXX this should only happens in case of
-                        // inconsistency in DB
-                        log.error("User " + getName() + " references the " + groupName + " group that does not exists");
+                        // do not fail while retrieving a virtual group
+                        log.warn("Failed to get group '" + groupName + "' due to '" + de.getMessage()
+                                + "': permission resolution involving groups may not be correct");
+                        groupClosure = null;
+                    } else {
+                        throw de;
                     }
-                } else {
-                    groupsToProcess.addAll(nxGroup.getParentGroups());
-                    // fetch the group name from the returned entry in case
-                    // it does not have the same case than the actual entry in
-                    // directory (for case insensitive directories)
-                    resultingGroups.add(nxGroup.getName());
-                    // XXX: maybe remove group from virtual groups if it
-                    // actually exists? otherwise it would be ignored when
-                    // setting groups
                 }
             }
+            if (groupClosure == null) {
+                if (virtualGroups.contains(groupName)) {
+                    // just add the virtual group as is
+                    resultingGroups.add(groupName);
+                } else if (userManager != null) {
+                    // XXX this should only happens in case of
+                    // inconsistency in DB
+                    log.error("User " + getName() + " references the " + groupName + " group that does not exists");
+                }
+            } else {
+                // the closure holds the group names from the returned entries in case
+                // they do not have the same case than the actual entries in
+                // directory (for case insensitive directories)
+                resultingGroups.addAll(groupClosure);
+                // XXX: maybe remove group from virtual groups if it
+                // actually exists? otherwise it would be ignored when
+                // setting groups
+            }
         }
 
         allGroups = new ArrayList<>(resultingGroups);
@@ -19,6 +19,9 @@
 package org.nuxeo.ecm.platform.usermanager;
 
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -418,6 +421,40 @@ public interface UserManager extends Authenticator, EventListener, Serializable
      */
     List<String> getAncestorGroups(String groupId);
 
+    /**
+     * Returns the name of the group with the given id followed by the names of all its ancestor groups, or
+     * {@code null} if the group does not exist.
+     * <p>
+     * The names are the ones of the directory entries, they may differ in case from the given id for case insensitive
+     * directories. Ancestor groups that do not exist are skipped.
+     *
+     * @since 11.2
+     */
+    default List<String> getGroupClosure(String groupId) {
+        NuxeoGroup group = getGroup(groupId);
+        if (group == null) {
+            return null;
+        }
+        List<String> closure = new ArrayList<>();
+        closure.add(group.getName());
+        Set<String> checkedGroups = new HashSet<>();
+        checkedGroups.add(groupId);
+        List<String> groupsToProcess = new LinkedList<>(group.getParentGroups());
+        while (!groupsToProcess.isEmpty()) {
+            String groupName = groupsToProcess.remove(0);
+            if (checkedGroups.add(groupName)) {
+                NuxeoGroup parentGroup = getGroup(groupName);
+                if (parentGroup != null) {
+                    if (!closure.contains(parentGroup.getName())) {
+                        closure.add(parentGroup.getName());
+                    }
+                    groupsToProcess.addAll(parentGroup.getParentGroups());
+                }
+            }
+        }
+        return closure;
+    }
+
     /**
      * Returns the contributed {@link GroupConfig}.
      *
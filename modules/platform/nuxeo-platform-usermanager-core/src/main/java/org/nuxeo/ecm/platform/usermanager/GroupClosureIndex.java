@@ -0,0 +1,326 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.platform.usermanager;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.nuxeo.ecm.core.api.NuxeoGroup;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.cluster.ClusterService;
+import org.nuxeo.runtime.metrics.MetricsService;
+import org.nuxeo.runtime.pubsub.AbstractPubSubBroker;
+import org.nuxeo.runtime.pubsub.SerializableMessage;
+
+import io.dropwizard.metrics5.Counter;
+import io.dropwizard.metrics5.Histogram;
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+import io.dropwizard.metrics5.Timer;
+
+/**
+ * In-memory index of the transitive closure of the parent groups relation, so that computing all the groups of a
+ * principal does not need to read the group directory and its references for each ancestor group.
+ * <p>
+ * The index holds, for each group, its name and direct parent groups as read from the directory, and the resolved
+ * closure (the group followed by all its ancestors) computed from them. Groups that do not exist are indexed too.
+ * <p>
+ * When a group changes, only the entries that may depend on it are invalidated: the group, its sub-groups and the
+ * closures containing it. If clustering is enabled, invalidations are sent to the other nodes through the
+ * {@link org.nuxeo.runtime.pubsub.PubSubService PubSubService}.
+ *
+ * @since 11.2
+ */
+public class GroupClosureIndex {
+
+    private static final Log log = LogFactory.getLog(GroupClosureIndex.class);
+
+    public static final String GROUP_CLOSURE_INVAL_PUBSUB_TOPIC = "groupclosureinval";
+
+    /** Marker for a group that does not exist. */
+    protected static final GroupNode MISSING = new GroupNode(null, Collections.emptyList());
+
+    /** Marker for the closure of a group that does not exist. */
+    protected static final List<String> MISSING_CLOSURE = Collections.emptyList();
+
+    protected final Function<String, NuxeoGroup> groupLoader;
+
+    /** Group id to group name and direct parent groups. */
+    protected final Map<String, GroupNode> nodes = new ConcurrentHashMap<>();
+
+    /** Group id to group name followed by the names of all its ancestors. */
+    protected final Map<String, List<String>> closures = new ConcurrentHashMap<>();
+
+    /** Incremented on each invalidation, to avoid caching entries computed from stale data. */
+    protected final AtomicLong generation = new AtomicLong();
+
+    protected final Histogram closureSizes;
+
+    protected final Timer rebuildTimer;
+
+    protected final Counter invalidations;
+
+    protected GroupClosureInvalidator invalidator;
+
+    public GroupClosureIndex(Function<String, NuxeoGroup> groupLoader) {
+        this.groupLoader = groupLoader;
+        MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+        closureSizes = registry.histogram(MetricName.build("nuxeo", "usermanager", "group", "closure", "size"));
+        rebuildTimer = registry.timer(MetricName.build("nuxeo", "usermanager", "group", "closure", "rebuild"));
+        invalidations = registry.counter(
+                MetricName.build("nuxeo", "usermanager", "group", "closure", "invalidation"));
+    }
+
+    /**
+     * Registers the cluster invalidator if clustering is enabled.
+     */
+    public void start() {
+        ClusterService clusterService = Framework.getService(ClusterService.class);
+        if (clusterService != null && clusterService.isEnabled()) {
+            String nodeId = clusterService.getNodeId();
+            invalidator = new GroupClosureInvalidator();
+            invalidator.initialize(GROUP_CLOSURE_INVAL_PUBSUB_TOPIC, nodeId);
+            log.info("Registered group closure invalidator for node: " + nodeId);
+        }
+    }
+
+    public void close() {
+        if (invalidator != null) {
+            invalidator.close();
+            invalidator = null;
+        }
+        clear();
+    }
+
+    /**
+     * Gets the name of the given group followed by the names of all its ancestors, or {@code null} if the group does
+     * not exist.
+     *
+     * @see UserManager#getGroupClosure
+     */
+    public List<String> getClosure(String groupId) {
+        List<String> closure = closures.get(groupId);
+        if (closure == null) {
+            long gen = generation.get();
+            closure = computeClosure(groupId);
+            putIfCurrent(closures, groupId, closure, gen);
+        }
+        return closure == MISSING_CLOSURE ? null : new ArrayList<>(closure);
+    }
+
+    protected List<String> computeClosure(String groupId) {
+        long start = System.nanoTime();
+        GroupNode node = getNode(groupId);
+        if (node == MISSING) {
+            return MISSING_CLOSURE;
+        }
+        List<String> closure = new ArrayList<>();
+        closure.add(node.name);
+        Set<String> checkedGroups = new HashSet<>();
+        checkedGroups.add(groupId);
+        List<String> groupsToProcess = new LinkedList<>(node.parentGroups);
+        while (!groupsToProcess.isEmpty()) {
+            String groupName = groupsToProcess.remove(0);
+            if (!checkedGroups.add(groupName)) {
+                continue;
+            }
+            GroupNode parentNode = getNode(groupName);
+            if (parentNode == MISSING) {
+                log.warn("Group " + groupId + " has an ancestor group " + groupName + " that does not exist");
+                continue;
+            }
+            if (!closure.contains(parentNode.name)) {
+                closure.add(parentNode.name);
+            }
+            groupsToProcess.addAll(parentNode.parentGroups);
+        }
+        closureSizes.update(closure.size());
+        rebuildTimer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return Collections.unmodifiableList(closure);
+    }
+
+    protected GroupNode getNode(String groupId) {
+        GroupNode node = nodes.get(groupId);
+        if (node == null) {
+            long gen = generation.get();
+            NuxeoGroup group = groupLoader.apply(groupId);
+            if (group == null) {
+                node = MISSING;
+            } else {
+                List<String> parentGroups = group.getParentGroups();
+                node = new GroupNode(group.getName(),
+                        parentGroups == null ? Collections.emptyList() : new ArrayList<>(parentGroups));
+            }
+            putIfCurrent(nodes, groupId, node, gen);
+        }
+        return node;
+    }
+
+    /**
+     * Caches a value unless an invalidation happened since the given generation, in which case the value may have
+     * been computed from stale data and the next call will compute it again.
+     */
+    protected <T> void putIfCurrent(Map<String, T> map, String key, T value, long gen) {
+        if (generation.get() != gen) {
+            return;
+        }
+        map.putIfAbsent(key, value);
+        if (generation.get() != gen) {
+            // an invalidation may have run between the check and the put
+            map.remove(key, value);
+        }
+    }
+
+    /**
+     * Invalidates the entries depending on the given groups, locally and on the other nodes of the cluster.
+     * <p>
+     * The given groups must include the changed group and its current sub-groups, as the parents of the sub-groups
+     * are changed too.
+     */
+    public void invalidate(Collection<String> groupIds) {
+        invalidateLocal(groupIds);
+        if (invalidator != null) {
+            invalidator.sendMessage(new GroupClosureInvalidation(groupIds));
+        }
+    }
+
+    /**
+     * Invalidates all the entries, locally and on the other nodes of the cluster.
+     */
+    public void invalidateAll() {
+        clear();
+        if (invalidator != null) {
+            invalidator.sendMessage(new GroupClosureInvalidation(Collections.emptyList()));
+        }
+    }
+
+    protected void invalidateLocal(Collection<String> groupIds) {
+        generation.incrementAndGet();
+        invalidations.inc();
+        for (String groupId : groupIds) {
+            // group ids may differ in case from group names for case insensitive directories
+            nodes.keySet().removeIf(groupId::equalsIgnoreCase);
+            nodes.values().removeIf(node -> containsIgnoreCase(node.parentGroups, groupId));
+            closures.keySet().removeIf(groupId::equalsIgnoreCase);
+            closures.values().removeIf(closure -> containsIgnoreCase(closure, groupId));
+        }
+    }
+
+    protected static boolean containsIgnoreCase(List<String> list, String string) {
+        for (String s : list) {
+            if (s.equalsIgnoreCase(string)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    protected void clear() {
+        generation.incrementAndGet();
+        invalidations.inc();
+        nodes.clear();
+        closures.clear();
+    }
+
+    /**
+     * The name and direct parent groups of a group, as read from the directory.
+     */
+    protected static class GroupNode {
+
+        protected final String name;
+
+        protected final List<String> parentGroups;
+
+        protected GroupNode(String name, List<String> parentGroups) {
+            this.name = name;
+            this.parentGroups = parentGroups;
+        }
+    }
+
+    /**
+     * Invalidation message holding the changed groups, or none for a full invalidation.
+     */
+    public static class GroupClosureInvalidation implements SerializableMessage {
+
+        private static final long serialVersionUID = 1L;
+
+        protected static final String SEP = "\n";
+
+        public final List<String> groupIds;
+
+        public GroupClosureInvalidation(Collection<String> groupIds) {
+            this.groupIds = new ArrayList<>(groupIds);
+        }
+
+        @Override
+        public void serialize(OutputStream out) throws IOException {
+            out.write(String.join(SEP, groupIds).getBytes(UTF_8));
+        }
+
+        public static GroupClosureInvalidation deserialize(InputStream in) throws IOException {
+            String string = new String(in.readAllBytes(), UTF_8);
+            if (string.isEmpty()) {
+                return new GroupClosureInvalidation(Collections.emptyList());
+            }
+            return new GroupClosureInvalidation(Arrays.asList(string.split(SEP)));
+        }
+
+        @Override
+        public String toString() {
+            return getClass().getSimpleName() + "(" + groupIds + ")";
+        }
+    }
+
+    protected class GroupClosureInvalidator extends AbstractPubSubBroker<GroupClosureInvalidation> {
+
+        @Override
+        public GroupClosureInvalidation deserialize(InputStream in) throws IOException {
+            return GroupClosureInvalidation.deserialize(in);
+        }
+
+        @Override
+        public void receivedMessage(GroupClosureInvalidation invalidation) {
+            if (invalidation.groupIds.isEmpty()) {
+                clear();
+            } else {
+                invalidateLocal(invalidation.groupIds);
+            }
+        }
+    }
+
+}
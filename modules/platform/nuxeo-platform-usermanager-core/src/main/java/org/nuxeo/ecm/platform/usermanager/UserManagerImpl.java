@@ -97,6 +97,13 @@ public class UserManagerImpl implements UserManager, MultiTenantUserManager, Adm
     /** @since 11.1 */
     protected static final String SEARCH_ESCAPE_COMPAT_PARAM = "nuxeo.usermanager.search.escape.compat";
 
+    /**
+     * Configuration property enabling the {@link GroupClosureIndex} used to compute the ancestor groups of principals.
+     *
+     * @since 11.2
+     */
+    public static final String GROUP_CLOSURE_ENABLED_PROP = "nuxeo.usermanager.group.closure.enabled";
+
     private static final long serialVersionUID = 1L;
 
     private static final Log log = LogFactory.getLog(UserManagerImpl.class);
@@ -156,6 +163,9 @@ public class UserManagerImpl implements UserManager, MultiTenantUserManager, Adm
 
     protected Cache principalCache = null;
 
+    /** @since 11.2 */
+    protected transient GroupClosureIndex groupClosureIndex;
+
     public UserMultiTenantManagement multiTenantManagement = new DefaultUserMultiTenantManagement();
 
     /**
@@ -286,6 +296,23 @@ public class UserManagerImpl implements UserManager, MultiTenantUserManager, Adm
             invalidateAllPrincipals();
         }
 
+        close();
+        if (Framework.getService(ConfigurationService.class).isBooleanTrue(GROUP_CLOSURE_ENABLED_PROP)) {
+            groupClosureIndex = new GroupClosureIndex(this::getGroup);
+            groupClosureIndex.start();
+        }
+    }
+
+    /**
+     * Releases the resources held by this user manager.
+     *
+     * @since 11.2
+     */
+    public void close() {
+        if (groupClosureIndex != null) {
+            groupClosureIndex.close();
+            groupClosureIndex = null;
+        }
     }
 
     protected void setUserDirectoryName(String userDirectoryName) {
@@ -648,6 +675,14 @@ public class UserManagerImpl implements UserManager, MultiTenantUserManager, Adm
         return getGroupModel(groupName, null);
     }
 
+    @Override
+    public List<String> getGroupClosure(String groupId) {
+        if (groupClosureIndex == null) {
+            return UserManager.super.getGroupClosure(groupId);
+        }
+        return groupClosureIndex.getClosure(groupId);
+    }
+
     @SuppressWarnings("unchecked")
     protected NuxeoGroup makeGroup(DocumentModel groupEntry) {
         return new NuxeoGroupImpl(groupEntry, groupConfig);
@@ -831,6 +866,7 @@ public class UserManagerImpl implements UserManager, MultiTenantUserManager, Adm
 
     @Override
     public void notifyGroupChanged(String groupName, String eventId, List<String> ancestorGroupNames) {
+        invalidateGroupClosure(groupName);
         invalidateAllPrincipals();
         notifyRuntime(groupName, GROUPCHANGED_EVENT_ID);
         if (eventId != null) {
@@ -845,6 +881,25 @@ public class UserManagerImpl implements UserManager, MultiTenantUserManager, Adm
         }
     }
 
+    /**
+     * Invalidates the group closures depending on the given group, including the ones of its sub-groups whose parents
+     * may have changed.
+     *
+     * @since 11.2
+     */
+    protected void invalidateGroupClosure(String groupName) {
+        if (groupClosureIndex == null) {
+            return;
+        }
+        List<String> groupNames = new ArrayList<>();
+        groupNames.add(groupName);
+        NuxeoGroup group = getGroup(groupName);
+        if (group != null) {
+            groupNames.addAll(group.getMemberGroups());
+        }
+        groupClosureIndex.invalidate(groupNames);
+    }
+
     @Override
     public Boolean areGroupsReadOnly() {
         try (Session groupDir = dirService.open(groupDirectoryName)) {
@@ -97,6 +97,9 @@ public class UserService extends DefaultComponent {
             }
         }
         if (klass != null) {
+            if (userManager instanceof UserManagerImpl) {
+                ((UserManagerImpl) userManager).close();
+            }
             try {
                 userManager = (UserManager) klass.getDeclaredConstructor().newInstance();
             } catch (ReflectiveOperationException e) {
@@ -128,6 +131,9 @@ public class UserService extends DefaultComponent {
             if (eventService != null) {
                 eventService.removeListener(UserManagerImpl.USERMANAGER_TOPIC, userManager);
             }
+            if (userManager instanceof UserManagerImpl) {
+                ((UserManagerImpl) userManager).close();
+            }
         }
     }
 
@@ -1392,6 +1392,53 @@ public class TestUserManager extends UserManagerTestCase {
                 userManager.getAncestorGroups("ABCD")));
     }
 
+    @Test
+    @Deploy("org.nuxeo.ecm.platform.usermanager.tests:test-usermanager-group-closure.xml")
+    public void testGroupClosure() throws Exception {
+        DocumentModel user = getUser("test_u1");
+        userManager.createUser(user);
+
+        DocumentModel groupABCD = getGroup("ABCD");
+        groupABCD.setProperty("group", "members", List.of("test_u1"));
+        userManager.createGroup(groupABCD);
+
+        DocumentModel groupAB = getGroup("AB");
+        groupAB.setPropertyValue("group:subGroups", (Serializable) List.of("ABCD"));
+        userManager.createGroup(groupAB);
+
+        DocumentModel groupA = getGroup("A");
+        groupA.setPropertyValue("group:subGroups", (Serializable) List.of("AB"));
+        groupA = userManager.createGroup(groupA);
+
+        assertEquals(List.of("ABCD", "AB", "A"), userManager.getGroupClosure("ABCD"));
+        assertNull(userManager.getGroupClosure("nosuchgroup"));
+        NuxeoPrincipal principal = userManager.getPrincipal("test_u1");
+        assertTrue(CollectionUtils.isEqualCollection(List.of("defgr", "ABCD", "AB", "A"), principal.getAllGroups()));
+
+        // new parent of an existing group
+        DocumentModel groupB = getGroup("B");
+        groupB.setPropertyValue("group:subGroups", (Serializable) List.of("AB"));
+        userManager.createGroup(groupB);
+        assertTrue(CollectionUtils.isEqualCollection(List.of("ABCD", "AB", "A", "B"),
+                userManager.getGroupClosure("ABCD")));
+        principal = userManager.getPrincipal("test_u1");
+        assertTrue(principal.isMemberOf("B"));
+
+        // removed sub-group
+        groupA.setPropertyValue("group:subGroups", (Serializable) List.of());
+        userManager.updateGroup(groupA);
+        assertEquals(List.of("ABCD", "AB", "B"), userManager.getGroupClosure("ABCD"));
+        principal = userManager.getPrincipal("test_u1");
+        assertFalse(principal.isMemberOf("A"));
+        assertTrue(principal.isMemberOf("B"));
+
+        // deleted group
+        userManager.deleteGroup("AB");
+        assertEquals(List.of("ABCD"), userManager.getGroupClosure("ABCD"));
+        principal = userManager.getPrincipal("test_u1");
+        assertTrue(CollectionUtils.isEqualCollection(List.of("defgr", "ABCD"), principal.getAllGroups()));
+    }
+
     @Test
     public void testNuxeoPrincipalSerialization() throws Exception {
         String userId = "test";
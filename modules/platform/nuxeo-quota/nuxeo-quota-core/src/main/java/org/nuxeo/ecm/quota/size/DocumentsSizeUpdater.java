@@ -21,6 +21,7 @@ package org.nuxeo.ecm.quota.size;
 
 import static org.nuxeo.ecm.core.api.versioning.VersioningService.VERSIONING_OPTION;
 
+import java.time.Duration;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
@@ -31,7 +32,9 @@ import org.apache.logging.log4j.Logger;
 import org.nuxeo.ecm.core.api.Blob;
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentRef;
 import org.nuxeo.ecm.core.api.IdRef;
+import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.api.PathRef;
 import org.nuxeo.ecm.core.api.ScrollResult;
 import org.nuxeo.ecm.core.event.Event;
@@ -80,6 +83,38 @@ public class DocumentsSizeUpdater extends AbstractQuotaStatsUpdater {
     /** @since 11.1 */
     public static final int DEFAULT_INIT_SCROLL_KEEP_ALIVE = 120;
 
+    /**
+     * Property enabling the asynchronous update of the ancestors sizes through the {@link QuotaSizeDeltaProcessor}.
+     *
+     * @since 11.2
+     */
+    public static final String ASYNC_ANCESTORS_PROP = "nuxeo.quota.size.ancestors.async";
+
+    /**
+     * Property bounding the number of ancestors deltas waiting in the stream. Above it the ancestors are updated
+     * synchronously, so that the quota checks don't lag behind indefinitely when the stream is late.
+     *
+     * @since 11.2
+     */
+    public static final String ASYNC_ANCESTORS_MAX_LAG_PROP = "nuxeo.quota.size.ancestors.async.maxLag";
+
+    /** @since 11.2 */
+    public static final int DEFAULT_ASYNC_ANCESTORS_MAX_LAG = 1000;
+
+    /**
+     * Property defining how often the lag of the ancestors deltas is read from the stream, to be compared to
+     * {@value #ASYNC_ANCESTORS_MAX_LAG_PROP}.
+     *
+     * @since 11.2
+     */
+    public static final String ASYNC_ANCESTORS_LAG_REFRESH_PROP = "nuxeo.quota.size.ancestors.async.lagRefreshInterval";
+
+    /** @since 11.2 */
+    public static final Duration DEFAULT_ASYNC_ANCESTORS_LAG_REFRESH = Duration.ofSeconds(1);
+
+    /** @since 11.2 */
+    protected static final Duration ASYNC_ANCESTORS_AWAIT_TIMEOUT = Duration.ofMinutes(1);
+
     @Override
     public void computeInitialStatistics(CoreSession session, QuotaStatsInitialWork currentWorker, String path) {
         log.debug("Starting initial Quota computation for path: {}", path);
@@ -99,6 +134,11 @@ public class DocumentsSizeUpdater extends AbstractQuotaStatsUpdater {
         int initScrollSize = confService.getInteger(INIT_SCROLL_SIZE_PROP, DEFAULT_INIT_SCROLL_SIZE);
         int initScrollKeepAlive = confService.getInteger(INIT_SCROLL_KEEP_ALIVE_PROP, DEFAULT_INIT_SCROLL_KEEP_ALIVE);
 
+        if (isAsyncAncestors()) {
+            // apply the pending ancestors deltas before resetting the sizes
+            awaitAncestorsDeltas();
+        }
+
         // reset on all documents
         // this will force an update if the quota addon was installed and then removed
         log.debug("Start scrolling to clear quotas");
@@ -161,7 +201,58 @@ public class DocumentsSizeUpdater extends AbstractQuotaStatsUpdater {
         boolean isDeleted = doc.isTrashed();
         long size = getBlobsSize(doc);
         long versionsSize = getVersionsSize(session, doc);
-        updateDocumentAndAncestors(session, doc, size, size + versionsSize, isDeleted ? size : 0, versionsSize);
+        long trashSize = isDeleted ? size : 0;
+        // always synchronous, so that the computation can be used to reconcile the sizes
+        updateDocument(doc, size, size + versionsSize, trashSize, versionsSize);
+        updateAncestorsSynchronously(session, doc, size + versionsSize, trashSize, versionsSize);
+    }
+
+    /**
+     * Checks whether the sizes of the ancestors are updated asynchronously.
+     *
+     * @since 11.2
+     */
+    protected boolean isAsyncAncestors() {
+        return Framework.getService(ConfigurationService.class).isBooleanTrue(ASYNC_ANCESTORS_PROP);
+    }
+
+    /**
+     * Checks whether the ancestors deltas waiting in the stream exceed {@value #ASYNC_ANCESTORS_MAX_LAG_PROP}, in which
+     * case the ancestors are updated synchronously.
+     * <p>
+     * The lag is read from the stream at most every {@value #ASYNC_ANCESTORS_LAG_REFRESH_PROP}, not on each change.
+     *
+     * @since 11.2
+     */
+    protected boolean isAsyncAncestorsLagging() {
+        ConfigurationService confService = Framework.getService(ConfigurationService.class);
+        int maxLag = confService.getInteger(ASYNC_ANCESTORS_MAX_LAG_PROP, DEFAULT_ASYNC_ANCESTORS_MAX_LAG);
+        Duration refresh = confService.getDuration(ASYNC_ANCESTORS_LAG_REFRESH_PROP,
+                DEFAULT_ASYNC_ANCESTORS_LAG_REFRESH);
+        long lag = QuotaSizeDeltaProcessor.getCachedLag(refresh);
+        if (lag >= maxLag) {
+            log.debug("Quota size deltas lag: {} reached the maximum: {}, update ancestors synchronously", lag, maxLag);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Waits for the pending ancestors deltas, failing if they are not applied in time as they would otherwise be
+     * counted twice by the reconciliation.
+     *
+     * @since 11.2
+     */
+    protected void awaitAncestorsDeltas() {
+        try {
+            if (!QuotaSizeDeltaProcessor.await(ASYNC_ANCESTORS_AWAIT_TIMEOUT)) {
+                throw new NuxeoException("Timeout waiting for the pending quota size deltas after: "
+                        + ASYNC_ANCESTORS_AWAIT_TIMEOUT.toSeconds() + "s");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NuxeoException(e);
+        }
     }
 
     protected void initDocumentFromChildren(DocumentModel doc) {
@@ -379,7 +470,13 @@ public class DocumentsSizeUpdater extends AbstractQuotaStatsUpdater {
         return !Boolean.TRUE.equals(doc.getContextData(DISABLE_QUOTA_CHECK_LISTENER));
     }
 
-    /** Checks the size delta against the maximum quota specified for this document or an ancestor. */
+    /**
+     * Checks the size delta against the maximum quota specified for this document or an ancestor.
+     * <p>
+     * When {@value #ASYNC_ANCESTORS_PROP} is enabled, the sizes of the ancestors may not include the most recent
+     * changes yet, so the quota may be exceeded by the changes done during the processing lag. This lag is bounded by
+     * the {@value #ASYNC_ANCESTORS_MAX_LAG_PROP} property.
+     */
     protected void checkQuota(CoreSession session, DocumentModel doc, long delta) {
         if (delta <= 0) {
             return;
@@ -470,6 +567,24 @@ public class DocumentsSizeUpdater extends AbstractQuotaStatsUpdater {
             // avoids computing ancestors if there's no update to do
             return;
         }
+        if (isAsyncAncestors() && !isAsyncAncestorsLagging()) {
+            // merged and applied later, see QuotaSizeDeltaProcessor
+            String repositoryName = session.getRepositoryName();
+            for (DocumentRef ref : session.getParentDocumentRefs(doc.getRef())) {
+                QuotaSizeDeltaProcessor.collect(new QuotaSizeDelta(repositoryName, ref.reference().toString(),
+                        deltaTotal, deltaTrash, deltaVersions));
+            }
+        } else {
+            updateAncestorsSynchronously(session, doc, deltaTotal, deltaTrash, deltaVersions);
+        }
+    }
+
+    /** @since 11.2 */
+    protected void updateAncestorsSynchronously(CoreSession session, DocumentModel doc, long deltaTotal,
+            long deltaTrash, long deltaVersions) {
+        if (deltaTotal == 0 && deltaTrash == 0 && deltaVersions == 0) {
+            return;
+        }
         List<DocumentModel> ancestors = getAncestors(session, doc);
         for (DocumentModel ancestor : ancestors) {
             updateDocument(ancestor, 0, deltaTotal, deltaTrash, deltaVersions);
@@ -0,0 +1,125 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.quota.size;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * A size delta to apply to the total, trash and versions sizes of a document, for the asynchronous update of the
+ * ancestors of a changed document.
+ * <p>
+ * Deltas are commutative, so several deltas for the same document can be merged into one in any order.
+ *
+ * @since 11.2
+ */
+public class QuotaSizeDelta {
+
+    protected final String repositoryName;
+
+    protected final String docId;
+
+    protected long total;
+
+    protected long trash;
+
+    protected long versions;
+
+    public QuotaSizeDelta(String repositoryName, String docId, long total, long trash, long versions) {
+        this.repositoryName = repositoryName;
+        this.docId = docId;
+        this.total = total;
+        this.trash = trash;
+        this.versions = versions;
+    }
+
+    public String getRepositoryName() {
+        return repositoryName;
+    }
+
+    public String getDocId() {
+        return docId;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getTrash() {
+        return trash;
+    }
+
+    public long getVersions() {
+        return versions;
+    }
+
+    /**
+     * The key identifying the document, used to merge deltas and to partition them.
+     */
+    public String getKey() {
+        return repositoryName + ':' + docId;
+    }
+
+    /**
+     * Adds the given delta, which must be for the same document, to this one.
+     */
+    public QuotaSizeDelta merge(QuotaSizeDelta other) {
+        total += other.total;
+        trash += other.trash;
+        versions += other.versions;
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return total == 0 && trash == 0 && versions == 0;
+    }
+
+    public byte[] encode() {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bos)) {
+            out.writeUTF(repositoryName);
+            out.writeUTF(docId);
+            out.writeLong(total);
+            out.writeLong(trash);
+            out.writeLong(versions);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bos.toByteArray();
+    }
+
+    public static QuotaSizeDelta decode(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            return new QuotaSizeDelta(in.readUTF(), in.readUTF(), in.readLong(), in.readLong(), in.readLong());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot decode quota size delta", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + getKey() + ", total=" + total + ", trash=" + trash + ", versions="
+                + versions + ")";
+    }
+
+}
@@ -0,0 +1,263 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.quota.size;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.api.CoreInstance;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentNotFoundException;
+import org.nuxeo.ecm.core.api.IdRef;
+import org.nuxeo.lib.stream.computation.AbstractBatchComputation;
+import org.nuxeo.lib.stream.computation.ComputationContext;
+import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.lib.stream.computation.Topology;
+import org.nuxeo.lib.stream.log.Name;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.metrics.MetricsService;
+import org.nuxeo.runtime.stream.StreamProcessorTopology;
+import org.nuxeo.runtime.stream.StreamService;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+import io.dropwizard.metrics5.Counter;
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+
+/**
+ * Applies the size deltas of the ancestors of changed documents asynchronously, when the
+ * {@value DocumentsSizeUpdater#ASYNC_ANCESTORS_PROP} property is enabled.
+ * <p>
+ * The deltas of a transaction are merged by ancestor and appended to the {@value #STREAM_NAME} stream after commit,
+ * keyed by ancestor so that a given ancestor is always updated by the same computation thread. The computation merges
+ * again the deltas received during the batch threshold and applies a single
+ * {@link org.nuxeo.ecm.core.api.model.DeltaLong DeltaLong} increment per ancestor and size, instead of saving every
+ * ancestor for every changed document.
+ * <p>
+ * The sizes of the ancestors, and therefore the quota checks, lag behind by the time needed to process the stream. This
+ * lag is bounded by {@value DocumentsSizeUpdater#ASYNC_ANCESTORS_MAX_LAG_PROP}: above it the ancestors are updated
+ * synchronously again. The deltas are applied at least once, the initial statistics computation can be used to
+ * reconcile the sizes.
+ *
+ * @since 11.2
+ */
+public class QuotaSizeDeltaProcessor implements StreamProcessorTopology {
+
+    private static final Logger log = LogManager.getLogger(QuotaSizeDeltaProcessor.class);
+
+    public static final String STREAM_NAME = "quota/sizeDeltas";
+
+    public static final String COMPUTATION_NAME = "quota/sizeDeltas";
+
+    protected static final ThreadLocal<Map<String, QuotaSizeDelta>> pendingDeltas = new ThreadLocal<>();
+
+    /** The lag last read from the stream, see {@link #getCachedLag}. */
+    protected static final AtomicLong cachedLag = new AtomicLong();
+
+    /** The time at which {@link #cachedLag} was last read from the stream. */
+    protected static final AtomicLong cachedLagTime = new AtomicLong();
+
+    @Override
+    public Topology getTopology(Map<String, String> options) {
+        return Topology.builder()
+                       .addComputation(() -> new QuotaSizeDeltaComputation(COMPUTATION_NAME),
+                               Collections.singletonList("i1:" + STREAM_NAME))
+                       .build();
+    }
+
+    /**
+     * Collects a delta to append to the stream when the current transaction commits, or immediately if there is no
+     * transaction.
+     */
+    public static void collect(QuotaSizeDelta delta) {
+        if (delta.isEmpty()) {
+            return;
+        }
+        if (TransactionHelper.isTransactionMarkedRollback()) {
+            // nothing will be committed
+            return;
+        }
+        if (!TransactionHelper.isTransactionActive()) {
+            append(Collections.singletonList(delta));
+            return;
+        }
+        Map<String, QuotaSizeDelta> deltas = pendingDeltas.get();
+        if (deltas == null) {
+            deltas = new LinkedHashMap<>();
+            pendingDeltas.set(deltas);
+            TransactionHelper.registerSynchronization(new AppendAfterCommit());
+        }
+        deltas.merge(delta.getKey(), delta, QuotaSizeDelta::merge);
+    }
+
+    protected static void append(Collection<QuotaSizeDelta> deltas) {
+        StreamService service = Framework.getService(StreamService.class);
+        for (QuotaSizeDelta delta : deltas) {
+            if (!delta.isEmpty()) {
+                service.getStreamManager().append(STREAM_NAME, Record.of(delta.getKey(), delta.encode()));
+            }
+        }
+    }
+
+    /**
+     * Returns the number of deltas appended to the stream and not yet applied.
+     */
+    @SuppressWarnings("resource") // LogManager not ours to close
+    public static long getLag() {
+        org.nuxeo.lib.stream.log.LogManager logManager = Framework.getService(StreamService.class).getLogManager();
+        return logManager.getLag(Name.ofUrn(STREAM_NAME), Name.ofUrn(COMPUTATION_NAME)).lag();
+    }
+
+    /**
+     * Returns the number of deltas not yet applied, as last read from the stream.
+     * <p>
+     * Reading the lag from the stream can be costly, for instance Kafka needs a new consumer and several round trips.
+     * So the lag is read again by a single caller once the cached value is older than the given age, the other callers
+     * get the cached value meanwhile.
+     */
+    public static long getCachedLag(Duration maxAge) {
+        long now = System.currentTimeMillis();
+        long time = cachedLagTime.get();
+        if (now - time >= maxAge.toMillis() && cachedLagTime.compareAndSet(time, now)) {
+            cachedLag.set(getLag());
+        }
+        return cachedLag.get();
+    }
+
+    /**
+     * Updates the cached lag returned by {@link #getCachedLag} until its next refresh.
+     */
+    public static void updateCachedLag(long lag) {
+        cachedLag.set(lag);
+        cachedLagTime.set(System.currentTimeMillis());
+    }
+
+    /**
+     * Waits until all the deltas appended to the stream have been applied.
+     *
+     * @return {@code false} if the timeout is reached
+     */
+    public static boolean await(Duration timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout.toMillis();
+        while (getLag() > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(50);
+        }
+        return true;
+    }
+
+    protected static class AppendAfterCommit implements Synchronization {
+
+        @Override
+        public void beforeCompletion() {
+            // nothing to do
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            Map<String, QuotaSizeDelta> deltas = pendingDeltas.get();
+            pendingDeltas.remove();
+            if (deltas != null && status == Status.STATUS_COMMITTED) {
+                append(deltas.values());
+            }
+        }
+    }
+
+    public static class QuotaSizeDeltaComputation extends AbstractBatchComputation {
+
+        protected final Counter receivedDeltas;
+
+        protected final Counter appliedDeltas;
+
+        public QuotaSizeDeltaComputation(String name) {
+            super(name, 1, 0);
+            MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+            receivedDeltas = registry.counter(MetricName.build("nuxeo", "quota", "size", "ancestors", "received"));
+            appliedDeltas = registry.counter(MetricName.build("nuxeo", "quota", "size", "ancestors", "applied"));
+        }
+
+        @Override
+        protected void batchProcess(ComputationContext context, String inputStreamName, List<Record> records) {
+            // merge by document, then group by repository
+            Map<String, QuotaSizeDelta> merged = new LinkedHashMap<>();
+            for (Record record : records) {
+                QuotaSizeDelta delta = QuotaSizeDelta.decode(record.getData());
+                merged.merge(delta.getKey(), delta, QuotaSizeDelta::merge);
+            }
+            receivedDeltas.inc(records.size());
+            Map<String, List<QuotaSizeDelta>> byRepository = new LinkedHashMap<>();
+            for (QuotaSizeDelta delta : merged.values()) {
+                if (!delta.isEmpty()) {
+                    byRepository.computeIfAbsent(delta.getRepositoryName(), k -> new ArrayList<>()).add(delta);
+                }
+            }
+            // all the deltas of a repository are applied in a single transaction
+            byRepository.forEach((repositoryName, deltas) -> TransactionHelper.runInTransaction(
+                    () -> CoreInstance.doPrivileged(repositoryName,
+                            (CoreSession session) -> deltas.forEach(delta -> apply(session, delta)))));
+        }
+
+        protected void apply(CoreSession session, QuotaSizeDelta delta) {
+            DocumentModel doc;
+            try {
+                doc = session.getDocument(new IdRef(delta.getDocId()));
+            } catch (DocumentNotFoundException e) {
+                log.debug("Skip delta for removed document: {}", delta);
+                return;
+            }
+            log.trace("Apply {}", delta);
+            QuotaAware quotaDoc = doc.getAdapter(QuotaAware.class);
+            if (quotaDoc == null) {
+                quotaDoc = QuotaAwareDocumentFactory.make(doc);
+            }
+            if (delta.getTotal() != 0) {
+                quotaDoc.addTotalSize(delta.getTotal());
+            }
+            if (delta.getTrash() != 0) {
+                quotaDoc.addTrashSize(delta.getTrash());
+            }
+            if (delta.getVersions() != 0) {
+                quotaDoc.addVersionsSize(delta.getVersions());
+            }
+            quotaDoc.save();
+            appliedDeltas.inc();
+        }
+
+        @Override
+        public void batchFailure(ComputationContext context, String inputStreamName, List<Record> records) {
+            // error log already done by abstract, sizes can be reconciled by the initial statistics computation
+        }
+    }
+
+}
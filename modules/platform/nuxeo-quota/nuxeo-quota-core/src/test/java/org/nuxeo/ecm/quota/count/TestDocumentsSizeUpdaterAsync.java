@@ -0,0 +1,188 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.ecm.quota.count;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.nuxeo.ecm.quota.count.QuotaFeature.assertQuota;
+import static org.nuxeo.ecm.quota.count.QuotaFeature.createFakeBlob;
+import static org.nuxeo.ecm.quota.size.DocumentsSizeUpdater.DEFAULT_ASYNC_ANCESTORS_MAX_LAG;
+import static org.nuxeo.ecm.quota.size.QuotaAwareDocument.DOCUMENTS_SIZE_TOTAL_SIZE_PROPERTY;
+
+import java.time.Duration;
+
+import javax.inject.Inject;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.bulk.CoreBulkFeature;
+import org.nuxeo.ecm.core.test.CoreFeature;
+import org.nuxeo.ecm.quota.QuotaStatsService;
+import org.nuxeo.ecm.quota.QuotaUtils;
+import org.nuxeo.ecm.quota.size.QuotaSizeDeltaProcessor;
+import org.nuxeo.runtime.metrics.MetricsService;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+
+/**
+ * Tests the asynchronous update of the ancestors sizes.
+ *
+ * @since 11.2
+ */
+@RunWith(FeaturesRunner.class)
+@Features({ QuotaFeature.class, CoreBulkFeature.class })
+@Deploy("org.nuxeo.ecm.quota.core.test:OSGI-INF/quota-size-async-test-contrib.xml")
+public class TestDocumentsSizeUpdaterAsync {
+
+    @Inject
+    protected CoreSession session;
+
+    @Inject
+    protected CoreFeature coreFeature;
+
+    @Inject
+    protected QuotaStatsService quotaStatsService;
+
+    protected void nextTransactionAndDeltas() throws InterruptedException {
+        coreFeature.waitForAsyncCompletion(); // commit the transaction
+        TransactionHelper.commitOrRollbackTransaction();
+        try {
+            assertTrue(QuotaSizeDeltaProcessor.await(Duration.ofSeconds(20)));
+        } finally {
+            TransactionHelper.startTransaction();
+        }
+    }
+
+    protected DocumentModel createFile(String parentPath, String name, int size) {
+        DocumentModel file = session.createDocumentModel(parentPath, name, "File");
+        file.setPropertyValue("file:content", createFakeBlob(size));
+        return session.createDocument(file);
+    }
+
+    protected long getReceivedDeltas() {
+        return SharedMetricRegistries.getOrCreate(MetricsService.class.getName())
+                                     .counter(MetricName.build("nuxeo", "quota", "size", "ancestors", "received"))
+                                     .getCount();
+    }
+
+    @Test
+    public void testAncestorsUpdatedAsynchronously() throws InterruptedException {
+        DocumentModel ws = session.createDocument(session.createDocumentModel("/", "ws", "Workspace"));
+        DocumentModel folder = session.createDocument(session.createDocumentModel("/ws", "folder", "Folder"));
+        DocumentModel file1 = createFile("/ws/folder", "file1", 100);
+        DocumentModel file2 = createFile("/ws/folder", "file2", 200);
+        nextTransactionAndDeltas();
+
+        assertQuota(session.getDocument(file1.getRef()), 100, 100);
+        assertQuota(session.getDocument(file2.getRef()), 200, 200);
+        assertQuota(session.getDocument(folder.getRef()), 0, 300);
+        assertQuota(session.getDocument(ws.getRef()), 0, 300);
+
+        // update
+        file1 = session.getDocument(file1.getRef());
+        file1.setPropertyValue("file:content", createFakeBlob(150));
+        session.saveDocument(file1);
+        nextTransactionAndDeltas();
+
+        assertQuota(session.getDocument(file1.getRef()), 150, 150);
+        assertQuota(session.getDocument(folder.getRef()), 0, 350);
+        assertQuota(session.getDocument(ws.getRef()), 0, 350);
+
+        // remove
+        session.removeDocument(file2.getRef());
+        nextTransactionAndDeltas();
+
+        assertQuota(session.getDocument(folder.getRef()), 0, 150);
+        assertQuota(session.getDocument(ws.getRef()), 0, 150);
+    }
+
+    @Test
+    public void testDeltasMergedByAncestor() throws InterruptedException {
+        session.createDocument(session.createDocumentModel("/", "ws", "Workspace"));
+        DocumentModel folder = session.createDocument(session.createDocumentModel("/ws", "folder", "Folder"));
+        nextTransactionAndDeltas();
+
+        long received = getReceivedDeltas();
+        for (int i = 0; i < 10; i++) {
+            createFile("/ws/folder", "file" + i, 10);
+        }
+        nextTransactionAndDeltas();
+
+        // a single delta per ancestor for the transaction: folder, ws and root
+        assertEquals(3, getReceivedDeltas() - received);
+        assertQuota(session.getDocument(folder.getRef()), 0, 100);
+    }
+
+    @Test
+    @Deploy("org.nuxeo.ecm.quota.core.test:OSGI-INF/quota-size-async-max-lag-test-contrib.xml")
+    public void testAncestorsUpdatedSynchronouslyWhenLagging() throws InterruptedException {
+        DocumentModel ws = session.createDocument(session.createDocumentModel("/", "ws", "Workspace"));
+        QuotaSizeDeltaProcessor.updateCachedLag(0);
+        try {
+            long received = getReceivedDeltas();
+            createFile("/ws", "file1", 100);
+            nextTransactionAndDeltas();
+            // ws and root
+            assertEquals(2, getReceivedDeltas() - received);
+            assertQuota(session.getDocument(ws.getRef()), 0, 100);
+
+            // the cached lag reached the maximum, even if the stream is not lagging anymore
+            QuotaSizeDeltaProcessor.updateCachedLag(DEFAULT_ASYNC_ANCESTORS_MAX_LAG);
+            received = getReceivedDeltas();
+            createFile("/ws", "file2", 50);
+            // the ancestors are updated in the transaction
+            assertQuota(session.getDocument(ws.getRef()), 0, 150);
+            nextTransactionAndDeltas();
+
+            assertEquals(0, getReceivedDeltas() - received);
+            assertQuota(session.getDocument(ws.getRef()), 0, 150);
+        } finally {
+            QuotaSizeDeltaProcessor.updateCachedLag(0);
+        }
+    }
+
+    @Test
+    public void testInitialComputationReconcilesSizes() throws InterruptedException {
+        DocumentModel ws = session.createDocument(session.createDocumentModel("/", "ws", "Workspace"));
+        createFile("/ws", "file", 100);
+        nextTransactionAndDeltas();
+        assertQuota(session.getDocument(ws.getRef()), 0, 100);
+
+        // corrupt the size of the workspace
+        ws = session.getDocument(ws.getRef());
+        ws.setPropertyValue(DOCUMENTS_SIZE_TOTAL_SIZE_PROPERTY, Long.valueOf(12345));
+        QuotaUtils.disableListeners(ws);
+        session.saveDocument(ws);
+        nextTransactionAndDeltas();
+        assertQuota(session.getDocument(ws.getRef()), 0, 12345);
+
+        quotaStatsService.launchInitialStatisticsComputation("documentsSizeUpdater", session.getRepositoryName(),
+                null);
+        nextTransactionAndDeltas();
+        assertQuota(session.getDocument(ws.getRef()), 0, 100);
+    }
+
+}
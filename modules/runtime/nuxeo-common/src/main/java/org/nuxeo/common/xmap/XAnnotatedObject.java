@@ -22,6 +22,9 @@
 package org.nuxeo.common.xmap;
 
 import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
@@ -45,6 +48,9 @@ public class XAnnotatedObject {
 
     final Constructor<?> ctor;
 
+    // constructor adapted to return an Object, when using method handles
+    final MethodHandle ctorHandle;
+
     final Path path;
 
     final List<XAnnotatedMember> members;
@@ -57,6 +63,7 @@ public class XAnnotatedObject {
             this.klass = klass;
             this.ctor = this.klass.getDeclaredConstructor();
             ctor.setAccessible(true);
+            ctorHandle = xmap.useMethodHandles ? newConstructorHandle(ctor) : null;
             path = new Path(xob.value());
             members = new ArrayList<>();
             String[] order = xob.order();
@@ -70,6 +77,15 @@ public class XAnnotatedObject {
         }
     }
 
+    /** @since 11.2 */
+    protected static MethodHandle newConstructorHandle(Constructor<?> ctor) {
+        try {
+            return MethodHandles.lookup().unreflectConstructor(ctor).asType(MethodType.methodType(Object.class));
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
     public void addMember(XAnnotatedMember member) {
         members.add(member);
     }
@@ -79,19 +95,7 @@ public class XAnnotatedObject {
     }
 
     public Object newInstance(Context ctx, Element element) {
-        Object ob;
-        try {
-            ob = ctor.newInstance();
-        } catch (InstantiationException e) {
-            throw new IllegalArgumentException(e);
-        } catch (IllegalAccessException e) {
-            throw new IllegalArgumentException(e);
-        } catch (InvocationTargetException e) {
-            if (e.getCause() instanceof RuntimeException) {
-                throw (RuntimeException) e.getCause();
-            }
-            throw new IllegalArgumentException(e);
-        }
+        Object ob = ctorHandle == null ? newInstance() : newInstanceFromHandle();
         ctx.push(ob);
 
         if (sorter != null) {
@@ -106,6 +110,33 @@ public class XAnnotatedObject {
 
         return ctx.pop();
     }
+
+    /** @since 11.2 */
+    protected Object newInstance() {
+        try {
+            return ctor.newInstance();
+        } catch (InstantiationException e) {
+            throw new IllegalArgumentException(e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException(e);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /** @since 11.2 */
+    protected Object newInstanceFromHandle() {
+        try {
+            return ctorHandle.invokeExact();
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) { // NOSONAR
+            throw new IllegalArgumentException(t);
+        }
+    }
 }
 
 class Sorter implements Comparator<XAnnotatedMember>, Serializable {
@@ -98,6 +98,19 @@ public class XMap {
 
     private static DocumentBuilderFactory factory = initFactory();
 
+    // parsers are costly to create, keep one per thread
+    private static final ThreadLocal<DocumentBuilder> builders = new ThreadLocal<>();
+
+    /**
+     * System property making members be set through method handles instead of reflection, see
+     * {@link XMethodHandleAccessor}.
+     *
+     * @since 11.2
+     */
+    public static final String METHOD_HANDLES_PROP = "org.nuxeo.xmap.methodHandles";
+
+    protected boolean useMethodHandles = Boolean.getBoolean(METHOD_HANDLES_PROP);
+
     // top level objects
     private final Map<String, XAnnotatedObject> roots;
 
@@ -115,6 +128,46 @@ public class XMap {
         factories = new Hashtable<>(XValueFactory.defaultFactories);
     }
 
+    /**
+     * Checks whether members are set through method handles instead of reflection.
+     *
+     * @since 11.2
+     */
+    public boolean isUseMethodHandles() {
+        return useMethodHandles;
+    }
+
+    /**
+     * Sets whether members are set through method handles instead of reflection. Must be called before registering
+     * classes.
+     *
+     * @since 11.2
+     */
+    public void setUseMethodHandles(boolean useMethodHandles) {
+        this.useMethodHandles = useMethodHandles;
+    }
+
+    /**
+     * Parses an XML document, reusing the parser of the current thread.
+     *
+     * @since 11.2
+     */
+    protected static Document parse(InputStream in) throws ParserConfigurationException, SAXException, IOException {
+        DocumentBuilder builder = builders.get();
+        if (builder == null) {
+            builder = getFactory().newDocumentBuilder();
+        } else {
+            // in case of reentrant parsing
+            builders.remove();
+        }
+        try {
+            return builder.parse(in);
+        } finally {
+            builder.reset();
+            builders.set(builder);
+        }
+    }
+
     /**
      * Gets the value factory used for objects of the given class.
      * <p>
@@ -258,9 +311,7 @@ public class XMap {
      */
     public Object load(Context ctx, InputStream in) throws IOException {
         try {
-            DocumentBuilderFactory factory = getFactory();
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document document = builder.parse(in);
+            Document document = parse(in);
             return load(ctx, document.getDocumentElement());
         } catch (ParserConfigurationException | SAXException e) {
             throw new IOException(e);
@@ -331,9 +382,7 @@ public class XMap {
      */
     public Object[] loadAll(Context ctx, InputStream in) throws IOException {
         try {
-            DocumentBuilderFactory factory = getFactory();
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document document = builder.parse(in);
+            Document document = parse(in);
             return loadAll(ctx, document.getDocumentElement());
         } catch (ParserConfigurationException | SAXException e) {
             throw new IOException(e);
@@ -485,12 +534,13 @@ public class XMap {
     }
 
     public final XAnnotatedMember createFieldMember(Field field, Annotation annotation) {
-        XAccessor setter = new XFieldAccessor(field);
+        XAccessor setter = useMethodHandles ? XMethodHandleAccessor.of(field) : new XFieldAccessor(field);
         return createMember(annotation, setter);
     }
 
     public final XAnnotatedMember createMethodMember(Method method, Annotation annotation, Class<?> klass) {
-        XAccessor setter = new XMethodAccessor(method, klass);
+        XAccessor setter = useMethodHandles ? XMethodHandleAccessor.of(method, klass)
+                : new XMethodAccessor(method, klass);
         return createMember(annotation, setter);
     }
 
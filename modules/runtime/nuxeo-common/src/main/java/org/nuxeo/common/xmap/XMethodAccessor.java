@@ -71,7 +71,7 @@ public class XMethodAccessor implements XAccessor {
         // lazy initialization for getter to keep the compatibility
         // with current xmap definition
         if (getter == null) {
-            getter = findGetter(klass);
+            getter = findGetter(setter, klass);
         }
         if (getter != null) {
             try {
@@ -88,7 +88,12 @@ public class XMethodAccessor implements XAccessor {
         return null;
     }
 
-    private Method findGetter(Class<?> klass) {
+    /**
+     * Finds the getter matching an annotated setter.
+     *
+     * @since 11.2
+     */
+    protected static Method findGetter(Method setter, Class<?> klass) {
         String setterName = setter.getName();
         if (setterName.toLowerCase().startsWith("set")) {
             String suffix = setterName.substring(3);
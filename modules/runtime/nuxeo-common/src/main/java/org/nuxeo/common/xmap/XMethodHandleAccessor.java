@@ -0,0 +1,134 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.common.xmap;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
+/**
+ * Accessor using method handles adapted to generic signatures instead of reflection, so that setting a member doesn't
+ * need access checks nor argument arrays, and can be inlined by the JIT.
+ *
+ * @since 11.2
+ */
+public class XMethodHandleAccessor implements XAccessor {
+
+    protected static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+    protected static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    protected final Class<?> type;
+
+    protected final MethodHandle setter;
+
+    // for annotated methods the getter is looked up lazily, like in XMethodAccessor
+    protected final Method setterMethod;
+
+    protected final Class<?> klass;
+
+    protected volatile MethodHandle getter;
+
+    protected XMethodHandleAccessor(Class<?> type, MethodHandle setter, MethodHandle getter, Method setterMethod,
+            Class<?> klass) {
+        this.type = type;
+        this.setter = setter.asType(SETTER_TYPE);
+        this.getter = getter == null ? null : getter.asType(GETTER_TYPE);
+        this.setterMethod = setterMethod;
+        this.klass = klass;
+    }
+
+    /**
+     * Creates an accessor for the given field, or a reflective one if the field cannot be written through a method
+     * handle.
+     */
+    public static XAccessor of(Field field) {
+        field.setAccessible(true);
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            return new XMethodHandleAccessor(field.getType(), lookup.unreflectSetter(field),
+                    lookup.unreflectGetter(field), null, null);
+        } catch (IllegalAccessException e) {
+            // final field, depending on the JVM
+            return new XFieldAccessor(field);
+        }
+    }
+
+    /**
+     * Creates an accessor for the given setter method of the given class.
+     */
+    public static XAccessor of(Method method, Class<?> klass) {
+        method.setAccessible(true);
+        try {
+            return new XMethodHandleAccessor(method.getParameterTypes()[0],
+                    MethodHandles.lookup().unreflect(method), null, method, klass);
+        } catch (IllegalAccessException e) {
+            return new XMethodAccessor(method, klass);
+        }
+    }
+
+    @Override
+    public Class<?> getType() {
+        return type;
+    }
+
+    @Override
+    public void setValue(Object instance, Object value) {
+        try {
+            setter.invokeExact(instance, value);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) { // NOSONAR
+            throw new IllegalArgumentException(t);
+        }
+    }
+
+    @Override
+    public Object getValue(Object instance) {
+        MethodHandle mh = getter;
+        if (mh == null) {
+            Method method = XMethodAccessor.findGetter(setterMethod, klass);
+            if (method == null) {
+                return null;
+            }
+            method.setAccessible(true);
+            try {
+                mh = MethodHandles.lookup().unreflect(method).asType(GETTER_TYPE);
+            } catch (IllegalAccessException e) {
+                throw new IllegalArgumentException(e);
+            }
+            getter = mh;
+        }
+        try {
+            return mh.invokeExact(instance);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) { // NOSONAR
+            throw new IllegalArgumentException(t);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "XMethodHandleAccessor {type: " + type.getName() + ", setter: " + setter + '}';
+    }
+
+}
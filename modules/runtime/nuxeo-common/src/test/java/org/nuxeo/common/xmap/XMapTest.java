@@ -57,6 +57,43 @@ public class XMapTest {
         assertEquals("test1", inheritedAuthor.inheritedId);
     }
 
+    @Test
+    public void testMappingWithMethodHandles() throws Exception {
+        XMap xmap = new XMap();
+        xmap.setUseMethodHandles(true);
+        xmap.register(Author.class);
+
+        URL url = Thread.currentThread().getContextClassLoader().getResource("test-xmap.xml");
+
+        checkAuthor((Author) xmap.load(url));
+    }
+
+    @Test
+    public void testInheritedMappingWithMethodHandles() throws Exception {
+        XMap xmap = new XMap();
+        xmap.setUseMethodHandles(true);
+        xmap.register(InheritedAuthor.class);
+
+        URL url = Thread.currentThread().getContextClassLoader().getResource("second-test-xmap.xml");
+        InheritedAuthor inheritedAuthor = (InheritedAuthor) xmap.load(url);
+        checkAuthor(inheritedAuthor);
+        assertEquals("dummyContent", inheritedAuthor.notInherited);
+        assertEquals("test1", inheritedAuthor.inheritedId);
+    }
+
+    @Test
+    public void testMethodHandlesGetValues() throws Exception {
+        URL url = Thread.currentThread().getContextClassLoader().getResource("test-xmap.xml");
+        XMap xmap = new XMap();
+        xmap.register(Author.class);
+        String expected = xmap.toXML(xmap.load(url));
+
+        xmap = new XMap();
+        xmap.setUseMethodHandles(true);
+        xmap.register(Author.class);
+        assertEquals(expected, xmap.toXML(xmap.load(url)));
+    }
+
     protected void checkAuthor(Author author) {
         assertEquals("First test 22", author.title);
         assertEquals("bla bla", author.description);
@@ -0,0 +1,266 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.runtime.kv;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Memory-based implementation of a Key/Value store, scaling with the number of keys having a TTL and the number of
+ * concurrent writers.
+ * <p>
+ * Keys are spread over several {@link ConcurrentHashMap} stripes holding immutable entries, so that writes only
+ * contend on the same key, including for {@link #compareAndSet} and {@link #addAndGet}. Expired entries are never
+ * returned, and are removed in the background by a {@link TimingWheel}.
+ * <p>
+ * The number of stripes can be configured with the {@value #STRIPES_PROP} property.
+ *
+ * @since 11.2
+ */
+public class StripedMemKeyValueStore extends AbstractKeyValueStoreProvider {
+
+    private static final Logger log = LogManager.getLogger(StripedMemKeyValueStore.class);
+
+    public static final String STRIPES_PROP = "stripes";
+
+    public static final int DEFAULT_STRIPES = 16;
+
+    protected static final long TICK_MILLIS = 1000;
+
+    protected ConcurrentHashMap<String, Entry>[] stripes;
+
+    protected final TimingWheel<String> expirations;
+
+    protected final ScheduledExecutorService expirationExecutor;
+
+    public StripedMemKeyValueStore() {
+        stripes = newStripes(DEFAULT_STRIPES);
+        expirations = new TimingWheel<>(TICK_MILLIS, now());
+        expirationExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "Nuxeo-KeyValue-Expiration");
+            thread.setDaemon(true);
+            return thread;
+        });
+        expirationExecutor.scheduleAtFixedRate(this::expire, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void initialize(KeyValueStoreDescriptor descriptor) {
+        super.initialize(descriptor);
+        String stripesProp = descriptor.properties.get(STRIPES_PROP);
+        if (stripesProp != null) {
+            stripes = newStripes(Integer.parseInt(stripesProp));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    protected static ConcurrentHashMap<String, Entry>[] newStripes(int n) {
+        // power of two for masking
+        int size = Integer.highestOneBit(Math.max(1, n - 1)) << 1;
+        ConcurrentHashMap<String, Entry>[] array = new ConcurrentHashMap[size];
+        for (int i = 0; i < size; i++) {
+            array[i] = new ConcurrentHashMap<>();
+        }
+        return array;
+    }
+
+    protected ConcurrentHashMap<String, Entry> stripe(String key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        return stripes[h & (stripes.length - 1)];
+    }
+
+    protected static long now() {
+        return System.currentTimeMillis();
+    }
+
+    protected void expire() {
+        try {
+            expirations.advance(now(), this::removeIfExpired);
+        } catch (RuntimeException e) { // NOSONAR
+            // don't kill the scheduled task
+            log.error("Cannot expire keys of store: {}", name, e);
+        }
+    }
+
+    protected void removeIfExpired(String key) {
+        long now = now();
+        // the key may have been updated since its expiration was scheduled
+        stripe(key).computeIfPresent(key, (k, entry) -> entry.isExpired(now) ? null : entry);
+    }
+
+    protected Entry newEntry(byte[] value, long ttl, long now) {
+        if (ttl == 0) {
+            return new Entry(value, 0);
+        }
+        long expiration = now + TimeUnit.SECONDS.toMillis(ttl);
+        return new Entry(value, expiration);
+    }
+
+    protected void scheduleExpiration(String key, Entry entry) {
+        if (entry != null && entry.expiration != 0) {
+            expirations.add(key, entry.expiration);
+        }
+    }
+
+    protected Entry getLive(String key, long now) {
+        Entry entry = stripe(key).get(key);
+        return entry == null || entry.isExpired(now) ? null : entry;
+    }
+
+    @Override
+    public Stream<String> keyStream() {
+        return keyStream("");
+    }
+
+    @Override
+    public Stream<String> keyStream(String prefix) {
+        long now = now();
+        List<String> keys = new ArrayList<>();
+        for (Map<String, Entry> stripe : stripes) {
+            stripe.forEach((key, entry) -> {
+                if (key.startsWith(prefix) && !entry.isExpired(now)) {
+                    keys.add(key);
+                }
+            });
+        }
+        return keys.stream();
+    }
+
+    @Override
+    public void close() {
+        expirationExecutor.shutdownNow();
+    }
+
+    @Override
+    public void clear() {
+        for (Map<String, Entry> stripe : stripes) {
+            stripe.clear();
+        }
+    }
+
+    protected static byte[] clone(byte[] value) {
+        return value == null ? null : value.clone();
+    }
+
+    @Override
+    public void put(String key, byte[] value, long ttl) {
+        Objects.requireNonNull(key);
+        if (value == null) {
+            stripe(key).remove(key);
+            return;
+        }
+        Entry entry = newEntry(clone(value), ttl, now());
+        stripe(key).put(key, entry);
+        scheduleExpiration(key, entry);
+    }
+
+    @Override
+    public byte[] get(String key) {
+        Objects.requireNonNull(key);
+        Entry entry = getLive(key, now());
+        return entry == null ? null : clone(entry.value);
+    }
+
+    @Override
+    public boolean setTTL(String key, long ttl) {
+        Objects.requireNonNull(key);
+        long now = now();
+        Entry entry = stripe(key).computeIfPresent(key,
+                (k, current) -> current.isExpired(now) ? null : newEntry(current.value, ttl, now));
+        scheduleExpiration(key, entry);
+        return entry != null;
+    }
+
+    @Override
+    public boolean compareAndSet(String key, byte[] expected, byte[] value, long ttl) {
+        Objects.requireNonNull(key);
+        // clone is not needed if the comparison fails
+        // but we are optimistic and prefer to do the clone outside the compute
+        byte[] newValue = clone(value);
+        long now = now();
+        boolean[] equal = new boolean[1];
+        Entry entry = stripe(key).compute(key, (k, current) -> {
+            if (current != null && current.isExpired(now)) {
+                current = null;
+            }
+            equal[0] = Arrays.equals(expected, current == null ? null : current.value);
+            if (!equal[0]) {
+                return current;
+            }
+            return newValue == null ? null : newEntry(newValue, ttl, now);
+        });
+        if (equal[0]) {
+            scheduleExpiration(key, entry);
+        }
+        return equal[0];
+    }
+
+    @Override
+    public long addAndGet(String key, long delta) throws NumberFormatException { // NOSONAR
+        Objects.requireNonNull(key);
+        long now = now();
+        long[] result = new long[1];
+        stripe(key).compute(key, (k, current) -> {
+            long base;
+            if (current == null || current.isExpired(now)) {
+                base = 0;
+            } else {
+                base = Long.parseLong(new String(current.value, UTF_8));
+            }
+            result[0] = base + delta;
+            // like a compareAndSet without TTL
+            return new Entry(longToBytes(Long.valueOf(result[0])), 0);
+        });
+        return result[0];
+    }
+
+    /**
+     * An immutable value with its expiration time, {@code 0} if none.
+     */
+    protected static class Entry {
+
+        protected final byte[] value;
+
+        protected final long expiration;
+
+        protected Entry(byte[] value, long expiration) {
+            this.value = value;
+            this.expiration = expiration;
+        }
+
+        protected boolean isExpired(long now) {
+            return expiration != 0 && expiration <= now;
+        }
+    }
+
+}
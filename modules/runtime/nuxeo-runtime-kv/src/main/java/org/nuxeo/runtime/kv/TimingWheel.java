@@ -0,0 +1,141 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.runtime.kv;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * A hierarchical timing wheel, used to expire items at a given time with a coarse precision.
+ * <p>
+ * Each level has 64 slots, a slot of level {@code n} covering {@code 64^n} ticks. Items are added without lock into
+ * the slot of their expiration tick, at the lowest level covering it. When the wheel advances, the slots of the upper
+ * levels are cascaded into the lower ones, and the items of the current slot of the lowest level are expired. Adding
+ * an item and expiring it are O(1), whatever the number of items.
+ * <p>
+ * Items are expired at most one tick after their expiration time, or one full rotation of the lowest level if they
+ * were added concurrently to the advance of the wheel. Callers needing an exact expiration must also check it on read.
+ *
+ * @since 11.2
+ */
+public class TimingWheel<T> {
+
+    protected static final int WHEEL_BITS = 6;
+
+    protected static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+
+    protected static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    /** With 4 levels and 1s ticks, items are placed exactly up to 194 days ahead, then cascaded again. */
+    protected static final int LEVELS = 4;
+
+    protected final long tickMillis;
+
+    protected final Queue<Timeout<T>>[][] wheels;
+
+    protected volatile long currentTick;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, long nowMillis) {
+        this.tickMillis = tickMillis;
+        wheels = new Queue[LEVELS][WHEEL_SIZE];
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < WHEEL_SIZE; slot++) {
+                wheels[level][slot] = new ConcurrentLinkedQueue<>();
+            }
+        }
+        currentTick = nowMillis / tickMillis;
+    }
+
+    /**
+     * Adds an item expiring at the given time.
+     */
+    public void add(T item, long expirationMillis) {
+        place(new Timeout<>(item, expirationMillis));
+    }
+
+    protected void place(Timeout<T> timeout) {
+        long current = currentTick;
+        // round up so that an item is never expired early
+        long tick = Math.max((timeout.expirationMillis + tickMillis - 1) / tickMillis, current + 1);
+        long delta = tick - current;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (WHEEL_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = (int) ((tick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+        wheels[level][slot].add(timeout);
+    }
+
+    /**
+     * Advances the wheel up to the given time, passing the expired items to the consumer.
+     */
+    public synchronized void advance(long nowMillis, Consumer<T> expired) {
+        long target = nowMillis / tickMillis;
+        while (currentTick < target) {
+            long tick = currentTick + 1;
+            currentTick = tick;
+            // cascade the upper levels whose slot starts at this tick
+            for (int level = 1; level < LEVELS; level++) {
+                if ((tick & ((1L << (WHEEL_BITS * level)) - 1)) != 0) {
+                    break;
+                }
+                drain(wheels[level][(int) ((tick >>> (WHEEL_BITS * level)) & WHEEL_MASK)]).forEach(this::place);
+            }
+            long tickEnd = tick * tickMillis;
+            for (Timeout<T> timeout : drain(wheels[0][(int) (tick & WHEEL_MASK)])) {
+                if (timeout.expirationMillis <= tickEnd) {
+                    expired.accept(timeout.item);
+                } else {
+                    place(timeout);
+                }
+            }
+        }
+    }
+
+    // drained before placing again, as an item far ahead may go back to the same slot
+    protected List<Timeout<T>> drain(Queue<Timeout<T>> queue) {
+        if (queue.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Timeout<T>> timeouts = new ArrayList<>();
+        Timeout<T> timeout;
+        while ((timeout = queue.poll()) != null) {
+            timeouts.add(timeout);
+        }
+        return timeouts;
+    }
+
+    protected static class Timeout<T> {
+
+        protected final T item;
+
+        protected final long expirationMillis;
+
+        protected Timeout(T item, long expirationMillis) {
+            this.item = item;
+            this.expirationMillis = expirationMillis;
+        }
+    }
+
+}
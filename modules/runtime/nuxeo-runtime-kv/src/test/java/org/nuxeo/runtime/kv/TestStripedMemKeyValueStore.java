@@ -0,0 +1,37 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.runtime.kv;
+
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.nuxeo.runtime.test.runner.Deploy;
+
+/**
+ * @since 11.2
+ */
+@Deploy("org.nuxeo.runtime.kv.tests:OSGI-INF/test-striped-keyvalue-contrib.xml")
+public class TestStripedMemKeyValueStore extends AbstractKeyValueStoreTest {
+
+    @Test
+    public void testClass() {
+        assertTrue(store instanceof StripedMemKeyValueStore);
+    }
+
+}
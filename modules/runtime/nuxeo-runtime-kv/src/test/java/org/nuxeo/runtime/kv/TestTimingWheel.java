@@ -0,0 +1,69 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.runtime.kv;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @since 11.2
+ */
+public class TestTimingWheel {
+
+    @Test
+    public void testExpiration() {
+        long start = 1_000_000;
+        TimingWheel<String> wheel = new TimingWheel<>(1000, start);
+        wheel.add("a", start + 1500);
+        wheel.add("b", start + 70_000); // level 1
+        wheel.add("c", start + 5_000_000); // level 2
+        wheel.add("d", start + 400L * 24 * 3600 * 1000); // beyond the last level
+        wheel.add("past", start - 10_000);
+
+        List<String> expired = new ArrayList<>();
+        wheel.advance(start + 1000, expired::add);
+        assertEquals(List.of("past"), expired);
+        wheel.advance(start + 1999, expired::add);
+        assertEquals(List.of("past"), expired);
+        wheel.advance(start + 2000, expired::add);
+        assertEquals(List.of("past", "a"), expired);
+
+        wheel.advance(start + 69_000, expired::add);
+        assertEquals(2, expired.size());
+        wheel.advance(start + 70_000, expired::add);
+        assertEquals(List.of("past", "a", "b"), expired);
+
+        wheel.advance(start + 4_999_000, expired::add);
+        assertEquals(3, expired.size());
+        wheel.advance(start + 5_000_000, expired::add);
+        assertEquals(List.of("past", "a", "b", "c"), expired);
+
+        wheel.advance(start + 399L * 24 * 3600 * 1000, expired::add);
+        assertEquals(4, expired.size());
+        wheel.advance(start + 400L * 24 * 3600 * 1000, expired::add);
+        assertEquals(5, expired.size());
+        assertTrue(expired.contains("d"));
+    }
+
+}
@@ -24,6 +24,7 @@ import static org.nuxeo.runtime.model.Descriptor.UNIQUE_DESCRIPTOR_ID;
 
 import java.lang.management.ManagementFactory;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import javax.management.MalformedObjectNameException;
@@ -35,9 +36,13 @@ import org.apache.logging.log4j.core.LoggerContext;
 import org.apache.logging.log4j.core.config.Configuration;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.model.ComponentContext;
+import org.nuxeo.runtime.model.ComponentManager;
 import org.nuxeo.runtime.model.DefaultComponent;
+import org.nuxeo.runtime.util.Watch;
+import org.nuxeo.runtime.util.Watch.TimeInterval;
 
 import io.dropwizard.metrics5.Counter;
+import io.dropwizard.metrics5.MetricName;
 import io.dropwizard.metrics5.MetricRegistry;
 import io.dropwizard.metrics5.SharedMetricRegistries;
 import io.dropwizard.metrics5.jvm.BufferPoolMetricSet;
@@ -68,20 +73,49 @@ public class MetricsServiceImpl extends DefaultComponent implements MetricsServi
 
     protected InstrumentedAppender appender;
 
+    /** @since 11.2 */
+    protected ComponentManager.Listener componentTimings;
+
     @Override
     public void activate(ComponentContext context) {
         super.activate(context);
         log.debug("Activating component");
         SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+        componentTimings = new ComponentManager.Listener() {
+            @Override
+            public void afterTimings(ComponentManager mgr, String phase, Watch watch) {
+                recordComponentTimings(phase, watch);
+            }
+        }.install();
     }
 
     @Override
     public void deactivate(ComponentContext context) {
         log.debug("Deactivating component");
+        if (componentTimings != null) {
+            componentTimings.uninstall();
+            componentTimings = null;
+        }
         SharedMetricRegistries.remove(MetricsService.class.getName());
         super.deactivate(context);
     }
 
+    /**
+     * Records the time spent by each component during the activation or the start of the components.
+     *
+     * @since 11.2
+     */
+    protected void recordComponentTimings(String phase, Watch watch) {
+        MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+        MetricName metricName = MetricName.build("nuxeo", "runtime", "component", "duration").tagged("phase", phase);
+        for (TimeInterval interval : watch.getIntervals()) {
+            registry.timer(metricName.tagged("component", interval.getName()))
+                    .update(interval.elapsed(), TimeUnit.NANOSECONDS);
+        }
+        registry.timer(MetricName.build("nuxeo", "runtime", "components", "duration").tagged("phase", phase))
+                .update(watch.getTotal().elapsed(), TimeUnit.NANOSECONDS);
+    }
+
     @Override
     public void start(ComponentContext context) {
         super.start(context);
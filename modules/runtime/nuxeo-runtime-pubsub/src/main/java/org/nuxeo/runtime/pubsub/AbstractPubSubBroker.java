@@ -22,6 +22,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -93,6 +94,26 @@ public abstract class AbstractPubSubBroker<T extends SerializableMessage> {
         if (log.isTraceEnabled()) {
             log.trace("Sending message: " + message);
         }
+        publish(message::serialize);
+    }
+
+    /**
+     * Writes a message to an output stream.
+     *
+     * @since 11.2
+     */
+    @FunctionalInterface
+    protected interface MessageWriter {
+
+        void write(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Publishes to other nodes the message written by the given writer.
+     *
+     * @since 11.2
+     */
+    protected void publish(MessageWriter writer) {
         ByteArrayOutputStream baout = new ByteArrayOutputStream();
         try {
             baout.write(discriminatorBytes);
@@ -102,7 +123,7 @@ public abstract class AbstractPubSubBroker<T extends SerializableMessage> {
         }
         baout.write(DISCRIMINATOR_SEP);
         try {
-            message.serialize(baout);
+            writer.write(baout);
         } catch (IOException e) {
             log.error("Failed to serialize message", e);
             // don't crash for this
@@ -125,7 +146,7 @@ public abstract class AbstractPubSubBroker<T extends SerializableMessage> {
         InputStream bain = new ByteArrayInputStream(bytes, start, bytes.length - start);
         T message;
         try {
-            message = deserialize(bain);
+            message = readMessage(bain);
         } catch (IOException e) {
             log.error("Failed to deserialize message", e);
             // don't crash for this
@@ -140,6 +161,15 @@ public abstract class AbstractPubSubBroker<T extends SerializableMessage> {
         receivedMessage(message);
     }
 
+    /**
+     * Reads a message written by {@link #publish}, or {@code null}.
+     *
+     * @since 11.2
+     */
+    protected T readMessage(InputStream in) throws IOException {
+        return deserialize(in);
+    }
+
     /**
      * Callback implementing the delivery of a message from another node.
      *
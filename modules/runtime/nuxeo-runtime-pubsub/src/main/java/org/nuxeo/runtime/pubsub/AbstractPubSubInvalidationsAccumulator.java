@@ -18,11 +18,37 @@
  */
 package org.nuxeo.runtime.pubsub;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.metrics.MetricsService;
+import org.nuxeo.runtime.services.config.ConfigurationService;
+
+import io.dropwizard.metrics5.Counter;
+import io.dropwizard.metrics5.Histogram;
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+import io.dropwizard.metrics5.Timer;
 
 /**
  * Encapsulates invalidations management through the {@link PubSubService}.
+ * <p>
+ * Since 11.2, the invalidations sent by the transactions of a node can be coalesced into a single message sent at
+ * most {@value #DELAY_PROP} after the first one. When the coalesced invalidations exceed {@value #MAX_SIZE_PROP}
+ * items, they are replaced by an invalidation of everything, which is sent immediately.
+ * <p>
+ * When {@value #COMPACT_PROP} is enabled, the invalidations are sent in their compact format, and each message holds
+ * the time of its first invalidation, to measure the lag until it is received by the other nodes. Both formats are
+ * always accepted when receiving, so it must only be enabled once all the nodes of the cluster accept it.
  *
  * @since 9.3
  */
@@ -31,19 +57,114 @@ public abstract class AbstractPubSubInvalidationsAccumulator<T extends Serializa
 
     private static final Log log = LogFactory.getLog(AbstractPubSubInvalidationsAccumulator.class);
 
+    /** @since 11.2 */
+    public static final String DELAY_PROP = "nuxeo.pubsub.invalidations.delay";
+
+    /** @since 11.2 */
+    public static final String MAX_SIZE_PROP = "nuxeo.pubsub.invalidations.maxSize";
+
+    /** @since 11.2 */
+    public static final int DEFAULT_MAX_SIZE = 5000;
+
+    /** @since 11.2 */
+    public static final String COMPACT_PROP = "nuxeo.pubsub.invalidations.compact";
+
+    /**
+     * First byte of a message holding its timestamp, invalidations never start with it.
+     *
+     * @since 11.2
+     */
+    protected static final int TIMESTAMP_MARKER = 0x01;
+
     protected volatile T bufferedInvalidations;
 
+    /** Coalescing delay in milliseconds, {@code 0} to send invalidations immediately. */
+    protected long delay;
+
+    protected int maxSize;
+
+    /** Whether the messages hold their timestamp and use the compact format of the invalidations. */
+    protected boolean compact;
+
+    protected ScheduledExecutorService flushExecutor;
+
+    protected final Object pendingLock = new Object();
+
+    /** Invalidations waiting to be sent, {@code null} if none. */
+    protected T pendingInvalidations;
+
+    /** Time at which the first pending invalidations were added. */
+    protected long pendingSince;
+
+    /** Incremented for each new batch of pending invalidations. */
+    protected long pendingWindow;
+
+    protected Counter sentMessages;
+
+    protected Histogram messageSizes;
+
+    protected Counter escalations;
+
+    protected Timer lagTimer;
+
     /** Constructs new empty invalidations, of type {@link T}. */
     public abstract T newInvalidations();
 
+    /**
+     * Constructs new invalidations of everything, or {@code null} if not supported, in which case coalesced
+     * invalidations are never escalated.
+     *
+     * @since 11.2
+     */
+    public T newAllInvalidations() {
+        return null;
+    }
+
     @Override
     public void initialize(String topic, String discriminator) {
         bufferedInvalidations = newInvalidations();
+        initializeCoalescing(topic);
         super.initialize(topic, discriminator);
     }
 
+    protected void initializeCoalescing(String topic) {
+        ConfigurationService configurationService = Framework.getService(ConfigurationService.class);
+        if (configurationService == null) {
+            delay = 0;
+            maxSize = DEFAULT_MAX_SIZE;
+            compact = false;
+        } else {
+            delay = configurationService.getDuration(DELAY_PROP, Duration.ZERO).toMillis();
+            maxSize = configurationService.getInteger(MAX_SIZE_PROP, DEFAULT_MAX_SIZE);
+            compact = configurationService.isBooleanTrue(COMPACT_PROP);
+        }
+        if (delay > 0) {
+            flushExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "Nuxeo-PubSub-Invalidations-" + topic);
+                thread.setDaemon(true);
+                return thread;
+            });
+            log.debug("Coalescing invalidations of topic: " + topic + " for: " + delay + " ms");
+        }
+        MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+        sentMessages = registry.counter(metricName("sent", topic));
+        messageSizes = registry.histogram(metricName("size", topic));
+        escalations = registry.counter(metricName("all", topic));
+        lagTimer = registry.timer(metricName("lag", topic));
+    }
+
+    protected static MetricName metricName(String name, String topic) {
+        return MetricName.build("nuxeo", "pubsub", "invalidations", name).tagged("topic", topic);
+    }
+
     @Override
     public void close() {
+        if (flushExecutor != null) {
+            flushExecutor.shutdownNow();
+            flushExecutor = null;
+            // don't lose the invalidations of the last transactions
+            flush(-1);
+        }
         super.close();
         // not null to avoid crashing subscriber thread still in flight
         bufferedInvalidations = newInvalidations();
@@ -51,9 +172,98 @@ public abstract class AbstractPubSubInvalidationsAccumulator<T extends Serializa
 
     /**
      * Sends invalidations to other nodes.
+     * <p>
+     * If coalescing is enabled, the invalidations are sent later together with the ones of other transactions.
      */
     public void sendInvalidations(T invalidations) {
-        sendMessage(invalidations);
+        ScheduledExecutorService executor = flushExecutor;
+        if (executor == null) {
+            send(invalidations, System.currentTimeMillis());
+            return;
+        }
+        T allInvalidations = null;
+        long since;
+        synchronized (pendingLock) {
+            if (pendingInvalidations == null) {
+                pendingInvalidations = newInvalidations();
+                pendingSince = System.currentTimeMillis();
+                long window = ++pendingWindow;
+                executor.schedule(() -> flush(window), delay, TimeUnit.MILLISECONDS);
+            }
+            pendingInvalidations.add(invalidations);
+            since = pendingSince;
+            if (pendingInvalidations.size() > maxSize) {
+                allInvalidations = newAllInvalidations();
+                if (allInvalidations != null) {
+                    pendingInvalidations = null;
+                }
+            }
+        }
+        if (allInvalidations != null) {
+            escalations.inc();
+            send(allInvalidations, since);
+        }
+    }
+
+    /**
+     * Sends the pending invalidations if they are still the ones of the given window, or whatever the window if
+     * {@code -1}.
+     *
+     * @since 11.2
+     */
+    protected void flush(long window) {
+        T invalidations;
+        long since;
+        synchronized (pendingLock) {
+            if (pendingInvalidations == null || window != -1 && window != pendingWindow) {
+                return;
+            }
+            invalidations = pendingInvalidations;
+            since = pendingSince;
+            pendingInvalidations = null;
+        }
+        try {
+            send(invalidations, since);
+        } catch (RuntimeException e) { // NOSONAR
+            // don't kill the scheduled task
+            log.error("Cannot send invalidations to topic: " + topic, e);
+        }
+    }
+
+    /**
+     * Sends invalidations. In the compact format, they are prefixed by the given time.
+     *
+     * @since 11.2
+     */
+    protected void send(T invalidations, long since) {
+        if (log.isTraceEnabled()) {
+            log.trace("Sending invalidations: " + invalidations);
+        }
+        if (compact) {
+            publish(out -> {
+                out.write(TIMESTAMP_MARKER);
+                CompactEncoding.writeLong(out, since);
+                invalidations.serializeCompact(out);
+            });
+        } else {
+            publish(invalidations::serialize);
+        }
+        sentMessages.inc();
+        messageSizes.update(invalidations.size());
+    }
+
+    @Override
+    protected T readMessage(InputStream in) throws IOException {
+        PushbackInputStream pin = new PushbackInputStream(in, 1);
+        int first = pin.read();
+        if (first == TIMESTAMP_MARKER) {
+            long since = CompactEncoding.readLong(pin);
+            // clocks of the nodes may not be exactly in sync
+            lagTimer.update(Math.max(System.currentTimeMillis() - since, 0), TimeUnit.MILLISECONDS);
+        } else if (first != -1) {
+            pin.unread(first);
+        }
+        return deserialize(pin);
     }
 
     @Override
@@ -0,0 +1,158 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.runtime.pubsub;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.UUID;
+
+/**
+ * Compact binary encoding of identifiers for invalidation messages.
+ * <p>
+ * Identifiers that are UUIDs in canonical form, which is the default for all repositories, are written as their 16
+ * bytes instead of their 36 characters. Other identifiers are written as their length followed by their UTF-8 bytes.
+ * Counts and lengths are written as variable-length integers.
+ *
+ * @since 11.2
+ */
+public final class CompactEncoding {
+
+    protected static final int UUID_ID = 'U';
+
+    protected static final int STRING_ID = 'S';
+
+    private CompactEncoding() {
+        // utility class
+    }
+
+    /**
+     * Writes a non-negative integer using 7 bits per byte, most significant bit set when more bytes follow.
+     */
+    public static void writeVarInt(OutputStream out, int value) throws IOException {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value: " + value);
+        }
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    public static int readVarInt(InputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = read(in);
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length integer");
+    }
+
+    public static void writeLong(OutputStream out, long value) throws IOException {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift));
+        }
+    }
+
+    public static long readLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | read(in);
+        }
+        return value;
+    }
+
+    public static void writeString(OutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(InputStream in) throws IOException {
+        int length = readVarInt(in);
+        byte[] bytes = in.readNBytes(length);
+        if (bytes.length != length) {
+            throw new EOFException();
+        }
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * Writes an identifier, as 16 bytes if it is a UUID in canonical form.
+     */
+    public static void writeId(OutputStream out, String id) throws IOException {
+        UUID uuid = parseCanonicalUUID(id);
+        if (uuid == null) {
+            out.write(STRING_ID);
+            writeString(out, id);
+        } else {
+            out.write(UUID_ID);
+            writeLong(out, uuid.getMostSignificantBits());
+            writeLong(out, uuid.getLeastSignificantBits());
+        }
+    }
+
+    public static String readId(InputStream in) throws IOException {
+        int type = read(in);
+        switch (type) {
+        case UUID_ID:
+            long msb = readLong(in);
+            long lsb = readLong(in);
+            return new UUID(msb, lsb).toString();
+        case STRING_ID:
+            return readString(in);
+        default:
+            throw new IOException("Invalid id type: " + type);
+        }
+    }
+
+    /**
+     * Parses a UUID if the string is its canonical lowercase representation, so that it can be restored as is.
+     */
+    protected static UUID parseCanonicalUUID(String id) {
+        if (id.length() != 36) {
+            return null;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = id.charAt(i);
+            boolean valid = i == 8 || i == 13 || i == 18 || i == 23 ? c == '-'
+                    : c >= '0' && c <= '9' || c >= 'a' && c <= 'f';
+            if (!valid) {
+                return null;
+            }
+        }
+        return UUID.fromString(id);
+    }
+
+    protected static int read(InputStream in) throws IOException {
+        int b = in.read();
+        if (b == -1) {
+            throw new EOFException();
+        }
+        return b;
+    }
+
+}
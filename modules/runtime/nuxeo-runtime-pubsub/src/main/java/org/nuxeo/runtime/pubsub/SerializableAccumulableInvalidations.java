@@ -18,6 +18,9 @@
  */
 package org.nuxeo.runtime.pubsub;
 
+import java.io.IOException;
+import java.io.OutputStream;
+
 /**
  * Generic interface for serializable invalidations.
  *
@@ -31,4 +34,23 @@ public interface SerializableAccumulableInvalidations extends SerializableMessag
     /** Adds other invalidations to this one. */
     void add(SerializableAccumulableInvalidations other);
 
+    /**
+     * Serializes this to an output stream in a compact format, which the deserialization also accepts. Defaults to
+     * {@link #serialize}.
+     *
+     * @since 11.2
+     */
+    default void serializeCompact(OutputStream out) throws IOException {
+        serialize(out);
+    }
+
+    /**
+     * Gets the number of invalidated items, used to decide when to invalidate everything instead.
+     *
+     * @since 11.2
+     */
+    default int size() {
+        return 0;
+    }
+
 }
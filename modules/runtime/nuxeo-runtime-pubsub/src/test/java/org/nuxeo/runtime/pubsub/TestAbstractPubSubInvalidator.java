@@ -24,7 +24,11 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -35,9 +39,11 @@ import org.apache.commons.io.output.ByteArrayOutputStream;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.nuxeo.runtime.mockito.MockitoFeature;
 import org.nuxeo.runtime.mockito.RuntimeService;
+import org.nuxeo.runtime.test.runner.Deploy;
 import org.nuxeo.runtime.test.runner.Features;
 import org.nuxeo.runtime.test.runner.FeaturesRunner;
 import org.nuxeo.runtime.test.runner.RuntimeFeature;
@@ -61,14 +67,23 @@ public class TestAbstractPubSubInvalidator {
 
         protected boolean inval;
 
+        protected int count;
+
         public void inval() {
             inval = true;
+            count++;
         }
 
         @Override
         public void add(SerializableAccumulableInvalidations o) {
             DummyInvalidations other = (DummyInvalidations) o;
             inval = inval || other.inval;
+            count += other.count;
+        }
+
+        @Override
+        public int size() {
+            return count;
         }
 
         @Override
@@ -99,6 +114,13 @@ public class TestAbstractPubSubInvalidator {
             return new DummyInvalidations();
         }
 
+        @Override
+        public DummyInvalidations newAllInvalidations() {
+            DummyInvalidations invals = new DummyInvalidations();
+            invals.inval();
+            return invals;
+        }
+
         @Override
         public DummyInvalidations deserialize(InputStream in) throws IOException {
             return DummyInvalidations.deserialize(in);
@@ -182,4 +204,74 @@ public class TestAbstractPubSubInvalidator {
         assertTrue(invals.isEmpty());
     }
 
+    @Test
+    @Deploy("org.nuxeo.runtime.pubsub.tests:test-pubsub-invalidations-coalescing.xml")
+    public void testCoalescing() throws Exception {
+        DummyInvalidator invalidator = new DummyInvalidator();
+        invalidator.initialize("topic", "d");
+        long sent = invalidator.sentMessages.getCount();
+        try {
+            // two invalidations are coalesced
+            invalidator.sendInvalidations(newInvalidations());
+            invalidator.sendInvalidations(newInvalidations());
+            verify(pubSubService, never()).publish(eq("topic"), any());
+            invalidator.flush(-1);
+            ArgumentCaptor<byte[]> captor = ArgumentCaptor.forClass(byte[].class);
+            verify(pubSubService, times(1)).publish(eq("topic"), captor.capture());
+            assertEquals(sent + 1, invalidator.sentMessages.getCount());
+            assertEquals(2, invalidator.messageSizes.getSnapshot().getMax());
+
+            // the message is received by another node, with its timestamp
+            DummyInvalidator otherInvalidator = new DummyInvalidator();
+            otherInvalidator.initialize("topic", "e");
+            long lagCount = otherInvalidator.lagTimer.getCount();
+            otherInvalidator.subscriber("topic", captor.getValue());
+            assertFalse(otherInvalidator.receiveInvalidations().isEmpty());
+            assertEquals(lagCount + 1, otherInvalidator.lagTimer.getCount());
+            otherInvalidator.close();
+
+            // above the max size, invalidate everything immediately
+            long escalations = invalidator.escalations.getCount();
+            invalidator.sendInvalidations(newInvalidations());
+            invalidator.sendInvalidations(newInvalidations());
+            invalidator.sendInvalidations(newInvalidations());
+            verify(pubSubService, times(2)).publish(eq("topic"), any());
+            assertEquals(escalations + 1, invalidator.escalations.getCount());
+            // nothing left to send
+            invalidator.flush(-1);
+            verify(pubSubService, times(2)).publish(eq("topic"), any());
+        } finally {
+            invalidator.close();
+        }
+    }
+
+    @Test
+    public void testDefaultFormat() throws Exception {
+        DummyInvalidator invalidator = new DummyInvalidator();
+        invalidator.initialize("topic", "d");
+        try {
+            // sent immediately, without timestamp
+            invalidator.sendInvalidations(newInvalidations());
+            ArgumentCaptor<byte[]> captor = ArgumentCaptor.forClass(byte[].class);
+            verify(pubSubService, times(1)).publish(eq("topic"), captor.capture());
+            assertEquals("d:Y", new String(captor.getValue(), UTF_8));
+
+            DummyInvalidator otherInvalidator = new DummyInvalidator();
+            otherInvalidator.initialize("topic", "e");
+            long lagCount = otherInvalidator.lagTimer.getCount();
+            otherInvalidator.subscriber("topic", captor.getValue());
+            assertFalse(otherInvalidator.receiveInvalidations().isEmpty());
+            assertEquals(lagCount, otherInvalidator.lagTimer.getCount());
+            otherInvalidator.close();
+        } finally {
+            invalidator.close();
+        }
+    }
+
+    protected DummyInvalidations newInvalidations() {
+        DummyInvalidations invals = new DummyInvalidations();
+        invals.inval();
+        return invals;
+    }
+
 }
@@ -26,6 +26,7 @@ import java.util.Set;
 import org.nuxeo.runtime.ComponentListener;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.model.impl.DefaultRuntimeContext;
+import org.nuxeo.runtime.util.Watch;
 
 /**
  * @author Bogdan Stefanescu
@@ -470,6 +471,16 @@ public interface ComponentManager {
         default void afterStop(ComponentManager mgr, boolean isStandby) {
         }
 
+        /**
+         * Called after the components were activated or started, with the time spent by each component.
+         *
+         * @param phase the timed phase, {@code activate} or {@code start}
+         * @param watch the timings, one interval per component
+         * @since 11.2
+         */
+        default void afterTimings(ComponentManager mgr, String phase, Watch watch) {
+        }
+
         default Listener install() {
             Framework.getRuntime().getComponentManager().addListener(this);
             return this;
@@ -33,6 +33,7 @@ import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -42,6 +43,9 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -58,6 +62,7 @@ import org.nuxeo.runtime.model.DescriptorRegistry;
 import org.nuxeo.runtime.model.Extension;
 import org.nuxeo.runtime.model.RegistrationInfo;
 import org.nuxeo.runtime.util.Watch;
+import org.nuxeo.runtime.util.Watch.TimeInterval;
 
 /**
  * @author Bogdan Stefanescu
@@ -67,6 +72,24 @@ public class ComponentManagerImpl implements ComponentManager {
 
     private static final Logger log = LogManager.getLogger(ComponentManagerImpl.class);
 
+    /**
+     * Property enabling the concurrent start of components that don't depend on each other.
+     *
+     * @since 11.2
+     */
+    public static final String PARALLEL_START_PROP = "org.nuxeo.runtime.component.start.parallel";
+
+    /**
+     * Property defining the number of threads used to start components concurrently, defaults to the number of
+     * processors.
+     *
+     * @since 11.2
+     */
+    public static final String PARALLEL_START_THREADS_PROP = "org.nuxeo.runtime.component.start.threads";
+
+    /** Number of components listed in the startup report. */
+    protected static final int REPORT_SIZE = 10;
+
     // must use an ordered Set to avoid loosing the order of the pending
     // extensions
     protected final ConcurrentMap<ComponentName, Set<Extension>> pendingExtensions;
@@ -532,6 +555,7 @@ public class ComponentManagerImpl implements ComponentManager {
 
         log.debug("Components activated in {}s", watch.total::formatSeconds);
         writeDevMetrics(watch, "activate");
+        reportTimings(watch, "activate");
 
         return ris;
     }
@@ -683,13 +707,17 @@ public class ComponentManagerImpl implements ComponentManager {
      */
     protected void startComponents(List<RegistrationInfo> ris, boolean isResume) {
         log.info("Start components (isResume={})", isResume);
-        Watch watch = new Watch();
+        Watch watch = new Watch(new ConcurrentHashMap<>());
         watch.start();
         listeners.beforeStart(isResume);
-        for (RegistrationInfo ri : ris) {
-            watch.start(ri.getName().getName());
-            startComponent(ri);
-            watch.stop(ri.getName().getName());
+        if (Framework.isBooleanPropertyTrue(PARALLEL_START_PROP)) {
+            startComponentsInParallel(ris, watch);
+        } else {
+            for (RegistrationInfo ri : ris) {
+                watch.start(ri.getName().getName());
+                startComponent(ri);
+                watch.stop(ri.getName().getName());
+            }
         }
         this.started = ris;
         listeners.afterStart(isResume);
@@ -697,6 +725,51 @@ public class ComponentManagerImpl implements ComponentManager {
 
         log.debug("Components started in {}s", watch.total::formatSeconds);
         writeDevMetrics(watch, "start");
+        reportTimings(watch, "start");
+    }
+
+    /**
+     * Starts the given components concurrently, in start order and after the components they require.
+     * <p>
+     * Components must not register or unregister components or extensions when started in parallel, as this requires
+     * the lock held by the thread starting the components.
+     *
+     * @since 11.2
+     */
+    protected void startComponentsInParallel(List<RegistrationInfo> ris, Watch watch) {
+        int threads = Integer.parseInt(Framework.getProperty(PARALLEL_START_THREADS_PROP,
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        log.info("Start components in parallel using {} threads", threads);
+        Map<ComponentName, RegistrationInfo> byName = new HashMap<>();
+        for (RegistrationInfo ri : ris) {
+            byName.put(ri.getName(), ri);
+            ri.getAliases().forEach(alias -> byName.put(alias, ri));
+        }
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "Nuxeo-Component-Start-" + threadNumber.incrementAndGet());
+            thread.setContextClassLoader(classLoader);
+            return thread;
+        });
+        Function<RegistrationInfo, Collection<RegistrationInfo>> requirements = ri -> ri.getRequiredComponents()
+                                                                                       .stream()
+                                                                                       .map(byName::get)
+                                                                                       .filter(Objects::nonNull)
+                                                                                       .collect(Collectors.toList());
+        try {
+            new ParallelComponentStarter<>(executor, RegistrationInfo::getApplicationStartedOrder, requirements).run(
+                    ris, ri -> {
+                        watch.start(ri.getName().getName());
+                        startComponent(ri);
+                        watch.stop(ri.getName().getName());
+                    });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while starting components", e);
+        } finally {
+            executor.shutdownNow();
+        }
     }
 
     /**
@@ -1064,6 +1137,23 @@ public class ComponentManagerImpl implements ComponentManager {
         }
     }
 
+    /**
+     * Notifies the listeners of the time spent by each component, and logs the slowest components.
+     *
+     * @since 11.2
+     */
+    protected void reportTimings(Watch watch, String type) {
+        listeners.afterTimings(type, watch);
+        if (log.isInfoEnabled()) {
+            String slowest = Arrays.stream(watch.getIntervals())
+                                   .sorted(Comparator.reverseOrder())
+                                   .limit(REPORT_SIZE)
+                                   .map(TimeInterval::toString)
+                                   .collect(Collectors.joining(", "));
+            log.info("Components {} timings: total {}s, slowest: {}", type, watch.total.formatSeconds(), slowest);
+        }
+    }
+
     /**
      * Log a warning message if the timeout is reached while executing the given runnable.
      */
@@ -1136,6 +1226,12 @@ public class ComponentManagerImpl implements ComponentManager {
             }
         }
 
+        public void afterTimings(String phase, Watch watch) {
+            for (Object listener : listeners.getListeners()) {
+                ((ComponentManager.Listener) listener).afterTimings(ComponentManagerImpl.this, phase, watch);
+            }
+        }
+
         public void beforeStop(boolean isStandby) {
             for (Object listener : listeners.getListeners()) {
                 ((ComponentManager.Listener) listener).beforeStop(ComponentManagerImpl.this, isStandby);
@@ -0,0 +1,129 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.runtime.model.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Runs an action on items concurrently while respecting their start order and requirements.
+ * <p>
+ * Items are grouped by start order, and groups are processed one after the other in increasing order, as when
+ * components are started sequentially. Inside a group, an item is processed as soon as all the items it requires in
+ * the same group have been processed. Requirements on items of a previous group are already satisfied, requirements on
+ * items of a later group are ignored, like in the sequential order.
+ *
+ * @param <T> the item type
+ * @since 11.2
+ */
+public class ParallelComponentStarter<T> {
+
+    protected final Executor executor;
+
+    protected final ToIntFunction<T> order;
+
+    protected final Function<T, Collection<T>> requirements;
+
+    /**
+     * @param executor the executor running the action
+     * @param order the start order of an item
+     * @param requirements the items that must be processed before an item
+     */
+    public ParallelComponentStarter(Executor executor, ToIntFunction<T> order,
+            Function<T, Collection<T>> requirements) {
+        this.executor = executor;
+        this.order = order;
+        this.requirements = requirements;
+    }
+
+    /**
+     * Runs the action on all the items, and waits for its completion.
+     * <p>
+     * An action failing with an exception prevents the items requiring it from being processed, and is rethrown once
+     * all the other items of its group have been processed.
+     */
+    public void run(List<T> items, Consumer<T> action) throws InterruptedException {
+        SortedMap<Integer, List<T>> groups = new TreeMap<>();
+        for (T item : items) {
+            groups.computeIfAbsent(order.applyAsInt(item), k -> new ArrayList<>()).add(item);
+        }
+        for (List<T> group : groups.values()) {
+            runGroup(group, action);
+        }
+    }
+
+    protected void runGroup(List<T> group, Consumer<T> action) throws InterruptedException {
+        Set<T> members = new HashSet<>(group);
+        Map<T, CompletableFuture<Void>> futures = new HashMap<>();
+        Set<T> visiting = new HashSet<>();
+        for (T item : group) {
+            schedule(item, members, futures, visiting, action);
+        }
+        try {
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0])).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    protected CompletableFuture<Void> schedule(T item, Set<T> members, Map<T, CompletableFuture<Void>> futures,
+            Set<T> visiting, Consumer<T> action) {
+        CompletableFuture<Void> future = futures.get(item);
+        if (future != null) {
+            return future;
+        }
+        visiting.add(item);
+        List<CompletableFuture<Void>> dependencies = new ArrayList<>();
+        for (T required : requirements.apply(item)) {
+            // a cycle cannot be ordered, ignore the requirement closing it
+            if (members.contains(required) && !visiting.contains(required)) {
+                dependencies.add(schedule(required, members, futures, visiting, action));
+            }
+        }
+        visiting.remove(item);
+        if (dependencies.isEmpty()) {
+            future = CompletableFuture.runAsync(() -> action.accept(item), executor);
+        } else {
+            future = CompletableFuture.allOf(dependencies.toArray(new CompletableFuture[0]))
+                                      .thenRunAsync(() -> action.accept(item), executor);
+        }
+        futures.put(item, future);
+        return future;
+    }
+
+}
@@ -0,0 +1,133 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.runtime.model.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestParallelComponentStarter {
+
+    protected ExecutorService executor;
+
+    protected Map<String, Integer> orders = new HashMap<>();
+
+    protected Map<String, List<String>> requirements = new HashMap<>();
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    protected ParallelComponentStarter<String> newStarter() {
+        return new ParallelComponentStarter<>(executor, item -> orders.getOrDefault(item, 1000),
+                this::getRequirements);
+    }
+
+    protected Collection<String> getRequirements(String item) {
+        return requirements.getOrDefault(item, Collections.emptyList());
+    }
+
+    protected static void assertBefore(List<String> done, String first, String second) {
+        assertTrue(done.toString(), done.indexOf(first) < done.indexOf(second));
+    }
+
+    @Test
+    public void testOrdersAndRequirements() throws Exception {
+        orders.put("repository", 100);
+        orders.put("late", 2000);
+        requirements.put("b", Arrays.asList("a"));
+        requirements.put("c", Arrays.asList("b", "unknown"));
+        // requirement on a later group is ignored
+        requirements.put("d", Arrays.asList("late"));
+        ConcurrentLinkedQueue<String> queue = new ConcurrentLinkedQueue<>();
+        newStarter().run(Arrays.asList("c", "b", "a", "d", "late", "repository"), queue::add);
+        List<String> done = Arrays.asList(queue.toArray(new String[0]));
+        assertEquals(6, done.size());
+        assertEquals("repository", done.get(0));
+        assertEquals("late", done.get(5));
+        assertBefore(done, "a", "b");
+        assertBefore(done, "b", "c");
+    }
+
+    @Test
+    public void testIndependentItemsRunConcurrently() throws Exception {
+        // each item waits for the other one, which only works if they run concurrently
+        CountDownLatch latch = new CountDownLatch(2);
+        newStarter().run(Arrays.asList("a", "b"), item -> {
+            latch.countDown();
+            try {
+                assertTrue(latch.await(10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    @Test
+    public void testCycleIsIgnored() throws Exception {
+        requirements.put("a", Arrays.asList("b"));
+        requirements.put("b", Arrays.asList("a"));
+        ConcurrentLinkedQueue<String> queue = new ConcurrentLinkedQueue<>();
+        newStarter().run(Arrays.asList("a", "b"), queue::add);
+        assertEquals(2, queue.size());
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        requirements.put("b", Arrays.asList("a"));
+        ConcurrentLinkedQueue<String> queue = new ConcurrentLinkedQueue<>();
+        try {
+            newStarter().run(Arrays.asList("a", "b", "c"), item -> {
+                if (item.equals("a")) {
+                    throw new IllegalStateException("boom");
+                }
+                queue.add(item);
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("boom", e.getMessage());
+        }
+        // b requires a which failed
+        assertEquals(Arrays.asList("c"), Arrays.asList(queue.toArray(new String[0])));
+    }
+
+}
@@ -0,0 +1,88 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.lib.stream.benchmarks;
+
+import static org.nuxeo.lib.stream.codec.NoCodec.NO_CODEC;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.nuxeo.lib.stream.codec.AvroBinaryCodec;
+import org.nuxeo.lib.stream.codec.AvroJsonCodec;
+import org.nuxeo.lib.stream.codec.AvroMessageCodec;
+import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.codec.NoCodec;
+import org.nuxeo.lib.stream.codec.SerializableCodec;
+import org.nuxeo.lib.stream.computation.Record;
+
+/**
+ * Helpers shared by the benchmarks.
+ *
+ * @since 11.2
+ */
+public final class BenchmarkHelper {
+
+    private BenchmarkHelper() {
+        // utility class
+    }
+
+    /**
+     * Returns the record codec for a name, {@code none} is the legacy Externalizable encoding.
+     */
+    @SuppressWarnings("unchecked")
+    public static Codec<Record> getRecordCodec(String name) {
+        switch (name) {
+        case NoCodec.NAME:
+            return NO_CODEC;
+        case SerializableCodec.NAME:
+            return new SerializableCodec<>();
+        case AvroMessageCodec.NAME:
+            return new AvroMessageCodec<>(Record.class);
+        case AvroBinaryCodec.NAME:
+            return new AvroBinaryCodec<>(Record.class);
+        case AvroJsonCodec.NAME:
+            return new AvroJsonCodec<>(Record.class);
+        default:
+            throw new IllegalArgumentException("Unknown codec: " + name);
+        }
+    }
+
+    /**
+     * Creates a record with a payload of the given size.
+     */
+    public static Record createRecord(String key, int dataSize) {
+        byte[] data = new byte[dataSize];
+        byte[] pattern = "nuxeo-stream-benchmark ".getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < dataSize; i += pattern.length) {
+            System.arraycopy(pattern, 0, data, i, Math.min(pattern.length, dataSize - i));
+        }
+        Record record = Record.of(key, data);
+        record.setWatermark(System.currentTimeMillis());
+        return record;
+    }
+
+    /**
+     * Returns a list of keys used to spread records on partitions.
+     */
+    public static String[] createKeys(int count) {
+        String[] keys = new String[count];
+        Arrays.setAll(keys, i -> "key-" + i);
+        return keys;
+    }
+}
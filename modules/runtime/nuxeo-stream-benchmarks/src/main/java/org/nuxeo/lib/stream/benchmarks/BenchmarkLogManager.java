@@ -0,0 +1,116 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.lib.stream.benchmarks;
+
+import static org.nuxeo.lib.stream.log.kafka.KafkaUtils.BOOTSTRAP_SERVERS_PROP;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.nuxeo.lib.stream.log.LogManager;
+import org.nuxeo.lib.stream.log.chronicle.ChronicleLogManager;
+import org.nuxeo.lib.stream.log.kafka.KafkaLogManager;
+
+/**
+ * Creates a {@link LogManager} for a benchmark and releases everything it needs on close.
+ * <p>
+ * The Chronicle backend uses a temporary directory. The Kafka backend uses the brokers defined by the
+ * {@code kafka.bootstrap.servers} system property when set, otherwise an {@link EmbeddedKafka} is started.
+ *
+ * @since 11.2
+ */
+public class BenchmarkLogManager implements AutoCloseable {
+
+    public static final String CHRONICLE = "chronicle";
+
+    public static final String KAFKA = "kafka";
+
+    protected final LogManager manager;
+
+    protected Path basePath;
+
+    protected EmbeddedKafka kafka;
+
+    public BenchmarkLogManager(String backend) {
+        switch (backend) {
+        case CHRONICLE:
+            try {
+                basePath = Files.createTempDirectory("benchmark-chronicle-");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            manager = new ChronicleLogManager(basePath);
+            break;
+        case KAFKA:
+            String bootstrapServers = System.getProperty(BOOTSTRAP_SERVERS_PROP);
+            if (bootstrapServers == null || bootstrapServers.isEmpty()) {
+                kafka = new EmbeddedKafka();
+                bootstrapServers = kafka.getBootstrapServers();
+            }
+            String prefix = "nuxeo-benchmark-" + System.currentTimeMillis() + "-";
+            manager = new KafkaLogManager(prefix, getProducerProps(bootstrapServers),
+                    getConsumerProps(bootstrapServers));
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown backend: " + backend);
+        }
+    }
+
+    protected Properties getProducerProps(String bootstrapServers) {
+        Properties props = new Properties();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        return props;
+    }
+
+    protected Properties getConsumerProps(String bootstrapServers) {
+        Properties props = new Properties();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        props.put(ConsumerConfig.REQUEST_TIMEOUT_MS_CONFIG, 30_000);
+        props.put(ConsumerConfig.DEFAULT_API_TIMEOUT_MS_CONFIG, 30_000);
+        props.put(ConsumerConfig.MAX_POLL_INTERVAL_MS_CONFIG, 120_000);
+        props.put(ConsumerConfig.SESSION_TIMEOUT_MS_CONFIG, 10_000);
+        props.put(ConsumerConfig.HEARTBEAT_INTERVAL_MS_CONFIG, 400);
+        return props;
+    }
+
+    public LogManager getManager() {
+        return manager;
+    }
+
+    @Override
+    public void close() {
+        if (kafka == null && basePath == null) {
+            // external Kafka, remove the benchmark topics
+            manager.listAllNames().forEach(manager::delete);
+        }
+        manager.close();
+        if (kafka != null) {
+            kafka.close();
+        }
+        if (basePath != null) {
+            FileUtils.deleteQuietly(basePath.toFile());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.lib.stream.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.computation.Record;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encoding and decoding cost of a {@link Record} with the available {@link Codec}s.
+ *
+ * @since 11.2
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CodecBenchmark {
+
+    @Param({ "java", "avro", "avroBinary", "avroJson" })
+    public String codec;
+
+    @Param({ "100", "1024", "65536" })
+    public int dataSize;
+
+    protected Codec<Record> recordCodec;
+
+    protected Record record;
+
+    protected byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        recordCodec = BenchmarkHelper.getRecordCodec(codec);
+        record = BenchmarkHelper.createRecord("key-0", dataSize);
+        encoded = recordCodec.encode(record);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return recordCodec.encode(record);
+    }
+
+    @Benchmark
+    public Record decode() {
+        return recordCodec.decode(encoded);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.lib.stream.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.zookeeper.server.ServerCnxnFactory;
+import org.apache.zookeeper.server.ZooKeeperServer;
+
+import kafka.server.KafkaServerStartable;
+
+/**
+ * A single node Kafka broker with its ZooKeeper, running in the current JVM so that benchmarks can run offline.
+ * <p>
+ * This is a stand-in to compare code paths, it does not replace a benchmark against a real cluster: there is no
+ * replication and all the network exchanges are on the loopback interface.
+ *
+ * @since 11.2
+ */
+public class EmbeddedKafka implements AutoCloseable {
+
+    protected static final String HOST = "127.0.0.1";
+
+    protected final Path dataDir;
+
+    protected final ServerCnxnFactory zkFactory;
+
+    protected final KafkaServerStartable broker;
+
+    protected final String bootstrapServers;
+
+    public EmbeddedKafka() {
+        try {
+            dataDir = Files.createTempDirectory("embedded-kafka-");
+            ZooKeeperServer zkServer = new ZooKeeperServer(dataDir.resolve("zk-snap").toFile(),
+                    dataDir.resolve("zk-log").toFile(), 500);
+            zkFactory = ServerCnxnFactory.createFactory(new InetSocketAddress(HOST, 0), 100);
+            zkFactory.startup(zkServer);
+            int port = getFreePort();
+            bootstrapServers = HOST + ":" + port;
+            broker = KafkaServerStartable.fromProps(getBrokerProperties(zkFactory.getLocalPort(), port));
+            broker.startup();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot start embedded Kafka", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while starting embedded Kafka", e);
+        }
+    }
+
+    protected Properties getBrokerProperties(int zkPort, int port) {
+        Properties props = new Properties();
+        props.put("broker.id", "0");
+        props.put("zookeeper.connect", HOST + ":" + zkPort);
+        props.put("listeners", "PLAINTEXT://" + bootstrapServers);
+        props.put("log.dirs", dataDir.resolve("kafka").toString());
+        props.put("num.partitions", "1");
+        props.put("offsets.topic.replication.factor", "1");
+        props.put("offsets.topic.num.partitions", "5");
+        props.put("transaction.state.log.replication.factor", "1");
+        props.put("transaction.state.log.min.isr", "1");
+        props.put("group.initial.rebalance.delay.ms", "0");
+        props.put("auto.create.topics.enable", "false");
+        props.put("delete.topic.enable", "true");
+        return props;
+    }
+
+    protected static int getFreePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    public String getBootstrapServers() {
+        return bootstrapServers;
+    }
+
+    @Override
+    public void close() {
+        broker.shutdown();
+        broker.awaitShutdown();
+        zkFactory.shutdown();
+        FileUtils.deleteQuietly(dataDir.toFile());
+    }
+
+    @Override
+    public String toString() {
+        return "EmbeddedKafka{" + "bootstrapServers='" + bootstrapServers + '\'' + '}';
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.lib.stream.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.lib.stream.log.LogAppender;
+import org.nuxeo.lib.stream.log.LogOffset;
+import org.nuxeo.lib.stream.log.Name;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Append throughput of a {@link LogAppender}.
+ * <p>
+ * Use {@code -p backend=kafka} to run against Kafka and {@code -t} to append from multiple threads.
+ *
+ * @since 11.2
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LogAppenderBenchmark {
+
+    protected static final Name LOG_NAME = Name.ofUrn("benchmark/append");
+
+    protected static final int BATCH_SIZE = 100;
+
+    @Param({ BenchmarkLogManager.CHRONICLE })
+    public String backend;
+
+    @Param({ "none" })
+    public String codec;
+
+    @Param({ "1", "4" })
+    public int partitions;
+
+    @Param({ "100", "1024" })
+    public int dataSize;
+
+    protected BenchmarkLogManager logManager;
+
+    protected LogAppender<Record> appender;
+
+    protected String[] keys;
+
+    protected Record record;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        logManager = new BenchmarkLogManager(backend);
+        logManager.getManager().createIfNotExists(LOG_NAME, partitions);
+        appender = logManager.getManager().getAppender(LOG_NAME, BenchmarkHelper.getRecordCodec(codec));
+        keys = BenchmarkHelper.createKeys(1024);
+        record = BenchmarkHelper.createRecord(keys[0], dataSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        logManager.close();
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        protected int count;
+
+        protected int nextKey(int size) {
+            return count++ % size;
+        }
+    }
+
+    @Benchmark
+    public LogOffset append(ThreadState state) {
+        return appender.append(keys[state.nextKey(keys.length)], record);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<LogOffset> appendBatch(ThreadState state) {
+        List<Record> batch = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(record);
+        }
+        return appender.appendBatch(state.nextKey(partitions), batch).join();
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.lib.stream.benchmarks;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.lib.stream.log.LogAppender;
+import org.nuxeo.lib.stream.log.LogManager;
+import org.nuxeo.lib.stream.log.LogPartition;
+import org.nuxeo.lib.stream.log.LogRecord;
+import org.nuxeo.lib.stream.log.LogTailer;
+import org.nuxeo.lib.stream.log.Name;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Read throughput of a {@link LogTailer}.
+ * <p>
+ * The log is filled once per trial, each benchmark thread reads all the partitions using its own consumer group and
+ * rewinds when reaching the end of the log.
+ *
+ * @since 11.2
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LogTailerBenchmark {
+
+    protected static final Name LOG_NAME = Name.ofUrn("benchmark/read");
+
+    protected static final Duration READ_TIMEOUT = Duration.ofSeconds(1);
+
+    @Param({ BenchmarkLogManager.CHRONICLE })
+    public String backend;
+
+    @Param({ "none" })
+    public String codec;
+
+    @Param({ "1", "4" })
+    public int partitions;
+
+    @Param({ "100", "1024" })
+    public int dataSize;
+
+    @Param({ "100000" })
+    public int records;
+
+    protected BenchmarkLogManager logManager;
+
+    protected Codec<Record> recordCodec;
+
+    protected final AtomicInteger groups = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        logManager = new BenchmarkLogManager(backend);
+        LogManager manager = logManager.getManager();
+        manager.createIfNotExists(LOG_NAME, partitions);
+        recordCodec = BenchmarkHelper.getRecordCodec(codec);
+        LogAppender<Record> appender = manager.getAppender(LOG_NAME, recordCodec);
+        String[] keys = BenchmarkHelper.createKeys(1024);
+        Record record = BenchmarkHelper.createRecord(keys[0], dataSize);
+        for (int i = 0; i < records; i++) {
+            appender.append(keys[i % keys.length], record);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        logManager.close();
+    }
+
+    @State(Scope.Thread)
+    public static class TailerState {
+        protected LogTailer<Record> tailer;
+
+        @Setup(Level.Trial)
+        public void setup(LogTailerBenchmark benchmark) {
+            List<LogPartition> assignments = new ArrayList<>(benchmark.partitions);
+            for (int i = 0; i < benchmark.partitions; i++) {
+                assignments.add(LogPartition.of(LOG_NAME, i));
+            }
+            Name group = Name.ofUrn("benchmark/reader-" + benchmark.groups.incrementAndGet());
+            tailer = benchmark.logManager.getManager().createTailer(group, assignments, benchmark.recordCodec);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            tailer.close();
+        }
+    }
+
+    @Benchmark
+    public Record read(TailerState state) throws InterruptedException {
+        LogRecord<Record> logRecord = state.tailer.read(READ_TIMEOUT);
+        if (logRecord == null) {
+            state.tailer.toStart();
+            logRecord = state.tailer.read(READ_TIMEOUT);
+        }
+        return logRecord.message();
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.lib.stream.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.nuxeo.lib.stream.computation.Record;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of the {@link Record} Externalizable implementation, this is the encoding used by logs without codec.
+ *
+ * @since 11.2
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RecordBenchmark {
+
+    @Param({ "100", "1024", "65536" })
+    public int dataSize;
+
+    protected Record record;
+
+    protected byte[] externalized;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        record = BenchmarkHelper.createRecord("key-0", dataSize);
+        externalized = writeExternal();
+    }
+
+    @Benchmark
+    public byte[] writeExternal() throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(dataSize + 64);
+        try (ObjectOutputStream out = new ObjectOutputStream(bos)) {
+            record.writeExternal(out);
+        }
+        return bos.toByteArray();
+    }
+
+    @Benchmark
+    public Record readExternal() throws IOException, ClassNotFoundException {
+        Record ret = new Record();
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(externalized))) {
+            ret.readExternal(in);
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.lib.stream.benchmarks;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.computation.AbstractBatchComputation;
+import org.nuxeo.lib.stream.computation.ComputationContext;
+import org.nuxeo.lib.stream.computation.ComputationPolicy;
+import org.nuxeo.lib.stream.computation.ComputationPolicyBuilder;
+import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.lib.stream.computation.Settings;
+import org.nuxeo.lib.stream.computation.StreamManager;
+import org.nuxeo.lib.stream.computation.StreamProcessor;
+import org.nuxeo.lib.stream.computation.Topology;
+import org.nuxeo.lib.stream.computation.log.LogStreamManager;
+import org.nuxeo.lib.stream.log.LogAppender;
+import org.nuxeo.lib.stream.log.Name;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End to end processing of a topology by a {@link StreamProcessor}: an input stream is processed by a forward
+ * computation then by a sink computation.
+ * <p>
+ * Each invocation appends {@code records} records to the input stream then measures the time for the processor to
+ * drain the topology, the throughput in records/s is {@code records / score}.
+ *
+ * @since 11.2
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StreamProcessorBenchmark {
+
+    protected static final String INPUT_STREAM = "benchmark/input";
+
+    protected static final String FORWARD_STREAM = "benchmark/forward";
+
+    protected static final Duration DRAIN_TIMEOUT = Duration.ofMinutes(5);
+
+    @Param({ BenchmarkLogManager.CHRONICLE })
+    public String backend;
+
+    @Param({ "none" })
+    public String codec;
+
+    @Param({ "1", "4", "8" })
+    public int concurrency;
+
+    @Param({ "1", "100" })
+    public int batchCapacity;
+
+    @Param({ "100" })
+    public int batchThresholdMs;
+
+    @Param({ "100" })
+    public int dataSize;
+
+    @Param({ "50000" })
+    public int records;
+
+    protected BenchmarkLogManager logManager;
+
+    protected StreamManager streamManager;
+
+    protected Topology topology;
+
+    protected Settings settings;
+
+    protected StreamProcessor processor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        logManager = new BenchmarkLogManager(backend);
+        streamManager = new LogStreamManager(logManager.getManager());
+        topology = Topology.builder()
+                           .addComputation(() -> new ForwardComputation("benchmark/forwarder"),
+                                   Arrays.asList("i1:" + INPUT_STREAM, "o1:" + FORWARD_STREAM))
+                           .addComputation(() -> new SinkComputation("benchmark/sink"),
+                                   Arrays.asList("i1:" + FORWARD_STREAM))
+                           .build();
+        ComputationPolicy policy = new ComputationPolicyBuilder().batchPolicy(batchCapacity,
+                Duration.ofMillis(batchThresholdMs)).build();
+        Codec<Record> recordCodec = BenchmarkHelper.getRecordCodec(codec);
+        settings = new Settings(concurrency, concurrency, recordCodec, policy);
+        streamManager.register("benchmark", topology, settings);
+    }
+
+    @Setup(Level.Invocation)
+    public void appendRecords() {
+        LogAppender<Record> appender = logManager.getManager()
+                                                 .getAppender(Name.ofUrn(INPUT_STREAM),
+                                                         settings.getCodec(INPUT_STREAM));
+        String[] keys = BenchmarkHelper.createKeys(1024);
+        Record record = BenchmarkHelper.createRecord(keys[0], dataSize);
+        for (int i = 0; i < records; i++) {
+            appender.append(keys[i % keys.length], record);
+        }
+        processor = streamManager.createStreamProcessor("benchmark");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        logManager.close();
+    }
+
+    @Benchmark
+    public boolean process() throws InterruptedException {
+        processor.start();
+        processor.waitForAssignments(DRAIN_TIMEOUT);
+        return processor.drainAndStop(DRAIN_TIMEOUT);
+    }
+
+    /**
+     * Forwards batches of records to its output stream.
+     */
+    public static class ForwardComputation extends AbstractBatchComputation {
+
+        public ForwardComputation(String name) {
+            super(name, 1, 1);
+        }
+
+        @Override
+        protected void batchProcess(ComputationContext context, String inputStreamName, List<Record> records) {
+            records.forEach(record -> context.produceRecord(OUTPUT_1, record));
+        }
+
+        @Override
+        public void batchFailure(ComputationContext context, String inputStreamName, List<Record> records) {
+            // nothing to do
+        }
+    }
+
+    /**
+     * Consumes batches of records without producing anything.
+     */
+    public static class SinkComputation extends AbstractBatchComputation {
+
+        public SinkComputation(String name) {
+            super(name, 1, 0);
+        }
+
+        @Override
+        protected void batchProcess(ComputationContext context, String inputStreamName, List<Record> records) {
+            // nothing to do
+        }
+
+        @Override
+        public void batchFailure(ComputationContext context, String inputStreamName, List<Record> records) {
+            // nothing to do
+        }
+    }
+}
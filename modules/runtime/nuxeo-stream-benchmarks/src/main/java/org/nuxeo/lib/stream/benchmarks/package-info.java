@@ -0,0 +1,15 @@
+/**
+ * JMH benchmarks for Nuxeo Stream.
+ * <p>
+ * Build with {@code mvn package} then run with {@code java -jar target/benchmarks.jar}, benchmarks and parameters can
+ * be selected using the usual JMH options, for instance:
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar LogAppenderBenchmark -p backend=chronicle,kafka -t 4
+ * java -jar target/benchmarks.jar StreamProcessorBenchmark -p concurrency=4 -p batchCapacity=1,10,100
+ * </pre>
+ *
+ * The Kafka backend uses an embedded broker unless {@code -Dkafka.bootstrap.servers} is passed to the JVM with
+ * {@code -jvmArgsAppend}.
+ */
+package org.nuxeo.lib.stream.benchmarks;
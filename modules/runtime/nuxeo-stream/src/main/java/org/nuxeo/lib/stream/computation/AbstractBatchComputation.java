@@ -19,6 +19,7 @@
 package org.nuxeo.lib.stream.computation;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.commons.logging.Log;
@@ -27,11 +28,12 @@ import org.apache.commons.logging.LogFactory;
 /**
  * An abstract {@link Computation} that processes records by batch.
  * <p>
- * The batch capacity and threshold are defined in the computation policy.
+ * The batch capacity and threshold are defined in the computation policy. Since 11.2 the records are received by
+ * batch, never exceeding the batch capacity.
  *
  * @since 10.3
  */
-public abstract class AbstractBatchComputation extends AbstractComputation {
+public abstract class AbstractBatchComputation extends AbstractComputation implements BatchComputation {
 
     private static final Log log = LogFactory.getLog(AbstractBatchComputation.class);
 
@@ -45,7 +47,8 @@ public abstract class AbstractBatchComputation extends AbstractComputation {
 
     protected long thresholdMillis;
 
-    protected boolean removeLastRecordOnRetry;
+    // @since 11.2
+    protected int removeLastRecordsOnRetry;
 
     /**
      * Constructor
@@ -96,6 +99,11 @@ public abstract class AbstractBatchComputation extends AbstractComputation {
 
     @Override
     public void processRecord(ComputationContext context, String inputStreamName, Record record) {
+        processRecords(context, inputStreamName, Collections.singletonList(record));
+    }
+
+    @Override
+    public void processRecords(ComputationContext context, String inputStreamName, List<Record> records) {
         if (!inputStreamName.equals(currentInputStream) && !batchRecords.isEmpty()) {
             batchProcess(context);
         }
@@ -103,14 +111,33 @@ public abstract class AbstractBatchComputation extends AbstractComputation {
             currentInputStream = inputStreamName;
             newBatch = false;
         }
-        batchRecords.add(record);
-        if (batchRecords.size() >= context.getPolicy().getBatchCapacity()) {
-            removeLastRecordOnRetry = true;
+        batchRecords.addAll(records);
+        if (batchRecords.size() >= getBatchCapacity(context)) {
+            removeLastRecordsOnRetry = records.size();
             batchProcess(context);
-            removeLastRecordOnRetry = false;
+            removeLastRecordsOnRetry = 0;
         }
     }
 
+    /**
+     * Returns the number of records that completes the current batch, so that a batch never exceeds its capacity.
+     *
+     * @since 11.2
+     */
+    @Override
+    public int getMaxRecords(ComputationContext context) {
+        return Math.max(1, getBatchCapacity(context) - batchRecords.size());
+    }
+
+    /**
+     * Returns the number of records that triggers a batch, by default the batch capacity of the policy.
+     *
+     * @since 11.2
+     */
+    protected int getBatchCapacity(ComputationContext context) {
+        return context.getPolicy().getBatchCapacity();
+    }
+
     private void batchProcess(ComputationContext context) {
         batchProcess(context, currentInputStream, batchRecords);
         checkpointBatch(context);
@@ -124,11 +151,11 @@ public abstract class AbstractBatchComputation extends AbstractComputation {
 
     @Override
     public void processRetry(ComputationContext context, Throwable failure) {
-        if (removeLastRecordOnRetry) {
-            // the batchProcess has failed, processRecord will be retried with the same record
-            // but first we have to remove the record from the batch
-            batchRecords.remove(batchRecords.size() -1);
-            removeLastRecordOnRetry = false;
+        if (removeLastRecordsOnRetry > 0) {
+            // the batchProcess has failed, processRecords will be retried with the same records
+            // but first we have to remove the records from the batch
+            batchRecords.subList(batchRecords.size() - removeLastRecordsOnRetry, batchRecords.size()).clear();
+            removeLastRecordsOnRetry = 0;
         }
         log.warn(String.format("Computation: %s fails to process batch of %d records, last record: %s, retrying ...",
                 metadata.name(), batchRecords.size(), context.getLastOffset()), failure);
@@ -141,6 +168,7 @@ public abstract class AbstractBatchComputation extends AbstractComputation {
                 metadata.name(), batchRecords.size(), context.getLastOffset(), context.getPolicy()), failure);
         batchFailure(context, currentInputStream, batchRecords);
         batchRecords.clear();
+        removeLastRecordsOnRetry = 0;
         newBatch = true;
     }
 
@@ -0,0 +1,54 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.lib.stream.computation;
+
+import java.util.List;
+
+/**
+ * A {@link Computation} that receives records by batch.
+ * <p>
+ * The records read at once from the input streams are passed in a single call for each run of contiguous records
+ * coming from the same input stream, the checkpoint being done once all the records read are processed.
+ *
+ * @since 11.2
+ */
+public interface BatchComputation extends Computation {
+
+    /**
+     * Returns the maximum number of records to read for the next call to {@link #processRecords}, by default the batch
+     * capacity of the policy.
+     *
+     * @param context The computation context object provided by the system.
+     */
+    default int getMaxRecords(ComputationContext context) {
+        return context.getPolicy().getBatchCapacity();
+    }
+
+    /**
+     * Process contiguous incoming records of one of the computation's input streams.
+     * <p>
+     * If this method raises an exception the retry policy is applied to the whole list of records.
+     *
+     * @param context The computation context object provided by the system.
+     * @param inputStreamName Name of the input stream that provides the records.
+     * @param records The records, in the order they have been read.
+     */
+    void processRecords(ComputationContext context, String inputStreamName, List<Record> records);
+
+}
@@ -18,6 +18,8 @@
  */
 package org.nuxeo.lib.stream.computation;
 
+import java.util.concurrent.CompletableFuture;
+
 import org.nuxeo.lib.stream.log.LogOffset;
 
 /**
@@ -49,4 +51,13 @@ public interface StreamManager {
      * Appends a record to a processor's source stream.
      */
     LogOffset append(String stream, Record record);
+
+    /**
+     * Appends a record to a processor's source stream without waiting for the acknowledgment of the underlying Log.
+     *
+     * @since 11.2
+     */
+    default CompletableFuture<LogOffset> appendAsync(String stream, Record record) {
+        return CompletableFuture.completedFuture(append(stream, record));
+    }
 }
@@ -26,7 +26,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
+import org.nuxeo.lib.stream.StreamRuntimeException;
 import org.nuxeo.lib.stream.computation.ComputationContext;
 import org.nuxeo.lib.stream.computation.ComputationMetadataMapping;
 import org.nuxeo.lib.stream.computation.ComputationPolicy;
@@ -38,12 +41,16 @@ import org.nuxeo.lib.stream.log.LogOffset;
  * @since 9.3
  */
 public class ComputationContextImpl implements ComputationContext {
+    protected static final int PENDING_RECORDS_CLEANUP_THRESHOLD = 1000;
+
     protected final ComputationMetadataMapping metadata;
 
     protected final Map<String, List<Record>> streamRecords;
 
     protected final Map<String, Long> timers;
 
+    protected final List<CompletableFuture<LogOffset>> pendingRecords = new ArrayList<>();
+
     protected final StreamManager manager;
 
     protected final ComputationPolicy policy;
@@ -120,6 +127,61 @@ public class ComputationContextImpl implements ComputationContext {
         return manager.append(targetStream, record);
     }
 
+    /**
+     * Writes to an output stream without waiting for the acknowledgment, the record is pipelined with other appends
+     * and is awaited on the next checkpoint. Like {@link #produceRecordImmediate(String, Record)} this creates
+     * duplicates on errors.
+     *
+     * @since 11.2
+     */
+    public CompletableFuture<LogOffset> produceRecordAsync(String streamName, Record record) {
+        if (manager == null) {
+            throw new IllegalStateException("No logManager provided in context");
+        }
+        String targetStream = metadata.map(streamName);
+        if (!metadata.outputStreams().contains(targetStream)) {
+            throw new IllegalArgumentException("Stream not registered as output: " + targetStream + ":" + streamName);
+        }
+        CompletableFuture<LogOffset> ret = manager.appendAsync(targetStream, record);
+        addPendingRecord(ret);
+        return ret;
+    }
+
+    /**
+     * Tracks an asynchronous append so it is awaited on the next checkpoint.
+     *
+     * @since 11.2
+     */
+    public void addPendingRecord(CompletableFuture<LogOffset> future) {
+        if (pendingRecords.size() >= PENDING_RECORDS_CLEANUP_THRESHOLD) {
+            // keep failures so they are reported on checkpoint
+            pendingRecords.removeIf(pending -> pending.isDone() && !pending.isCompletedExceptionally());
+        }
+        pendingRecords.add(future);
+    }
+
+    /**
+     * Waits for all the pending asynchronous appends, raises a {@link StreamRuntimeException} if one of them failed.
+     *
+     * @since 11.2
+     */
+    public void waitForPendingRecords() {
+        if (pendingRecords.isEmpty()) {
+            return;
+        }
+        try {
+            CompletableFuture.allOf(pendingRecords.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            throw new StreamRuntimeException("Failed to append records from: " + metadata.name(), e.getCause());
+        } finally {
+            pendingRecords.clear();
+        }
+    }
+
+    public int getPendingRecordsCount() {
+        return pendingRecords.size();
+    }
+
     public void produceRecordImmediate(String streamName, String key, byte[] data) {
         Tracing.getTracer().getCurrentSpan().addAnnotation("Produce record immediate " + key);
         produceRecordImmediate(streamName, Record.of(key, data));
@@ -186,6 +248,7 @@ public class ComputationContextImpl implements ComputationContext {
                 "metadata=" + metadata +
                 ", streamRecords=" + streamRecords +
                 ", timers=" + timers +
+                ", pendingRecords=" + pendingRecords.size() +
                 ", manager=" + manager +
                 ", policy=" + policy +
                 ", isSpare=" + isSpare +
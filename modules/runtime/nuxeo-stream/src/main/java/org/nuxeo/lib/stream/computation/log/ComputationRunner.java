@@ -20,6 +20,7 @@ package org.nuxeo.lib.stream.computation.log;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -33,6 +34,7 @@ import java.util.stream.Collectors;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.nuxeo.lib.stream.computation.BatchComputation;
 import org.nuxeo.lib.stream.computation.Computation;
 import org.nuxeo.lib.stream.computation.ComputationMetadataMapping;
 import org.nuxeo.lib.stream.computation.ComputationPolicy;
@@ -48,6 +50,7 @@ import org.nuxeo.lib.stream.log.RebalanceException;
 import org.nuxeo.lib.stream.log.RebalanceListener;
 
 import io.dropwizard.metrics5.Counter;
+import io.dropwizard.metrics5.Histogram;
 import io.dropwizard.metrics5.MetricName;
 import io.dropwizard.metrics5.MetricRegistry;
 import io.dropwizard.metrics5.SharedMetricRegistries;
@@ -139,6 +142,15 @@ public class ComputationRunner implements Runnable, RebalanceListener {
 
     protected Timer processTimerTimer;
 
+    // @since 11.2
+    protected final Map<Name, Histogram> streamLatencies = new HashMap<>();
+
+    // @since 11.2
+    protected Timer processRecordsTimer;
+
+    // @since 11.2
+    protected Histogram processRecordsSize;
+
     // @since 11.1
     protected static AtomicInteger skipFailures = new AtomicInteger(0);
 
@@ -255,6 +267,12 @@ public class ComputationRunner implements Runnable, RebalanceListener {
                 MetricName.build("nuxeo.streams.computation.processRecord").tagged("computation", name));
         processTimerTimer = registry.timer(
                 MetricName.build("nuxeo.streams.computation.processTimer").tagged("computation", name));
+        if (computation instanceof BatchComputation) {
+            processRecordsTimer = registry.timer(
+                    MetricName.build("nuxeo.streams.computation.processRecords").tagged("computation", name));
+            processRecordsSize = registry.histogram(
+                    MetricName.build("nuxeo.streams.computation.processRecords.size").tagged("computation", name));
+        }
     }
 
     protected void closeTailer() {
@@ -265,12 +283,14 @@ public class ComputationRunner implements Runnable, RebalanceListener {
 
     protected void processLoop() throws InterruptedException {
         boolean timerActivity;
+        boolean idle = false;
         while (continueLoop()) {
             timerActivity = processTimer();
-            recordActivity = processRecord();
+            recordActivity = processRecord(idle);
             counter++;
-            if (!timerActivity && !recordActivity) {
-                // no activity take a break
+            idle = !timerActivity && !recordActivity;
+            if (idle && tailer == null) {
+                // no activity take a break, when there is a tailer the break is taken waiting for the next record
                 Thread.sleep(INACTIVITY_BREAK_MS);
             }
         }
@@ -370,6 +390,16 @@ public class ComputationRunner implements Runnable, RebalanceListener {
     }
 
     protected boolean processRecord() throws InterruptedException {
+        return processRecord(false);
+    }
+
+    /**
+     * Reads and processes a record. When idle, waits for a record up to the {@link #INACTIVITY_BREAK_MS inactivity
+     * break}, so that a record appended during the break is processed as soon as the tailer gets it.
+     *
+     * @since 11.2
+     */
+    protected boolean processRecord(boolean idle) throws InterruptedException {
         if (context.requireTerminate()) {
             stop = true;
             return true;
@@ -377,7 +407,10 @@ public class ComputationRunner implements Runnable, RebalanceListener {
         if (tailer == null) {
             return false;
         }
-        Duration timeoutRead = getTimeoutDuration();
+        Duration timeoutRead = idle ? getIdleTimeoutDuration() : getTimeoutDuration();
+        if (computation instanceof BatchComputation) {
+            return processRecords((BatchComputation) computation, timeoutRead);
+        }
         LogRecord<Record> logRecord = null;
         try {
             logRecord = tailer.read(timeoutRead);
@@ -399,6 +432,7 @@ public class ComputationRunner implements Runnable, RebalanceListener {
                 record = filteredRecord;
             }
             lastReadTime = System.currentTimeMillis();
+            updateLatency(stream, record);
             inRecords++;
             lowWatermark.mark(record.getWatermark());
             context.setLastOffset(logRecord.offset());
@@ -409,6 +443,109 @@ public class ComputationRunner implements Runnable, RebalanceListener {
         return false;
     }
 
+    /**
+     * Reads and processes a batch of records. Contiguous records from the same stream are passed at once to the
+     * computation, the checkpoint being done once all the records read are processed.
+     *
+     * @since 11.2
+     */
+    protected boolean processRecords(BatchComputation batchComputation, Duration timeoutRead)
+            throws InterruptedException {
+        List<LogRecord<Record>> logRecords;
+        try {
+            logRecords = tailer.readBatch(batchComputation.getMaxRecords(context), timeoutRead);
+        } catch (RebalanceException e) {
+            // the revoke has done a checkpoint we can continue
+            return false;
+        }
+        Name currentStream = null;
+        List<Record> records = new ArrayList<>(logRecords.size());
+        boolean processed = false;
+        for (LogRecord<Record> logRecord : logRecords) {
+            Record record = logRecord.message();
+            Name stream = logRecord.offset().partition().name();
+            Record filteredRecord = streamManager.getFilter(stream).afterRead(record, logRecord.offset());
+            if (filteredRecord == null) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Filtering skip record: " + record);
+                }
+                continue;
+            }
+            if (!stream.equals(currentStream) && !records.isEmpty()) {
+                processRecordsWithTracing(currentStream, records);
+                processed = true;
+                records = new ArrayList<>();
+                if (context.requireTerminate()) {
+                    // the remaining records are not checkpointed
+                    return true;
+                }
+            }
+            currentStream = stream;
+            lastReadTime = System.currentTimeMillis();
+            updateLatency(stream, filteredRecord);
+            inRecords++;
+            lowWatermark.mark(filteredRecord.getWatermark());
+            context.setLastOffset(logRecord.offset());
+            records.add(filteredRecord);
+        }
+        if (!records.isEmpty()) {
+            processRecordsWithTracing(currentStream, records);
+            processed = true;
+        }
+        if (processed) {
+            checkSourceLowWatermark();
+            setThreadName("record");
+            checkpointIfNecessary();
+        }
+        return processed;
+    }
+
+    protected void processRecordsWithTracing(Name stream, List<Record> records) {
+        String from = metadata.reverseMap(stream.getUrn());
+        Span span = getSpanFromRecord(records.get(records.size() - 1));
+        try (Scope scope = Tracing.getTracer().withSpan(span)) {
+            processRecordsWithRetry(from, records);
+            records.forEach(this::checkRecordFlags);
+        } finally {
+            span.end();
+        }
+    }
+
+    protected void processRecordsWithRetry(String from, List<Record> records) {
+        runningCount.inc();
+        processRecordsSize.update(records.size());
+        try (Timer.Context ignored = processRecordsTimer.time()) {
+            Failsafe.with(policy.getRetryPolicy())
+                    .onRetry(failure -> computation.processRetry(context, failure))
+                    .onFailure(failure -> computation.processFailure(context, failure))
+                    .withFallback(() -> processFallback(context))
+                    .run(() -> ((BatchComputation) computation).processRecords(context, from, records));
+        } finally {
+            runningCount.dec();
+        }
+    }
+
+    /**
+     * Records the time elapsed since the watermark of a record read from a stream.
+     *
+     * @since 11.2
+     */
+    protected void updateLatency(Name stream, Record record) {
+        if (record.getWatermark() <= 0) {
+            return;
+        }
+        long latency = lastReadTime - Watermark.ofValue(record.getWatermark()).getTimestamp();
+        if (latency >= 0) {
+            streamLatencies.computeIfAbsent(stream, this::newLatencyHistogram).update(latency);
+        }
+    }
+
+    protected Histogram newLatencyHistogram(Name stream) {
+        return registry.histogram(MetricName.build("nuxeo.streams.stream.latency")
+                                            .tagged("stream", stream.getId(), "computation",
+                                                    Name.ofUrn(metadata.name()).getId()));
+    }
+
     protected void processRecordWithTracing(String from, Record record) {
         Span span = getSpanFromRecord(record);
         try (Scope scope = Tracing.getTracer().withSpan(span)) {
@@ -502,6 +639,20 @@ public class ComputationRunner implements Runnable, RebalanceListener {
         return Duration.ofMillis(Math.min(READ_TIMEOUT.toMillis(), adaptedReadTimeout));
     }
 
+    /**
+     * Gets the read timeout when there was no activity, bounded by the next timer.
+     *
+     * @since 11.2
+     */
+    protected Duration getIdleTimeoutDuration() {
+        long timeout = INACTIVITY_BREAK_MS;
+        long now = System.currentTimeMillis();
+        for (Long timer : context.getTimers().values()) {
+            timeout = Math.min(timeout, Math.max(0, timer - now));
+        }
+        return Duration.ofMillis(timeout);
+    }
+
     protected void checkSourceLowWatermark() {
         long watermark = context.getSourceLowWatermark();
         if (watermark > 0) {
@@ -536,6 +687,8 @@ public class ComputationRunner implements Runnable, RebalanceListener {
 
     protected void checkpoint() {
         sendRecords();
+        // offsets can only be saved once all the produced records are acknowledged
+        context.waitForPendingRecords();
         saveTimers();
         saveState();
         // To Simulate slow checkpoint add a Thread.sleep(1)
@@ -576,7 +729,7 @@ public class ComputationRunner implements Runnable, RebalanceListener {
                     span.addAnnotation("Sending records at " + Instant.now());
                     firstRecord = false;
                 }
-                streamManager.append(stream, record);
+                context.addPendingRecord(streamManager.appendAsync(stream, record));
                 outRecords++;
             }
             context.getRecords(stream).clear();
@@ -21,6 +21,7 @@ package org.nuxeo.lib.stream.computation.log;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import org.apache.commons.logging.Log;
@@ -101,6 +102,26 @@ public class LogStreamManager implements StreamManager {
         return offset;
     }
 
+    @Override
+    public CompletableFuture<LogOffset> appendAsync(String streamUrn, Record record) {
+        Name stream = Name.ofUrn(streamUrn);
+        RecordFilterChain filter = filters.get(stream);
+        if (filter == null) {
+            throw new IllegalArgumentException("Unknown stream: " + stream);
+        }
+        Record filteredRecord = filter.beforeAppend(record);
+        if (filteredRecord == null) {
+            return CompletableFuture.completedFuture(new LogOffsetImpl(stream, 0, 0));
+        }
+        // afterAppend can be invoked from the Log client thread
+        return logManager.<Record> getAppender(stream)
+                         .appendAsync(filteredRecord.getKey(), filteredRecord)
+                         .thenApply(offset -> {
+                             filter.afterAppend(filteredRecord, offset);
+                             return offset;
+                         });
+    }
+
     public boolean supportSubscribe() {
         return logManager.supportSubscribe();
     }
@@ -20,7 +20,10 @@ package org.nuxeo.lib.stream.log;
 
 import java.io.Externalizable;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 import org.nuxeo.lib.stream.codec.Codec;
 
@@ -62,6 +65,55 @@ public interface LogAppender<M extends Externalizable> {
         return append(partition, message);
     }
 
+    /**
+     * Append a message into a partition without waiting for the acknowledgment of the underlying Log. Errors are
+     * reported through the returned future.
+     * <p>
+     * The default implementation is synchronous.
+     *
+     * @param partition index lower than {@link #size()}
+     * @since 11.2
+     */
+    default CompletableFuture<LogOffset> appendAsync(int partition, M message) {
+        try {
+            return CompletableFuture.completedFuture(append(partition, message));
+        } catch (RuntimeException e) {
+            CompletableFuture<LogOffset> ret = new CompletableFuture<>();
+            ret.completeExceptionally(e);
+            return ret;
+        }
+    }
+
+    /**
+     * Same as {@link #appendAsync(int, Externalizable)}, the queue is chosen using a hash of {@param key}.
+     *
+     * @since 11.2
+     */
+    default CompletableFuture<LogOffset> appendAsync(String key, M message) {
+        Objects.requireNonNull(key);
+        int partition = (key.hashCode() & 0x7fffffff) % size();
+        return appendAsync(partition, message);
+    }
+
+    /**
+     * Appends a list of messages into a partition, messages are sent without waiting for each acknowledgment. The
+     * returned future completes with the offsets in the order of the messages, or exceptionally if any append fails.
+     *
+     * @param partition index lower than {@link #size()}
+     * @since 11.2
+     */
+    default CompletableFuture<List<LogOffset>> appendBatch(int partition, List<M> messages) {
+        List<CompletableFuture<LogOffset>> futures = new ArrayList<>(messages.size());
+        for (M message : messages) {
+            futures.add(appendAsync(partition, message));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            List<LogOffset> ret = new ArrayList<>(futures.size());
+            futures.forEach(future -> ret.add(future.join()));
+            return ret;
+        });
+    }
+
     /**
      * Wait for consumer to process a message up to the offset. The message is processed if a consumer of the group
      * commits a greater or equals offset. Return {@code true} if the message has been consumed, {@code false} in case
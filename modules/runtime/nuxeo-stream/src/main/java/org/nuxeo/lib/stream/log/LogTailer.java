@@ -20,7 +20,10 @@ package org.nuxeo.lib.stream.log;
 
 import java.io.Externalizable;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 import org.nuxeo.lib.stream.codec.Codec;
 
@@ -50,6 +53,28 @@ public interface LogTailer<M extends Externalizable> extends AutoCloseable {
      */
     LogRecord<M> read(Duration timeout) throws InterruptedException;
 
+    /**
+     * Read up to {@code maxRecords} messages from assigned partitions, waiting within the timeout for the first one
+     * only. The following messages are the ones that can be read without waiting.
+     *
+     * @return the read records in read order, an empty list if there is no message in the queue after the timeout.
+     * @throws RebalanceException if a partition rebalancing happen during the read, this is possible only when using
+     *             {@link LogManager#subscribe}.
+     * @since 11.2
+     */
+    default List<LogRecord<M>> readBatch(int maxRecords, Duration timeout) throws InterruptedException {
+        LogRecord<M> record = read(timeout);
+        if (record == null) {
+            return Collections.emptyList();
+        }
+        List<LogRecord<M>> records = new ArrayList<>();
+        records.add(record);
+        while (records.size() < maxRecords && (record = read(Duration.ZERO)) != null) {
+            records.add(record);
+        }
+        return records;
+    }
+
     /**
      * Commit current positions for all partitions (last message offset returned by read).
      */
@@ -22,6 +22,7 @@ import java.io.Externalizable;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import org.nuxeo.lib.stream.codec.Codec;
@@ -47,6 +48,9 @@ public class ChronicleCompoundLogTailer<M extends Externalizable> implements Log
 
     protected final Codec<M> codec;
 
+    // @since 11.2
+    protected final List<ChronicleLogSignal> signals = new ArrayList<>();
+
     protected boolean closed;
 
     protected long counter;
@@ -62,22 +66,31 @@ public class ChronicleCompoundLogTailer<M extends Externalizable> implements Log
             this.codec = tailers.iterator().next().getCodec();
         }
         tailers.forEach(partition -> logPartitions.addAll(partition.assignments()));
+        tailers.forEach(partition -> signals.add(partition.signal));
     }
 
     @Override
     public LogRecord<M> read(Duration timeout) throws InterruptedException {
-        LogRecord<M> ret = read();
-        if (ret != null) {
-            return ret;
+        return ChronicleLogSignal.poll(signals, this::read, timeout);
+    }
+
+    /**
+     * Reads the following records sequentially once the first one is read.
+     *
+     * @since 11.2
+     */
+    @Override
+    public List<LogRecord<M>> readBatch(int maxRecords, Duration timeout) throws InterruptedException {
+        LogRecord<M> record = read(timeout);
+        if (record == null) {
+            return Collections.emptyList();
         }
-        final long timeoutMs = timeout.toMillis();
-        final long deadline = System.currentTimeMillis() + timeoutMs;
-        final long delay = Math.min(ChronicleLogTailer.POLL_INTERVAL_MS, timeoutMs);
-        while (ret == null && System.currentTimeMillis() < deadline) {
-            Thread.sleep(delay);
-            ret = read();
+        List<LogRecord<M>> records = new ArrayList<>();
+        records.add(record);
+        while (records.size() < maxRecords && (record = read()) != null) {
+            records.add(record);
         }
-        return ret;
+        return records;
     }
 
     protected LogRecord<M> read() {
@@ -84,6 +84,9 @@ public class ChronicleLogAppender<M extends Externalizable> implements Closeable
 
     protected final List<ChronicleQueue> partitions;
 
+    // @since 11.2
+    protected final List<ChronicleLogSignal> signals;
+
     protected final int nbPartitions;
 
     protected final File basePath;
@@ -139,6 +142,7 @@ public class ChronicleLogAppender<M extends Externalizable> implements Closeable
         this.nbPartitions = Integer.parseInt(metadata.getProperty(PARTITIONS_KEY));
         this.blockSize = Integer.parseInt(metadata.getProperty(BLOCK_SIZE_KEY));
         this.partitions = new ArrayList<>(nbPartitions);
+        this.signals = new ArrayList<>(nbPartitions);
         initPartitions(false);
     }
 
@@ -166,6 +170,7 @@ public class ChronicleLogAppender<M extends Externalizable> implements Closeable
         this.codec = codec;
         this.retention = config.getRetention();
         this.partitions = new ArrayList<>(nbPartitions);
+        this.signals = new ArrayList<>(nbPartitions);
         this.name = name;
         this.blockSize = CQ_BLOCK_SIZE;
         if (log.isDebugEnabled()) {
@@ -197,6 +202,7 @@ public class ChronicleLogAppender<M extends Externalizable> implements Closeable
             // we don't try to acquire an appender and pretouch because it causes troubles with countExcerpts
             // the cq4 cycle file will be created on first append
             partitions.add(queue);
+            signals.add(ChronicleLogSignal.of(basePath.toString(), i));
             if (listener != null) {
                 listener.setQueue(queue);
             }
@@ -288,6 +294,8 @@ public class ChronicleLogAppender<M extends Externalizable> implements Closeable
             throw new StreamRuntimeException(e);
         }
         long offset = appender.lastIndexAppended();
+        // wake up the tailers of this JVM waiting on the partition
+        signals.get(partition).signal();
         LogOffset ret = new LogOffsetImpl(name, partition, offset);
         if (log.isDebugEnabled()) {
             log.debug(String.format("append to %s, value: %s", ret, message));
@@ -375,6 +383,7 @@ public class ChronicleLogAppender<M extends Externalizable> implements Closeable
         tailers.clear();
         partitions.stream().filter(Objects::nonNull).forEach(ChronicleQueue::close);
         partitions.clear();
+        signals.clear();
         closed = true;
     }
 
@@ -0,0 +1,147 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     agent
+ */
+package org.nuxeo.lib.stream.log.chronicle;
+
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Wakes up the tailers waiting for records on a Chronicle partition when a record is appended to it from the same
+ * JVM.
+ * <p>
+ * Chronicle Queue has no notification mechanism, so records appended by another process are only seen by polling. A
+ * waiting tailer first spins, then yields, then parks for a progressively longer delay up to
+ * {@link #MAX_PARK_MS}. A record appended from the same JVM ends the park immediately.
+ *
+ * @since 11.2
+ */
+public class ChronicleLogSignal {
+
+    protected static final int SPIN_TRIES = 64;
+
+    protected static final int YIELD_TRIES = 16;
+
+    protected static final long MIN_PARK_MS = 1;
+
+    protected static final long MAX_PARK_MS = ChronicleLogTailer.POLL_INTERVAL_MS;
+
+    // signals by partition path, shared by all the appenders and tailers of the JVM
+    protected static final Map<String, ChronicleLogSignal> SIGNALS = new ConcurrentHashMap<>();
+
+    protected final Set<Waiter> waiters = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Gets the signal of a partition.
+     *
+     * @param basePath the base path of the log
+     * @param partition the partition
+     */
+    public static ChronicleLogSignal of(String basePath, int partition) {
+        String key = Paths.get(basePath).toAbsolutePath().normalize().toString() + ':' + partition;
+        return SIGNALS.computeIfAbsent(key, k -> new ChronicleLogSignal());
+    }
+
+    /**
+     * Wakes up the tailers waiting on this partition, to be called after a record is appended.
+     */
+    public void signal() {
+        for (Waiter waiter : waiters) {
+            waiter.signal();
+        }
+    }
+
+    /**
+     * Reads until a non-null value is returned or the timeout expires, waiting for a signal of the given partitions
+     * between reads.
+     *
+     * @param signals the signals of the read partitions
+     * @param reader the reader, returning {@code null} if there is nothing to read
+     * @param timeout the maximum duration to wait for
+     * @return the read value, or {@code null} if the timeout expired
+     */
+    public static <T> T poll(Collection<ChronicleLogSignal> signals, Supplier<T> reader, Duration timeout)
+            throws InterruptedException {
+        T ret = reader.get();
+        if (ret != null || timeout.isZero() || timeout.isNegative()) {
+            return ret;
+        }
+        long deadline = System.nanoTime() + timeout.toNanos();
+        for (int i = 0; i < SPIN_TRIES + YIELD_TRIES && System.nanoTime() < deadline; i++) {
+            if (i < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+            ret = reader.get();
+            if (ret != null) {
+                return ret;
+            }
+        }
+        Waiter waiter = new Waiter();
+        signals.forEach(signal -> signal.waiters.add(waiter));
+        try {
+            long parkMs = MIN_PARK_MS;
+            for (;;) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                // reset before reading, so that a record appended after the read is not missed
+                waiter.signaled = false;
+                ret = reader.get();
+                if (ret != null) {
+                    return ret;
+                }
+                long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMs <= 0) {
+                    return null;
+                }
+                waiter.await(Math.min(parkMs, remainingMs));
+                parkMs = Math.min(2 * parkMs, MAX_PARK_MS);
+            }
+        } finally {
+            signals.forEach(signal -> signal.waiters.remove(waiter));
+        }
+    }
+
+    /**
+     * A thread waiting for a signal.
+     */
+    protected static class Waiter {
+
+        protected volatile boolean signaled;
+
+        protected synchronized void signal() {
+            signaled = true;
+            notifyAll();
+        }
+
+        protected synchronized void await(long timeoutMs) throws InterruptedException {
+            if (!signaled) {
+                wait(timeoutMs);
+            }
+        }
+    }
+
+}
@@ -69,6 +69,9 @@ public class ChronicleLogTailer<M extends Externalizable> implements LogTailer<M
 
     protected final Codec<M> codec;
 
+    // @since 11.2
+    protected final ChronicleLogSignal signal;
+
     protected volatile boolean closed = false;
 
     public ChronicleLogTailer(Codec<M> codec, String basePath, ExcerptTailer cqTailer, LogPartition partition,
@@ -79,6 +82,7 @@ public class ChronicleLogTailer<M extends Externalizable> implements LogTailer<M
         this.cqTailer = cqTailer;
         this.partition = partition;
         this.id = new LogPartitionGroup(group, partition.name(), partition.partition());
+        this.signal = ChronicleLogSignal.of(basePath, partition.partition());
         registerTailer();
         this.offsetTracker = new ChronicleLogOffsetTracker(basePath, partition.partition(), group, retention);
         toLastCommitted();
@@ -96,18 +100,26 @@ public class ChronicleLogTailer<M extends Externalizable> implements LogTailer<M
 
     @Override
     public LogRecord<M> read(Duration timeout) throws InterruptedException {
-        LogRecord<M> ret = read();
-        if (ret != null) {
-            return ret;
+        return ChronicleLogSignal.poll(Collections.singletonList(signal), this::read, timeout);
+    }
+
+    /**
+     * Reads the following records sequentially once the first one is read.
+     *
+     * @since 11.2
+     */
+    @Override
+    public List<LogRecord<M>> readBatch(int maxRecords, Duration timeout) throws InterruptedException {
+        LogRecord<M> record = read(timeout);
+        if (record == null) {
+            return Collections.emptyList();
         }
-        long timeoutMs = timeout.toMillis();
-        long deadline = System.currentTimeMillis() + timeoutMs;
-        long delay = Math.min(POLL_INTERVAL_MS, timeoutMs);
-        while (ret == null && System.currentTimeMillis() < deadline) {
-            Thread.sleep(delay);
-            ret = read();
+        List<LogRecord<M>> records = new ArrayList<>();
+        records.add(record);
+        while (records.size() < maxRecords && (record = read()) != null) {
+            records.add(record);
         }
-        return ret;
+        return records;
     }
 
     @SuppressWarnings("unchecked")
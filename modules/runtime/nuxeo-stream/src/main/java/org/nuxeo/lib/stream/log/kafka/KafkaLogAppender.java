@@ -25,9 +25,9 @@ import java.time.Duration;
 import java.util.Collections;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
@@ -37,7 +37,6 @@ import org.apache.kafka.clients.consumer.KafkaConsumer;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.clients.producer.ProducerRecord;
-import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.common.TopicPartition;
 import org.apache.kafka.common.utils.Bytes;
 import org.nuxeo.lib.stream.StreamRuntimeException;
@@ -138,23 +137,58 @@ public class KafkaLogAppender<M extends Externalizable> implements CloseableLogA
     }
 
     public LogOffset append(int partition, String key, M message) {
-        Bytes value = Bytes.wrap(encodingCodec.encode(message));
-        ProducerRecord<String, Bytes> record = new ProducerRecord<>(topic, partition, key, value);
-        Future<RecordMetadata> future = producer.send(record);
-        RecordMetadata result;
+        CompletableFuture<LogOffset> future = appendAsync(partition, key, message);
         try {
-            result = future.get();
+            return future.get();
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            throw new StreamRuntimeException("Unable to send record: " + record, e);
+            throw new StreamRuntimeException("Unable to send record to: " + name + "-" + partition + ", key: " + key,
+                    e);
         } catch (ExecutionException e) {
-            throw new StreamRuntimeException("Unable to send record: " + record, e);
+            throw new StreamRuntimeException("Unable to send record to: " + name + "-" + partition + ", key: " + key,
+                    e.getCause());
         }
-        LogOffset ret = new LogOffsetImpl(name, partition, result.offset());
-        if (log.isDebugEnabled()) {
-            int len = record.value().get().length;
-            log.debug(String.format("Append to %s-%02d:+%d, len: %d, key: %s, value: %s", name, partition, ret.offset(),
-                    len, key, message));
+    }
+
+    @Override
+    public CompletableFuture<LogOffset> appendAsync(String key, M message) {
+        Objects.requireNonNull(key);
+        int partition = (key.hashCode() & 0x7fffffff) % size;
+        return appendAsync(partition, key, message);
+    }
+
+    @Override
+    public CompletableFuture<LogOffset> appendAsync(int partition, M message) {
+        String key = String.valueOf(partition);
+        return appendAsync(partition, key, message);
+    }
+
+    /**
+     * Sends the record to the producer without waiting for the broker acknowledgment, records are batched and
+     * pipelined by the producer according to its {@code linger.ms} and {@code batch.size} settings.
+     *
+     * @since 11.2
+     */
+    public CompletableFuture<LogOffset> appendAsync(int partition, String key, M message) {
+        CompletableFuture<LogOffset> ret = new CompletableFuture<>();
+        Bytes value = Bytes.wrap(encodingCodec.encode(message));
+        ProducerRecord<String, Bytes> record = new ProducerRecord<>(topic, partition, key, value);
+        try {
+            producer.send(record, (metadata, exception) -> {
+                if (exception != null) {
+                    ret.completeExceptionally(exception);
+                    return;
+                }
+                LogOffset offset = new LogOffsetImpl(name, partition, metadata.offset());
+                if (log.isDebugEnabled()) {
+                    log.debug(String.format("Append to %s-%02d:+%d, len: %d, key: %s, value: %s", name, partition,
+                            offset.offset(), value.get().length, key, message));
+                }
+                ret.complete(offset);
+            });
+        } catch (RuntimeException e) {
+            // serialization, buffer exhausted or closed producer
+            ret.completeExceptionally(e);
         }
         return ret;
     }
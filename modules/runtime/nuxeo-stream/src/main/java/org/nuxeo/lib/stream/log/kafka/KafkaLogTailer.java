@@ -23,11 +23,13 @@ import static org.nuxeo.lib.stream.codec.NoCodec.NO_CODEC;
 
 import java.io.Externalizable;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
@@ -203,6 +205,25 @@ public class KafkaLogTailer<M extends Externalizable> implements LogTailer<M>, C
         return new LogRecord<>(value, offset);
     }
 
+    /**
+     * Returns the records of a single poll, without polling again once the first record is read.
+     *
+     * @since 11.2
+     */
+    @Override
+    public List<LogRecord<M>> readBatch(int maxRecords, Duration timeout) throws InterruptedException {
+        LogRecord<M> record = read(timeout);
+        if (record == null) {
+            return Collections.emptyList();
+        }
+        List<LogRecord<M>> ret = new ArrayList<>(Math.min(maxRecords, records.size() + 1));
+        ret.add(record);
+        while (ret.size() < maxRecords && !records.isEmpty()) {
+            ret.add(read(Duration.ZERO));
+        }
+        return ret;
+    }
+
     protected int poll(Duration timeout) throws InterruptedException {
         records.clear();
         try {
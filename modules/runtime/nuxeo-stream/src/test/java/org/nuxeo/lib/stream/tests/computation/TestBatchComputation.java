@@ -19,11 +19,14 @@
 package org.nuxeo.lib.stream.tests.computation;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
 import static org.nuxeo.lib.stream.computation.AbstractComputation.OUTPUT_1;
 
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 import org.junit.Test;
 import org.nuxeo.lib.stream.computation.AbstractBatchComputation;
@@ -101,4 +104,54 @@ public class TestBatchComputation {
         comp.destroy();
     }
 
+    @Test
+    public void testComputationBatchForwardProcessRecords() {
+        int batchCapacity = 5;
+        ComputationPolicy policy = new ComputationPolicyBuilder().batchPolicy(batchCapacity, Duration.ofMillis(500))
+                                                                 .build();
+        ComputationBatchForward comp = new ComputationBatchForward("foo", 1);
+        ComputationContextImpl context = new ComputationContextImpl(null,
+                new ComputationMetadataMapping(comp.metadata(), Collections.emptyMap()), policy);
+        comp.init(context);
+        assertEquals(batchCapacity, comp.getMaxRecords(context));
+
+        Record aRecord = Record.of("foo", "bar".getBytes(StandardCharsets.UTF_8));
+        comp.processRecords(context, "i1", Arrays.asList(aRecord, aRecord, aRecord));
+        assertEquals(0, context.getRecords(OUTPUT_1).size());
+        assertEquals(0, comp.processCounter);
+        // the next read completes the batch
+        assertEquals(2, comp.getMaxRecords(context));
+
+        comp.processRecords(context, "i1", Arrays.asList(aRecord, aRecord));
+        assertEquals(batchCapacity, context.getRecords(OUTPUT_1).size());
+        assertEquals(1, comp.processCounter);
+        assertEquals(batchCapacity, comp.getMaxRecords(context));
+
+        comp.destroy();
+    }
+
+    @Test
+    public void testComputationBatchRetryProcessRecords() {
+        int batchCapacity = 5;
+        ComputationPolicy policy = new ComputationPolicyBuilder().batchPolicy(batchCapacity, Duration.ofMillis(500))
+                                                                 .build();
+        ComputationBatchFailureForward comp = new ComputationBatchFailureForward("foo", 1);
+        ComputationContextImpl context = new ComputationContextImpl(null,
+                new ComputationMetadataMapping(comp.metadata(), Collections.emptyMap()), policy);
+        comp.init(context);
+
+        Record aRecord = Record.of("foo", "bar".getBytes(StandardCharsets.UTF_8));
+        comp.processRecords(context, "i1", Arrays.asList(aRecord, aRecord));
+        List<Record> records = Arrays.asList(aRecord, aRecord, aRecord);
+        try {
+            comp.processRecords(context, "i1", records);
+            fail("batchProcess should fail");
+        } catch (IllegalStateException e) {
+            // the records of the failing call are removed before the retry
+            comp.processRetry(context, e);
+        }
+        assertEquals(3, comp.getMaxRecords(context));
+        comp.destroy();
+    }
+
 }
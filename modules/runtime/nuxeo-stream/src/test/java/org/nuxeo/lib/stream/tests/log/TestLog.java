@@ -31,6 +31,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -253,6 +254,34 @@ public abstract class TestLog {
         assertEquals(Name.ofUrn("test/anotherGroup"), tailer2.group());
     }
 
+    @Test
+    public void testReadBatch() throws Exception {
+        final int LOG_SIZE = 1;
+        final int NB_MSG = 5;
+        final int MAX_RECORDS = 3;
+        final Name GROUP = Name.ofUrn("test/batchTest");
+        manager.createIfNotExists(logName, LOG_SIZE);
+        LogAppender<KeyValueMessage> appender = manager.getAppender(logName);
+        for (int i = 0; i < NB_MSG; i++) {
+            appender.append(0, KeyValueMessage.of("id" + i));
+        }
+        try (LogTailer<KeyValueMessage> tailer = manager.createTailer(GROUP, logName)) {
+            List<KeyValueMessage> messages = new ArrayList<>();
+            while (messages.size() < NB_MSG) {
+                List<LogRecord<KeyValueMessage>> records = tailer.readBatch(MAX_RECORDS, DEF_TIMEOUT);
+                assertFalse(records.isEmpty());
+                assertTrue(records.size() <= MAX_RECORDS);
+                records.forEach(record -> messages.add(record.message()));
+            }
+            for (int i = 0; i < NB_MSG; i++) {
+                assertEquals(KeyValueMessage.of("id" + i), messages.get(i));
+            }
+            assertTrue(tailer.readBatch(MAX_RECORDS, SMALL_TIMEOUT).isEmpty());
+            tailer.commit();
+        }
+        assertEquals(LogLag.of(0), manager.getLag(logName, GROUP));
+    }
+
     @Test
     public void basicAppendAndTail() throws Exception {
         final int LOG_SIZE = 5;
@@ -297,6 +326,55 @@ public abstract class TestLog {
         assertEquals(LogLag.of(3), manager.getLag(logName, GROUP));
     }
 
+    @Test
+    public void testAppendAsyncAndBatch() throws Exception {
+        final int LOG_SIZE = 2;
+        final int NB_MSG = 50;
+        final Name GROUP = Name.ofUrn("test/defaultTest");
+
+        manager.createIfNotExists(logName, LOG_SIZE);
+        LogAppender<KeyValueMessage> appender = manager.getAppender(logName);
+
+        List<CompletableFuture<LogOffset>> futures = new ArrayList<>(NB_MSG);
+        for (int i = 0; i < NB_MSG; i++) {
+            futures.add(appender.appendAsync(0, KeyValueMessage.of("id" + i)));
+        }
+        List<KeyValueMessage> batch = new ArrayList<>(NB_MSG);
+        for (int i = 0; i < NB_MSG; i++) {
+            batch.add(KeyValueMessage.of("batch" + i));
+        }
+        List<LogOffset> batchOffsets = appender.appendBatch(1, batch).get();
+        assertEquals(NB_MSG, batchOffsets.size());
+
+        // offsets are ordered like messages
+        long previous = -1;
+        for (CompletableFuture<LogOffset> future : futures) {
+            LogOffset offset = future.get();
+            assertEquals(0, offset.partition().partition());
+            assertTrue(offset.offset() > previous);
+            previous = offset.offset();
+        }
+        previous = -1;
+        for (LogOffset offset : batchOffsets) {
+            assertEquals(1, offset.partition().partition());
+            assertTrue(offset.offset() > previous);
+            previous = offset.offset();
+        }
+
+        try (LogTailer<KeyValueMessage> tailer = manager.createTailer(GROUP, LogPartition.of(logName, 0))) {
+            for (int i = 0; i < NB_MSG; i++) {
+                assertEquals(KeyValueMessage.of("id" + i), tailer.read(DEF_TIMEOUT).message());
+            }
+            assertNull(tailer.read(SMALL_TIMEOUT));
+        }
+        try (LogTailer<KeyValueMessage> tailer = manager.createTailer(GROUP, LogPartition.of(logName, 1))) {
+            for (int i = 0; i < NB_MSG; i++) {
+                assertEquals(KeyValueMessage.of("batch" + i), tailer.read(DEF_TIMEOUT).message());
+            }
+            assertNull(tailer.read(SMALL_TIMEOUT));
+        }
+    }
+
     @Test
     public void testCommitAndSeek() throws Exception {
         final int LOG_SIZE = 5;
@@ -19,6 +19,7 @@
 package org.nuxeo.lib.stream.tests.log;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.nuxeo.lib.stream.tests.TestLibChronicle.IS_WIN;
@@ -29,6 +30,7 @@ import java.nio.file.Paths;
 import java.time.Duration;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.After;
@@ -39,6 +41,7 @@ import org.junit.rules.TemporaryFolder;
 import org.nuxeo.lib.stream.log.LogAppender;
 import org.nuxeo.lib.stream.log.LogLag;
 import org.nuxeo.lib.stream.log.LogManager;
+import org.nuxeo.lib.stream.log.LogRecord;
 import org.nuxeo.lib.stream.log.LogTailer;
 import org.nuxeo.lib.stream.log.Name;
 import org.nuxeo.lib.stream.log.chronicle.ChronicleLogManager;
@@ -162,6 +165,32 @@ public class TestLogChronicle extends TestLog {
         assertEquals(LogLag.of(NB_APPENDERS * RETENTION_CYCLES), manager.getLag(logName, Name.ofUrn("test/counter")));
     }
 
+    @Test
+    public void testReadIsWokenUpByAppend() throws Exception {
+        KeyValueMessage msg = KeyValueMessage.of("id1");
+        manager.createIfNotExists(logName, 1);
+        LogAppender<KeyValueMessage> appender = manager.getAppender(logName);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (LogTailer<KeyValueMessage> tailer = manager.createTailer(Name.ofUrn("test/group"), logName)) {
+            Future<Long> future = executor.submit(() -> {
+                LogRecord<KeyValueMessage> record = tailer.read(Duration.ofSeconds(10));
+                long now = System.nanoTime();
+                assertNotNull(record);
+                assertEquals(msg, record.message());
+                return now;
+            });
+            // let the reader park
+            Thread.sleep(500);
+            long start = System.nanoTime();
+            appender.append(0, msg);
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(future.get(10, TimeUnit.SECONDS) - start);
+            // without signal the reader polls every 100ms
+            assertTrue("Reader woken up after " + elapsed + " ms", elapsed < 50);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Test
     public void testRollCycle() throws Exception {
         KeyValueMessage msg1 = KeyValueMessage.of("id1");